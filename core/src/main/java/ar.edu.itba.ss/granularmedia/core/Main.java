@@ -1,9 +1,11 @@
 package ar.edu.itba.ss.granularmedia.core;
 
+import ar.edu.itba.ss.granularmedia.core.system.ConvertTrajectoryProgram;
 import ar.edu.itba.ss.granularmedia.core.system.GenerateDynamicFileProgram;
 import ar.edu.itba.ss.granularmedia.core.system.GenerateStaticFileProgram;
 import ar.edu.itba.ss.granularmedia.core.system.GranularMediaSystemProgram;
 import ar.edu.itba.ss.granularmedia.core.system.HelpProgram;
+import ar.edu.itba.ss.granularmedia.core.system.SweepProgram;
 import ar.edu.itba.ss.granularmedia.interfaces.MainProgram;
 import ar.edu.itba.ss.granularmedia.services.IOService;
 
@@ -23,6 +25,12 @@ public class Main {
       case "sim":
         mainProgram = new GranularMediaSystemProgram();
         break;
+      case "sweep":
+        mainProgram = new SweepProgram();
+        break;
+      case "convert":
+        mainProgram = new ConvertTrajectoryProgram();
+        break;
       default:
         IOService.exit(IOService.ExitStatus.BAD_ARGUMENT, null);
         return;
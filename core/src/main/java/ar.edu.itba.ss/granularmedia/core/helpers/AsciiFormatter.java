@@ -0,0 +1,176 @@
+package ar.edu.itba.ss.granularmedia.core.helpers;
+
+/**
+ * Writes numbers as ASCII characters straight into a byte array, without creating intermediate strings.
+ * <P>
+ * Doubles are written with up to {@link #SIGNIFICANT_DIGITS} significant digits (trailing zeros removed), with the
+ * same layout as {@link Double#toString(double)}: plain notation for magnitudes in {@code [1e-3, 1e7)}, and
+ * computerized scientific notation otherwise (e.g. {@code 1.25E-5}).
+ * Callers should ensure there are at least {@link #MAX_DOUBLE_CHARS} free bytes before writing a double,
+ * and {@link #MAX_LONG_CHARS} before writing a long.
+ */
+final class AsciiFormatter {
+  static final int SIGNIFICANT_DIGITS = 10;
+  // sign + digits + '.' + "E-" + 3 exponent digits, or the longest Double.toString output
+  static final int MAX_DOUBLE_CHARS = 26;
+  static final int MAX_LONG_CHARS = 20;
+
+  // beyond it, the scaling powers would overflow
+  private static final int MAX_EXPONENT = 290;
+  private static final double[] POW10 = new double[MAX_EXPONENT + SIGNIFICANT_DIGITS + 1];
+  static {
+    POW10[0] = 1;
+    for (int i = 1; i < POW10.length; i++) {
+      // parsed, so as each power is the closest double to the exact one
+      POW10[i] = Double.parseDouble("1e" + i);
+    }
+  }
+  private static final long MIN_MANTISSA = (long) POW10[SIGNIFICANT_DIGITS - 1];
+  private static final long MAX_MANTISSA = (long) POW10[SIGNIFICANT_DIGITS];
+
+  private static final double LOG10_2 = Math.log10(2);
+
+  // plain notation range, as in Double.toString
+  private static final int MIN_PLAIN_EXPONENT = -3;
+  private static final int MAX_PLAIN_EXPONENT = 7;
+
+  private AsciiFormatter() {
+  }
+
+  /**
+   * @return the position after the last written byte
+   */
+  static int putLong(final byte[] buffer, int position, final long value) {
+    if (value == Long.MIN_VALUE) {
+      return putAscii(buffer, position, Long.toString(value));
+    }
+    long remaining = value;
+    if (remaining < 0) {
+      buffer[position++] = '-';
+      remaining = -remaining;
+    }
+    final int nDigits = nDigits(remaining);
+    for (int i = position + nDigits - 1; i >= position; i--) {
+      buffer[i] = (byte) ('0' + remaining % 10);
+      remaining /= 10;
+    }
+    return position + nDigits;
+  }
+
+  /**
+   * @return the position after the last written byte
+   */
+  static int putDouble(final byte[] buffer, int position, final double value) {
+    if (value == 0) {
+      // keep the sign of -0.0
+      return putAscii(buffer, position, 1 / value < 0 ? "-0.0" : "0.0");
+    }
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      return putAscii(buffer, position, Double.toString(value));
+    }
+
+    final double abs = Math.abs(value);
+    // estimated from the binary exponent; it may be one less than the decimal one
+    int exponent = (int) Math.floor(Math.getExponent(abs) * LOG10_2);
+    if (exponent < -MAX_EXPONENT || exponent > MAX_EXPONENT) {
+      // too far from the scaling powers; not expected for physical magnitudes
+      return putAscii(buffer, position, Double.toString(value));
+    }
+    long mantissa = mantissa(abs, exponent);
+    // the estimated exponent may be off by one, and rounding may carry a digit
+    if (mantissa >= MAX_MANTISSA) {
+      exponent++;
+      mantissa = mantissa(abs, exponent);
+    } else if (mantissa < MIN_MANTISSA) {
+      exponent--;
+      mantissa = mantissa(abs, exponent);
+    }
+
+    // remove trailing zeros, keeping at least one digit
+    int nDigits = SIGNIFICANT_DIGITS;
+    while (nDigits > 1 && mantissa % 10 == 0) {
+      mantissa /= 10;
+      nDigits--;
+    }
+
+    if (value < 0) {
+      buffer[position++] = '-';
+    }
+    if (exponent >= MIN_PLAIN_EXPONENT && exponent < MAX_PLAIN_EXPONENT) {
+      return putPlain(buffer, position, mantissa, nDigits, exponent);
+    }
+    return putScientific(buffer, position, mantissa, nDigits, exponent);
+  }
+
+  private static long mantissa(final double abs, final int exponent) {
+    final int scale = SIGNIFICANT_DIGITS - 1 - exponent;
+    final double scaled = scale >= 0 ? abs * POW10[scale] : abs / POW10[-scale];
+    return Math.round(scaled);
+  }
+
+  private static int putPlain(final byte[] buffer, int position,
+                              final long mantissa, final int nDigits, final int exponent) {
+    if (exponent < 0) {
+      buffer[position++] = '0';
+      buffer[position++] = '.';
+      for (int i = -1; i > exponent; i--) {
+        buffer[position++] = '0';
+      }
+      return putDigits(buffer, position, mantissa, nDigits);
+    }
+    final int nIntegerDigits = exponent + 1;
+    if (nDigits <= nIntegerDigits) {
+      position = putDigits(buffer, position, mantissa, nDigits);
+      for (int i = nDigits; i < nIntegerDigits; i++) {
+        buffer[position++] = '0';
+      }
+      buffer[position++] = '.';
+      buffer[position++] = '0';
+      return position;
+    }
+    // digits are written and then the integer ones are moved one position left, to insert the point
+    final int start = position;
+    position = putDigits(buffer, position + 1, mantissa, nDigits);
+    System.arraycopy(buffer, start + 1, buffer, start, nIntegerDigits);
+    buffer[start + nIntegerDigits] = '.';
+    return position;
+  }
+
+  private static int putScientific(final byte[] buffer, int position,
+                                   final long mantissa, final int nDigits, final int exponent) {
+    final int start = position;
+    position = putDigits(buffer, position + 1, mantissa, nDigits);
+    buffer[start] = buffer[start + 1];
+    buffer[start + 1] = '.';
+    if (nDigits == 1) {
+      buffer[position++] = '0';
+    }
+    buffer[position++] = 'E';
+    return putLong(buffer, position, exponent);
+  }
+
+  private static int putDigits(final byte[] buffer, final int position, long digits, final int nDigits) {
+    for (int i = position + nDigits - 1; i >= position; i--) {
+      buffer[i] = (byte) ('0' + digits % 10);
+      digits /= 10;
+    }
+    return position + nDigits;
+  }
+
+  private static int putAscii(final byte[] buffer, int position, final String s) {
+    for (int i = 0; i < s.length(); i++) {
+      buffer[position++] = (byte) s.charAt(i);
+    }
+    return position;
+  }
+
+  private static int nDigits(final long value) {
+    int nDigits = 1;
+    long limit = 10;
+    while (nDigits < 19 && value >= limit) {
+      nDigits++;
+      limit *= 10;
+    }
+    return nDigits;
+  }
+}
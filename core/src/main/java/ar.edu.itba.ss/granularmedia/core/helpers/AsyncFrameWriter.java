@@ -0,0 +1,196 @@
+package ar.edu.itba.ss.granularmedia.core.helpers;
+
+import ar.edu.itba.ss.granularmedia.models.Particle;
+import ar.edu.itba.ss.granularmedia.services.IOService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Writes the system's frames - trajectory's snapshots and kinetic energy statistics - at a background thread.
+ * <P>
+ * The simulation thread only captures the system's particles into a {@link FrameSnapshot} and hands it to the
+ * writer thread, together with the frame's kinetic energy record; formatting and I/O happen at the writer thread.
+ * Snapshots are reused: there are as many snapshots as the writer's capacity plus one (the one being written),
+ * and they go back to the simulation thread once written.
+ * <P>
+ * When all snapshots are busy, the simulation thread either waits for one of them to be written
+ * ({@link Backpressure#BLOCK}) or discards the frame's snapshot ({@link Backpressure#DROP}); the kinetic energy
+ * record, which is cheap, is always written.
+ */
+public class AsyncFrameWriter implements AutoCloseable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(AsyncFrameWriter.class);
+
+  public enum Backpressure {
+    /**
+     * Simulation waits until there is room for the frame
+     */
+    BLOCK,
+    /**
+     * Frame's snapshot is discarded if there is no room for it; its kinetic energy is still written
+     */
+    DROP
+  }
+
+  // marks the end of the frames
+  private static final Frame END = new Frame(0, 0, 0, null);
+
+  private final TrajectoryWriter trajectoryWriter;
+  private final Path pathToKineticEnergyFile;
+  private final Backpressure backpressure;
+
+  private final BlockingQueue<Frame> pendingFrames;
+  private final BlockingQueue<FrameSnapshot> freeSnapshots;
+  private final Thread writerThread;
+
+  private long nDroppedFrames;
+  private boolean closed;
+
+  /**
+   * @param trajectoryWriter writer of the trajectory's frames, closed with this writer;
+   *                         null if no trajectory output is desired
+   * @param pathToKineticEnergyFile path to the kinetic energy statistics file
+   * @param capacity how many frames' snapshots can be waiting to be written
+   * @param backpressure what to do with new frames when {@code capacity} snapshots are waiting to be written
+   */
+  public AsyncFrameWriter(final TrajectoryWriter trajectoryWriter, final Path pathToKineticEnergyFile,
+                          final int capacity, final Backpressure backpressure) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity should be >= 1");
+    }
+    this.trajectoryWriter = trajectoryWriter;
+    this.pathToKineticEnergyFile = pathToKineticEnergyFile;
+    this.backpressure = backpressure;
+
+    // snapshots bound the pending frames but for the dropped ones, whose kinetic energy records are small
+    this.pendingFrames = new LinkedBlockingQueue<>();
+    this.freeSnapshots = new ArrayBlockingQueue<>(capacity + 1);
+    for (int i = 0; i < capacity + 1; i++) {
+      freeSnapshots.add(new FrameSnapshot());
+    }
+
+    this.writerThread = new Thread(this::writeFrames, "frame-writer");
+    this.writerThread.setDaemon(true);
+    this.writerThread.start();
+  }
+
+  /**
+   * Captures the given system's state and queues it to be written
+   * @param particles the system's particles
+   * @param step the step of the frame
+   * @param time the system's time
+   * @param kineticEnergy the system's kinetic energy
+   * @param maxPressure the max pressure of the system's particles
+   * @return true if the frame's snapshot was queued; false if it was dropped, and only its kinetic energy was queued
+   */
+  public boolean write(final Collection<Particle> particles, final long step, final double time,
+                       final double kineticEnergy, final double maxPressure) {
+    if (closed) {
+      throw new IllegalStateException("Writer is closed");
+    }
+    final FrameSnapshot snapshot = nextFreeSnapshot();
+    if (snapshot == null) {
+      nDroppedFrames ++;
+    } else {
+      snapshot.capture(particles, step, time, kineticEnergy, maxPressure);
+    }
+    pendingFrames.add(new Frame(step, time, kineticEnergy, snapshot));
+    return snapshot != null;
+  }
+
+  /**
+   * @return how many frames' snapshots have been dropped because there was no room for them
+   */
+  public long nDroppedFrames() {
+    return nDroppedFrames;
+  }
+
+  /**
+   * Waits until all the queued frames have been written, stops the writer thread and closes the trajectory writer
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    pendingFrames.add(END);
+    boolean interrupted = false;
+    while (writerThread.isAlive()) {
+      try {
+        writerThread.join();
+      } catch (final InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    if (trajectoryWriter != null) {
+      try {
+        trajectoryWriter.close();
+      } catch (final RuntimeException e) {
+        IOService.exit(IOService.ExitStatus.WRITE_FILE_ERROR, e);
+      }
+    }
+    if (nDroppedFrames > 0) {
+      LOGGER.warn("{} frames' snapshots were dropped as the writer could not keep up with the simulation",
+              nDroppedFrames);
+    }
+  }
+
+  private FrameSnapshot nextFreeSnapshot() {
+    if (backpressure == Backpressure.DROP) {
+      return freeSnapshots.poll();
+    }
+    try {
+      return freeSnapshots.take();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private void writeFrames() {
+    try {
+      Frame frame;
+      while ((frame = pendingFrames.take()) != END) {
+        if (frame.snapshot != null && trajectoryWriter != null) {
+          trajectoryWriter.write(frame.snapshot);
+        }
+        IOService.appendToFile(pathToKineticEnergyFile,
+                OutputSerializerHelper.kineticEnergySerializer(frame.step, frame.time, frame.kineticEnergy));
+        if (frame.snapshot != null) {
+          freeSnapshots.add(frame.snapshot);
+        }
+      }
+    } catch (final InterruptedException e) {
+      LOGGER.error("Frame writer interrupted; pending frames were not written", e);
+    } catch (final RuntimeException e) {
+      // simulation could be waiting for a free frame forever => abort
+      IOService.exit(IOService.ExitStatus.WRITE_FILE_ERROR, e);
+    }
+  }
+
+  /**
+   * A frame's kinetic energy record, and its snapshot unless it was dropped
+   */
+  private static class Frame {
+    private final long step;
+    private final double time;
+    private final double kineticEnergy;
+    private final FrameSnapshot snapshot;
+
+    private Frame(final long step, final double time, final double kineticEnergy, final FrameSnapshot snapshot) {
+      this.step = step;
+      this.time = time;
+      this.kineticEnergy = kineticEnergy;
+      this.snapshot = snapshot;
+    }
+  }
+}
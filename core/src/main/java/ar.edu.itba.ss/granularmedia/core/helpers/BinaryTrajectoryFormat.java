@@ -0,0 +1,77 @@
+package ar.edu.itba.ss.granularmedia.core.helpers;
+
+/**
+ * Layout of the binary trajectory files written by {@link BinaryTrajectoryWriter} and read by
+ * {@link BinaryTrajectoryReader}. All values are big-endian.
+ * <P>
+ * The header holds everything that does not change between frames:
+ * <pre>
+ *   int magic, int version, byte precision (bytes per real value), byte flags ({@link #FORCES}, {@link #PRESSURES})
+ *   int nFixed; nFixed x (long id, byte type code, double x, double y, double radio, double mass)
+ *   int nParticles; nParticles x (long id, byte type code, double radio, double mass)
+ * </pre>
+ * Fixed particles are the walls' and borders' ones, which are the same at all frames.
+ * System particles are sorted by id; frames refer to them by their index at the header.
+ * <P>
+ * Each frame is a block of columns, so as a column can be read without parsing the whole frame:
+ * <pre>
+ *   int frameMark, long step, double time, double kineticEnergy, double maxPressure, int n
+ *   n x int index
+ *   n x real x, n x real y, n x real vx, n x real vy
+ *   [n x real forceX, n x real forceY] if {@link #FORCES}
+ *   [n x real pressure] if {@link #PRESSURES}
+ * </pre>
+ * where {@code real} is a float or a double, as the header's precision says.
+ */
+public final class BinaryTrajectoryFormat {
+  public enum Precision {
+    SINGLE(Float.BYTES),
+    DOUBLE(Double.BYTES);
+
+    private final int bytes;
+
+    Precision(final int bytes) {
+      this.bytes = bytes;
+    }
+
+    public int bytes() {
+      return bytes;
+    }
+
+    static Precision ofBytes(final int bytes) {
+      for (final Precision precision : values()) {
+        if (precision.bytes == bytes) {
+          return precision;
+        }
+      }
+      return null;
+    }
+  }
+
+  static final int MAGIC = 0x474D5452; // "GMTR"
+  static final int VERSION = 1;
+  static final int FRAME_MARK = 0x46524D45; // "FRME"
+
+  static final byte FORCES = 1;
+  static final byte PRESSURES = 1 << 1;
+
+  // frameMark + step + time + kineticEnergy + maxPressure + n
+  static final int FRAME_HEAD_BYTES = Integer.BYTES + Long.BYTES + 3 * Double.BYTES + Integer.BYTES;
+
+  private BinaryTrajectoryFormat() {
+  }
+
+  /**
+   * @return how many real values each particle has at a frame with the given flags
+   */
+  static int nColumns(final byte flags) {
+    int nColumns = 4; // x, y, vx, vy
+    if ((flags & FORCES) != 0) {
+      nColumns += 2;
+    }
+    if ((flags & PRESSURES) != 0) {
+      nColumns ++;
+    }
+    return nColumns;
+  }
+}
@@ -0,0 +1,206 @@
+package ar.edu.itba.ss.granularmedia.core.helpers;
+
+import ar.edu.itba.ss.granularmedia.core.helpers.BinaryTrajectoryFormat.Precision;
+import ar.edu.itba.ss.granularmedia.models.Particle;
+import ar.edu.itba.ss.granularmedia.models.ParticleType;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static ar.edu.itba.ss.granularmedia.core.helpers.BinaryTrajectoryFormat.*;
+
+/**
+ * Reads, frame by frame, a trajectory written with the binary format described at {@link BinaryTrajectoryFormat}.
+ * <P>
+ * The header is read when the reader is opened; frames are then read one at a time with
+ * {@link #next(FrameSnapshot)}, so the whole trajectory is never held in memory.
+ */
+public class BinaryTrajectoryReader implements AutoCloseable {
+  private final DataInputStream in;
+  private final Precision precision;
+  private final byte flags;
+  private final List<Particle> fixedParticles;
+
+  // system particles' static values, indexed as at the header
+  private final long[] ids;
+  private final ParticleType[] types;
+  private final double[] radios;
+  private final double[] masses;
+
+  private final byte[] frameHead;
+  private byte[] frameBody;
+
+  /**
+   * Opens the given trajectory file and reads its header
+   * @param pathToTrajectoryFile path to the binary trajectory file
+   * @throws IOException if the file could not be read or it is not a binary trajectory file
+   */
+  public BinaryTrajectoryReader(final Path pathToTrajectoryFile) throws IOException {
+    this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(pathToTrajectoryFile)));
+    try {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a binary trajectory file: " + pathToTrajectoryFile);
+      }
+      final int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported binary trajectory version: " + version);
+      }
+      final byte precisionBytes = in.readByte();
+      this.precision = Precision.ofBytes(precisionBytes);
+      if (precision == null) {
+        throw new IOException("Unsupported binary trajectory precision: " + precisionBytes);
+      }
+      this.flags = in.readByte();
+
+      final int nFixed = in.readInt();
+      final List<Particle> fixedParticles = new ArrayList<>(nFixed);
+      for (int i = 0; i < nFixed; i++) {
+        final long id = in.readLong();
+        final ParticleType type = readType();
+        final double x = in.readDouble();
+        final double y = in.readDouble();
+        final double radio = in.readDouble();
+        final double mass = in.readDouble();
+        fixedParticles.add(Particle.builder(x, y).id(id).type(type).radio(radio).mass(mass).build());
+      }
+      this.fixedParticles = Collections.unmodifiableList(fixedParticles);
+
+      final int nParticles = in.readInt();
+      this.ids = new long[nParticles];
+      this.types = new ParticleType[nParticles];
+      this.radios = new double[nParticles];
+      this.masses = new double[nParticles];
+      for (int i = 0; i < nParticles; i++) {
+        ids[i] = in.readLong();
+        types[i] = readType();
+        radios[i] = in.readDouble();
+        masses[i] = in.readDouble();
+      }
+    } catch (final IOException e) {
+      in.close();
+      throw e;
+    }
+    this.frameHead = new byte[FRAME_HEAD_BYTES];
+    this.frameBody = new byte[0];
+  }
+
+  public Precision precision() {
+    return precision;
+  }
+
+  public boolean hasForces() {
+    return (flags & FORCES) != 0;
+  }
+
+  public boolean hasPressures() {
+    return (flags & PRESSURES) != 0;
+  }
+
+  /**
+   * @return the number of system particles described at the header
+   */
+  public int nParticles() {
+    return ids.length;
+  }
+
+  /**
+   * @return the particles representing the system walls and borders, which are the same at all frames
+   */
+  public List<Particle> fixedParticles() {
+    return fixedParticles;
+  }
+
+  /**
+   * Reads the next frame into the given snapshot, overriding its previous values.
+   * Forces and pressures are set to 0 if they were not written.
+   * @param frame snapshot where the frame is read into
+   * @return true if a frame was read; false if there are no more frames
+   * @throws IOException if the frame could not be read
+   */
+  public boolean next(final FrameSnapshot frame) throws IOException {
+    if (!readFrameHead()) {
+      return false;
+    }
+    final ByteBuffer head = ByteBuffer.wrap(frameHead);
+    if (head.getInt() != FRAME_MARK) {
+      throw new IOException("Corrupted binary trajectory: frame mark expected");
+    }
+    final long step = head.getLong();
+    final double time = head.getDouble();
+    final double kineticEnergy = head.getDouble();
+    final double maxPressure = head.getDouble();
+    final int n = head.getInt();
+
+    final int bodyBytes = n * (Integer.BYTES + nColumns(flags) * precision.bytes());
+    if (frameBody.length < bodyBytes) {
+      frameBody = new byte[bodyBytes];
+    }
+    in.readFully(frameBody, 0, bodyBytes);
+    final ByteBuffer body = ByteBuffer.wrap(frameBody, 0, bodyBytes);
+
+    frame.begin(step, time, kineticEnergy, maxPressure, n);
+    final int columnsStart = n * Integer.BYTES;
+    final int columnBytes = n * precision.bytes();
+    for (int i = 0; i < n; i++) {
+      final int index = body.getInt(i * Integer.BYTES);
+      if (index < 0 || index >= ids.length) {
+        throw new IOException("Corrupted binary trajectory: unknown particle index " + index);
+      }
+      final int offset = columnsStart + i * precision.bytes();
+      final double x = getReal(body, offset);
+      final double y = getReal(body, offset + columnBytes);
+      final double vx = getReal(body, offset + 2 * columnBytes);
+      final double vy = getReal(body, offset + 3 * columnBytes);
+      int column = 4;
+      double forceX = 0;
+      double forceY = 0;
+      if (hasForces()) {
+        forceX = getReal(body, offset + column * columnBytes);
+        forceY = getReal(body, offset + (column + 1) * columnBytes);
+        column += 2;
+      }
+      final double pressure = hasPressures() ? getReal(body, offset + column * columnBytes) : 0;
+      frame.set(i, ids[index], types[index], x, y, vx, vy, forceX, forceY, radios[index], masses[index], pressure);
+    }
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  private boolean readFrameHead() throws IOException {
+    int read = 0;
+    while (read < frameHead.length) {
+      final int count = in.read(frameHead, read, frameHead.length - read);
+      if (count < 0) {
+        if (read == 0) {
+          return false;
+        }
+        throw new EOFException("Truncated binary trajectory frame");
+      }
+      read += count;
+    }
+    return true;
+  }
+
+  private double getReal(final ByteBuffer body, final int offset) {
+    return precision == Precision.SINGLE ? body.getFloat(offset) : body.getDouble(offset);
+  }
+
+  private ParticleType readType() throws IOException {
+    final byte code = in.readByte();
+    for (final ParticleType type : ParticleType.values()) {
+      if (type.getCode() == code) {
+        return type;
+      }
+    }
+    throw new IOException("Corrupted binary trajectory: unknown particle type " + code);
+  }
+}
@@ -0,0 +1,172 @@
+package ar.edu.itba.ss.granularmedia.core.helpers;
+
+import ar.edu.itba.ss.granularmedia.core.helpers.BinaryTrajectoryFormat.Precision;
+import ar.edu.itba.ss.granularmedia.models.Particle;
+import ar.edu.itba.ss.granularmedia.models.ParticleType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static ar.edu.itba.ss.granularmedia.core.helpers.BinaryTrajectoryFormat.*;
+
+/**
+ * Writes the system's frames with the binary format described at {@link BinaryTrajectoryFormat}.
+ * <P>
+ * System particles' static values (id, type, radio and mass) are written at the header, so all the particles that
+ * may be at a frame, even the ones that are not at the first one, should be given when the writer is built.
+ */
+public class BinaryTrajectoryWriter implements TrajectoryWriter {
+  private final OutputStream out;
+  private final Collection<Particle> fixedParticles;
+  private final Collection<Particle> particles;
+  private final Precision precision;
+  private final byte flags;
+
+  // system particles' ids, sorted, so as their index can be searched
+  private long[] ids;
+  private ByteBuffer buffer;
+
+  /**
+   * @param out stream where the trajectory is written; it is closed by this writer
+   * @param fixedParticles particles representing the system walls and borders
+   * @param particles all the system particles that may be at the frames, e.g., the ones waiting to be respawned too
+   * @param precision precision of the frames' values
+   * @param forces whether particles' forces are written
+   * @param pressures whether particles' pressures are written
+   */
+  public BinaryTrajectoryWriter(final OutputStream out, final Collection<Particle> fixedParticles,
+                                final Collection<Particle> particles, final Precision precision,
+                                final boolean forces, final boolean pressures) {
+    this.out = out;
+    this.fixedParticles = fixedParticles;
+    this.particles = particles;
+    this.precision = precision;
+    this.flags = (byte) ((forces ? FORCES : 0) | (pressures ? PRESSURES : 0));
+    this.buffer = ByteBuffer.allocate(FRAME_HEAD_BYTES);
+  }
+
+  @Override
+  public void write(final FrameSnapshot frame) {
+    if (ids == null) {
+      writeHeader();
+    }
+    final int n = frame.n();
+    ensureCapacity(FRAME_HEAD_BYTES + n * (Integer.BYTES + nColumns(flags) * precision.bytes()));
+
+    buffer.clear();
+    buffer.putInt(FRAME_MARK).putLong(frame.step())
+            .putDouble(frame.time()).putDouble(frame.kineticEnergy()).putDouble(frame.maxPressure())
+            .putInt(n);
+    for (int i = 0; i < n; i++) {
+      final int index = Arrays.binarySearch(ids, frame.id(i));
+      if (index < 0) {
+        throw new IllegalArgumentException("Particle with id " + frame.id(i) + " is not at the header");
+      }
+      buffer.putInt(index);
+    }
+    for (int i = 0; i < n; i++) {
+      putReal(frame.x(i));
+    }
+    for (int i = 0; i < n; i++) {
+      putReal(frame.y(i));
+    }
+    for (int i = 0; i < n; i++) {
+      putReal(frame.vx(i));
+    }
+    for (int i = 0; i < n; i++) {
+      putReal(frame.vy(i));
+    }
+    if ((flags & FORCES) != 0) {
+      for (int i = 0; i < n; i++) {
+        putReal(frame.forceX(i));
+      }
+      for (int i = 0; i < n; i++) {
+        putReal(frame.forceY(i));
+      }
+    }
+    if ((flags & PRESSURES) != 0) {
+      for (int i = 0; i < n; i++) {
+        putReal(frame.pressure(i));
+      }
+    }
+    flushBuffer();
+  }
+
+  @Override
+  public void close() {
+    try {
+      if (ids == null) {
+        // no frames were written => only the header
+        writeHeader();
+      }
+      out.close();
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void writeHeader() {
+    final List<Particle> sorted = new ArrayList<>(particles);
+    sorted.sort((p1, p2) -> Long.compare(p1.id(), p2.id()));
+    final int n = sorted.size();
+
+    // magic + version + precision + flags + nFixed + fixed particles + nParticles + system particles
+    final int fixedBytes = Long.BYTES + Byte.BYTES + 4 * Double.BYTES;
+    final int particleBytes = Long.BYTES + Byte.BYTES + 2 * Double.BYTES;
+    ensureCapacity(3 * Integer.BYTES + 2 * Byte.BYTES + fixedParticles.size() * fixedBytes
+            + Integer.BYTES + n * particleBytes);
+
+    buffer.clear();
+    buffer.putInt(MAGIC).putInt(VERSION).put((byte) precision.bytes()).put(flags);
+    buffer.putInt(fixedParticles.size());
+    for (final Particle particle : fixedParticles) {
+      buffer.putLong(particle.id()).put(typeCode(particle.type()))
+              .putDouble(particle.x()).putDouble(particle.y())
+              .putDouble(particle.radio()).putDouble(particle.mass());
+    }
+    ids = new long[n];
+    buffer.putInt(n);
+    for (int k = 0; k < n; k++) {
+      final Particle particle = sorted.get(k);
+      ids[k] = particle.id();
+      if (k > 0 && ids[k] == ids[k - 1]) {
+        throw new IllegalArgumentException("Particle with id " + ids[k] + " is repeated");
+      }
+      buffer.putLong(ids[k]).put(typeCode(particle.type()))
+              .putDouble(particle.radio()).putDouble(particle.mass());
+    }
+    flushBuffer();
+  }
+
+  private void putReal(final double value) {
+    if (precision == Precision.SINGLE) {
+      buffer.putFloat((float) value);
+    } else {
+      buffer.putDouble(value);
+    }
+  }
+
+  private void ensureCapacity(final int bytes) {
+    if (buffer.capacity() < bytes) {
+      buffer = ByteBuffer.allocate(Math.max(bytes, 2 * buffer.capacity()));
+    }
+  }
+
+  private void flushBuffer() {
+    try {
+      out.write(buffer.array(), 0, buffer.position());
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static byte typeCode(final ParticleType type) {
+    return (byte) type.getCode();
+  }
+}
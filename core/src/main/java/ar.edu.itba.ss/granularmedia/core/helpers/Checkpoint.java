@@ -0,0 +1,536 @@
+package ar.edu.itba.ss.granularmedia.core.helpers;
+
+import ar.edu.itba.ss.granularmedia.models.Particle;
+import ar.edu.itba.ss.granularmedia.models.ParticleType;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Whole state of a running simulation, between two steps, so as it can be resumed and go on exactly as it would have.
+ * <P>
+ * It holds the simulation loop's counters, the {@link FlowRecorder}'s counters, and the system's state:
+ * each slot's particle with all its derivative values, the particles waiting to be respawned and the respawn cells.
+ * Slots are saved in order, as they set the order in which forces are added up.
+ * <P>
+ * Checkpoints are saved as binary files, with big-endian values:
+ * <pre>
+ *   int magic, int version
+ *   double dt, long step, long logStep, double currentTime, boolean considerKineticEnergy
+ *   double flowBinWidth, long flowParticlesFlowed, long flowCurrentBin, long flowCurrentBinParticlesFlowed
+ *   double kineticEnergy, double maxPressure, long nParticlesFlowed
+ *   int nSlots, int nQueued, int sVectors
+ *   (nSlots + nQueued) x (long id, byte type code, byte flags, double x, double y, double vx, double vy,
+ *                         double forceX, double forceY, double radio, double mass, double normalForce)
+ *   nSlots x sVectors x (double rX, double rY)
+ *   int nActive, nSlots x (boolean quiet, int quietSteps)
+ *   nSlots x (int level, int elapsedSteps, boolean syncRequested)
+ *   int nextCell, int nCells, nCells x int particlesOnCell
+ *   int nTaken, nTaken x (long id, int firstCell, int lastCell)
+ *   long crc32 of all the previous bytes
+ * </pre>
+ * Slots' particles go first, followed by the queued ones, in queue order. Sleeping particles take the slots from
+ * {@code nActive} on. Slots' time step levels are those of multi-rate integration methods.
+ * <P>
+ * Arrays are reused between captures, so capturing a checkpoint only copies values.
+ */
+public final class Checkpoint {
+  private static final int MAGIC = 0x474D4350; // "GMCP"
+  private static final int VERSION = 1;
+
+  private static final byte IS_COLLIDING = 1;
+  private static final byte HAS_FLOWED_OUT = 1 << 1;
+
+  // simulation loop
+  private double dt;
+  private long step;
+  private long logStep;
+  private double currentTime;
+  private boolean considerKineticEnergy;
+
+  // flow recorder
+  /* package-private */ double flowBinWidth;
+  /* package-private */ long flowParticlesFlowed;
+  /* package-private */ long flowCurrentBin;
+  /* package-private */ long flowCurrentBinParticlesFlowed;
+
+  // system
+  private double kineticEnergy;
+  private double maxPressure;
+  private long nParticlesFlowed;
+
+  private int nSlots;
+  private int nQueued;
+  private int sVectors;
+  private long[] ids = new long[0];
+  private ParticleType[] types = new ParticleType[0];
+  private byte[] flags = new byte[0];
+  private double[] xs = new double[0];
+  private double[] ys = new double[0];
+  private double[] vxs = new double[0];
+  private double[] vys = new double[0];
+  private double[] forceXs = new double[0];
+  private double[] forceYs = new double[0];
+  private double[] radios = new double[0];
+  private double[] masses = new double[0];
+  private double[] normalForces = new double[0];
+  private double[] rXs = new double[0];
+  private double[] rYs = new double[0];
+  private int nActive;
+  private boolean[] quiet = new boolean[0];
+  private int[] quietSteps = new int[0];
+  private int[] levels = new int[0];
+  private int[] elapsedSteps = new int[0];
+  private boolean[] syncRequested = new boolean[0];
+
+  private int nextCell;
+  private int[] particlesOnCell = new int[0];
+  private int nTaken;
+  private long[] takenIds = new long[0];
+  private int[] takenFirstCells = new int[0];
+  private int[] takenLastCells = new int[0];
+
+  // simulation loop
+
+  public void run(final double dt, final long step, final long logStep,
+                  final double currentTime, final boolean considerKineticEnergy) {
+    this.dt = dt;
+    this.step = step;
+    this.logStep = logStep;
+    this.currentTime = currentTime;
+    this.considerKineticEnergy = considerKineticEnergy;
+  }
+
+  public double dt() {
+    return dt;
+  }
+
+  public long step() {
+    return step;
+  }
+
+  public long logStep() {
+    return logStep;
+  }
+
+  public double currentTime() {
+    return currentTime;
+  }
+
+  public boolean considerKineticEnergy() {
+    return considerKineticEnergy;
+  }
+
+  // system
+
+  public void system(final double kineticEnergy, final double maxPressure, final long nParticlesFlowed) {
+    this.kineticEnergy = kineticEnergy;
+    this.maxPressure = maxPressure;
+    this.nParticlesFlowed = nParticlesFlowed;
+  }
+
+  public double kineticEnergy() {
+    return kineticEnergy;
+  }
+
+  public double maxPressure() {
+    return maxPressure;
+  }
+
+  public long nParticlesFlowed() {
+    return nParticlesFlowed;
+  }
+
+  /**
+   * Prepares the checkpoint to capture the given number of particles
+   * @param nSlots number of system's particles, i.e., of slots
+   * @param nQueued number of particles waiting to be respawned
+   * @param sVectors number of derivative values of each slot
+   */
+  public void particles(final int nSlots, final int nQueued, final int sVectors) {
+    this.nSlots = nSlots;
+    this.nQueued = nQueued;
+    this.sVectors = sVectors;
+    final int n = nSlots + nQueued;
+    if (ids.length < n) {
+      final int capacity = Math.max(n, 2 * ids.length);
+      ids = new long[capacity];
+      types = new ParticleType[capacity];
+      flags = new byte[capacity];
+      xs = new double[capacity];
+      ys = new double[capacity];
+      vxs = new double[capacity];
+      vys = new double[capacity];
+      forceXs = new double[capacity];
+      forceYs = new double[capacity];
+      radios = new double[capacity];
+      masses = new double[capacity];
+      normalForces = new double[capacity];
+    }
+    if (rXs.length < nSlots * sVectors) {
+      final int capacity = Math.max(nSlots * sVectors, 2 * rXs.length);
+      rXs = new double[capacity];
+      rYs = new double[capacity];
+    }
+    if (quiet.length < nSlots) {
+      final int capacity = Math.max(nSlots, 2 * quiet.length);
+      quiet = new boolean[capacity];
+      quietSteps = new int[capacity];
+      levels = new int[capacity];
+      elapsedSteps = new int[capacity];
+      syncRequested = new boolean[capacity];
+    }
+    // none of them is sleeping, and all of them are at level 0, unless said otherwise
+    this.nActive = nSlots;
+    Arrays.fill(quiet, 0, nSlots, false);
+    Arrays.fill(quietSteps, 0, nSlots, 0);
+    Arrays.fill(levels, 0, nSlots, 0);
+    Arrays.fill(elapsedSteps, 0, nSlots, 0);
+    Arrays.fill(syncRequested, 0, nSlots, false);
+  }
+
+  public int nSlots() {
+    return nSlots;
+  }
+
+  public int nQueued() {
+    return nQueued;
+  }
+
+  public int sVectors() {
+    return sVectors;
+  }
+
+  /**
+   * Saves the given particle at the {@code i}-th position: slots go from 0 to {@code nSlots() - 1},
+   * and queued particles, from {@code nSlots()} on
+   */
+  public void particle(final int i, final Particle particle) {
+    ids[i] = particle.id();
+    types[i] = particle.type();
+    flags[i] = (byte) ((particle.isColliding() ? IS_COLLIDING : 0) | (particle.hasFlowedOut() ? HAS_FLOWED_OUT : 0));
+    xs[i] = particle.x();
+    ys[i] = particle.y();
+    vxs[i] = particle.vx();
+    vys[i] = particle.vy();
+    forceXs[i] = particle.forceX();
+    forceYs[i] = particle.forceY();
+    radios[i] = particle.radio();
+    masses[i] = particle.mass();
+    normalForces[i] = particle.normalForce();
+  }
+
+  /**
+   * @return a new particle equal to the one saved at the {@code i}-th position, including its mutable state
+   */
+  public Particle particle(final int i) {
+    final Particle particle = Particle.builder(xs[i], ys[i])
+            .vx(vxs[i]).vy(vys[i])
+            .forceX(forceXs[i]).forceY(forceYs[i])
+            .id(ids[i])
+            .type(types[i])
+            .isColliding((flags[i] & IS_COLLIDING) != 0)
+            .mass(masses[i])
+            .radio(radios[i])
+            .build();
+    particle.normalForce(normalForces[i]);
+    particle.hasFlowedOut((flags[i] & HAS_FLOWED_OUT) != 0);
+    return particle;
+  }
+
+  public void r(final int slot, final int derivativeOrder, final double x, final double y) {
+    rXs[slot * sVectors + derivativeOrder] = x;
+    rYs[slot * sVectors + derivativeOrder] = y;
+  }
+
+  public double rX(final int slot, final int derivativeOrder) {
+    return rXs[slot * sVectors + derivativeOrder];
+  }
+
+  public double rY(final int slot, final int derivativeOrder) {
+    return rYs[slot * sVectors + derivativeOrder];
+  }
+
+  /**
+   * @param nActive number of active particles; sleeping ones take the slots from {@code nActive} on
+   */
+  public void sleeping(final int nActive) {
+    this.nActive = nActive;
+  }
+
+  /**
+   * Saves whether the particle at the given slot was quiet at the last step, and for how many steps it has been
+   */
+  public void sleeping(final int slot, final boolean quiet, final int quietSteps) {
+    this.quiet[slot] = quiet;
+    this.quietSteps[slot] = quietSteps;
+  }
+
+  public int nActive() {
+    return nActive;
+  }
+
+  public boolean quiet(final int slot) {
+    return quiet[slot];
+  }
+
+  public int quietSteps(final int slot) {
+    return quietSteps[slot];
+  }
+
+  /**
+   * Saves the time step level of the particle at the given slot, how many steps have elapsed since it was fixed, and
+   * whether it should be fixed at the next step
+   */
+  public void level(final int slot, final int level, final int elapsedSteps, final boolean syncRequested) {
+    this.levels[slot] = level;
+    this.elapsedSteps[slot] = elapsedSteps;
+    this.syncRequested[slot] = syncRequested;
+  }
+
+  public int level(final int slot) {
+    return levels[slot];
+  }
+
+  public int elapsedSteps(final int slot) {
+    return elapsedSteps[slot];
+  }
+
+  public boolean syncRequested(final int slot) {
+    return syncRequested[slot];
+  }
+
+  /**
+   * Saves the respawn cells' counters
+   * @param nextCell next cell to be checked when respawning
+   * @param particlesOnCell how many particles are taking each cell; it is copied
+   * @param nTaken how many particles are taking cells, to be saved with {@link #takenCells(int, long, int, int)}
+   */
+  public void respawnCells(final int nextCell, final int[] particlesOnCell, final int nTaken) {
+    this.nextCell = nextCell;
+    this.particlesOnCell = Arrays.copyOf(particlesOnCell, particlesOnCell.length);
+    this.nTaken = nTaken;
+    if (takenIds.length < nTaken) {
+      final int capacity = Math.max(nTaken, 2 * takenIds.length);
+      takenIds = new long[capacity];
+      takenFirstCells = new int[capacity];
+      takenLastCells = new int[capacity];
+    }
+  }
+
+  public void takenCells(final int i, final long id, final int firstCell, final int lastCell) {
+    takenIds[i] = id;
+    takenFirstCells[i] = firstCell;
+    takenLastCells[i] = lastCell;
+  }
+
+  public int nextCell() {
+    return nextCell;
+  }
+
+  public int[] particlesOnCell() {
+    return Arrays.copyOf(particlesOnCell, particlesOnCell.length);
+  }
+
+  public int nTaken() {
+    return nTaken;
+  }
+
+  public long takenId(final int i) {
+    return takenIds[i];
+  }
+
+  public int takenFirstCell(final int i) {
+    return takenFirstCells[i];
+  }
+
+  public int takenLastCell(final int i) {
+    return takenLastCells[i];
+  }
+
+  // I/O
+
+  /**
+   * Writes this checkpoint to the given stream, which is not closed
+   * @throws IOException if the checkpoint could not be written
+   */
+  public void write(final OutputStream outputStream) throws IOException {
+    final CheckedOutputStream checked = new CheckedOutputStream(outputStream, new CRC32());
+    final DataOutputStream out = new DataOutputStream(checked);
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+
+    out.writeDouble(dt);
+    out.writeLong(step);
+    out.writeLong(logStep);
+    out.writeDouble(currentTime);
+    out.writeBoolean(considerKineticEnergy);
+
+    out.writeDouble(flowBinWidth);
+    out.writeLong(flowParticlesFlowed);
+    out.writeLong(flowCurrentBin);
+    out.writeLong(flowCurrentBinParticlesFlowed);
+
+    out.writeDouble(kineticEnergy);
+    out.writeDouble(maxPressure);
+    out.writeLong(nParticlesFlowed);
+
+    out.writeInt(nSlots);
+    out.writeInt(nQueued);
+    out.writeInt(sVectors);
+    for (int i = 0; i < nSlots + nQueued; i++) {
+      out.writeLong(ids[i]);
+      out.writeByte(types[i].getCode());
+      out.writeByte(flags[i]);
+      out.writeDouble(xs[i]);
+      out.writeDouble(ys[i]);
+      out.writeDouble(vxs[i]);
+      out.writeDouble(vys[i]);
+      out.writeDouble(forceXs[i]);
+      out.writeDouble(forceYs[i]);
+      out.writeDouble(radios[i]);
+      out.writeDouble(masses[i]);
+      out.writeDouble(normalForces[i]);
+    }
+    for (int i = 0; i < nSlots * sVectors; i++) {
+      out.writeDouble(rXs[i]);
+      out.writeDouble(rYs[i]);
+    }
+    out.writeInt(nActive);
+    for (int i = 0; i < nSlots; i++) {
+      out.writeBoolean(quiet[i]);
+      out.writeInt(quietSteps[i]);
+    }
+    for (int i = 0; i < nSlots; i++) {
+      out.writeInt(levels[i]);
+      out.writeInt(elapsedSteps[i]);
+      out.writeBoolean(syncRequested[i]);
+    }
+
+    out.writeInt(nextCell);
+    out.writeInt(particlesOnCell.length);
+    for (final int particles : particlesOnCell) {
+      out.writeInt(particles);
+    }
+    out.writeInt(nTaken);
+    for (int i = 0; i < nTaken; i++) {
+      out.writeLong(takenIds[i]);
+      out.writeInt(takenFirstCells[i]);
+      out.writeInt(takenLastCells[i]);
+    }
+
+    out.flush();
+    // the checksum itself is not checked
+    new DataOutputStream(outputStream).writeLong(checked.getChecksum().getValue());
+  }
+
+  /**
+   * @param pathToCheckpointFile path to a checkpoint file, as written by {@link #write(OutputStream)}
+   * @return the read checkpoint
+   * @throws IOException if the file could not be read, or it is not a valid checkpoint file
+   */
+  public static Checkpoint read(final Path pathToCheckpointFile) throws IOException {
+    try (final InputStream inputStream = new BufferedInputStream(Files.newInputStream(pathToCheckpointFile))) {
+      final CheckedInputStream checked = new CheckedInputStream(inputStream, new CRC32());
+      final DataInputStream in = new DataInputStream(checked);
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a checkpoint file: " + pathToCheckpointFile);
+      }
+      final int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported checkpoint version: " + version);
+      }
+
+      final Checkpoint checkpoint = new Checkpoint();
+      checkpoint.run(in.readDouble(), in.readLong(), in.readLong(), in.readDouble(), in.readBoolean());
+
+      checkpoint.flowBinWidth = in.readDouble();
+      checkpoint.flowParticlesFlowed = in.readLong();
+      checkpoint.flowCurrentBin = in.readLong();
+      checkpoint.flowCurrentBinParticlesFlowed = in.readLong();
+
+      checkpoint.system(in.readDouble(), in.readDouble(), in.readLong());
+
+      final int nSlots = in.readInt();
+      final int nQueued = in.readInt();
+      final int sVectors = in.readInt();
+      if (nSlots < 0 || nQueued < 0 || sVectors < 1) {
+        throw new IOException("Corrupted checkpoint: invalid number of particles");
+      }
+      checkpoint.particles(nSlots, nQueued, sVectors);
+      for (int i = 0; i < nSlots + nQueued; i++) {
+        checkpoint.ids[i] = in.readLong();
+        checkpoint.types[i] = readType(in);
+        checkpoint.flags[i] = in.readByte();
+        checkpoint.xs[i] = in.readDouble();
+        checkpoint.ys[i] = in.readDouble();
+        checkpoint.vxs[i] = in.readDouble();
+        checkpoint.vys[i] = in.readDouble();
+        checkpoint.forceXs[i] = in.readDouble();
+        checkpoint.forceYs[i] = in.readDouble();
+        checkpoint.radios[i] = in.readDouble();
+        checkpoint.masses[i] = in.readDouble();
+        checkpoint.normalForces[i] = in.readDouble();
+      }
+      for (int i = 0; i < nSlots * sVectors; i++) {
+        checkpoint.rXs[i] = in.readDouble();
+        checkpoint.rYs[i] = in.readDouble();
+      }
+      final int nActive = in.readInt();
+      if (nActive < 0 || nActive > nSlots) {
+        throw new IOException("Corrupted checkpoint: invalid number of active particles");
+      }
+      checkpoint.sleeping(nActive);
+      for (int i = 0; i < nSlots; i++) {
+        checkpoint.sleeping(i, in.readBoolean(), in.readInt());
+      }
+      for (int i = 0; i < nSlots; i++) {
+        final int level = in.readInt();
+        final int elapsedSteps = in.readInt();
+        if (level < 0 || elapsedSteps < 0) {
+          throw new IOException("Corrupted checkpoint: invalid time step level");
+        }
+        checkpoint.level(i, level, elapsedSteps, in.readBoolean());
+      }
+
+      final int nextCell = in.readInt();
+      final int nCells = in.readInt();
+      if (nCells < 0) {
+        throw new IOException("Corrupted checkpoint: invalid number of respawn cells");
+      }
+      final int[] particlesOnCell = new int[nCells];
+      for (int cell = 0; cell < nCells; cell++) {
+        particlesOnCell[cell] = in.readInt();
+      }
+      final int nTaken = in.readInt();
+      if (nTaken < 0) {
+        throw new IOException("Corrupted checkpoint: invalid number of taken cells");
+      }
+      checkpoint.respawnCells(nextCell, particlesOnCell, nTaken);
+      for (int i = 0; i < nTaken; i++) {
+        checkpoint.takenCells(i, in.readLong(), in.readInt(), in.readInt());
+      }
+
+      final long checksum = checked.getChecksum().getValue();
+      if (new DataInputStream(inputStream).readLong() != checksum) {
+        throw new IOException("Corrupted checkpoint: checksum does not match");
+      }
+      return checkpoint;
+    }
+  }
+
+  private static ParticleType readType(final DataInputStream in) throws IOException {
+    final byte code = in.readByte();
+    for (final ParticleType type : ParticleType.values()) {
+      if (type.getCode() == code) {
+        return type;
+      }
+    }
+    throw new IOException("Corrupted checkpoint: unknown particle type " + code);
+  }
+}
@@ -0,0 +1,173 @@
+package ar.edu.itba.ss.granularmedia.core.helpers;
+
+import ar.edu.itba.ss.granularmedia.services.IOService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the simulation's {@link Checkpoint}s at a background thread, every given number of steps and/or
+ * every given wall clock time.
+ * <P>
+ * The simulation thread only captures its state into a free checkpoint, and hands it to the writer thread.
+ * There are two checkpoints, so as one can be captured while the other one is being written; if both are busy,
+ * the checkpoint is still due and it is captured at a later step, so the simulation never waits for the disk.
+ * <P>
+ * Each checkpoint is first written to a temporary file next to the checkpoint file, and then moved over it,
+ * so the checkpoint file is always a complete checkpoint, even if the program dies while writing.
+ */
+public class CheckpointWriter implements AutoCloseable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(CheckpointWriter.class);
+
+  private static final String TEMPORARY_FILE_EXTENSION = ".tmp";
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final long NS_PER_S = TimeUnit.SECONDS.toNanos(1);
+
+  // marks the end of the checkpoints
+  private static final Checkpoint END = new Checkpoint();
+
+  private final Path pathToCheckpointFile;
+  private final Path pathToTemporaryFile;
+  private final long everySteps;
+  private final long everyNanos;
+
+  private final BlockingQueue<Checkpoint> pendingCheckpoints;
+  private final BlockingQueue<Checkpoint> freeCheckpoints;
+  private final Thread writerThread;
+
+  private long stepsSinceLast;
+  private long lastNanos;
+  private boolean closed;
+
+  /**
+   * @param pathToCheckpointFile path to the checkpoint file; it is replaced by each new checkpoint
+   * @param everySteps steps between checkpoints; 0 if checkpoints are not due by steps
+   * @param everySeconds wall clock seconds between checkpoints; 0 if checkpoints are not due by time
+   */
+  public CheckpointWriter(final Path pathToCheckpointFile, final long everySteps, final double everySeconds) {
+    if (everySteps < 0 || everySeconds < 0) {
+      throw new IllegalArgumentException("Checkpoints' period should be >= 0");
+    }
+    this.pathToCheckpointFile = pathToCheckpointFile;
+    this.pathToTemporaryFile =
+            pathToCheckpointFile.resolveSibling(pathToCheckpointFile.getFileName() + TEMPORARY_FILE_EXTENSION);
+    this.everySteps = everySteps;
+    this.everyNanos = (long) (everySeconds * NS_PER_S);
+
+    // both checkpoints and the end mark always fit
+    this.pendingCheckpoints = new ArrayBlockingQueue<>(3);
+    this.freeCheckpoints = new ArrayBlockingQueue<>(2);
+    freeCheckpoints.add(new Checkpoint());
+    freeCheckpoints.add(new Checkpoint());
+    this.lastNanos = System.nanoTime();
+
+    this.writerThread = new Thread(this::writeCheckpoints, "checkpoint-writer");
+    this.writerThread.setDaemon(true);
+    this.writerThread.start();
+  }
+
+  /**
+   * Counts a simulation step
+   * @return true if a checkpoint is due; false otherwise
+   */
+  public boolean step() {
+    stepsSinceLast ++;
+    return (everySteps > 0 && stepsSinceLast >= everySteps)
+            || (everyNanos > 0 && System.nanoTime() - lastNanos >= everyNanos);
+  }
+
+  /**
+   * @param wait whether to wait for a checkpoint to be written if both of them are busy
+   * @return a checkpoint to capture the simulation's state in, to be handed back with {@link #write(Checkpoint)};
+   * null if both checkpoints are busy and {@code wait} is false
+   */
+  public Checkpoint freeCheckpoint(final boolean wait) {
+    if (closed) {
+      throw new IllegalStateException("Writer is closed");
+    }
+    if (!wait) {
+      return freeCheckpoints.poll();
+    }
+    try {
+      return freeCheckpoints.take();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Queues the given checkpoint to be written, and starts counting steps and time until the next one
+   * @param checkpoint a checkpoint given by {@link #freeCheckpoint(boolean)}, with the simulation's state
+   */
+  public void write(final Checkpoint checkpoint) {
+    pendingCheckpoints.add(checkpoint); // there is always room, as there are no more checkpoints than its capacity
+    stepsSinceLast = 0;
+    lastNanos = System.nanoTime();
+  }
+
+  /**
+   * Waits until all the queued checkpoints have been written, and stops the writer thread
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    pendingCheckpoints.add(END);
+    boolean interrupted = false;
+    while (writerThread.isAlive()) {
+      try {
+        writerThread.join();
+      } catch (final InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void writeCheckpoints() {
+    try {
+      Checkpoint checkpoint;
+      while ((checkpoint = pendingCheckpoints.take()) != END) {
+        writeAtomically(checkpoint);
+        LOGGER.info("Checkpoint saved at step {}, time {}", checkpoint.step(), checkpoint.currentTime());
+        freeCheckpoints.add(checkpoint);
+      }
+    } catch (final InterruptedException e) {
+      LOGGER.error("Checkpoint writer interrupted; pending checkpoints were not written", e);
+    } catch (final IOException e) {
+      IOService.exit(IOService.ExitStatus.WRITE_FILE_ERROR, e);
+    }
+  }
+
+  private void writeAtomically(final Checkpoint checkpoint) throws IOException {
+    try (final FileOutputStream file = new FileOutputStream(pathToTemporaryFile.toFile())) {
+      final OutputStream out = new BufferedOutputStream(file, BUFFER_SIZE);
+      checkpoint.write(out);
+      out.flush();
+      // the checkpoint should be on disk before it replaces the previous one
+      file.getFD().sync();
+    }
+    try {
+      Files.move(pathToTemporaryFile, pathToCheckpointFile,
+              StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (final AtomicMoveNotSupportedException e) {
+      Files.move(pathToTemporaryFile, pathToCheckpointFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+}
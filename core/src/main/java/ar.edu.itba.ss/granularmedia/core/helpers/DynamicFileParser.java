@@ -0,0 +1,335 @@
+package ar.edu.itba.ss.granularmedia.core.helpers;
+
+import ar.edu.itba.ss.granularmedia.models.Particle;
+import ar.edu.itba.ss.granularmedia.models.ParticleType;
+import ar.edu.itba.ss.granularmedia.services.gear.ChunksExecutor;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Parses the content of a dynamic file, as written by {@link OutputSerializerHelper#dynamicOutput} or
+ * {@link DynamicFileWriter}, straight from its bytes: the number of particles at the first line (maybe followed by
+ * blanks), followed by one line per particle with its
+ * id, x, y, vx, vy, forceX, forceY, R, G, B, radio, mass, type's code and type's name, split by blanks.
+ * <P>
+ * Numbers are parsed without building strings when possible: a number with up to 15 significant digits and
+ * a power of ten that is exact as a double is computed with a single multiplication or division, which gives the
+ * same correctly rounded value as {@link Double#parseDouble(String)}; any other number falls back to it.
+ * <P>
+ * Lines are located first, so as they can be parsed by several threads when there are many of them.
+ */
+final class DynamicFileParser {
+  // below this number of particles, parallel parsing does not pay off
+  private static final int PARALLEL_MIN_PARTICLES = 10_000;
+
+  private static final int MAX_FAST_DIGITS = 15;
+  private static final double[] POW10 = {
+          1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+          1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+  // a long can hold up to 18 digits without overflowing
+  private static final int MAX_LONG_DIGITS = 18;
+
+  private static final ParticleType[] TYPES = ParticleType.values();
+  private static final byte[][] TYPES_NAMES = new byte[TYPES.length][];
+  static {
+    for (int i = 0; i < TYPES.length; i++) {
+      TYPES_NAMES[i] = TYPES[i].name().getBytes(StandardCharsets.US_ASCII);
+    }
+  }
+
+  private DynamicFileParser() {
+  }
+
+  /**
+   * @param file the dynamic file's content
+   * @param nThreads number of threads that can be used to parse the particles' lines
+   * @return the file's particles, in the same order they are at the file
+   * @throws IllegalArgumentException if the file is not a well formed dynamic file; its message says where
+   */
+  static Particle[] parse(final ByteBuffer file, final int nThreads) {
+    final Tokenizer header = new Tokenizer(file, 0, file.limit(), 1);
+    final long totalParticles = header.nextLong();
+    if (totalParticles < 0 || totalParticles > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("line 1: invalid number of particles " + totalParticles);
+    }
+    final int n = (int) totalParticles;
+    header.nextLine();
+
+    // lineStarts[i] is the first byte of the (i + 1)th particle's line; lineStarts[n] is where the last one ends
+    final int[] lineStarts = new int[n + 1];
+    int position = header.position();
+    for (int i = 0; i < n; i++) {
+      if (position >= file.limit()) {
+        throw new IllegalArgumentException("expected " + n + " particles' lines; found " + i);
+      }
+      lineStarts[i] = position;
+      while (position < file.limit() && file.get(position) != '\n') {
+        position++;
+      }
+      position++; // skip the new line
+    }
+    lineStarts[n] = Math.min(position, file.limit());
+
+    final Particle[] particles = new Particle[n];
+    final ChunksExecutor executor = nThreads > 1 && n >= PARALLEL_MIN_PARTICLES ?
+            new ChunksExecutor(nThreads) : ChunksExecutor.SERIAL;
+    try {
+      executor.run(n, (chunk, from, to) -> {
+        // first particle's line is the file's second one
+        final Tokenizer tokenizer = new Tokenizer(file, lineStarts[from], lineStarts[to], from + 2);
+        for (int i = from; i < to; i++) {
+          particles[i] = tokenizer.nextParticle();
+          tokenizer.nextLine();
+        }
+      });
+    } finally {
+      if (executor != ChunksExecutor.SERIAL) {
+        executor.shutdown();
+      }
+    }
+    return particles;
+  }
+
+  /**
+   * Reads blank-separated tokens from a range of the file. Only absolute reads are done on the shared buffer,
+   * so several tokenizers can read the same buffer at the same time.
+   */
+  private static class Tokenizer {
+    private final ByteBuffer file;
+    private final int end;
+    private int position;
+    private int line;
+    // characters of the numbers that are parsed by the JDK
+    private char[] slowToken;
+
+    private Tokenizer(final ByteBuffer file, final int from, final int to, final int line) {
+      this.file = file;
+      this.position = from;
+      this.end = to;
+      this.line = line;
+      this.slowToken = new char[32];
+    }
+
+    private int position() {
+      return position;
+    }
+
+    private Particle nextParticle() {
+      final long id = nextLong();
+      final double x = nextDouble();
+      final double y = nextDouble();
+      final double vx = nextDouble();
+      final double vy = nextDouble();
+      final double forceX = nextDouble();
+      final double forceY = nextDouble();
+      skipToken(); // skip color[R]
+      skipToken(); // skip color[G]
+      skipToken(); // skip color[B]
+      final double radio = nextDouble();
+      final double mass = nextDouble();
+      skipToken(); // skip value int
+      final ParticleType type = nextType();
+
+      return Particle.builder(x, y).id(id).vx(vx).vy(vy).forceX(forceX).forceY(forceY)
+              .radio(radio).mass(mass).type(type).build();
+    }
+
+    /**
+     * Moves to the beginning of the next line
+     */
+    private void nextLine() {
+      while (position < end && file.get(position) != '\n') {
+        position++;
+      }
+      position++;
+      line++;
+    }
+
+    private long nextLong() {
+      final int start = startToken();
+      final boolean negative = file.get(position) == '-';
+      if (negative || file.get(position) == '+') {
+        position++;
+      }
+      long value = 0;
+      int digits = 0;
+      while (position < end && isDigit(file.get(position))) {
+        value = value * 10 + (file.get(position) - '0');
+        digits++;
+        position++;
+      }
+      if (digits == 0 || digits > MAX_LONG_DIGITS || !isTokenEnd()) {
+        final String token = slowToken(start);
+        try {
+          return Long.parseLong(token);
+        } catch (final NumberFormatException e) {
+          throw new IllegalArgumentException("line " + line + ": integer expected; found '" + token + "'", e);
+        }
+      }
+      return negative ? -value : value;
+    }
+
+    private double nextDouble() {
+      final int start = startToken();
+      final boolean negative = file.get(position) == '-';
+      if (negative || file.get(position) == '+') {
+        position++;
+      }
+
+      long mantissa = 0;
+      int significantDigits = 0;
+      int exponent = 0;
+      boolean anyDigit = false;
+      // integer part
+      while (position < end && isDigit(file.get(position))) {
+        if (significantDigits <= MAX_FAST_DIGITS) {
+          mantissa = mantissa * 10 + (file.get(position) - '0');
+          if (mantissa != 0) {
+            significantDigits++;
+          }
+        } else {
+          exponent++; // too many digits => slow path anyway
+        }
+        anyDigit = true;
+        position++;
+      }
+      // fraction part
+      if (position < end && file.get(position) == '.') {
+        position++;
+        while (position < end && isDigit(file.get(position))) {
+          if (significantDigits <= MAX_FAST_DIGITS) {
+            mantissa = mantissa * 10 + (file.get(position) - '0');
+            if (mantissa != 0) {
+              significantDigits++;
+            }
+            exponent--;
+          }
+          anyDigit = true;
+          position++;
+        }
+      }
+      // exponent part
+      if (anyDigit && position < end && (file.get(position) == 'E' || file.get(position) == 'e')) {
+        position++;
+        final boolean negativeExponent = position < end && file.get(position) == '-';
+        if (negativeExponent || (position < end && file.get(position) == '+')) {
+          position++;
+        }
+        int explicitExponent = 0;
+        boolean anyExponentDigit = false;
+        while (position < end && isDigit(file.get(position))) {
+          // bigger exponents go to the slow path
+          explicitExponent = Math.min(explicitExponent * 10 + (file.get(position) - '0'), 1000);
+          anyExponentDigit = true;
+          position++;
+        }
+        anyDigit = anyExponentDigit;
+        exponent += negativeExponent ? -explicitExponent : explicitExponent;
+      }
+
+      if (anyDigit && isTokenEnd() && significantDigits <= MAX_FAST_DIGITS) {
+        final double value;
+        if (mantissa == 0) {
+          value = 0;
+        } else if (exponent >= 0 && exponent < POW10.length) {
+          value = mantissa * POW10[exponent];
+        } else if (exponent < 0 && -exponent < POW10.length) {
+          value = mantissa / POW10[-exponent];
+        } else {
+          return slowDouble(start);
+        }
+        return negative ? -value : value;
+      }
+      return slowDouble(start);
+    }
+
+    private double slowDouble(final int start) {
+      final String token = slowToken(start);
+      try {
+        return Double.parseDouble(token);
+      } catch (final NumberFormatException e) {
+        throw new IllegalArgumentException("line " + line + ": number expected; found '" + token + "'", e);
+      }
+    }
+
+    private ParticleType nextType() {
+      final int start = startToken();
+      skipToken();
+      final int length = position - start;
+      for (int i = 0; i < TYPES.length; i++) {
+        if (matches(start, length, TYPES_NAMES[i])) {
+          return TYPES[i];
+        }
+      }
+      throw new IllegalArgumentException("line " + line + ": particle type expected; found '" + slowToken(start)
+              + "'");
+    }
+
+    private void skipToken() {
+      startToken();
+      while (!isTokenEnd()) {
+        position++;
+      }
+    }
+
+    /**
+     * Skips blanks until the next token
+     * @return the first position of the token
+     */
+    private int startToken() {
+      while (position < end && isBlank(file.get(position))) {
+        position++;
+      }
+      if (position >= end || file.get(position) == '\n') {
+        throw new IllegalArgumentException("line " + line + ": missing values");
+      }
+      return position;
+    }
+
+    /**
+     * Moves to the end of the token that starts at {@code start}
+     * @return the whole token
+     */
+    private String slowToken(final int start) {
+      position = start;
+      while (!isTokenEnd()) {
+        position++;
+      }
+      final int length = position - start;
+      if (slowToken.length < length) {
+        slowToken = Arrays.copyOf(slowToken, Math.max(length, 2 * slowToken.length));
+      }
+      for (int i = 0; i < length; i++) {
+        slowToken[i] = (char) (file.get(start + i) & 0xFF);
+      }
+      return new String(slowToken, 0, length);
+    }
+
+    private boolean matches(final int start, final int length, final byte[] name) {
+      if (length != name.length) {
+        return false;
+      }
+      for (int i = 0; i < length; i++) {
+        if (file.get(start + i) != name[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private boolean isTokenEnd() {
+      return position >= end || isBlank(file.get(position)) || file.get(position) == '\n';
+    }
+
+    private static boolean isDigit(final byte b) {
+      return b >= '0' && b <= '9';
+    }
+
+    private static boolean isBlank(final byte b) {
+      return b == ' ' || b == '\t' || b == '\r';
+    }
+  }
+}
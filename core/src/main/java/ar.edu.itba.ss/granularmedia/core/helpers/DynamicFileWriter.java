@@ -0,0 +1,112 @@
+package ar.edu.itba.ss.granularmedia.core.helpers;
+
+import ar.edu.itba.ss.granularmedia.models.Particle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Streams particles to a dynamic file, with the same format as {@link OutputSerializerHelper#dynamicOutput}, as they
+ * are written, so as the memory it takes does not depend on how many particles are written.
+ * <P>
+ * Each particle's line is formatted at a reused builder and copied into a reused buffer, which is written to the file
+ * whenever it fills up. As how many particles there will be may not be known beforehand, room for the header is kept
+ * at the beginning of the file, and the header is written there when the writer is closed; if there are fewer
+ * particles than the expected ones, their number is padded with blanks, which parsers skip.
+ */
+public class DynamicFileWriter implements AutoCloseable {
+  private static final int BUFFER_BYTES = 1 << 20;
+  // bigger than any particle's line, so as the builder is never enlarged
+  private static final int MAX_LINE_CHARS = 1024;
+  private static final byte BLANK = ' ';
+
+  private final FileChannel channel;
+  private final int headerBytes;
+  private final ByteBuffer buffer;
+  private final StringBuilder line;
+  private long nParticles;
+
+  /**
+   * @param channel channel where the file is written, from its beginning; it is closed by this writer
+   * @param maxParticles how many particles will be written, at most
+   */
+  public DynamicFileWriter(final FileChannel channel, final long maxParticles) {
+    this.channel = channel;
+    this.headerBytes = OutputSerializerHelper.dynamicHeader(maxParticles).length();
+    this.buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    this.line = new StringBuilder(MAX_LINE_CHARS);
+    // room for the header, which is written when closed
+    for (int i = 0; i < headerBytes; i++) {
+      buffer.put(BLANK);
+    }
+  }
+
+  public void write(final Particle particle) {
+    line.setLength(0);
+    OutputSerializerHelper.serializeDynamic(particle, line);
+    if (buffer.remaining() < line.length()) {
+      flushBuffer();
+    }
+    // lines are plain ASCII
+    for (int i = 0; i < line.length(); i++) {
+      buffer.put((byte) line.charAt(i));
+    }
+    nParticles++;
+  }
+
+  /**
+   * @return how many particles have been written
+   */
+  public long nParticles() {
+    return nParticles;
+  }
+
+  /**
+   * Writes the pending particles and the header, and closes the file
+   */
+  @Override
+  public void close() {
+    try {
+      flushBuffer();
+      final String header = OutputSerializerHelper.dynamicHeader(nParticles);
+      if (header.length() > headerBytes) {
+        throw new IllegalStateException(
+                "Expected " + headerBytes + " header's bytes at most; found " + header.length());
+      }
+      final ByteBuffer headerBuffer = ByteBuffer.allocate(headerBytes);
+      // number first, blanks after it, and the new line at the end
+      final int nDigits = header.length() - System.lineSeparator().length();
+      for (int i = 0; i < nDigits; i++) {
+        headerBuffer.put((byte) header.charAt(i));
+      }
+      while (headerBuffer.position() < headerBytes - System.lineSeparator().length()) {
+        headerBuffer.put(BLANK);
+      }
+      for (int i = nDigits; i < header.length(); i++) {
+        headerBuffer.put((byte) header.charAt(i));
+      }
+      headerBuffer.flip();
+      long position = 0;
+      while (headerBuffer.hasRemaining()) {
+        position += channel.write(headerBuffer, position);
+      }
+      channel.close();
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void flushBuffer() {
+    buffer.flip();
+    try {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    buffer.clear();
+  }
+}
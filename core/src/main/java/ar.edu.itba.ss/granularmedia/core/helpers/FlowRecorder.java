@@ -0,0 +1,219 @@
+package ar.edu.itba.ss.granularmedia.core.helpers;
+
+import ar.edu.itba.ss.granularmedia.services.IOService;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Records the particles that flow out of the system, and writes them to the flow file in batches.
+ * <P>
+ * Two modes are available:
+ * <ul>
+ *   <li>{@link #events(Path)}: exact mode; one {@code step,time} line is written per flowed particle.
+ *   Flow events are kept in primitive arrays until {@link #EVENTS_BATCH} of them are waiting to be written.</li>
+ *   <li>{@link #binned(Path, double)}: only the number of flowed particles within each time bin is kept;
+ *   one {@code binStart,binEnd,nParticlesFlowed,flowRate} line is written per bin, once it is over.</li>
+ * </ul>
+ * Pending output is written when it gets bigger than {@link #OUTPUT_BATCH} characters, and when the recorder is
+ * closed with {@link #close(double)}.
+ * <P>
+ * Counters can be saved at a {@link Checkpoint}, and restored from it, so as a resumed simulation's flow
+ * goes on from where it was.
+ */
+public class FlowRecorder {
+  /* package-private */ static final int EVENTS_BATCH = 1 << 14;
+  private static final int INITIAL_EVENTS_CAPACITY = 1 << 8;
+  /* package-private */ static final int OUTPUT_BATCH = 1 << 16;
+
+  private final Path pathToFlowFile;
+  // 0 for the events mode
+  private final double binWidth;
+  private final StringBuilder pendingOutput;
+
+  private long nParticlesFlowed;
+
+  // events mode
+  private long[] eventsSteps;
+  private double[] eventsTimes;
+  private int nEvents;
+
+  // binned mode
+  private long currentBin;
+  private long currentBinParticlesFlowed;
+
+  private FlowRecorder(final Path pathToFlowFile, final double binWidth) {
+    this.pathToFlowFile = pathToFlowFile;
+    this.binWidth = binWidth;
+    this.pendingOutput = new StringBuilder();
+    if (binWidth == 0) {
+      this.eventsSteps = new long[INITIAL_EVENTS_CAPACITY];
+      this.eventsTimes = new double[INITIAL_EVENTS_CAPACITY];
+    }
+  }
+
+  /**
+   * @param pathToFlowFile path to the flow file, already opened with {@link IOService#createOutputFile}
+   * @return a recorder that writes one line per flowed particle
+   */
+  public static FlowRecorder events(final Path pathToFlowFile) {
+    return new FlowRecorder(pathToFlowFile, 0);
+  }
+
+  /**
+   * @param pathToFlowFile path to the flow file, already opened with {@link IOService#createOutputFile}
+   * @param binWidth time width of each bin
+   * @return a recorder that writes one line per time bin
+   * @throws IllegalArgumentException if {@code binWidth} is not {@code > 0}
+   */
+  public static FlowRecorder binned(final Path pathToFlowFile, final double binWidth) {
+    if (!(binWidth > 0)) {
+      throw new IllegalArgumentException("Bin width should be > 0");
+    }
+    return new FlowRecorder(pathToFlowFile, binWidth);
+  }
+
+  /**
+   * Records that {@code nParticlesJustFlowed} particles have flowed at the given time
+   * @param nParticlesJustFlowed how many particles have just flowed; may be 0
+   * @param step the current output step
+   * @param time the current system's time, which should not decrease between calls
+   */
+  public void record(final long nParticlesJustFlowed, final long step, final double time) {
+    nParticlesFlowed += nParticlesJustFlowed;
+    if (binWidth == 0) {
+      for (long i = 0; i < nParticlesJustFlowed; i++) {
+        addEvent(step, time);
+      }
+      return;
+    }
+
+    final long bin = (long) (time / binWidth);
+    if (bin != currentBin) {
+      // bins in between have no flowed particles, but they are written too
+      for (long b = currentBin; b < bin; b++) {
+        pendingOutput.append(OutputSerializerHelper.flowBinSerializer(b * binWidth, (b + 1) * binWidth,
+                b == currentBin ? currentBinParticlesFlowed : 0));
+      }
+      currentBin = bin;
+      currentBinParticlesFlowed = 0;
+      flushIfBig();
+    }
+    currentBinParticlesFlowed += nParticlesJustFlowed;
+  }
+
+  /**
+   * @return how many particles have flowed since the recorder was created
+   */
+  public long nParticlesFlowed() {
+    return nParticlesFlowed;
+  }
+
+  /**
+   * @param time the elapsed time
+   * @return the mean number of flowed particles per time unit
+   */
+  public double mediaFlow(final double time) {
+    return nParticlesFlowed / time;
+  }
+
+  /**
+   * Writes all pending output, and closes the flow file
+   * @param endTime time at which the recording ends; the current bin is written up to this time
+   */
+  public void close(final double endTime) {
+    if (binWidth == 0) {
+      flushEvents();
+    } else {
+      final double binStart = currentBin * binWidth;
+      if (endTime > binStart) {
+        pendingOutput.append(
+                OutputSerializerHelper.flowBinSerializer(binStart, endTime, currentBinParticlesFlowed));
+      }
+      currentBinParticlesFlowed = 0;
+    }
+    flushOutput();
+    IOService.closeOutputFile(pathToFlowFile);
+  }
+
+  /**
+   * Writes all pending output, except the current bin's one, and closes the flow file.
+   * The current bin is kept, so as it can be saved at a checkpoint and completed by the resumed simulation.
+   */
+  public void suspend() {
+    flush();
+    IOService.closeOutputFile(pathToFlowFile);
+  }
+
+  /**
+   * Writes all pending output, except the current bin's one, so as the flow file is up to date
+   * when a checkpoint is saved
+   */
+  public void flush() {
+    if (binWidth == 0) {
+      flushEvents();
+    }
+    flushOutput();
+  }
+
+  /**
+   * Saves the recorder's counters at the given checkpoint. Pending output is not saved, so it should be
+   * written with {@link #flush()} first
+   */
+  public void checkpoint(final Checkpoint checkpoint) {
+    checkpoint.flowBinWidth = binWidth;
+    checkpoint.flowParticlesFlowed = nParticlesFlowed;
+    checkpoint.flowCurrentBin = currentBin;
+    checkpoint.flowCurrentBinParticlesFlowed = currentBinParticlesFlowed;
+  }
+
+  /**
+   * Restores the recorder's counters from the given checkpoint
+   * @throws IllegalArgumentException if the checkpoint was saved by a recorder of a different mode or bin width
+   */
+  public void restore(final Checkpoint checkpoint) {
+    if (Double.compare(checkpoint.flowBinWidth, binWidth) != 0) {
+      throw new IllegalArgumentException("Checkpoint's flow bin width is " + checkpoint.flowBinWidth);
+    }
+    nParticlesFlowed = checkpoint.flowParticlesFlowed;
+    currentBin = checkpoint.flowCurrentBin;
+    currentBinParticlesFlowed = checkpoint.flowCurrentBinParticlesFlowed;
+  }
+
+  private void addEvent(final long step, final double time) {
+    if (nEvents == eventsSteps.length) {
+      if (nEvents >= EVENTS_BATCH) {
+        flushEvents();
+      } else {
+        eventsSteps = Arrays.copyOf(eventsSteps, 2 * nEvents);
+        eventsTimes = Arrays.copyOf(eventsTimes, 2 * nEvents);
+      }
+    }
+    eventsSteps[nEvents] = step;
+    eventsTimes[nEvents] = time;
+    nEvents++;
+  }
+
+  private void flushEvents() {
+    if (nEvents == 0) {
+      return;
+    }
+    pendingOutput.append(OutputSerializerHelper.flowEventsSerializer(eventsSteps, eventsTimes, nEvents));
+    nEvents = 0;
+    flushIfBig();
+  }
+
+  private void flushIfBig() {
+    if (pendingOutput.length() >= OUTPUT_BATCH) {
+      flushOutput();
+    }
+  }
+
+  private void flushOutput() {
+    if (pendingOutput.length() == 0) {
+      return;
+    }
+    IOService.appendToFile(pathToFlowFile, pendingOutput.toString());
+    pendingOutput.setLength(0);
+  }
+}
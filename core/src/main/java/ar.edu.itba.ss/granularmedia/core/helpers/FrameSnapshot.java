@@ -0,0 +1,195 @@
+package ar.edu.itba.ss.granularmedia.core.helpers;
+
+import ar.edu.itba.ss.granularmedia.models.Particle;
+import ar.edu.itba.ss.granularmedia.models.ParticleType;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Copy of the system's particles values at a given step, so as they can be serialized while the system goes on
+ * evolving.
+ * <P>
+ * Values are saved as primitive arrays, indexed from 0 to {@code n() - 1}, which are reused between captures
+ * (they only grow when more particles are captured), so capturing a frame does not allocate.
+ */
+public class FrameSnapshot {
+  private static final int MIN_CAPACITY = 16;
+
+  private long step;
+  private double time;
+  private double kineticEnergy;
+  private double maxPressure;
+  private int n;
+
+  private long[] ids;
+  private ParticleType[] types;
+  private double[] xs;
+  private double[] ys;
+  private double[] vxs;
+  private double[] vys;
+  private double[] forceXs;
+  private double[] forceYs;
+  private double[] radios;
+  private double[] masses;
+  private double[] pressures;
+
+  public FrameSnapshot() {
+    allocate(MIN_CAPACITY);
+  }
+
+  /**
+   * Saves the values of the given {@code particles}, overriding the previously captured ones
+   * @param particles the system's particles
+   * @param step the step of the frame
+   * @param time the system's time of the frame
+   * @param kineticEnergy the system's kinetic energy
+   * @param maxPressure the max pressure of the system's particles, used to choose particles' color
+   */
+  public void capture(final Collection<Particle> particles, final long step, final double time,
+                      final double kineticEnergy, final double maxPressure) {
+    this.step = step;
+    this.time = time;
+    this.kineticEnergy = kineticEnergy;
+    this.maxPressure = maxPressure;
+    if (particles.size() > ids.length) {
+      allocate(Math.max(particles.size(), 2 * ids.length));
+    }
+
+    int i = 0;
+    for (final Particle particle : particles) {
+      ids[i] = particle.id();
+      types[i] = particle.type();
+      xs[i] = particle.x();
+      ys[i] = particle.y();
+      vxs[i] = particle.vx();
+      vys[i] = particle.vy();
+      forceXs[i] = particle.forceX();
+      forceYs[i] = particle.forceY();
+      radios[i] = particle.radio();
+      masses[i] = particle.mass();
+      pressures[i] = particle.pressure();
+      i++;
+    }
+    // release types of previous captures
+    Arrays.fill(types, i, n > i ? n : i, null);
+    this.n = i;
+  }
+
+  /**
+   * Starts a frame of {@code n} particles, whose values are then set with
+   * {@link #set(int, long, ParticleType, double, double, double, double, double, double, double, double, double)};
+   * used to restore frames that were not captured from the system, like the ones read from a trajectory file
+   */
+  void begin(final long step, final double time, final double kineticEnergy, final double maxPressure,
+             final int n) {
+    this.step = step;
+    this.time = time;
+    this.kineticEnergy = kineticEnergy;
+    this.maxPressure = maxPressure;
+    if (n > ids.length) {
+      allocate(Math.max(n, 2 * ids.length));
+    }
+    // release types of previous frames
+    Arrays.fill(types, n, this.n > n ? this.n : n, null);
+    this.n = n;
+  }
+
+  void set(final int i, final long id, final ParticleType type,
+           final double x, final double y, final double vx, final double vy,
+           final double forceX, final double forceY,
+           final double radio, final double mass, final double pressure) {
+    ids[i] = id;
+    types[i] = type;
+    xs[i] = x;
+    ys[i] = y;
+    vxs[i] = vx;
+    vys[i] = vy;
+    forceXs[i] = forceX;
+    forceYs[i] = forceY;
+    radios[i] = radio;
+    masses[i] = mass;
+    pressures[i] = pressure;
+  }
+
+  public long step() {
+    return step;
+  }
+
+  public double time() {
+    return time;
+  }
+
+  public double kineticEnergy() {
+    return kineticEnergy;
+  }
+
+  public double maxPressure() {
+    return maxPressure;
+  }
+
+  /**
+   * @return the number of captured particles
+   */
+  public int n() {
+    return n;
+  }
+
+  public long id(final int i) {
+    return ids[i];
+  }
+
+  public ParticleType type(final int i) {
+    return types[i];
+  }
+
+  public double x(final int i) {
+    return xs[i];
+  }
+
+  public double y(final int i) {
+    return ys[i];
+  }
+
+  public double vx(final int i) {
+    return vxs[i];
+  }
+
+  public double vy(final int i) {
+    return vys[i];
+  }
+
+  public double forceX(final int i) {
+    return forceXs[i];
+  }
+
+  public double forceY(final int i) {
+    return forceYs[i];
+  }
+
+  public double radio(final int i) {
+    return radios[i];
+  }
+
+  public double mass(final int i) {
+    return masses[i];
+  }
+
+  public double pressure(final int i) {
+    return pressures[i];
+  }
+
+  private void allocate(final int capacity) {
+    ids = new long[capacity];
+    types = new ParticleType[capacity];
+    xs = new double[capacity];
+    ys = new double[capacity];
+    vxs = new double[capacity];
+    vys = new double[capacity];
+    forceXs = new double[capacity];
+    forceYs = new double[capacity];
+    radios = new double[capacity];
+    masses = new double[capacity];
+    pressures = new double[capacity];
+  }
+}
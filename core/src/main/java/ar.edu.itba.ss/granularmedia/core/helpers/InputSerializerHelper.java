@@ -1,18 +1,18 @@
 package ar.edu.itba.ss.granularmedia.core.helpers;
 
 import ar.edu.itba.ss.granularmedia.models.Particle;
-import ar.edu.itba.ss.granularmedia.models.ParticleType;
 import ar.edu.itba.ss.granularmedia.models.StaticData;
 import ar.edu.itba.ss.granularmedia.services.IOService;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Scanner;
 import java.util.stream.Stream;
 
+import static ar.edu.itba.ss.granularmedia.services.IOService.ExitStatus.BAD_FILE_FORMAT;
 import static ar.edu.itba.ss.granularmedia.services.IOService.ExitStatus.COULD_NOT_OPEN_INPUT_FILE;
 
 public class InputSerializerHelper {
@@ -30,15 +30,28 @@ public class InputSerializerHelper {
   }
 
   public static Collection<Particle> loadDynamicData(final String dynamicFile) {
+    return loadDynamicData(dynamicFile, 1);
+  }
+
+  /**
+   * Loads the particles of the given dynamic file, parsing them with up to {@code nThreads} threads
+   * @param dynamicFile path to the dynamic file
+   * @param nThreads number of threads that can be used to parse the particles
+   * @return the file's particles
+   */
+  public static Collection<Particle> loadDynamicData(final String dynamicFile, final int nThreads) {
     final Path dynamicFilePath = Paths.get(dynamicFile);
-    if (!IOService.openInputFile(dynamicFilePath)) {
-      IOService.exit(COULD_NOT_OPEN_INPUT_FILE, dynamicFilePath);
+    final Particle[] particles;
+    try {
+      particles = DynamicFileParser.parse(IOService.mapInputFile(dynamicFilePath), nThreads);
+    } catch (final IllegalArgumentException e) {
+      IOService.exit(BAD_FILE_FORMAT, e.getMessage());
       // should never reach here
-      throw new IllegalStateException();
+      throw new IllegalStateException(e);
     }
-    final Collection<Particle> particles = InputSerializerHelper.readDynamicFile(dynamicFilePath);
-    IOService.closeInputFile(dynamicFilePath);
-    return particles;
+    final Collection<Particle> particlesSet = new HashSet<>(particles.length);
+    Collections.addAll(particlesSet, particles);
+    return particlesSet;
   }
 
   private static StaticData readStaticFile(final Path staticFilePath) {
@@ -54,34 +67,4 @@ public class InputSerializerHelper {
 
     return StaticData.builder(n, width, length, diameterOpening, mass, kn, kt).build();
   }
-
-  private static Collection<Particle> readDynamicFile(final Path dynamicFilePath) {
-    final Stream<String> stream = IOService.readLines(dynamicFilePath);
-    final Iterator<String> streamLines = stream.iterator();
-
-    final int totalParticles = IOService.parseAsInt(streamLines.next(), "<nParticles>");
-
-    final Collection<Particle> particles = new HashSet<>(totalParticles);
-    for (int i = 0 ; i < totalParticles ; i++) {
-      final Scanner numScanner = new Scanner(streamLines.next());
-      final int id = numScanner.nextInt();
-      final double x = numScanner.nextDouble(); // caught InputMismatchException
-      final double y = numScanner.nextDouble(); // caught InputMismatchException
-      final double vx = numScanner.nextDouble();
-      final double vy = numScanner.nextDouble();
-      final double forceX = numScanner.nextDouble();
-      final double forceY = numScanner.nextDouble();
-      numScanner.nextDouble(); // skip color[R]
-      numScanner.nextDouble(); // skip color[G]
-      numScanner.nextDouble(); // skip color[B]
-      final double radio = numScanner.nextDouble();
-      final double mass = numScanner.nextDouble();
-      numScanner.nextDouble(); // skip value int
-      final ParticleType type =  ParticleType.valueOf(numScanner.next());
-
-      particles.add(Particle.builder(x,y).id(id).vx(vx).vy(vy).forceX(forceX).forceY(forceY)
-              .radio(radio).mass(mass).type(type).build());
-    }
-    return particles;
-  }
 }
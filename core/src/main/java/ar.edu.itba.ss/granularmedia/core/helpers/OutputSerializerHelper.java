@@ -1,13 +1,16 @@
 package ar.edu.itba.ss.granularmedia.core.helpers;
 
 import ar.edu.itba.ss.granularmedia.models.Particle;
+import ar.edu.itba.ss.granularmedia.models.ParticleType;
 import ar.edu.itba.ss.granularmedia.models.StaticData;
 import ar.edu.itba.ss.granularmedia.models.Wall;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 
 import static ar.edu.itba.ss.granularmedia.models.ParticleType.BORDER;
 import static ar.edu.itba.ss.granularmedia.models.ParticleType.SPAWN;
@@ -23,11 +26,20 @@ public class OutputSerializerHelper {
   private static final int G = 1;
   private static final int B = 2;
 
-  private static int OVITO_ID_GEN = 0;
+  // border particles' ids go on after the walls' particles' ones, which are negative too
+  private long ovitoIdGen;
 
   private final Collection<Particle> ovitoBorderParticles;
 
-  public OutputSerializerHelper(final StaticData staticData) {
+  /**
+   * @param staticData system's static data
+   * @param walls system's walls, whose particles' ids are not taken by the border particles
+   */
+  public OutputSerializerHelper(final StaticData staticData, final Collection<Wall> walls) {
+    ovitoIdGen = 0;
+    for (final Wall wall : walls) {
+      ovitoIdGen = Math.min(ovitoIdGen, Math.min(wall.start().id(), wall.end().id()));
+    }
     ovitoBorderParticles = generateOvitoBorderParticles(staticData);
   }
 
@@ -38,11 +50,13 @@ public class OutputSerializerHelper {
    *
    * @param particles system particles
    * @param iteration number of current iteration
+   * @param maxPressure system's max particle pressure, which particles' colors are relative to
    * @return a serialized set of data to save at the ovito's file for the given iteration
    */
   public String ovitoOutput(final Collection<Particle> particles,
                             final Collection<Wall> walls,
-                            long iteration) {
+                            long iteration,
+                            final double maxPressure) {
     final StringBuilder sb = new StringBuilder();
     // each wall represented with 2 particles
     final int N = particles.size() + walls.size() * 2 + ovitoBorderParticles.size();
@@ -52,14 +66,34 @@ public class OutputSerializerHelper {
     // iterations' number
     sb.append(iteration).append(NL);
     // system's particles' data
-    serializeParticles(particles, sb);
+    serializeParticles(particles, maxPressure, sb);
     // system's walls' data
     serializeWalls(walls, sb);
     // ovito's border particles
-    serializeParticles(ovitoBorderParticles, sb);
+    serializeParticles(ovitoBorderParticles, maxPressure, sb);
     return sb.toString();
   }
 
+  /**
+   * @param walls system walls
+   * @return the particles that represent the given walls and the system borders at the ovito's file,
+   * in the same order they are serialized by {@link #ovitoOutput(Collection, Collection, long, double)}
+   */
+  public List<Particle> ovitoFixedParticles(final Collection<Wall> walls) {
+    // each wall represented with 2 particles
+    final List<Particle> fixedParticles = new ArrayList<>(walls.size() * 2 + ovitoBorderParticles.size());
+    for (final Wall wall : walls) {
+      fixedParticles.add(wall.start());
+      fixedParticles.add(wall.end());
+    }
+    fixedParticles.addAll(ovitoBorderParticles);
+    return fixedParticles;
+  }
+
+  public static String kineticEnergySerializer(final long step, final double currentTime, final double kineticEnergy) {
+    return step + ", " + currentTime + ", " + kineticEnergy + NL;
+  }
+
   public static String staticOutput(final StaticData staticData) {
     final StringBuilder sb = new StringBuilder();
     sb      .append(staticData.N()).append(NL)
@@ -72,25 +106,68 @@ public class OutputSerializerHelper {
     return sb.toString();
   }
 
+  /**
+   * @return the whole dynamic file's content; huge amounts of particles should be streamed
+   * with {@link DynamicFileWriter} instead
+   */
   public static String dynamicOutput(final Collection<Particle> particles) {
     final StringBuilder sb = new StringBuilder();
     // system particles number
-    sb.append(particles.size()).append(NL);
+    sb.append(dynamicHeader(particles.size()));
     // system's particles' data
-    serializeParticles(particles, sb);
+    for (final Particle particle : particles) {
+      serializeDynamic(particle, sb);
+    }
     return sb.toString();
   }
 
-  public String flowSerializer(final long step, final double currentTime, final long nParticlesFlowed) {
+  /**
+   * Appends the given particle's line of a dynamic file
+   */
+  static StringBuilder serializeDynamic(final Particle particle, final StringBuilder sb) {
+    // no max pressure, as particles are not colored relative to a system
+    return serialize(particle, chooseColor(particle, ZERO), sb);
+  }
+
+  /**
+   * @return the first line of a dynamic file
+   */
+  static String dynamicHeader(final long nParticles) {
+    return nParticles + NL;
+  }
+
+  /**
+   * @param steps output step at which each particle flowed
+   * @param times time at which each particle flowed
+   * @param nEvents how many of the given events are serialized, starting from the first one
+   * @return one {@code step,time} line per flowed particle
+   */
+  public static String flowEventsSerializer(final long[] steps, final double[] times, final int nEvents) {
     final StringBuilder sb = new StringBuilder();
-    for (long i = 0 ; i < nParticlesFlowed ; i++) {
+    for (int i = 0 ; i < nEvents ; i++) {
       sb
-              .append(step).append(CSV_SPLITTER)
-              .append(currentTime).append(NL);
+              .append(steps[i]).append(CSV_SPLITTER)
+              .append(times[i]).append(NL);
     }
     return sb.toString();
   }
 
+  /**
+   * @param binStart time at which the bin starts
+   * @param binEnd time at which the bin ends
+   * @param nParticlesFlowed how many particles flowed within the bin
+   * @return a {@code binStart,binEnd,nParticlesFlowed,flowRate} line
+   */
+  public static String flowBinSerializer(final double binStart, final double binEnd, final long nParticlesFlowed) {
+    final StringBuilder sb = new StringBuilder();
+    sb
+            .append(binStart).append(CSV_SPLITTER)
+            .append(binEnd).append(CSV_SPLITTER)
+            .append(nParticlesFlowed).append(CSV_SPLITTER)
+            .append(nParticlesFlowed / (binEnd - binStart)).append(NL);
+    return sb.toString();
+  }
+
   private Collection<Particle> generateOvitoBorderParticles(final StaticData staticData) {
     // check StaticDataAbs class documentation to see map's display
     final Collection<Particle> particles = new HashSet<>();
@@ -125,13 +202,14 @@ public class OutputSerializerHelper {
   }
 
   private long nextOvitoId() {
-    return --OVITO_ID_GEN;
+    return --ovitoIdGen;
   }
 
   private static StringBuilder serializeParticles(final Iterable<Particle> particles,
+                                                  final double maxPressure,
                                                   final StringBuilder sb) {
     for (Particle particle : particles) {
-      final double[] color = chooseColor(particle);
+      final double[] color = chooseColor(particle, maxPressure);
 
       // serializeWalls particle
       serialize(particle, color, sb);
@@ -171,30 +249,35 @@ public class OutputSerializerHelper {
                                               final StringBuilder sb) {
     for (final Wall wall : walls) {
       final Particle start = wall.start();
-      final double[] startColor = chooseColor(start);
+      // walls are not colored by pressure
+      final double[] startColor = chooseColor(start, ZERO);
       // serializeWalls particle
       serialize(start, startColor, sb);
 
       final Particle end = wall.end();
-      final double[] endColor = chooseColor(end);
+      final double[] endColor = chooseColor(end, ZERO);
       // serializeWalls particle
       serialize(end, endColor, sb);
     }
     return sb;
   }
 
-  private static double[] chooseColor(final Particle particle) {
+  private static double[] chooseColor(final Particle particle, final double maxPressure) {
+    return chooseColor(particle.type(), particle.pressure(), maxPressure);
+  }
+
+  static double[] chooseColor(final ParticleType type, final double particlePressure,
+                              final double maxPressure) {
     final double[] color = new double[3];
-    switch (particle.type()) {
+    switch (type) {
       case COMMON:
         // red increasing with pressure
         // blue decreasing with pressure
-        final double maxPressure = Particle.getMaxPressure();
         final double pressure;
         if (Double.valueOf(maxPressure).equals(ZERO)) {
-          pressure = particle.pressure();
+          pressure = particlePressure;
         } else {
-          pressure = particle.pressure() / Particle.getMaxPressure();
+          pressure = particlePressure / maxPressure;
         }
         color[R] = pressure;
         color[B] = 1 - color[R];
@@ -0,0 +1,20 @@
+package ar.edu.itba.ss.granularmedia.core.helpers;
+
+/**
+ * Writes the system's frames to a trajectory file, with a given format.
+ * <P>
+ * Writers are used from a single thread, and report I/O errors with unchecked exceptions.
+ */
+public interface TrajectoryWriter extends AutoCloseable {
+  /**
+   * Appends the given frame to the trajectory
+   * @param frame snapshot of the system particles
+   */
+  void write(FrameSnapshot frame);
+
+  /**
+   * Flushes the written frames and closes the trajectory file
+   */
+  @Override
+  void close();
+}
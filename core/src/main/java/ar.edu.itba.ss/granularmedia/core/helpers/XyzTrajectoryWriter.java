@@ -0,0 +1,201 @@
+package ar.edu.itba.ss.granularmedia.core.helpers;
+
+import ar.edu.itba.ss.granularmedia.models.Particle;
+import ar.edu.itba.ss.granularmedia.models.ParticleType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Writes the system's frames as an Ovito's {@code .xyz} file, with the same columns as
+ * {@link OutputSerializerHelper#ovitoOutput(Collection, Collection, long, double)}.
+ * <P>
+ * Frames are formatted straight into a reusable byte buffer, which is flushed to the stream when it gets full,
+ * so no strings are created per frame. Numbers are written by {@link AsciiFormatter}, with up to
+ * {@link AsciiFormatter#SIGNIFICANT_DIGITS} significant digits.
+ * Everything that does not change between frames is formatted once: the fixed particles' lines,
+ * the color of each particle type and {@link #PRESSURE_COLOR_LEVELS} levels of the pressure's color,
+ * and the ending of each particle type's line.
+ */
+public class XyzTrajectoryWriter implements TrajectoryWriter {
+  private static final byte SPLITTER = '\t';
+  private static final byte[] NL = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+  private static final int BUFFER_SIZE = 1 << 16;
+  // 11 numbers, 3 colors and the type
+  private static final int MAX_LINE_BYTES = 16 * (AsciiFormatter.MAX_DOUBLE_CHARS + 1) + 2 * NL.length;
+
+  // COMMON particles' color goes from blue to red as their pressure increases
+  private static final int PRESSURE_COLOR_LEVELS = 256;
+
+  private static final ParticleType[] TYPES = ParticleType.values();
+  // "R G B " of each type, except COMMON
+  private static final byte[][] TYPES_COLORS = new byte[TYPES.length][];
+  // "R G B " of each pressure level
+  private static final byte[][] PRESSURE_COLORS = new byte[PRESSURE_COLOR_LEVELS][];
+  // "code name NL" of each type
+  private static final byte[][] TYPES_ENDINGS = new byte[TYPES.length][];
+  static {
+    final byte[] buffer = new byte[MAX_LINE_BYTES];
+    for (final ParticleType type : TYPES) {
+      TYPES_COLORS[type.ordinal()] = formatColor(buffer, OutputSerializerHelper.chooseColor(type, 0, 0));
+
+      int position = AsciiFormatter.putLong(buffer, 0, type.getCode());
+      buffer[position++] = SPLITTER;
+      final byte[] name = type.name().getBytes(StandardCharsets.US_ASCII);
+      System.arraycopy(name, 0, buffer, position, name.length);
+      position += name.length;
+      buffer[position++] = SPLITTER;
+      System.arraycopy(NL, 0, buffer, position, NL.length);
+      position += NL.length;
+      TYPES_ENDINGS[type.ordinal()] = Arrays.copyOf(buffer, position);
+    }
+    for (int level = 0; level < PRESSURE_COLOR_LEVELS; level++) {
+      final double pressure = level / (double) (PRESSURE_COLOR_LEVELS - 1);
+      PRESSURE_COLORS[level] =
+              formatColor(buffer, OutputSerializerHelper.chooseColor(ParticleType.COMMON, pressure, 1));
+    }
+  }
+
+  private final OutputStream out;
+  private final int nFixedParticles;
+  private final byte[] fixedParticlesLines;
+  private final byte[] buffer;
+  private int position;
+
+  /**
+   * @param out stream where the frames are written; it is closed by this writer
+   * @param fixedParticles particles representing the system walls and borders, written with each frame
+   */
+  public XyzTrajectoryWriter(final OutputStream out, final Collection<Particle> fixedParticles) {
+    this.out = out;
+    this.nFixedParticles = fixedParticles.size();
+    this.buffer = new byte[BUFFER_SIZE];
+
+    // fixed particles do not move => their lines are always the same
+    final byte[] fixedParticlesLines = new byte[fixedParticles.size() * MAX_LINE_BYTES];
+    int fixedPosition = 0;
+    for (final Particle particle : fixedParticles) {
+      // fixed particles are not colored by pressure
+      final double[] color = OutputSerializerHelper.chooseColor(particle.type(), particle.pressure(), 0);
+      fixedPosition = putLine(fixedParticlesLines, fixedPosition, particle.id(),
+              particle.x(), particle.y(), particle.vx(), particle.vy(), particle.forceX(), particle.forceY(),
+              formatColor(new byte[MAX_LINE_BYTES], color), particle.radio(), particle.mass(), particle.type());
+    }
+    this.fixedParticlesLines = Arrays.copyOf(fixedParticlesLines, fixedPosition);
+  }
+
+  @Override
+  public void write(final FrameSnapshot frame) {
+    ensureRoom(MAX_LINE_BYTES);
+    // (system + border) particles number
+    position = AsciiFormatter.putLong(buffer, position, frame.n() + nFixedParticles);
+    position = putNewLine(buffer, position);
+    // iterations' number
+    position = AsciiFormatter.putLong(buffer, position, frame.step());
+    position = putNewLine(buffer, position);
+
+    // system's particles' data
+    for (int i = 0; i < frame.n(); i++) {
+      ensureRoom(MAX_LINE_BYTES);
+      position = putLine(buffer, position, frame.id(i),
+              frame.x(i), frame.y(i), frame.vx(i), frame.vy(i), frame.forceX(i), frame.forceY(i),
+              color(frame.type(i), frame.pressure(i), frame.maxPressure()),
+              frame.radio(i), frame.mass(i), frame.type(i));
+    }
+
+    // system's walls' and ovito's border particles
+    flush();
+    write(fixedParticlesLines, fixedParticlesLines.length);
+  }
+
+  @Override
+  public void close() {
+    flush();
+    try {
+      out.close();
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static int putLine(final byte[] buffer, int position, final long id,
+                             final double x, final double y, final double vx, final double vy,
+                             final double forceX, final double forceY,
+                             final byte[] color, final double radio, final double mass,
+                             final ParticleType type) {
+    // id
+    position = AsciiFormatter.putLong(buffer, position, id);
+    buffer[position++] = SPLITTER;
+    // position
+    position = putDouble(buffer, position, x);
+    position = putDouble(buffer, position, y);
+    // velocity
+    position = putDouble(buffer, position, vx);
+    position = putDouble(buffer, position, vy);
+    // force
+    position = putDouble(buffer, position, forceX);
+    position = putDouble(buffer, position, forceY);
+    // R G B color
+    System.arraycopy(color, 0, buffer, position, color.length);
+    position += color.length;
+    // radio
+    position = putDouble(buffer, position, radio);
+    // mass
+    position = putDouble(buffer, position, mass);
+    // class, type
+    final byte[] ending = TYPES_ENDINGS[type.ordinal()];
+    System.arraycopy(ending, 0, buffer, position, ending.length);
+    return position + ending.length;
+  }
+
+  private static int putDouble(final byte[] buffer, final int position, final double value) {
+    final int end = AsciiFormatter.putDouble(buffer, position, value);
+    buffer[end] = SPLITTER;
+    return end + 1;
+  }
+
+  private static int putNewLine(final byte[] buffer, final int position) {
+    System.arraycopy(NL, 0, buffer, position, NL.length);
+    return position + NL.length;
+  }
+
+  private static byte[] color(final ParticleType type, final double pressure, final double maxPressure) {
+    if (type != ParticleType.COMMON) {
+      return TYPES_COLORS[type.ordinal()];
+    }
+    final double relativePressure = maxPressure == 0 ? pressure : pressure / maxPressure;
+    final double clamped = Math.max(0, Math.min(1, relativePressure));
+    return PRESSURE_COLORS[(int) Math.round(clamped * (PRESSURE_COLOR_LEVELS - 1))];
+  }
+
+  private static byte[] formatColor(final byte[] buffer, final double[] color) {
+    int position = 0;
+    for (final double component : color) {
+      position = putDouble(buffer, position, component);
+    }
+    return Arrays.copyOf(buffer, position);
+  }
+
+  private void ensureRoom(final int bytes) {
+    if (buffer.length - position < bytes) {
+      flush();
+    }
+  }
+
+  private void flush() {
+    write(buffer, position);
+    position = 0;
+  }
+
+  private void write(final byte[] bytes, final int length) {
+    try {
+      out.write(bytes, 0, length);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package ar.edu.itba.ss.granularmedia.core.system;
+
+import ar.edu.itba.ss.granularmedia.core.helpers.BinaryTrajectoryReader;
+import ar.edu.itba.ss.granularmedia.core.helpers.FrameSnapshot;
+import ar.edu.itba.ss.granularmedia.core.helpers.XyzTrajectoryWriter;
+import ar.edu.itba.ss.granularmedia.interfaces.MainProgram;
+import ar.edu.itba.ss.granularmedia.services.IOService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static ar.edu.itba.ss.granularmedia.services.IOService.ExitStatus.*;
+
+/**
+ * Converts a binary trajectory file into an Ovito's {@code .xyz} file, saved next to it with the same name
+ */
+public class ConvertTrajectoryProgram implements MainProgram {
+  private static final String OVITO_FILE_EXTENSION = ".xyz";
+
+  // convert args indexes
+  private static final int I_TRAJECTORY_FILE = 1;
+
+  private static final int N_ARGS_EXPECTED = 2;
+
+  @Override
+  public void run(final String[] args) {
+    if (args.length < N_ARGS_EXPECTED) {
+      IOService.exit(BAD_N_ARGUMENTS, null);
+      // should never reach here
+      throw new IllegalStateException();
+    }
+
+    final Path pathToTrajectoryFile = Paths.get(args[I_TRAJECTORY_FILE]).toAbsolutePath();
+    System.out.println("Converting trajectory file...");
+
+    final String ovitoFolder = pathToTrajectoryFile.getParent().toString();
+    final String ovitoFileName = fileNameWithoutExtension(pathToTrajectoryFile);
+    final FrameSnapshot frame = new FrameSnapshot();
+    long nFrames = 0;
+    // the reader's I/O errors, reading its header too, mean the trajectory file is not a valid one
+    try (final BinaryTrajectoryReader reader = new BinaryTrajectoryReader(pathToTrajectoryFile);
+         final XyzTrajectoryWriter writer = new XyzTrajectoryWriter(
+                 IOService.createOutputStream(ovitoFolder, ovitoFileName, OVITO_FILE_EXTENSION),
+                 reader.fixedParticles())) {
+      while (reader.next(frame)) {
+        writer.write(frame);
+        nFrames ++;
+      }
+    } catch (final IOException e) {
+      IOService.exit(BAD_FILE_FORMAT, e);
+    } catch (final UncheckedIOException e) {
+      IOService.exit(WRITE_FILE_ERROR, e);
+    }
+    System.out.printf("%d frames written to %s%s", nFrames,
+            Paths.get(ovitoFolder, ovitoFileName + OVITO_FILE_EXTENSION), System.lineSeparator());
+    System.out.println("[DONE]");
+  }
+
+  private static String fileNameWithoutExtension(final Path path) {
+    final String fileName = path.getFileName().toString();
+    final int dot = fileName.lastIndexOf('.');
+    return dot > 0 ? fileName.substring(0, dot) : fileName;
+  }
+}
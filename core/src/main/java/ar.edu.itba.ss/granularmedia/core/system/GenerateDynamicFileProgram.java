@@ -1,7 +1,7 @@
 package ar.edu.itba.ss.granularmedia.core.system;
 
+import ar.edu.itba.ss.granularmedia.core.helpers.DynamicFileWriter;
 import ar.edu.itba.ss.granularmedia.core.helpers.InputSerializerHelper;
-import ar.edu.itba.ss.granularmedia.core.helpers.OutputSerializerHelper;
 import ar.edu.itba.ss.granularmedia.interfaces.MainProgram;
 import ar.edu.itba.ss.granularmedia.models.Particle;
 import ar.edu.itba.ss.granularmedia.models.StaticData;
@@ -9,8 +9,11 @@ import ar.edu.itba.ss.granularmedia.services.IOService;
 import ar.edu.itba.ss.granularmedia.services.RandomService;
 import ar.edu.itba.ss.granularmedia.services.factories.ParticleFactory;
 
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
-import java.util.Collection;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import static ar.edu.itba.ss.granularmedia.services.IOService.ExitStatus.*;
 
@@ -31,6 +34,11 @@ public class GenerateDynamicFileProgram implements MainProgram {
 
   private static final int N_ARGS_EXPECTED = 3;
 
+  // gen dynamic optional args
+  private static final String O_SEED = "seed";
+  /* package-private */ static final String O_SETTLED = "settled";
+  /* package-private */ static final String DEFAULT_SETTLED = "false";
+
   @Override
   public void run(final String[] args) {
     System.out.println("Generating dynamic file...");
@@ -41,19 +49,62 @@ public class GenerateDynamicFileProgram implements MainProgram {
       throw new IllegalStateException();
     }
 
+    final Map<String, String> options = IOService.parseOptionalArguments(args, N_ARGS_EXPECTED);
+    final RandomService random = options.containsKey(O_SEED) ?
+            new RandomService(IOService.parseAsLong(options.get(O_SEED), "<seed>")) :
+            new RandomService();
+    final boolean settled =
+            IOService.parseAsBoolean(options.getOrDefault(O_SETTLED, DEFAULT_SETTLED), "<settled>");
+    // printed, so as the same file can be generated again
+    System.out.println("Seed: " + random.seed());
+
     final StaticData staticData = InputSerializerHelper.loadStaticFile(args[I_STATIC_FILE]);
-    final Collection<Particle> particles = initializeSystemParticles(staticData);
-
-    final String serializedStaticData = OutputSerializerHelper.dynamicOutput(particles);
-    final Path pathToStaticFile =
-            IOService.createOutputFile(DEFAULT_OUTPUT_FOLDER, DEFAULT_DYNAMIC_FILE_NAME, DEFAULT_DAT_FILE_EXTENSION);
-    IOService.openOutputFile(pathToStaticFile, true);
-    IOService.appendToFile(pathToStaticFile, serializedStaticData);
-    IOService.closeOutputFile(pathToStaticFile);
+    generateDynamicFile(DEFAULT_OUTPUT_FOLDER, staticData, random, settled);
     System.out.println("[DONE]");
   }
 
-  private Collection<Particle> initializeSystemParticles(final StaticData staticData) {
+  /**
+   * Generates the system's particles, and saves them at a dynamic file in the given folder as they are generated,
+   * so as they are never kept in memory all at once
+   * @see #initializeSystemParticles(StaticData, RandomService, boolean, Consumer)
+   * @return path to the saved file
+   */
+  /* package-private */ static Path generateDynamicFile(final String folder,
+                                                       final StaticData staticData,
+                                                       final RandomService random,
+                                                       final boolean settled) {
+    final Path pathToDynamicFile = Paths.get(folder, DEFAULT_DYNAMIC_FILE_NAME + DEFAULT_DAT_FILE_EXTENSION);
+    final int nParticles;
+    try (final DynamicFileWriter writer = new DynamicFileWriter(
+            IOService.createOutputChannel(folder, DEFAULT_DYNAMIC_FILE_NAME, DEFAULT_DAT_FILE_EXTENSION),
+            staticData.N())) {
+      nParticles = initializeSystemParticles(staticData, random, settled, writer::write);
+    } catch (final UncheckedIOException e) {
+      IOService.exit(WRITE_FILE_ERROR, e);
+      // should never reach here
+      throw new IllegalStateException(e);
+    }
+    if (nParticles < staticData.N()) {
+      System.out.printf("Only %d of %d particles fit in the silo%s",
+              nParticles, staticData.N(), System.lineSeparator());
+    }
+    return pathToDynamicFile;
+  }
+
+  /**
+   * @param staticData data of the system whose particles are generated
+   * @param random stream from where particles' diameters and positions are taken;
+   *               the same stream's seed always generates the same particles
+   * @param settled whether the particles are settled at the bottom of the silo, resting on each other,
+   *                or placed at random positions of it
+   * @param sink consumer of each of the system's particles, at random positions of the silo or settled at its bottom,
+   *             without overlapping, in generation order
+   * @return how many particles were generated
+   */
+  /* package-private */ static int initializeSystemParticles(final StaticData staticData,
+                                                           final RandomService random,
+                                                           final boolean settled,
+                                                           final Consumer<Particle> sink) {
     final ParticleFactory particleFactory = ParticleFactory.getInstance();
 
     if (!validParametersRange(staticData.length(), staticData.width(), staticData.diameterOpening())) {
@@ -65,7 +116,7 @@ public class GenerateDynamicFileProgram implements MainProgram {
     final double minDiameter = staticData.minDiameter();
     final double maxDiameter = staticData.maxDiameter();
     for (int i = 0  ; i < staticData.N() ; i++) {
-      diameter = randomDiameter(minDiameter, maxDiameter);
+      diameter = randomDiameter(minDiameter, maxDiameter, random);
       radios[i] = diameter/2;
     }
 
@@ -73,21 +124,28 @@ public class GenerateDynamicFileProgram implements MainProgram {
     final Particle rightTopParticle =
             particleFactory.create(staticData.width() + ZERO, staticData.fallLength() + staticData.length() + ZERO);
 
+    if (settled) {
+      return particleFactory.settledPoints(
+              leftBottomParticle, rightTopParticle, radios, staticData.mass(), random, sink);
+    }
     return particleFactory.randomPoints(
             leftBottomParticle,
             rightTopParticle,
             radios, staticData.mass(),
             OVERLAP_ALLOWED,
-            MAX_OVERLAP_TRIES);
+            MAX_OVERLAP_TRIES,
+            random,
+            sink);
   }
 
-  private boolean validParametersRange(final double length,
+  private static boolean validParametersRange(final double length,
                                        final double width,
                                        final double diameterOpening) {
     return length > width && width > diameterOpening;
   }
 
-  private double randomDiameter(final double minDiameter, final double maxDiameter) {
-    return RandomService.randomDouble(minDiameter, maxDiameter);
+  private static double randomDiameter(final double minDiameter, final double maxDiameter,
+                                       final RandomService random) {
+    return random.randomDouble(minDiameter, maxDiameter);
   }
 }
@@ -1,23 +1,35 @@
 package ar.edu.itba.ss.granularmedia.core.system;
 
-import ar.edu.itba.ss.granularmedia.core.helpers.InputSerializerHelper;
-import ar.edu.itba.ss.granularmedia.core.helpers.OutputSerializerHelper;
+import ar.edu.itba.ss.granularmedia.core.helpers.*;
+import ar.edu.itba.ss.granularmedia.core.helpers.BinaryTrajectoryFormat.Precision;
+import ar.edu.itba.ss.granularmedia.core.system.integration.AdaptiveTimeStep;
 import ar.edu.itba.ss.granularmedia.core.system.integration.Gear5GranularMediaSystemData;
 import ar.edu.itba.ss.granularmedia.core.system.integration.GearGranularMediaSystem;
 import ar.edu.itba.ss.granularmedia.interfaces.MainProgram;
+import ar.edu.itba.ss.granularmedia.interfaces.NeighboursFinder;
 import ar.edu.itba.ss.granularmedia.interfaces.TimeDrivenSimulationSystem;
 import ar.edu.itba.ss.granularmedia.models.Particle;
 import ar.edu.itba.ss.granularmedia.models.StaticData;
 import ar.edu.itba.ss.granularmedia.models.Wall;
 import ar.edu.itba.ss.granularmedia.models.WallType;
 import ar.edu.itba.ss.granularmedia.services.IOService;
+import ar.edu.itba.ss.granularmedia.services.neighboursfinders.BruteForceMethodImpl;
+import ar.edu.itba.ss.granularmedia.services.neighboursfinders.CellIndexMethodImpl;
+import ar.edu.itba.ss.granularmedia.services.neighboursfinders.VerletListMethodImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.PrintStream;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import static ar.edu.itba.ss.granularmedia.services.IOService.ExitStatus.BAD_ARGUMENT;
+import static ar.edu.itba.ss.granularmedia.services.IOService.ExitStatus.BAD_FILE_FORMAT;
 import static ar.edu.itba.ss.granularmedia.services.IOService.ExitStatus.BAD_N_ARGUMENTS;
 
 public class GranularMediaSystemProgram implements MainProgram {
@@ -30,40 +42,106 @@ public class GranularMediaSystemProgram implements MainProgram {
   private static final String DEFAULT_OUTPUT_FOLDER = "output";
   private static final String OVITO_FILE_EXTENSION = ".xyz";
   private static final String DEFAULT_OVITO_FILE_NAME = "ovito";
+  private static final String BINARY_TRAJECTORY_FILE_EXTENSION = ".bin";
   private static final String STATISTICS_FILE_EXTENSION = ".csv";
   private static final String DEFAULT_KINETIC_ENERGY_FILE_NAME = "kinetic_energy";
   private static final String DEFAULT_SYSTEM_STOPPED_FILE_NAME = "system_stopped";
   private static final String DEFAULT_FLOW_FILE_NAME = "flow";
   private static final String DEFAULT_MEDIA_FLOW_FILE_NAME = "flow_media";
+  private static final String DEFAULT_NEIGHBOURS_REBUILDS_FILE_NAME = "neighbours_rebuilds";
   private static final String DATA_FILE_EXTENSION = ".dat";
   private static final String DEFAULT_STATIC_DATA_FILE_NAME = "complete_static";
+  private static final String DEFAULT_CHECKPOINT_FILE_NAME = "checkpoint";
+  private static final String CHECKPOINT_FILE_EXTENSION = ".bin";
 
   private static final double MS_TO_S = 1/1000.0;
   private static final double DELTA_LOG = 0.025;
   private static final double ERROR_TOLERANCE = 7e-7;
+  // how long the JVM's termination waits for the simulation to save its checkpoint and close its files
+  private static final long TERMINATION_TIMEOUT_S = 60;
 
-  // run args index
+  // run args index; shared with the sweep program
   private static final int I_STATIC_DATA = 1;
-  private static final int I_DYNAMIC_DATA = 2;
+  /* package-private */ static final int I_DYNAMIC_DATA = 2;
   private static final int I_SIMULATION_TIME = 3;
   private static final int I_DELTA_1 = 4;
   private static final int I_DELTA_2 = 5;
   private static final int I_PRINT_OVITO = 6;
-  private static final int N_ARGS_EXPECTED = 7;
-
-  private final String defaultOutputFolder = DEFAULT_OUTPUT_FOLDER + '/' + LocalDateTime.now();
-  private final Path pathToOvitoFile;
+  /* package-private */ static final int N_ARGS_EXPECTED = 7;
+
+  // run optional args
+  private static final String O_NEIGHBOURS_FINDER = "neighbours";
+  private static final String O_SKIN = "skin";
+  private static final String O_THREADS = "threads";
+  private static final String O_OUTPUT_QUEUE = "output-queue";
+  private static final String O_OUTPUT_POLICY = "output-policy";
+  private static final String O_TRAJECTORY = "trajectory";
+  private static final String O_PRECISION = "precision";
+  private static final String O_FORCES = "forces";
+  private static final String O_PRESSURE = "pressure";
+  private static final String O_FLOW_BIN = "flow-bin";
+  private static final String O_CHECKPOINT_STEPS = "checkpoint-steps";
+  private static final String O_CHECKPOINT_SECONDS = "checkpoint-seconds";
+  /* package-private */ static final String O_RESUME = "resume";
+  private static final String O_ADAPTIVE_DT = "adaptive-dt";
+  private static final String O_MAX_DT = "max-dt";
+  private static final String O_INTEGRATOR = "integrator";
+  private static final String O_SLEEP_STEPS = "sleep-steps";
+  private static final String O_BALLISTIC = "ballistic";
+  private static final String O_MULTI_RATE = "multi-rate";
+  private static final String CELL_INDEX_METHOD = "cell_index";
+  private static final String BRUTE_FORCE_METHOD = "brute_force";
+  private static final String VERLET_LIST_METHOD = "verlet";
+  private static final String XYZ_TRAJECTORY = "xyz";
+  private static final String BINARY_TRAJECTORY = "binary";
+  private static final String DEFAULT_NEIGHBOURS_FINDER = CELL_INDEX_METHOD;
+  private static final double DEFAULT_SKIN_FACTOR = 0.2; // of the max diameter
+  private static final int DEFAULT_THREADS = 1;
+  private static final int DEFAULT_OUTPUT_QUEUE = 4;
+  private static final AsyncFrameWriter.Backpressure DEFAULT_OUTPUT_POLICY = AsyncFrameWriter.Backpressure.BLOCK;
+  private static final String DEFAULT_TRAJECTORY = XYZ_TRAJECTORY;
+  private static final Precision DEFAULT_PRECISION = Precision.SINGLE;
+  private static final String DEFAULT_FORCES = "false";
+  private static final String DEFAULT_PRESSURE = "false";
+  private static final String DEFAULT_ADAPTIVE_DT = "false";
+  private static final GearGranularMediaSystem.Integrator DEFAULT_INTEGRATOR = GearGranularMediaSystem.Integrator.GEAR5;
+  private static final int DEFAULT_SLEEP_STEPS = 0;
+  private static final String DEFAULT_BALLISTIC = "false";
+  private static final int DEFAULT_MULTI_RATE = 0;
+  // time steps from dt to dt * 2^10
+  private static final int MAX_MULTI_RATE = 10;
+
+  // neighbours finder constants
+  private static final double RC = 0;
+  private static final boolean PERIODIC_LIMIT = false;
+
+  private final String outputFolder;
+  // where the simulation's progress is printed
+  private final PrintStream out;
   private final Path pathToKineticEnergyFile;
   private final Path pathToFlowFile;
 
+  // set by the shutdown hook when the JVM is terminated, e.g., with a SIGTERM, so as the simulation stops
+  // and saves a checkpoint
+  private volatile boolean terminationRequested;
+  private final CountDownLatch finished = new CountDownLatch(1);
+
   public GranularMediaSystemProgram() {
-    this.pathToOvitoFile =
-            IOService.createOutputFile(defaultOutputFolder, DEFAULT_OVITO_FILE_NAME, OVITO_FILE_EXTENSION);
+    this(DEFAULT_OUTPUT_FOLDER + '/' + LocalDateTime.now(), System.out);
+  }
+
+  /**
+   * @param outputFolder folder where all the simulation's output files are written
+   * @param out stream where the simulation's progress is printed; it is not closed by this program
+   */
+  /* package-private */ GranularMediaSystemProgram(final String outputFolder, final PrintStream out) {
+    this.outputFolder = outputFolder;
+    this.out = out;
     this.pathToKineticEnergyFile =
-            IOService.createOutputFile(defaultOutputFolder,
+            IOService.createOutputFile(outputFolder,
                     DEFAULT_KINETIC_ENERGY_FILE_NAME, STATISTICS_FILE_EXTENSION);
     this.pathToFlowFile =
-            IOService.createOutputFile(defaultOutputFolder,
+            IOService.createOutputFile(outputFolder,
                     DEFAULT_FLOW_FILE_NAME, STATISTICS_FILE_EXTENSION);
   }
 
@@ -75,78 +153,171 @@ public class GranularMediaSystemProgram implements MainProgram {
       throw new IllegalStateException();
     }
 
+    final Map<String, String> options = IOService.parseOptionalArguments(args, N_ARGS_EXPECTED);
+    simulate(loadStaticData(args), args[I_DYNAMIC_DATA], options);
+  }
+
+  /**
+   * Runs a whole simulation, writing its output files at this program's output folder
+   * @param runStaticData static data of the system to be simulated, including the simulation's parameters
+   * @param dynamicDataFile path to the file with the system's particles
+   * @param options simulation's optional arguments
+   * @return the simulation's summary
+   */
+  /* package-private */ SimulationSummary simulate(final StaticData runStaticData,
+                                                   final String dynamicDataFile,
+                                                   final Map<String, String> options) {
+    final int nThreads = chooseThreads(options);
+    final Checkpoint resumeCheckpoint = options.containsKey(O_RESUME) ? loadCheckpoint(options.get(O_RESUME)) : null;
+
     // system's particles
     final Collection<Particle> systemParticles =
-            InputSerializerHelper.loadDynamicData(args[I_DYNAMIC_DATA]);
+            InputSerializerHelper.loadDynamicData(dynamicDataFile, nThreads);
 
-    StaticData staticData = loadStaticData(args).withRealN(systemParticles.size());
+    StaticData staticData = runStaticData.withRealN(systemParticles.size());
 
     // system's walls
     final Collection<Wall> systemWalls = initializeSystemWalls(staticData);
 
-    // add opening extremes that are inside the system as particles with
-    // infinite mass so as to improve collisions
-    systemParticles.addAll(getOpeningWallsParticles(systemWalls));
+    // opening extremes that are inside the system are static obstacles, so as to improve collisions;
+    // particles collide with them, but they are not integrated
+    final Collection<Particle> obstacles = getOpeningWallsParticles(systemWalls);
 
-    final TimeDrivenSimulationSystem<Gear5GranularMediaSystemData> granularMediaSystem =
-            new GearGranularMediaSystem(systemParticles, systemWalls, staticData);
+    final NeighboursFinder neighboursFinder = chooseNeighboursFinder(options, staticData);
+    final GearGranularMediaSystem.Integrator integrator = chooseIntegrator(options);
+    final int multiRateLevels = chooseMultiRateLevels(options, integrator);
+    final GearGranularMediaSystem granularMediaSystem =
+            new GearGranularMediaSystem(systemParticles, obstacles, systemWalls, staticData,
+                    neighboursFinder, nThreads, integrator, chooseSleepSteps(options),
+                    chooseBallistic(options), multiRateLevels);
 
     // helper to write ovito file
-    final OutputSerializerHelper outputSerializerHelper = new OutputSerializerHelper(staticData);
+    final OutputSerializerHelper outputSerializerHelper = new OutputSerializerHelper(staticData, systemWalls);
 
     // default delta time
     final double defaultDelta1 = .1 * Math.sqrt(staticData.mass()/staticData.kn());
     final double dt = Math.min(defaultDelta1, staticData.delta1());
     staticData = staticData.withDelta1(dt);
     outputCompleteStaticData(staticData);
+    // null if dt is fixed
+    final AdaptiveTimeStep adaptiveTimeStep = chooseAdaptiveTimeStep(options, staticData, defaultDelta1);
+
+    // flowed particles are recorded in memory, and written in batches
+    final FlowRecorder flowRecorder = chooseFlowRecorder(options);
+
+    if (resumeCheckpoint != null) {
+      restoreCheckpoint(resumeCheckpoint, granularMediaSystem.getSystemData(), flowRecorder, dt,
+              adaptiveTimeStep);
+    }
+
+    // frames are written at background; built once the system is restored, as they may need all its particles
+    final TrajectoryWriter trajectoryWriter = staticData.printOvito() ?
+            chooseTrajectoryWriter(options, granularMediaSystem.getSystemData(), outputSerializerHelper) :
+            null;
+    final AsyncFrameWriter frameWriter = new AsyncFrameWriter(trajectoryWriter, pathToKineticEnergyFile,
+            chooseOutputQueue(options), chooseOutputPolicy(options));
+
+    // checkpoints are written at background; a last one is written when the JVM is terminated
+    final CheckpointWriter checkpointWriter = chooseCheckpointWriter(options);
+    final Thread terminationHook = new Thread(this::awaitTermination, "termination-hook");
+    if (checkpointWriter != null) {
+      Runtime.getRuntime().addShutdownHook(terminationHook);
+    }
 
     // simulation itself
-    System.out.println("Running simulation...");
-    startSimulation(granularMediaSystem, staticData, outputSerializerHelper);
-    System.out.println("[DONE]");
+    out.println("Running simulation...");
+    final SimulationSummary summary = startSimulation(granularMediaSystem, staticData, adaptiveTimeStep,
+            frameWriter, flowRecorder, checkpointWriter, resumeCheckpoint);
+    granularMediaSystem.shutdown();
+    frameWriter.close();
+    if (checkpointWriter != null) {
+      checkpointWriter.close();
+    }
+    outputNeighboursFinderStatistics(neighboursFinder);
+    out.println("[DONE]");
 
     // close resources
-    IOService.closeOutputFile(pathToOvitoFile);
     IOService.closeOutputFile(pathToKineticEnergyFile);
-    IOService.closeOutputFile(pathToFlowFile);
+
+    finished.countDown();
+    if (checkpointWriter != null) {
+      try {
+        Runtime.getRuntime().removeShutdownHook(terminationHook);
+      } catch (final IllegalStateException e) {
+        // JVM is already being terminated
+      }
+    }
+    return summary;
   }
 
   // private
-  private void startSimulation(final TimeDrivenSimulationSystem<Gear5GranularMediaSystemData> granularMediaSystem,
+  /**
+   * @param adaptiveTimeStep chooser of each step's dt; null if all steps use the static data's delta1
+   * @param checkpointWriter writer of the simulation's checkpoints; null if no checkpoints are desired
+   * @param resumeCheckpoint checkpoint the simulation is resumed from, already restored into the system and the
+   *                         flow recorder; null if the simulation starts from the beginning
+   * @return the simulation's summary
+   */
+  private SimulationSummary startSimulation(final TimeDrivenSimulationSystem<Gear5GranularMediaSystemData> granularMediaSystem,
                                final StaticData staticData,
-                               final OutputSerializerHelper outputSerializerHelper) {
+                               final AdaptiveTimeStep adaptiveTimeStep,
+                               final AsyncFrameWriter frameWriter,
+                               final FlowRecorder flowRecorder,
+                               final CheckpointWriter checkpointWriter,
+                               final Checkpoint resumeCheckpoint) {
     final double startTime = System.currentTimeMillis();
-    final double dt = staticData.delta1();
     final double simulationTime = staticData.simulationTime();
     final double delta2 = staticData.delta2();
 
-    long step = 0;
-    long logStep = 0;
-    double currentTime = 0;
-    boolean considerKineticEnergy = false;
+    final boolean resumed = resumeCheckpoint != null;
+    // dt for the next step; it only changes if it is adaptive
+    double dt = resumed ? resumeCheckpoint.dt() : staticData.delta1();
+    long nSteps = 0;
+    // sum of the sleeping particles of each step
+    long sleepingParticleSteps = 0;
+    // sum of the ballistic particles of each step
+    long ballisticParticleSteps = 0;
+    // sum of the fixed and of the integrated particles of each step
+    long fixedParticleSteps = 0;
+    long integratedParticleSteps = 0;
+    long step = resumed ? resumeCheckpoint.step() : 0;
+    long logStep = resumed ? resumeCheckpoint.logStep() : 0;
+    double currentTime = resumed ? resumeCheckpoint.currentTime() : 0;
+    boolean considerKineticEnergy = resumed && resumeCheckpoint.considerKineticEnergy();
+    boolean stopped = false;
+    boolean terminated = false;
     double kineticEnergy; // initialization not needed
     while (currentTime < simulationTime) {
       // choose output action based on given parameters
       if (currentTime >= (delta2 * step)) {
         // print system after printStepGap dt units
-        outputSystem(granularMediaSystem.getSystemData(), step, currentTime, staticData, outputSerializerHelper);
+        outputSystem(granularMediaSystem.getSystemData(), step, currentTime, frameWriter);
         step ++;
       }
 
       if (currentTime >= (DELTA_LOG * logStep)) {
-        System.out.printf(
+        out.printf(
                 "\tClock: %s; Current simulation time: %f ; Final simulation time: %f ; Current Kinetic Energy: %e\n",
                 LocalDateTime.now(), currentTime, simulationTime, granularMediaSystem.getSystemData().kineticEnergy());
         logStep ++;
       }
 
-      // evolve system
-      granularMediaSystem.evolveSystem(dt);
+      // evolve system; adaptive steps end right at the next output's time, so as no output is stepped over
+      final double stepDt = adaptiveTimeStep == null ? dt : adaptiveTimeStep.until(dt, currentTime, delta2 * step);
+      granularMediaSystem.evolveSystem(stepDt);
 
       // advance time and count the current step
-      currentTime += dt;
+      currentTime = stepDt < dt ? delta2 * step : currentTime + stepDt;
+      nSteps ++;
+      sleepingParticleSteps += granularMediaSystem.getSystemData().nSleepingParticles();
+      ballisticParticleSteps += granularMediaSystem.getSystemData().nBallisticParticles();
+      fixedParticleSteps += granularMediaSystem.getSystemData().nFixedParticles();
+      integratedParticleSteps += granularMediaSystem.getSystemData().nIntegratedParticles();
+      if (adaptiveTimeStep != null) {
+        dt = adaptiveTimeStep.next(dt, granularMediaSystem.getSystemData());
+      }
 
-      appendToFlow(pathToFlowFile, granularMediaSystem.getSystemData().nParticlesJustFlowed(), step, currentTime, outputSerializerHelper);
+      flowRecorder.record(granularMediaSystem.getSystemData().nParticlesJustFlowed(), step, currentTime);
 
       // if no more particles are moving => system's evolution is finished
       kineticEnergy = granularMediaSystem.getSystemData().kineticEnergy();
@@ -155,42 +326,177 @@ public class GranularMediaSystemProgram implements MainProgram {
       }
       if (considerKineticEnergy && kineticEnergy < ERROR_TOLERANCE) {
         systemStopped(step, currentTime);
+        stopped = true;
         break;
       }
+
+      if (checkpointWriter != null) {
+        if (terminationRequested) {
+          terminated = true;
+          break;
+        }
+        // if the previous checkpoint is still being written, this one is saved at a later step
+        final Checkpoint checkpoint = checkpointWriter.step() ? checkpointWriter.freeCheckpoint(false) : null;
+        if (checkpoint != null) {
+          checkpoint.run(dt, step, logStep, currentTime, considerKineticEnergy);
+          saveCheckpoint(checkpoint, granularMediaSystem.getSystemData(), flowRecorder, checkpointWriter);
+        }
+      }
+    }
+
+    // last checkpoint, so as the simulation can be resumed or extended
+    if (checkpointWriter != null) {
+      final Checkpoint checkpoint = checkpointWriter.freeCheckpoint(true);
+      checkpoint.run(dt, step, logStep, currentTime, considerKineticEnergy);
+      saveCheckpoint(checkpoint, granularMediaSystem.getSystemData(), flowRecorder, checkpointWriter);
+    }
+
+    if (terminated) {
+      flowRecorder.suspend();
+      out.printf("\tSimulation terminated at time: %fs; resume it from its last checkpoint.%s",
+              currentTime, System.lineSeparator());
+    } else {
+      flowRecorder.close(currentTime);
+      if (!Double.valueOf(simulationTime).equals(ZERO)) {
+        outputMediaFlow(flowRecorder.mediaFlow(simulationTime));
+      }
+    }
+
+    if (adaptiveTimeStep != null && nSteps > 0) {
+      final double simulatedTime = currentTime - (resumed ? resumeCheckpoint.currentTime() : 0);
+      out.printf("Integrated %d steps, with a mean dt of %e s%s", nSteps, simulatedTime / nSteps,
+              System.lineSeparator());
+    }
+
+    if (granularMediaSystem.getSystemData().sleepSteps() > 0 && nSteps > 0) {
+      out.printf("Sleeping particles: %.1f per step on average; %d at the end%s",
+              (double) sleepingParticleSteps / nSteps, granularMediaSystem.getSystemData().nSleepingParticles(),
+              System.lineSeparator());
     }
 
-    if (!Double.valueOf(simulationTime).equals(ZERO)) {
-      outputMediaFlow(granularMediaSystem.getSystemData().nParticlesFlowed() / simulationTime);
+    if (ballisticParticleSteps > 0) {
+      out.printf("Ballistic particles: %.1f per step on average%s",
+              (double) ballisticParticleSteps / nSteps, System.lineSeparator());
+    }
+
+    if (fixedParticleSteps < integratedParticleSteps) {
+      out.printf("Fixed particles: %.1f per step on average; %.1f%% of the integrated ones%s",
+              (double) fixedParticleSteps / nSteps, 100.0 * fixedParticleSteps / integratedParticleSteps,
+              System.lineSeparator());
     }
 
     final double endTime = System.currentTimeMillis();
     final double simulationDuration = endTime - startTime;
     LOGGER.info("Total simulation time: {} s", simulationDuration * MS_TO_S);
-    System.out.printf("Total simulation time: %f s\n", simulationDuration * MS_TO_S);
+    out.printf("Total simulation time: %f s\n", simulationDuration * MS_TO_S);
+    return new SimulationSummary(staticData, currentTime, flowRecorder.nParticlesFlowed(),
+            stopped, terminated, simulationDuration * MS_TO_S);
+  }
+
+  private void saveCheckpoint(final Checkpoint checkpoint,
+                              final Gear5GranularMediaSystemData systemData,
+                              final FlowRecorder flowRecorder,
+                              final CheckpointWriter checkpointWriter) {
+    // flowed particles up to this step should be at the flow file before the checkpoint is
+    flowRecorder.flush();
+    flowRecorder.checkpoint(checkpoint);
+    systemData.checkpoint(checkpoint);
+    checkpointWriter.write(checkpoint);
+  }
+
+  private Checkpoint loadCheckpoint(final String checkpointFile) {
+    try {
+      return Checkpoint.read(Paths.get(checkpointFile));
+    } catch (final IOException e) {
+      IOService.exit(BAD_FILE_FORMAT, e.getMessage());
+      // should never reach here
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @param adaptiveTimeStep chooser of each step's dt; null if dt is fixed
+   */
+  private void restoreCheckpoint(final Checkpoint checkpoint,
+                                 final Gear5GranularMediaSystemData systemData,
+                                 final FlowRecorder flowRecorder,
+                                 final double dt,
+                                 final AdaptiveTimeStep adaptiveTimeStep) {
+    // a different dt would not go on with the same steps; an adaptive one goes on from the checkpoint's one
+    if (adaptiveTimeStep == null && Double.compare(checkpoint.dt(), dt) != 0) {
+      IOService.exit(BAD_ARGUMENT, "checkpoint's dt is " + checkpoint.dt() + "; current dt is " + dt);
+    }
+    if (adaptiveTimeStep != null
+            && !(checkpoint.dt() >= adaptiveTimeStep.minDt() && checkpoint.dt() <= adaptiveTimeStep.maxDt())) {
+      IOService.exit(BAD_ARGUMENT, "checkpoint's dt is " + checkpoint.dt() + "; current dt is between "
+              + adaptiveTimeStep.minDt() + " and " + adaptiveTimeStep.maxDt());
+    }
+    try {
+      systemData.restore(checkpoint);
+      flowRecorder.restore(checkpoint);
+    } catch (final IllegalArgumentException e) {
+      IOService.exit(BAD_ARGUMENT, e.getMessage());
+    }
+    out.printf("Resuming simulation at time: %fs.%s", checkpoint.currentTime(), System.lineSeparator());
+  }
+
+  /**
+   * Run by the JVM when it is terminated: asks the simulation to stop and save a checkpoint,
+   * and waits until it has closed its files
+   */
+  private void awaitTermination() {
+    if (IOService.isExiting()) {
+      return; // the program is being aborted; its state is not worth saving
+    }
+    terminationRequested = true;
+    try {
+      if (!finished.await(TERMINATION_TIMEOUT_S, TimeUnit.SECONDS)) {
+        LOGGER.warn("Simulation did not finish within {} s after being terminated", TERMINATION_TIMEOUT_S);
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
   }
 
   private void outputMediaFlow(final double mediaFlow) {
     final Path pathToOutputMediaFlowFile =
-            IOService.createOutputFile(defaultOutputFolder, DEFAULT_MEDIA_FLOW_FILE_NAME, STATISTICS_FILE_EXTENSION);
+            IOService.createOutputFile(outputFolder, DEFAULT_MEDIA_FLOW_FILE_NAME, STATISTICS_FILE_EXTENSION);
     IOService.appendToFile(pathToOutputMediaFlowFile, String.valueOf(mediaFlow));
     IOService.closeOutputFile(pathToOutputMediaFlowFile);
-    System.out.println("Media Flow: " + mediaFlow);
+    out.println("Media Flow: " + mediaFlow);
+  }
+
+  private void outputNeighboursFinderStatistics(final NeighboursFinder neighboursFinder) {
+    if (!(neighboursFinder instanceof VerletListMethodImpl)) {
+      return; // no statistics for this method
+    }
+    final VerletListMethodImpl verletListMethod = (VerletListMethodImpl) neighboursFinder;
+    final Path pathToNeighboursRebuildsFile =
+            IOService.createOutputFile(outputFolder,
+                    DEFAULT_NEIGHBOURS_REBUILDS_FILE_NAME, STATISTICS_FILE_EXTENSION);
+    final String fileMsg = verletListMethod.nRuns() + ", " + verletListMethod.nRebuilds() + ", "
+            + verletListMethod.rebuildFrequency();
+    IOService.appendToFile(pathToNeighboursRebuildsFile, fileMsg);
+    IOService.closeOutputFile(pathToNeighboursRebuildsFile);
+    out.printf("Neighbours lists rebuilt %d times out of %d steps (frequency: %f)%s",
+            verletListMethod.nRebuilds(), verletListMethod.nRuns(), verletListMethod.rebuildFrequency(),
+            System.lineSeparator());
   }
 
   private void outputCompleteStaticData(final StaticData staticData) {
     final Path pathToStaticData =
-            IOService.createOutputFile(defaultOutputFolder,
+            IOService.createOutputFile(outputFolder,
                     DEFAULT_STATIC_DATA_FILE_NAME, DATA_FILE_EXTENSION);
     IOService.appendToFile(pathToStaticData, staticData.toString());
     IOService.closeOutputFile(pathToStaticData);
-    System.out.println(staticData);
+    out.println(staticData);
   }
 
   private void systemStopped(final long step, final double currentTime) {
-    System.out.printf("\tSystem has reached the stop condition at time: %fs.%s",
+    out.printf("\tSystem has reached the stop condition at time: %fs.%s",
             currentTime, System.lineSeparator());
     final Path pathToSystemStoppedFile =
-            IOService.createOutputFile(defaultOutputFolder,
+            IOService.createOutputFile(outputFolder,
                     DEFAULT_SYSTEM_STOPPED_FILE_NAME, STATISTICS_FILE_EXTENSION);
     final String fileMsg = step + ", " + currentTime;
     IOService.appendToFile(pathToSystemStoppedFile, fileMsg);
@@ -198,8 +504,9 @@ public class GranularMediaSystemProgram implements MainProgram {
   }
 
   private Collection<Particle> getOpeningWallsParticles(final Collection<Wall> walls) {
-    final Collection<Particle> openingParticles = new HashSet<>();
+    final List<Particle> openingParticles = new ArrayList<>();
 
+    // walls' particles have negative ids, so they do not match any system particle's id
     for (final Wall wall : walls) {
       if (wall.type() == WallType.HORIZONTAL_LEFT) {
         openingParticles.add(wall.end());
@@ -211,7 +518,223 @@ public class GranularMediaSystemProgram implements MainProgram {
     return openingParticles;
   }
 
-  private StaticData loadStaticData(final String[] args) {
+  private TrajectoryWriter chooseTrajectoryWriter(final Map<String, String> options,
+                                                  final Gear5GranularMediaSystemData systemData,
+                                                  final OutputSerializerHelper outputSerializerHelper) {
+    final Collection<Wall> walls = systemData.walls();
+    final String trajectory = options.getOrDefault(O_TRAJECTORY, DEFAULT_TRAJECTORY);
+    switch (trajectory) {
+      case XYZ_TRAJECTORY:
+        return new XyzTrajectoryWriter(
+                IOService.createOutputStream(outputFolder, DEFAULT_OVITO_FILE_NAME, OVITO_FILE_EXTENSION),
+                outputSerializerHelper.ovitoFixedParticles(walls));
+      case BINARY_TRAJECTORY:
+        final boolean forces =
+                IOService.parseAsBoolean(options.getOrDefault(O_FORCES, DEFAULT_FORCES), "<forces>");
+        final boolean pressure =
+                IOService.parseAsBoolean(options.getOrDefault(O_PRESSURE, DEFAULT_PRESSURE), "<pressure>");
+        // queued particles are not at the first frame, but they are respawned at the following ones
+        final Collection<Particle> particles = new ArrayList<>(systemData.particles());
+        particles.addAll(systemData.queuedParticles());
+        return new BinaryTrajectoryWriter(
+                IOService.createOutputStream(outputFolder,
+                        DEFAULT_OVITO_FILE_NAME, BINARY_TRAJECTORY_FILE_EXTENSION),
+                outputSerializerHelper.ovitoFixedParticles(walls), particles, choosePrecision(options),
+                forces, pressure);
+      default:
+        IOService.exit(BAD_ARGUMENT, trajectory);
+        // should never reach here
+        throw new IllegalStateException();
+    }
+  }
+
+  private Precision choosePrecision(final Map<String, String> options) {
+    if (!options.containsKey(O_PRECISION)) {
+      return DEFAULT_PRECISION;
+    }
+    final String precisionOption = options.get(O_PRECISION);
+    for (final Precision precision : Precision.values()) {
+      if (precision.name().equalsIgnoreCase(precisionOption)) {
+        return precision;
+      }
+    }
+    IOService.exit(BAD_ARGUMENT, precisionOption);
+    // should never reach here
+    throw new IllegalStateException();
+  }
+
+  private FlowRecorder chooseFlowRecorder(final Map<String, String> options) {
+    if (!options.containsKey(O_FLOW_BIN)) {
+      return FlowRecorder.events(pathToFlowFile);
+    }
+    final double flowBin = IOService.parseAsDouble(options.get(O_FLOW_BIN), "<flow-bin>");
+    if (!(flowBin > 0)) {
+      IOService.exit(BAD_ARGUMENT, flowBin);
+    }
+    return FlowRecorder.binned(pathToFlowFile, flowBin);
+  }
+
+  private CheckpointWriter chooseCheckpointWriter(final Map<String, String> options) {
+    if (!options.containsKey(O_CHECKPOINT_STEPS) && !options.containsKey(O_CHECKPOINT_SECONDS)) {
+      return null;
+    }
+    long checkpointSteps = 0;
+    if (options.containsKey(O_CHECKPOINT_STEPS)) {
+      checkpointSteps = IOService.parseAsInt(options.get(O_CHECKPOINT_STEPS), "<checkpoint-steps>");
+      if (checkpointSteps < 1) {
+        IOService.exit(BAD_ARGUMENT, checkpointSteps);
+      }
+    }
+    double checkpointSeconds = 0;
+    if (options.containsKey(O_CHECKPOINT_SECONDS)) {
+      checkpointSeconds = IOService.parseAsDouble(options.get(O_CHECKPOINT_SECONDS), "<checkpoint-seconds>");
+      if (!(checkpointSeconds > 0)) {
+        IOService.exit(BAD_ARGUMENT, checkpointSeconds);
+      }
+    }
+    final Path pathToCheckpointFile =
+            Paths.get(outputFolder, DEFAULT_CHECKPOINT_FILE_NAME + CHECKPOINT_FILE_EXTENSION);
+    return new CheckpointWriter(pathToCheckpointFile, checkpointSteps, checkpointSeconds);
+  }
+
+  /**
+   * @param staticData system's static data, whose delta1 is the min dt
+   * @param defaultMaxDt max dt if none is given, which is the one the contacts' stiffness allows too
+   * @return the chooser of each step's dt; null if dt is fixed
+   */
+  private AdaptiveTimeStep chooseAdaptiveTimeStep(final Map<String, String> options, final StaticData staticData,
+                                                  final double defaultMaxDt) {
+    final boolean adaptiveDt =
+            IOService.parseAsBoolean(options.getOrDefault(O_ADAPTIVE_DT, DEFAULT_ADAPTIVE_DT), "<adaptive-dt>");
+    if (!adaptiveDt) {
+      return null;
+    }
+    final double maxDt = options.containsKey(O_MAX_DT) ?
+            IOService.parseAsDouble(options.get(O_MAX_DT), "<max-dt>") : defaultMaxDt;
+    if (!(maxDt >= staticData.delta1())) {
+      IOService.exit(BAD_ARGUMENT, "max dt " + maxDt + " is smaller than dt " + staticData.delta1());
+    }
+    return new AdaptiveTimeStep(staticData.delta1(), maxDt, defaultMaxDt, staticData.minDiameter() / 2);
+  }
+
+  private int chooseOutputQueue(final Map<String, String> options) {
+    if (!options.containsKey(O_OUTPUT_QUEUE)) {
+      return DEFAULT_OUTPUT_QUEUE;
+    }
+    final int outputQueue = IOService.parseAsInt(options.get(O_OUTPUT_QUEUE), "<output-queue>");
+    if (outputQueue < 1) {
+      IOService.exit(BAD_ARGUMENT, outputQueue);
+    }
+    return outputQueue;
+  }
+
+  private AsyncFrameWriter.Backpressure chooseOutputPolicy(final Map<String, String> options) {
+    if (!options.containsKey(O_OUTPUT_POLICY)) {
+      return DEFAULT_OUTPUT_POLICY;
+    }
+    final String outputPolicy = options.get(O_OUTPUT_POLICY);
+    for (final AsyncFrameWriter.Backpressure backpressure : AsyncFrameWriter.Backpressure.values()) {
+      if (backpressure.name().equalsIgnoreCase(outputPolicy)) {
+        return backpressure;
+      }
+    }
+    IOService.exit(BAD_ARGUMENT, outputPolicy);
+    // should never reach here
+    throw new IllegalStateException();
+  }
+
+  private int chooseThreads(final Map<String, String> options) {
+    if (!options.containsKey(O_THREADS)) {
+      return DEFAULT_THREADS;
+    }
+    final int nThreads = IOService.parseAsInt(options.get(O_THREADS), "<threads>");
+    if (nThreads < 1) {
+      IOService.exit(BAD_ARGUMENT, nThreads);
+    }
+    return nThreads;
+  }
+
+  private int chooseSleepSteps(final Map<String, String> options) {
+    if (!options.containsKey(O_SLEEP_STEPS)) {
+      return DEFAULT_SLEEP_STEPS;
+    }
+    final int sleepSteps = IOService.parseAsInt(options.get(O_SLEEP_STEPS), "<sleep-steps>");
+    if (sleepSteps < 0) {
+      IOService.exit(BAD_ARGUMENT, sleepSteps);
+    }
+    return sleepSteps;
+  }
+
+  private boolean chooseBallistic(final Map<String, String> options) {
+    return IOService.parseAsBoolean(options.getOrDefault(O_BALLISTIC, DEFAULT_BALLISTIC), "<ballistic>");
+  }
+
+  /**
+   * @param integrator the chosen integrator, which should be the gear predictor corrector one if there are levels
+   * @return how many time step levels above dt particles may be integrated with; 0 if all of them use dt
+   */
+  private int chooseMultiRateLevels(final Map<String, String> options,
+                                    final GearGranularMediaSystem.Integrator integrator) {
+    if (!options.containsKey(O_MULTI_RATE)) {
+      return DEFAULT_MULTI_RATE;
+    }
+    final int multiRateLevels = IOService.parseAsInt(options.get(O_MULTI_RATE), "<multi-rate>");
+    if (multiRateLevels < 0 || multiRateLevels > MAX_MULTI_RATE) {
+      IOService.exit(BAD_ARGUMENT, multiRateLevels);
+    }
+    if (multiRateLevels > 0 && integrator != GearGranularMediaSystem.Integrator.GEAR5) {
+      IOService.exit(BAD_ARGUMENT, "time step levels need the gear5 integrator");
+    }
+    // levels' time steps are multiples of a fixed dt
+    if (multiRateLevels > 0 && IOService.parseAsBoolean(
+            options.getOrDefault(O_ADAPTIVE_DT, DEFAULT_ADAPTIVE_DT), "<adaptive-dt>")) {
+      IOService.exit(BAD_ARGUMENT, "time step levels can not be used with an adaptive dt");
+    }
+    return multiRateLevels;
+  }
+
+  private GearGranularMediaSystem.Integrator chooseIntegrator(final Map<String, String> options) {
+    if (!options.containsKey(O_INTEGRATOR)) {
+      return DEFAULT_INTEGRATOR;
+    }
+    final String integrator = options.get(O_INTEGRATOR);
+    for (final GearGranularMediaSystem.Integrator value : GearGranularMediaSystem.Integrator.values()) {
+      if (value.name().equalsIgnoreCase(integrator)) {
+        return value;
+      }
+    }
+    IOService.exit(BAD_ARGUMENT, integrator);
+    // should never reach here
+    throw new IllegalStateException();
+  }
+
+  private NeighboursFinder chooseNeighboursFinder(final Map<String, String> options, final StaticData staticData) {
+    final String neighboursFinder = options.getOrDefault(O_NEIGHBOURS_FINDER, DEFAULT_NEIGHBOURS_FINDER);
+    switch (neighboursFinder) {
+      case CELL_INDEX_METHOD:
+        return new CellIndexMethodImpl(staticData.width(), staticData.totalSystemLength(),
+                staticData.maxDiameter(), RC);
+      case BRUTE_FORCE_METHOD:
+        return new BruteForceMethodImpl(PERIODIC_LIMIT, RC);
+      case VERLET_LIST_METHOD:
+        final double skin = options.containsKey(O_SKIN) ?
+                IOService.parseAsDouble(options.get(O_SKIN), "<skin>") :
+                DEFAULT_SKIN_FACTOR * staticData.maxDiameter();
+        final NeighboursFinder candidatesFinder = new CellIndexMethodImpl(staticData.width(),
+                staticData.totalSystemLength(), staticData.maxDiameter(), RC + skin);
+        return new VerletListMethodImpl(candidatesFinder, RC, skin);
+      default:
+        IOService.exit(BAD_ARGUMENT, neighboursFinder);
+        // should never reach here
+        throw new IllegalStateException();
+    }
+  }
+
+  /**
+   * @param args run args, with the static file and the simulation's parameters
+   * @return the static file's data, with the given simulation's parameters
+   */
+  /* package-private */ static StaticData loadStaticData(final String[] args) {
     final StaticData staticData = InputSerializerHelper.loadStaticFile(args[I_STATIC_DATA]);
     final double simulationTime = IOService.parseAsDouble(args[I_SIMULATION_TIME], "<simulation_time>");
     final double delta1 = IOService.parseAsDouble(args[I_DELTA_1], "<delta_1>");
@@ -223,27 +746,18 @@ public class GranularMediaSystemProgram implements MainProgram {
   }
 
   private void outputSystem(final Gear5GranularMediaSystemData systemData,
-                            final long step, final double currentTime, final StaticData staticData,
-                            final OutputSerializerHelper outputSerializerHelper) {
-    if (staticData.printOvito()) {
-      appendToOvito(pathToOvitoFile, systemData.particles(), systemData.walls(), step, outputSerializerHelper);
-    }
-    appendToKineticEnergy(pathToKineticEnergyFile, systemData.kineticEnergy(), step, currentTime);
-  }
-
-  private void appendToFlow(final Path pathToFlowFile, final long nParticlesFlowed,
                             final long step, final double currentTime,
-                            final OutputSerializerHelper outputSerializerHelper) {
-    // if there weren't particles that flowed, outputSerializerHelper takes this into account
-    final String flowData = outputSerializerHelper.flowSerializer(step, currentTime, nParticlesFlowed);
-    IOService.appendToFile(pathToFlowFile, flowData);
+                            final AsyncFrameWriter frameWriter) {
+    frameWriter.write(systemData.particles(), step, currentTime, systemData.kineticEnergy(), systemData.maxPressure());
   }
 
   private Collection<Wall> initializeSystemWalls(final StaticData staticData) {
     final Collection<Wall> systemWalls = new HashSet<>();
 
-    final Wall leftVerticalWall = Wall.builder(ZERO, ZERO, ZERO, staticData.totalSystemLength()).build();
-    final Wall rightVerticalWall = Wall.builder(staticData.width(), ZERO, staticData.width(), staticData.totalSystemLength()).build();
+    // each system numbers its own walls
+    final Wall leftVerticalWall = Wall.builder(ZERO, ZERO, ZERO, staticData.totalSystemLength()).id(1).build();
+    final Wall rightVerticalWall = Wall.builder(staticData.width(), ZERO, staticData.width(), staticData.totalSystemLength())
+            .id(2).build();
 
     final double horizontalWallWidth = (staticData.width()-staticData.diameterOpening()) / 2;
 
@@ -256,10 +770,10 @@ public class GranularMediaSystemProgram implements MainProgram {
 
     final Wall leftBottomHorizontalWall =
             Wall.builder(xFromLeftHorizontalWall, staticData.fallLength(),
-                    xToLeftHorizontalWall, staticData.fallLength()).build();
+                    xToLeftHorizontalWall, staticData.fallLength()).id(3).build();
     final Wall rightBottomHorizontalWall =
             Wall.builder(xFromRightHorizontalWall, staticData.fallLength(),
-                    xToRightHorizontalWall, staticData.fallLength()).build();
+                    xToRightHorizontalWall, staticData.fallLength()).id(4).build();
 
     systemWalls.add(leftVerticalWall);
     systemWalls.add(rightVerticalWall);
@@ -268,21 +782,4 @@ public class GranularMediaSystemProgram implements MainProgram {
 
     return systemWalls;
   }
-
-  private void appendToOvito(final Path ovitoFilePath,
-                             final Collection<Particle> particleSet,
-                             final Collection<Wall> walls,
-                             final long iteration,
-                             final OutputSerializerHelper outputSerializerHelper) {
-    final String ovitoOutputData = outputSerializerHelper.ovitoOutput(particleSet, walls, iteration);
-    IOService.appendToFile(ovitoFilePath, ovitoOutputData);
-  }
-
-  private void appendToKineticEnergy(final Path pathToKineticEnergyFile,
-                                     final double kineticEnergy,
-                                     final long step,
-                                     final double currentTime) {
-    final String kineticOutputData = step + ", " + currentTime + ", " + kineticEnergy + System.lineSeparator();
-    IOService.appendToFile(pathToKineticEnergyFile, kineticOutputData);
-  }
 }
@@ -8,15 +8,72 @@ public class HelpProgram implements MainProgram {
                   "Arguments: \n" +
                   "* gen static <nParticles> <width> <length> <diameterOpening> <mass> <kn> <kt> : \n" +
                   "     generates an output/static.dat file with the desired parameters.\n" +
-                  "* gen dynamic <path/to/static.dat> : \n" +
+                  "* gen dynamic <path/to/static.dat> [--seed <seed>] [--settled] : \n" +
                   "     generates an output/dynamic.dat file with the information specified at the " +
                   "given static.dat file.\n" +
-                  "* sim <path/to/static.dat> <path/to/dynamic.dat> <simulationTime> <dt> <dt2> <print_ovito>\n" +
+                  "     The same <seed> always generates the same file; if not given, a random one is used " +
+                  "and printed.\n" +
+                  "     With --settled, particles are settled at the silo's bottom, resting on each other, instead " +
+                  "of placed\n" +
+                  "     at random positions; only the particles that fit in the silo are saved.\n" +
+                  "* sim <path/to/static.dat> <path/to/dynamic.dat> <simulationTime> <dt> <dt2> <print_ovito> " +
+                  "[options]\n" +
                   "     runs the granular-media simulation and saves snapshots of the system in output/ovito.xyz.\n" +
                   "     - <simulationTime>: total time to simulate.\n" +
                   "     - <dt>: time step of the simulation.\n" +
                   "     - <dt2>: time step to save snapshots of the system.\n" +
-                  "     - <print_ovito>: true if ovito output is desired; false otherwise.\n";
+                  "     - <print_ovito>: true if ovito output is desired; false otherwise.\n" +
+                  "     Options:\n" +
+                  "     - --neighbours <cell_index|brute_force|verlet>: method used to find colliding particles.\n" +
+                  "       Default: cell_index.\n" +
+                  "     - --skin <skin>: extra distance kept by the verlet neighbours lists. " +
+                  "Default: 0.2 * max diameter.\n" +
+                  "     - --threads <threads>: number of threads used to integrate the system. Default: 1.\n" +
+                  "     - --integrator <gear5|verlet>: numeric integration method. Velocity verlet is cheaper and " +
+                  "takes less memory,\n" +
+                  "       but it is only second order accurate. Default: gear5.\n" +
+                  "     - --adaptive-dt: choose each step's dt from the contacts' superposition and velocity,\n" +
+                  "       between <dt> and --max-dt.\n" +
+                  "     - --max-dt <dt>: max dt of the adaptive steps. Default: 0.1 * sqrt(mass / kn), which is the\n" +
+                  "       max one while there are contacts anyway.\n" +
+                  "     - --sleep-steps <steps>: let particles that, as their neighbours, have been quiet for these\n" +
+                  "       many steps sleep until disturbed. Default: 0, i.e., particles never sleep.\n" +
+                  "     - --ballistic: advance particles that touch nothing in closed form, only under gravity.\n" +
+                  "     - --multi-rate <levels>: integrate each particle with a time step from <dt> to <dt> * 2^levels,\n" +
+                  "       chosen from its contacts. Only for gear5, with a fixed dt. Default: 0, i.e., always <dt>.\n" +
+                  "     - --output-queue <frames>: how many frames can be waiting to be written. Default: 4.\n" +
+                  "     - --output-policy <block|drop>: whether to wait or to drop frames when the output queue is full.\n" +
+                  "       Default: block.\n" +
+                  "     - --trajectory <xyz|binary>: format of the saved snapshots; binary ones are saved in " +
+                  "output/ovito.bin.\n" +
+                  "       Default: xyz.\n" +
+                  "     - --precision <single|double>: precision of the binary snapshots' values. Default: single.\n" +
+                  "     - --forces: save particles' forces at the binary snapshots.\n" +
+                  "     - --pressure: save particles' pressures at the binary snapshots.\n" +
+                  "     - --flow-bin <seconds>: save the number of flowed particles per time bin at output/flow.csv,\n" +
+                  "       instead of one line per flowed particle.\n" +
+                  "     - --checkpoint-steps <steps>: save the whole simulation's state at output/checkpoint.bin " +
+                  "every <steps> steps.\n" +
+                  "     - --checkpoint-seconds <seconds>: save it every <seconds> seconds of wall clock.\n" +
+                  "       With any of them, it is also saved when the simulation ends or it is terminated.\n" +
+                  "     - --resume <path/to/checkpoint.bin>: resume the simulation from the given checkpoint;\n" +
+                  "       the other arguments should be the same as the checkpoint's simulation ones, " +
+                  "except <simulationTime>.\n" +
+                  "* sweep <path/to/static.dat> <path/to/dynamic.dat> <simulationTime> <dt> <dt2> <print_ovito> " +
+                  "--grid <grid> [options]\n" +
+                  "     runs one simulation per combination of the grid's values, several of them at the same time;\n" +
+                  "     each one is saved at its own output/sweep-<date>/run-<i>/ folder, and a summary of all of them\n" +
+                  "     at output/sweep-<date>/summary.csv.\n" +
+                  "     - --grid <grid>: values of each swept parameter, as in " +
+                  "'diameterOpening=0.1,0.2;kn=1e5,2e5'.\n" +
+                  "       Parameters: diameterOpening, kn, kt, dynamic (path to a dynamic file) and seed (particles\n" +
+                  "       are generated from it as with gen dynamic, and saved at each run's dynamic.dat).\n" +
+                  "     - --settled: particles generated from seeds are settled, as with gen dynamic --settled.\n" +
+                  "     - --parallel <runs>: how many simulations run at the same time. " +
+                  "Default: number of processors.\n" +
+                  "     Any other sim option is given to each simulation, except --resume.\n" +
+                  "* convert <path/to/ovito.bin> : \n" +
+                  "     converts a binary trajectory file into an ovito.xyz file saved next to it.\n";
 
   @Override
   public void run(final String[] args) {
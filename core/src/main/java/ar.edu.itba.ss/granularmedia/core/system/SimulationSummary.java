@@ -0,0 +1,76 @@
+package ar.edu.itba.ss.granularmedia.core.system;
+
+import ar.edu.itba.ss.granularmedia.models.StaticData;
+
+/**
+ * Outcome of a whole simulation, as returned by {@link GranularMediaSystemProgram#simulate}
+ */
+/* package-private */ final class SimulationSummary {
+  private final StaticData staticData;
+  private final double endTime;
+  private final long nParticlesFlowed;
+  private final boolean stopped;
+  private final boolean terminated;
+  private final double wallSeconds;
+
+  /* package-private */ SimulationSummary(final StaticData staticData,
+                                          final double endTime,
+                                          final long nParticlesFlowed,
+                                          final boolean stopped,
+                                          final boolean terminated,
+                                          final double wallSeconds) {
+    this.staticData = staticData;
+    this.endTime = endTime;
+    this.nParticlesFlowed = nParticlesFlowed;
+    this.stopped = stopped;
+    this.terminated = terminated;
+    this.wallSeconds = wallSeconds;
+  }
+
+  /**
+   * @return the simulated system's static data, with the simulation's parameters as they were used
+   */
+  public StaticData staticData() {
+    return staticData;
+  }
+
+  /**
+   * @return system's time at which the simulation ended
+   */
+  public double endTime() {
+    return endTime;
+  }
+
+  public long nParticlesFlowed() {
+    return nParticlesFlowed;
+  }
+
+  /**
+   * @return the mean number of flowed particles per time unit, over the whole simulation time,
+   * as written to the media flow file
+   */
+  public double mediaFlow() {
+    return nParticlesFlowed / staticData.simulationTime();
+  }
+
+  /**
+   * @return true if the simulation ended because the system stopped moving; false otherwise
+   */
+  public boolean stopped() {
+    return stopped;
+  }
+
+  /**
+   * @return true if the simulation ended because the JVM was terminated; false otherwise
+   */
+  public boolean terminated() {
+    return terminated;
+  }
+
+  /**
+   * @return wall clock seconds the simulation took
+   */
+  public double wallSeconds() {
+    return wallSeconds;
+  }
+}
@@ -0,0 +1,296 @@
+package ar.edu.itba.ss.granularmedia.core.system;
+
+import ar.edu.itba.ss.granularmedia.interfaces.MainProgram;
+import ar.edu.itba.ss.granularmedia.models.StaticData;
+import ar.edu.itba.ss.granularmedia.services.IOService;
+import ar.edu.itba.ss.granularmedia.services.RandomService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static ar.edu.itba.ss.granularmedia.services.IOService.ExitStatus.*;
+
+/**
+ * Runs one simulation per combination of the given parameters' values, several of them at the same time,
+ * within the same JVM.
+ * <P>
+ * Each simulation is run as the {@code sim} program would do, with the same arguments and options, except for the
+ * swept parameters, and writes its output files and its printed progress at its own {@code run-<i>} folder.
+ * If seeds are swept, each simulation's particles are generated from its own seed, as {@code gen dynamic} would do,
+ * and saved at its folder's {@code dynamic.dat} file; with {@code --settled}, they are settled at the silo's bottom.
+ * A {@code summary.csv} file with one line per simulation is written when all of them have finished.
+ * <P>
+ * Simulations do not share any state, so each one writes the same files it would write if it were run alone.
+ * <P>
+ * Note that a simulation that aborts, e.g., because of an invalid file, aborts the whole sweep.
+ */
+public class SweepProgram implements MainProgram {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SweepProgram.class);
+
+  // file constants
+  private static final String DEFAULT_OUTPUT_FOLDER = "output";
+  private static final String SWEEP_FOLDER_PREFIX = "sweep-";
+  private static final String RUN_FOLDER_PREFIX = "run-";
+  private static final String DEFAULT_SUMMARY_FILE_NAME = "summary";
+  private static final String STATISTICS_FILE_EXTENSION = ".csv";
+  private static final String DEFAULT_CONSOLE_FILE_NAME = "console";
+  private static final String CONSOLE_FILE_EXTENSION = ".log";
+  private static final String NL = System.lineSeparator();
+  private static final char CSV_SPLITTER = ',';
+
+  // sweep options
+  private static final String O_GRID = "grid";
+  private static final String O_PARALLEL = "parallel";
+
+  // grid format: <parameter>=<value>[,<value>...][;<parameter>=...]
+  private static final String GRID_PARAMETERS_SPLITTER = ";";
+  private static final String GRID_PARAMETER_VALUE_SPLITTER = "=";
+  private static final String GRID_VALUES_SPLITTER = ",";
+
+  // parameters that can be swept
+  private static final String P_DIAMETER_OPENING = "diameterOpening";
+  private static final String P_KN = "kn";
+  private static final String P_KT = "kt";
+  private static final String P_DYNAMIC = "dynamic";
+  private static final String P_SEED = "seed";
+
+  private final String sweepFolder = DEFAULT_OUTPUT_FOLDER + '/' + SWEEP_FOLDER_PREFIX + LocalDateTime.now();
+
+  @Override
+  public void run(final String[] args) {
+    if (args.length < GranularMediaSystemProgram.N_ARGS_EXPECTED) {
+      IOService.exit(BAD_N_ARGUMENTS, null);
+      // should never reach here
+      throw new IllegalStateException();
+    }
+
+    final Map<String, String> options =
+            IOService.parseOptionalArguments(args, GranularMediaSystemProgram.N_ARGS_EXPECTED);
+    if (!options.containsKey(O_GRID)) {
+      IOService.exit(BAD_ARGUMENT, "--" + O_GRID + " is required");
+    }
+    if (options.containsKey(GranularMediaSystemProgram.O_RESUME)) {
+      IOService.exit(BAD_ARGUMENT, "sweeps cannot be resumed");
+    }
+    final Map<String, List<String>> grid = parseGrid(options.get(O_GRID));
+    if (grid.containsKey(P_DYNAMIC) && grid.containsKey(P_SEED)) {
+      IOService.exit(BAD_ARGUMENT, "either dynamic files or seeds can be swept, not both");
+    }
+    final ExecutorService pool = choosePool(options);
+
+    // the rest of the options are given to each simulation
+    final Map<String, String> runOptions = new HashMap<>(options);
+    runOptions.remove(O_GRID);
+    runOptions.remove(O_PARALLEL);
+    runOptions.remove(GenerateDynamicFileProgram.O_SETTLED);
+    final boolean settled = IOService.parseAsBoolean(
+            options.getOrDefault(GenerateDynamicFileProgram.O_SETTLED, GenerateDynamicFileProgram.DEFAULT_SETTLED),
+            "<settled>");
+
+    final StaticData staticData = GranularMediaSystemProgram.loadStaticData(args);
+    final List<Map<String, String>> runsParameters = combinations(grid);
+    for (final Map<String, String> runParameters : runsParameters) {
+      validateRunStaticData(runStaticData(staticData, runParameters));
+      if (runParameters.containsKey(P_SEED)) {
+        IOService.parseAsLong(runParameters.get(P_SEED), P_SEED);
+      }
+    }
+
+    System.out.printf("Running %d simulations at %s...%s", runsParameters.size(), sweepFolder, NL);
+    final long startTime = System.currentTimeMillis();
+    final List<Future<SimulationSummary>> runs = new ArrayList<>(runsParameters.size());
+    for (int i = 0; i < runsParameters.size(); i++) {
+      final int run = i;
+      final Map<String, String> runParameters = runsParameters.get(run);
+      // null if the particles are generated from a seed
+      final String dynamicDataFile = runParameters.containsKey(P_SEED) ? null :
+              runParameters.getOrDefault(P_DYNAMIC, args[GranularMediaSystemProgram.I_DYNAMIC_DATA]);
+      runs.add(pool.submit(() -> simulate(run, runParameters,
+              runStaticData(staticData, runParameters), dynamicDataFile, settled, runOptions)));
+    }
+
+    final List<SimulationSummary> summaries = new ArrayList<>(runs.size());
+    try {
+      for (final Future<SimulationSummary> run : runs) {
+        summaries.add(run.get());
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      IOService.exit(UNEXPECTED_ERROR, e);
+    } catch (final ExecutionException e) {
+      LOGGER.error("Simulation failed", e.getCause());
+      IOService.exit(UNEXPECTED_ERROR, e.getCause());
+    } finally {
+      pool.shutdown();
+    }
+
+    outputSummary(grid.keySet(), runsParameters, summaries);
+    final double sweepDuration = (System.currentTimeMillis() - startTime) / 1000.0;
+    LOGGER.info("Total sweep time: {} s", sweepDuration);
+    System.out.printf("Total sweep time: %f s%s", sweepDuration, NL);
+    System.out.println("[DONE]");
+  }
+
+  /**
+   * @param dynamicDataFile path to the simulation's dynamic file; null if its particles are generated from the
+   *                        {@code seed} parameter
+   * @param settled whether generated particles are settled at the bottom of the silo, as {@code gen dynamic --settled}
+   *                does
+   */
+  private SimulationSummary simulate(final int run,
+                                     final Map<String, String> runParameters,
+                                     final StaticData runStaticData,
+                                     final String dynamicDataFile,
+                                     final boolean settled,
+                                     final Map<String, String> runOptions) {
+    final String runFolder = sweepFolder + '/' + RUN_FOLDER_PREFIX + run;
+    final String runDynamicDataFile = dynamicDataFile != null ? dynamicDataFile :
+            GenerateDynamicFileProgram.generateDynamicFile(runFolder, runStaticData,
+                    new RandomService(Long.parseLong(runParameters.get(P_SEED))), settled).toString();
+    final SimulationSummary summary;
+    try (final PrintStream out = new PrintStream(
+            IOService.createOutputStream(runFolder, DEFAULT_CONSOLE_FILE_NAME, CONSOLE_FILE_EXTENSION))) {
+      final GranularMediaSystemProgram program = new GranularMediaSystemProgram(runFolder, out);
+      summary = program.simulate(runStaticData, runDynamicDataFile, runOptions);
+    }
+    System.out.printf("\tRun %d %s done: %d particles flowed in %f s (%f s of wall clock)%s",
+            run, runParameters, summary.nParticlesFlowed(), summary.endTime(), summary.wallSeconds(), NL);
+    return summary;
+  }
+
+  /**
+   * @return each parameter with its values, in the given order
+   */
+  private static Map<String, List<String>> parseGrid(final String gridOption) {
+    final Map<String, List<String>> grid = new LinkedHashMap<>();
+    for (final String parameterValues : gridOption.split(GRID_PARAMETERS_SPLITTER)) {
+      final String[] parameterAndValues = parameterValues.trim().split(GRID_PARAMETER_VALUE_SPLITTER, 2);
+      if (parameterAndValues.length != 2 || parameterAndValues[1].trim().isEmpty()) {
+        IOService.exit(BAD_ARGUMENT, parameterValues);
+      }
+      final String parameter = parameterAndValues[0].trim();
+      if (!isSweepable(parameter) || grid.containsKey(parameter)) {
+        IOService.exit(BAD_ARGUMENT, parameter);
+      }
+      final List<String> values = new ArrayList<>();
+      for (final String value : parameterAndValues[1].split(GRID_VALUES_SPLITTER)) {
+        values.add(value.trim());
+      }
+      grid.put(parameter, values);
+    }
+    return grid;
+  }
+
+  private static boolean isSweepable(final String parameter) {
+    switch (parameter) {
+      case P_DIAMETER_OPENING: case P_KN: case P_KT: case P_DYNAMIC: case P_SEED:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * @return one map per combination of the grid's values, with each parameter's value, in the grid's order;
+   * the last parameter's values vary the fastest
+   */
+  private static List<Map<String, String>> combinations(final Map<String, List<String>> grid) {
+    List<Map<String, String>> combinations = Collections.singletonList(new LinkedHashMap<>());
+    for (final Map.Entry<String, List<String>> parameterValues : grid.entrySet()) {
+      final List<Map<String, String>> extendedCombinations =
+              new ArrayList<>(combinations.size() * parameterValues.getValue().size());
+      for (final Map<String, String> combination : combinations) {
+        for (final String value : parameterValues.getValue()) {
+          final Map<String, String> extendedCombination = new LinkedHashMap<>(combination);
+          extendedCombination.put(parameterValues.getKey(), value);
+          extendedCombinations.add(extendedCombination);
+        }
+      }
+      combinations = extendedCombinations;
+    }
+    return combinations;
+  }
+
+  private static StaticData runStaticData(final StaticData staticData, final Map<String, String> runParameters) {
+    StaticData runStaticData = staticData;
+    for (final Map.Entry<String, String> parameterValue : runParameters.entrySet()) {
+      final String value = parameterValue.getValue();
+      switch (parameterValue.getKey()) {
+        case P_DIAMETER_OPENING:
+          runStaticData = runStaticData.withDiameterOpening(IOService.parseAsDouble(value, P_DIAMETER_OPENING));
+          break;
+        case P_KN:
+          runStaticData = runStaticData.withKn(IOService.parseAsDouble(value, P_KN));
+          break;
+        case P_KT:
+          runStaticData = runStaticData.withKt(IOService.parseAsDouble(value, P_KT));
+          break;
+        default:
+          // not a static data's parameter
+          break;
+      }
+    }
+    return runStaticData;
+  }
+
+  private static void validateRunStaticData(final StaticData staticData) {
+    // a 0 opening is a recipient
+    if (!(staticData.diameterOpening() >= 0 && staticData.diameterOpening() < staticData.width())) {
+      IOService.exit(VALIDATION_FAILED, "width > diameterOpening >= 0");
+    }
+    if (!(staticData.kn() > 0 && staticData.kt() > 0)) {
+      IOService.exit(VALIDATION_FAILED, "kn > 0 and kt > 0");
+    }
+  }
+
+  private static ExecutorService choosePool(final Map<String, String> options) {
+    if (!options.containsKey(O_PARALLEL)) {
+      return Executors.newWorkStealingPool();
+    }
+    final int parallel = IOService.parseAsInt(options.get(O_PARALLEL), "<parallel>");
+    if (parallel < 1) {
+      IOService.exit(BAD_ARGUMENT, parallel);
+    }
+    return Executors.newWorkStealingPool(parallel);
+  }
+
+  private void outputSummary(final Collection<String> parameters,
+                             final List<Map<String, String>> runsParameters,
+                             final List<SimulationSummary> summaries) {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("run");
+    for (final String parameter : parameters) {
+      sb.append(CSV_SPLITTER).append(parameter);
+    }
+    sb.append(",dt,simulationTime,endTime,nParticlesFlowed,mediaFlow,stopped,terminated,wallSeconds").append(NL);
+    for (int run = 0; run < summaries.size(); run++) {
+      final SimulationSummary summary = summaries.get(run);
+      sb.append(run);
+      for (final String value : runsParameters.get(run).values()) {
+        sb.append(CSV_SPLITTER).append(value);
+      }
+      sb
+              .append(CSV_SPLITTER).append(summary.staticData().delta1())
+              .append(CSV_SPLITTER).append(summary.staticData().simulationTime())
+              .append(CSV_SPLITTER).append(summary.endTime())
+              .append(CSV_SPLITTER).append(summary.nParticlesFlowed())
+              .append(CSV_SPLITTER).append(summary.mediaFlow())
+              .append(CSV_SPLITTER).append(summary.stopped())
+              .append(CSV_SPLITTER).append(summary.terminated())
+              .append(CSV_SPLITTER).append(summary.wallSeconds())
+              .append(NL);
+    }
+    final Path pathToSummaryFile =
+            IOService.createOutputFile(sweepFolder, DEFAULT_SUMMARY_FILE_NAME, STATISTICS_FILE_EXTENSION);
+    IOService.appendToFile(pathToSummaryFile, sb.toString());
+    IOService.closeOutputFile(pathToSummaryFile);
+  }
+}
@@ -0,0 +1,108 @@
+package ar.edu.itba.ss.granularmedia.core.system.integration;
+
+/**
+ * Chooses the dt of each step, within the given bounds, from the contacts of the previous one.
+ * <P>
+ * Compressed contacts, i.e., those whose superposition is beyond {@link #MAX_SUPERPOSITION} of the min radio, need the
+ * min dt. Otherwise, dt is such as no contact's superposition changes more than {@link #MAX_SUPERPOSITION_CHANGE} of
+ * the min radio in one step, neither for the current contacts, given their max relative normal velocity, nor for
+ * particles that may get in contact, given the max particle speed. While there is any contact, dt is also kept below
+ * the contact dt, which the contacts' stiffness needs to be stable, whatever the max dt. So, free falling and sparse
+ * particles are integrated with a much bigger dt than packed ones.
+ * <P>
+ * dt is reduced at once, but it grows at most {@link #MAX_GROWTH} times per step, so as it does not jump when the
+ * particles just part.
+ * <P>
+ * Gear Predictor Corrector keeps the particles' derivatives themselves, not scaled by any power of dt, and its
+ * constants are calculated for the dt of each step, so changing dt needs no other adjustment.
+ */
+public class AdaptiveTimeStep {
+  // of the min radio
+  /* package-private */ static final double MAX_SUPERPOSITION = 0.01;
+  /* package-private */ static final double MAX_SUPERPOSITION_CHANGE = 0.01;
+  /* package-private */ static final double MAX_GROWTH = 1.1;
+
+  private final double minDt;
+  private final double maxDt;
+  private final double contactDt;
+  private final double maxSuperposition;
+  private final double maxSuperpositionChange;
+
+  /**
+   * @param minDt min dt, used for compressed contacts; it should be stable for any contact
+   * @param maxDt max dt
+   * @param contactDt max dt while there are contacts, e.g., {@code 0.1 * sqrt(mass / kn)}
+   * @param minRadio min particles' radio
+   */
+  public AdaptiveTimeStep(final double minDt, final double maxDt, final double contactDt, final double minRadio) {
+    if (!(minDt > 0) || !(maxDt >= minDt) || !(contactDt >= minDt)) {
+      throw new IllegalArgumentException("Expected 0 < minDt <= maxDt, contactDt; found "
+              + minDt + ", " + maxDt + ", " + contactDt);
+    }
+    this.minDt = minDt;
+    this.maxDt = maxDt;
+    this.contactDt = contactDt;
+    this.maxSuperposition = MAX_SUPERPOSITION * minRadio;
+    this.maxSuperpositionChange = MAX_SUPERPOSITION_CHANGE * minRadio;
+  }
+
+  public double minDt() {
+    return minDt;
+  }
+
+  public double maxDt() {
+    return maxDt;
+  }
+
+  /**
+   * @param dt dt of the last step
+   * @param systemData system just evolved with the given dt
+   * @return the dt for the next step
+   */
+  public double next(final double dt, final Gear5GranularMediaSystemData systemData) {
+    return next(dt, systemData.maxSuperposition(), systemData.maxNormalVelocity(), systemData.maxSpeed());
+  }
+
+  /**
+   * @param dt dt of the last step
+   * @param maxSuperposition max superposition of the last step's contacts; 0 if there were no contacts
+   * @param maxNormalVelocity max relative normal velocity of the last step's contacts
+   * @param maxSpeed max particle speed
+   * @return the dt for the next step
+   */
+  /* package-private */ double next(final double dt, final double maxSuperposition, final double maxNormalVelocity,
+                                    final double maxSpeed) {
+    if (maxSuperposition > this.maxSuperposition) {
+      return minDt;
+    }
+    double nextDt = Math.min(maxDt, MAX_GROWTH * dt);
+    // current contacts' stiffness
+    if (maxSuperposition > 0) {
+      nextDt = Math.min(nextDt, contactDt);
+    }
+    // current contacts' approach
+    if (maxNormalVelocity > 0) {
+      nextDt = Math.min(nextDt, maxSuperpositionChange / maxNormalVelocity);
+    }
+    // contacts that may start, at most between two particles with the max speed, head on
+    if (maxSpeed > 0) {
+      nextDt = Math.min(nextDt, maxSuperpositionChange / (2 * maxSpeed));
+    }
+    return Math.max(minDt, nextDt);
+  }
+
+  /**
+   * @param dt dt chosen for the next step
+   * @param currentTime current simulation time
+   * @param nextEventTime time of the next event that should not be stepped over, e.g., the next output
+   * @return the given dt, shortened so as the next step ends right at the event's time, unless that would take a dt
+   * smaller than the min one
+   */
+  public double until(final double dt, final double currentTime, final double nextEventTime) {
+    final double timeToEvent = nextEventTime - currentTime;
+    if (timeToEvent >= minDt && timeToEvent < dt) {
+      return timeToEvent;
+    }
+    return dt;
+  }
+}
@@ -1,5 +1,6 @@
 package ar.edu.itba.ss.granularmedia.core.system.integration;
 
+import ar.edu.itba.ss.granularmedia.core.helpers.Checkpoint;
 import ar.edu.itba.ss.granularmedia.interfaces.NeighboursFinder;
 import ar.edu.itba.ss.granularmedia.models.Particle;
 import ar.edu.itba.ss.granularmedia.models.StaticData;
@@ -8,49 +9,163 @@ import ar.edu.itba.ss.granularmedia.models.Wall;
 import ar.edu.itba.ss.granularmedia.services.IOService;
 import ar.edu.itba.ss.granularmedia.services.apis.Space2DMaths;
 import ar.edu.itba.ss.granularmedia.services.gear.Gear5SystemData;
-import ar.edu.itba.ss.granularmedia.services.neighboursfinders.BruteForceMethodImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
 
+/**
+ * Granular media system's data: particles collide with each other, with the silo's walls and with the opening's
+ * extremes, and those that flow out are respawned at the top.
+ * <P>
+ * Particles may sleep, i.e., be deactivated, so as resting grains, e.g., of a closed silo or of the stagnant zones
+ * beside the opening, are not integrated. A particle is quiet if its speed and its net force are below
+ * thresholds; it falls asleep once it and all the particles it touches have been quiet for a number of steps.
+ * Sleeping particles are frozen, and other particles collide with them as with obstacles; one wakes up as soon as
+ * it is touched by a particle that is not quiet, or whose contact's superposition changes faster than a quiet
+ * particle moves.
+ * <P>
+ * Particles may also be advanced as ballistic ones: those that, at the predicted positions, are neither touching
+ * any particle, as given by the neighbours finder, nor any wall, e.g., grains falling out of the silo or just
+ * respawned above the pile, only feel gravity, so they are advanced in closed form instead of being evaluated.
+ * They are integrated as usual again as soon as they touch anything.
+ * <P>
+ * When integrated by a multi-rate integration method, each particle's max time step is chosen from its contacts, as
+ * {@link AdaptiveTimeStep} does for the whole system: particles with compressed contacts need the base dt; otherwise,
+ * it is such as no contact is stiffer than the base one, and no contact's superposition changes too much, neither for
+ * the current contacts nor for the ones the particle may start. Pairs in which no particle is fixed at the current
+ * step are not evaluated.
+ */
 public class Gear5GranularMediaSystemData extends Gear5SystemData {
   @SuppressWarnings("unused")
   private static final Logger LOGGER = LoggerFactory.getLogger(Gear5GranularMediaSystemData.class);
 
   private static final double G = 9.80665;
-  private static final double RC = 0;
-  private static final boolean PERIODIC_LIMIT = false;
 
   private static final int NORMAL = 0;
   private static final int TANGENTIAL = 1;
 
+  private static final int POSITION_DERIVED_ORDER = 0;
   private static final int VELOCITY_DERIVED_ORDER = 1;
+  private static final int ACCELERATION_DERIVED_ORDER = 2;
 
   private static final double ZERO = 0;
 
+  // quiet particles' thresholds: speed, relative to sqrt(g * minDiameter), and net force, relative to their weight
+  private static final double SLEEP_SPEED_FACTOR = 0.1;
+  private static final double SLEEP_FORCE_FACTOR = 0.5;
+
+  // multi-rate max time step of a particle with contacts, relative to sqrt(mass / (kn * nContacts)), as the default dt
+  private static final double CONTACT_TIME_STEP_FACTOR = 0.1;
+
   private final double kn;
   private final double kt;
 
   private final Collection<Wall> walls;
+  // static obstacles: they take part on collisions, but they are not integrated
+  private final Collection<Particle> obstacles;
+  // system's predicted particles and obstacles, i.e., the particles given to the neighbours finder
+  private final List<Particle> collidingParticles;
   private final NeighboursFinder neighboursFinder;
   private final Deque<Particle> respawnQueue;
   private final RespawnArea respawnArea;
   private final double fallLength;
 
+  // how many steps a particle and its neighbours should be quiet before it sleeps; 0 if particles never sleep
+  private final int sleepSteps;
+  private final double sleepSpeed;
+  // for each slot: whether its particle was quiet at the last step, for how many steps it and its neighbours have
+  // been quiet, and whether it is touching a not quiet particle at the current step
+  private boolean[] quiet;
+  private int[] quietSteps;
+  private boolean[] disturbed;
+  private List<List<Particle>> chunksToSleep;
+  private List<List<Particle>> chunksToWake;
+
+  // whether contact free particles are advanced as ballistic ones
+  private final boolean detectBallistic;
+  // for each slot: whether its particle is ballistic at the current step
+  private boolean[] ballistic;
+  private int nBallistic;
+  private int[] chunksBallistic;
+
+  // whether each particle's max time step is chosen for a multi-rate integration method
+  private final boolean multiRate;
+  private final double levelMaxSuperposition;
+  private final double levelMaxSuperpositionChange;
+  private int nFixed;
+  private int nIntegrated;
+  private int[] chunksFixed;
+  private int[] chunksIntegrated;
+
   private Map<Particle, Collection<Particle>> currentNeighbours;
   private double kineticEnergy;
+  // max particle pressure since the simulation started, which particles' output colors are relative to
+  private double maxPressure;
+  // max superposition and max relative normal velocity of the last step's contacts, and max particle speed
+  private double maxSuperposition;
+  private double maxNormalVelocity;
+  private double maxSpeed;
   private long nParticlesFlowed;
   private long nParticlesJustFlowed;
 
+  // per chunk accumulators, merged in chunk order once each step has finished
+  private double[] chunksKineticEnergy;
+  private long[] chunksJustFlowed;
+  private double[] chunksMaxPressure;
+  private double[] chunksMaxSuperposition;
+  private double[] chunksMaxNormalVelocity;
+  private double[] chunksMaxSpeed;
+  private List<List<Particle>> chunksOutParticles;
+  private List<List<Particle>> chunksRespawnAreaParticles;
+
+  // contact forces of each slot, accumulated by the pair pass; one set of accumulators per chunk,
+  // reduced into the first one
+  private double[][] chunksPairForceX;
+  private double[][] chunksPairForceY;
+  private double[][] chunksPairNormalForce;
+  // max superposition and max relative normal velocity of the contacts of each slot with walls
+  private double[] wallsMaxSuperposition;
+  private double[] wallsMaxNormalVelocity;
+  // number of contacts, max superposition and max relative normal velocity of the contacts of each slot, including
+  // those with walls; only for multi-rate integration methods, with the same layout as the contact forces
+  private int[][] chunksContacts;
+  private double[][] chunksContactsMaxSuperposition;
+  private double[][] chunksContactsMaxNormalVelocity;
+
+  /**
+   * @param sVectors number of derivative values kept for each particle, depending on the integration method
+   * @param sleepSteps how many steps a particle and its neighbours should be quiet before it sleeps;
+   *                   0 if particles should never sleep
+   * @param detectBallistic whether particles that touch nothing are advanced in closed form, only feeling gravity
+   * @param multiRate whether each particle's max time step is chosen for a multi-rate integration method
+   */
   /* package-private */ Gear5GranularMediaSystemData(final Collection<Particle> particles,
+                               final Collection<Particle> obstacles,
                                final Collection<Wall> walls,
-                               final StaticData staticData) {
-    super(particles);
+                               final StaticData staticData,
+                               final NeighboursFinder neighboursFinder,
+                               final int sVectors,
+                               final int sleepSteps,
+                               final boolean detectBallistic,
+                               final boolean multiRate) {
+    super(particles, sVectors);
+    this.sleepSteps = sleepSteps;
+    this.sleepSpeed = SLEEP_SPEED_FACTOR * Math.sqrt(G * staticData.minDiameter());
+    this.quiet = new boolean[particles.size()];
+    this.quietSteps = new int[particles.size()];
+    this.disturbed = new boolean[particles.size()];
+    this.detectBallistic = detectBallistic;
+    this.ballistic = new boolean[particles.size()];
+    this.multiRate = multiRate;
+    this.levelMaxSuperposition = AdaptiveTimeStep.MAX_SUPERPOSITION * staticData.minDiameter() / 2;
+    this.levelMaxSuperpositionChange = AdaptiveTimeStep.MAX_SUPERPOSITION_CHANGE * staticData.minDiameter() / 2;
     this.kn = staticData.kn();
     this.kt = staticData.kt();
 
     this.walls = Collections.unmodifiableCollection(walls);
+    this.obstacles = Collections.unmodifiableCollection(obstacles);
+    this.collidingParticles = new ArrayList<>(particles.size() + obstacles.size());
     this.currentNeighbours = new HashMap<>(); // initialize so as not to be null
     this.respawnQueue = new LinkedList<>();
     this.fallLength = staticData.fallLength();
@@ -64,17 +179,95 @@ public class Gear5GranularMediaSystemData extends Gear5SystemData {
 
     this.respawnArea = new RespawnArea(respawnMinX, respawnMaxX,
             staticData.respawnMinY(), staticData.respawnMaxY(), maxRadius);
-    this.neighboursFinder = new BruteForceMethodImpl(PERIODIC_LIMIT, RC);
+    this.neighboursFinder = neighboursFinder;
   }
 
   public Collection<Wall> walls() {
     return walls;
   }
 
+  public Collection<Particle> obstacles() {
+    return obstacles;
+  }
+
+  /**
+   * @return the particles that went out of the system and are waiting to be respawned, which are not at
+   * {@link #particles()}
+   */
+  public Collection<Particle> queuedParticles() {
+    return Collections.unmodifiableCollection(respawnQueue);
+  }
+
   public double kineticEnergy() {
     return kineticEnergy;
   }
 
+  /**
+   * @return the max pressure that any particle has had since the simulation started; sleeping particles' pressures
+   * do not change while they sleep, so they were already taken into account when they were last integrated
+   */
+  public double maxPressure() {
+    return maxPressure;
+  }
+
+  /**
+   * @return how many steps a particle and its neighbours should be quiet before it sleeps; 0 if particles never sleep
+   */
+  public int sleepSteps() {
+    return sleepSteps;
+  }
+
+  /**
+   * @return the number of sleeping particles, i.e., of particles that are not being integrated
+   */
+  public int nSleepingParticles() {
+    return nParticles() - nActiveParticles();
+  }
+
+  /**
+   * @return the number of particles advanced as ballistic ones at the last step
+   */
+  public int nBallisticParticles() {
+    return nBallistic;
+  }
+
+  /**
+   * @return the number of particles fixed, i.e., evaluated and corrected, at the last step; all the integrated ones,
+   * unless the integration method is a multi-rate one
+   */
+  public int nFixedParticles() {
+    return nFixed;
+  }
+
+  /**
+   * @return the number of particles integrated at the last step, i.e., of the particles that were not sleeping
+   */
+  public int nIntegratedParticles() {
+    return nIntegrated;
+  }
+
+  /**
+   * @return the max superposition of the last step's contacts, with other particles, obstacles or walls;
+   * 0 if there were no contacts
+   */
+  public double maxSuperposition() {
+    return maxSuperposition;
+  }
+
+  /**
+   * @return the max absolute relative normal velocity of the last step's contacts; 0 if there were no contacts
+   */
+  public double maxNormalVelocity() {
+    return maxNormalVelocity;
+  }
+
+  /**
+   * @return the max speed of the system's particles at the end of the last step
+   */
+  public double maxSpeed() {
+    return maxSpeed;
+  }
+
 
   @Override
   protected Map<Integer, Vector2D> setInitialDerivativeValues(final Particle particle) {
@@ -100,41 +293,88 @@ public class Gear5GranularMediaSystemData extends Gear5SystemData {
 
   @Override
   protected Vector2D getForceWithPredicted(final Particle particle) {
-    particle.normalForce(0); // reset forces for this iteration
+    // contact forces are supposed to be already accumulated by the pair pass
+    final int slot = slotOf(particle);
+    particle.normalForce(chunksPairNormalForce[0][slot]); // walls normal forces are added later
 
-    // neighbours are supposed to be correctly updated
-    final Vector2D totalParticlesForce = totalParticlesForce(particle, currentNeighbours.get(particle));
-    final Vector2D totalWallsForce = totalWallsForce(particle);
+    final Vector2D totalParticlesForce =
+            Vector2D.builder(chunksPairForceX[0][slot], chunksPairForceY[0][slot]).build();
+    final Vector2D totalWallsForce = totalWallsForce(particle, slot);
     final Vector2D totalGravityForce = Vector2D.builder(0, - particle.mass() * G).build();
 
     return totalParticlesForce.add(totalWallsForce).add(totalGravityForce);
   }
 
   @Override
-  protected void prePredict() {
-    // reset kinetic energy
-    kineticEnergy = 0;
+  protected boolean isBallistic(final int slot) {
+    return ballistic[slot];
+  }
+
+  @Override
+  protected double ballisticAccelerationX() {
+    return 0;
+  }
 
-    // reset maxPressure
-    Particle.setMaxPressure(0);
+  @Override
+  protected double ballisticAccelerationY() {
+    return - G;
+  }
 
-    // reset nParticlesJustFlowed
-    nParticlesJustFlowed = 0;
+  @Override
+  protected double maxTimeStep(final int slot) {
+    if (!multiRate || chunksContactsMaxSuperposition[0][slot] > levelMaxSuperposition) {
+      return 0;
+    }
+    double maxTimeStep = Double.POSITIVE_INFINITY;
+    final int nContacts = chunksContacts[0][slot];
+    if (nContacts > 0) {
+      maxTimeStep = CONTACT_TIME_STEP_FACTOR * Math.sqrt(predictedParticle(slot).mass() / (nContacts * kn));
+    }
+    // current contacts
+    final double normalVelocity = chunksContactsMaxNormalVelocity[0][slot];
+    if (normalVelocity > 0) {
+      maxTimeStep = Math.min(maxTimeStep, levelMaxSuperpositionChange / normalVelocity);
+    }
+    // contacts it may start, with a particle at most as fast as itself, head on; if a faster one touches it,
+    // the contact's normal velocity makes it be fixed at the next step
+    final double vx = getPredictedRX(slot, VELOCITY_DERIVED_ORDER);
+    final double vy = getPredictedRY(slot, VELOCITY_DERIVED_ORDER);
+    final double speed = Math.sqrt(vx * vx + vy * vy);
+    if (speed > 0) {
+      maxTimeStep = Math.min(maxTimeStep, levelMaxSuperpositionChange / (2 * speed));
+    }
+    return maxTimeStep;
   }
 
   @Override
-  protected void predicted(final Particle predictedParticle) {
+  protected void prePredict() {
+    // reset per chunk accumulators; kinetic energy, max pressure and nParticlesJustFlowed are reset with them
+    resetChunks();
+  }
+
+  @Override
+  protected void predicted(final Particle predictedParticle, final int chunk) {
     // it is assumed that if the predicted particle.y() is < ZERO => the particle will be out soon =>
     // => we remove that particle before evaluation for simplification on neighbours finder method usage
-    removeIfOut(predictedParticle);
+    removeIfOut(predictedParticle, chunk);
 
-    super.predicted(predictedParticle);
+    super.predicted(predictedParticle, chunk);
+  }
+
+  @Override
+  protected void postPredict() {
+    removeOutParticles();
+    super.postPredict();
   }
 
   @Override
   protected void preEvaluate() {
     // calculate neighbours with the system's particles updated with the predicted values
-    this.currentNeighbours = neighboursFinder.run(predictedParticles());
+    collidingParticles.clear();
+    collidingParticles.addAll(predictedParticles());
+    collidingParticles.addAll(obstacles);
+    this.currentNeighbours = neighboursFinder.run(collidingParticles);
+    accumulatePairForces();
     super.preEvaluate();
   }
 
@@ -146,23 +386,122 @@ public class Gear5GranularMediaSystemData extends Gear5SystemData {
     return nParticlesJustFlowed;
   }
 
+  /**
+   * Saves the system's state at the given checkpoint. It should be called between steps.
+   * <P>
+   * The neighbours finder's state is not saved, so it is reset here, as it is when the checkpoint is restored;
+   * this way, both the running and the resumed systems find their neighbours in the same order from now on.
+   * @param checkpoint the checkpoint where the state is saved
+   */
+  public void checkpoint(final Checkpoint checkpoint) {
+    checkpoint.system(kineticEnergy, maxPressure, nParticlesFlowed);
+    checkpoint.particles(nParticles(), respawnQueue.size(), sVectors());
+    checkpoint.sleeping(nActiveParticles());
+    int i = 0;
+    for (final Particle particle : particles()) { // in slot order
+      for (int order = 0; order < sVectors(); order++) {
+        checkpoint.r(i, order, getRX(i, order), getRY(i, order));
+      }
+      checkpoint.sleeping(i, quiet[i], quietSteps[i]);
+      checkpoint.level(i, getLevel(i), getElapsedSteps(i), isSyncRequested(i));
+      checkpoint.particle(i++, particle);
+    }
+    for (final Particle particle : respawnQueue) {
+      checkpoint.particle(i++, particle);
+    }
+    respawnArea.checkpoint(checkpoint);
+    neighboursFinder.reset();
+  }
+
+  /**
+   * Replaces the system's state with the one saved at the given checkpoint
+   * @param checkpoint a checkpoint saved by a system with the same static data
+   * @throws IllegalArgumentException if the checkpoint does not match this system
+   */
+  public void restore(final Checkpoint checkpoint) {
+    if (checkpoint.sVectors() != sVectors()) {
+      // i.e., it was saved by a simulation with another integrator
+      throw new IllegalArgumentException("Checkpoint's number of derivative values is " + checkpoint.sVectors()
+              + "; current one is " + sVectors());
+    }
+    clearParticles();
+    ensureSlotsCapacity(checkpoint.nSlots());
+    final Map<Long, Particle> particlesById = new HashMap<>(checkpoint.nSlots() + checkpoint.nQueued());
+    for (int i = 0; i < checkpoint.nSlots(); i++) {
+      final Particle particle = checkpoint.particle(i);
+      final int slot = restoreParticle(particle);
+      for (int order = 0; order < sVectors(); order++) {
+        setR(slot, order, checkpoint.rX(i, order), checkpoint.rY(i, order));
+      }
+      quiet[slot] = checkpoint.quiet(i);
+      quietSteps[slot] = checkpoint.quietSteps(i);
+      disturbed[slot] = false;
+      ballistic[slot] = false;
+      setLevel(slot, checkpoint.level(i), checkpoint.elapsedSteps(i), checkpoint.syncRequested(i));
+      particlesById.put(particle.id(), particle);
+    }
+    // sleeping particles take the last slots, so they are put back to sleep from the last one, keeping their slots
+    for (int slot = checkpoint.nSlots() - 1; slot >= checkpoint.nActive(); slot--) {
+      deactivate(predictedParticle(slot));
+    }
+    respawnQueue.clear();
+    for (int i = checkpoint.nSlots(); i < checkpoint.nSlots() + checkpoint.nQueued(); i++) {
+      final Particle particle = checkpoint.particle(i);
+      respawnQueue.add(particle);
+      particlesById.put(particle.id(), particle);
+    }
+    respawnArea.restore(checkpoint, particlesById);
+
+    kineticEnergy = checkpoint.kineticEnergy();
+    nParticlesFlowed = checkpoint.nParticlesFlowed();
+    nParticlesJustFlowed = 0;
+    maxPressure = checkpoint.maxPressure();
+    neighboursFinder.reset();
+  }
+
   @Override
-  public void fixed(final Particle particle) {
-    if (flowedOut(particle)) {
-      nParticlesJustFlowed ++;
-      nParticlesFlowed ++;
+  public void fixed(final int slot, final int chunk) {
+    // the particle's values are read from the store, and the system's particle is only built if it is kept;
+    // the predicted particle has its normal force and flags
+    final Particle predictedParticle = predictedParticle(slot);
+    final double mass = predictedParticle.mass();
+    final double y = getSystemRY(slot, POSITION_DERIVED_ORDER);
+    final double vx = getSystemRX(slot, VELOCITY_DERIVED_ORDER);
+    final double vy = getSystemRY(slot, VELOCITY_DERIVED_ORDER);
+    final double speed = Math.sqrt(vx * vx + vy * vy);
+    if (flowedOut(predictedParticle, y)) {
+      chunksJustFlowed[chunk] ++;
+    }
+    if (predictedParticle.pressure() > chunksMaxPressure[chunk]) {
+      chunksMaxPressure[chunk] = predictedParticle.pressure();
+    }
+    chunksMaxSuperposition[chunk] = Math.max(chunksMaxSuperposition[chunk], wallsMaxSuperposition[slot]);
+    chunksMaxNormalVelocity[chunk] = Math.max(chunksMaxNormalVelocity[chunk], wallsMaxNormalVelocity[slot]);
+    chunksMaxSpeed[chunk] = Math.max(chunksMaxSpeed[chunk], speed);
+    chunksIntegrated[chunk] ++;
+    if (isDue(slot)) {
+      chunksFixed[chunk] ++;
     }
-    if (!removeIfOut(particle)) {
-      kineticEnergy += particle.kineticEnergy();
+    if (y < ZERO) {
+      chunksOutParticles.get(chunk).add(particle(slot));
+    } else {
+      chunksKineticEnergy[chunk] += 1/2.0d * mass * (speed * speed);
+      if (sleepSteps > 0 && isSleepy(slot, speed, mass)) {
+        chunksToSleep.get(chunk).add(particle(slot));
+      }
+    }
+    // respawn area is shared by all chunks => it is updated once all particles have been fixed
+    if (respawnArea.isTaking(predictedParticle, y)) {
+      chunksRespawnAreaParticles.get(chunk).add(particle(slot));
     }
-    respawnArea.update(particle);
 
-    super.fixed(particle);
+    super.fixed(slot, chunk);
   }
 
   @SuppressWarnings("SpellCheckingInspection")
   @Override
   protected void postFix() {
+    mergeChunks();
     super.postFix();
 
     Iterator<Particle> iterator = respawnQueue.iterator();
@@ -173,25 +512,181 @@ public class Gear5GranularMediaSystemData extends Gear5SystemData {
       spawnParticle(respawned);
       iterator.remove();
     }
+
+    if (sleepSteps > 0) {
+      wakeAndSleep();
+    }
+  }
+
+  @Override
+  protected void swapped(final int slot, final int otherSlot) {
+    final boolean slotQuiet = quiet[slot];
+    quiet[slot] = quiet[otherSlot];
+    quiet[otherSlot] = slotQuiet;
+    final int slotQuietSteps = quietSteps[slot];
+    quietSteps[slot] = quietSteps[otherSlot];
+    quietSteps[otherSlot] = slotQuietSteps;
+    final boolean slotDisturbed = disturbed[slot];
+    disturbed[slot] = disturbed[otherSlot];
+    disturbed[otherSlot] = slotDisturbed;
+    final boolean slotBallistic = ballistic[slot];
+    ballistic[slot] = ballistic[otherSlot];
+    ballistic[otherSlot] = slotBallistic;
+  }
+
+  /**
+   * Updates whether the just fixed particle at the given slot, with the given speed and mass, is quiet
+   * @return true if it and its neighbours have been quiet for enough steps, so as it should sleep; false otherwise
+   */
+  private boolean isSleepy(final int slot, final double speed, final double mass) {
+    final double forceX = getSystemRX(slot, ACCELERATION_DERIVED_ORDER) * mass;
+    final double forceY = getSystemRY(slot, ACCELERATION_DERIVED_ORDER) * mass;
+    final double force = Math.sqrt(forceX * forceX + forceY * forceY);
+    quiet[slot] = speed < sleepSpeed && force < SLEEP_FORCE_FACTOR * mass * G;
+    quietSteps[slot] = quiet[slot] && !disturbed[slot] ? quietSteps[slot] + 1 : 0;
+    disturbed[slot] = false;
+    return quietSteps[slot] >= sleepSteps;
+  }
+
+  /**
+   * Wakes up the sleeping particles touched by not quiet ones, and puts to sleep the sleepy ones, in chunk order
+   */
+  private void wakeAndSleep() {
+    for (final List<Particle> toWake : chunksToWake) {
+      for (final Particle particle : toWake) {
+        // it may have been touched by many particles
+        if (slotOf(particle) >= nActiveParticles()) {
+          activate(particle);
+          // it is at rest, so it does not disturb its neighbours unless it moves
+          final int slot = slotOf(particle);
+          quiet[slot] = true;
+          quietSteps[slot] = 0;
+          disturbed[slot] = false;
+          ballistic[slot] = false;
+        }
+      }
+      toWake.clear();
+    }
+    for (final List<Particle> toSleep : chunksToSleep) {
+      for (final Particle particle : toSleep) {
+        final int slot = slotOf(particle);
+        // it may have been flagged to be removed
+        if (slot >= 0 && slot < nActiveParticles()) {
+          deactivate(particle);
+        }
+      }
+      toSleep.clear();
+    }
+  }
+
+  private void ensureSlotsCapacity(final int nParticles) {
+    if (quiet.length < nParticles) {
+      final int capacity = Math.max(nParticles, 2 * quiet.length);
+      quiet = Arrays.copyOf(quiet, capacity);
+      quietSteps = Arrays.copyOf(quietSteps, capacity);
+      disturbed = Arrays.copyOf(disturbed, capacity);
+      ballistic = Arrays.copyOf(ballistic, capacity);
+    }
   }
 
   /**
    *
    * @param particle -
-   * @return true if removed; false otherwise
+   * @param chunk the chunk of the given particle
+   * @return true if it will be removed; false otherwise
    */
-  private boolean removeIfOut(final Particle particle) {
+  private boolean removeIfOut(final Particle particle, final int chunk) {
     if(particle.y() < ZERO){
-      respawnQueue.add(particle);
-      removeWhenFinish(particle);
+      chunksOutParticles.get(chunk).add(particle);
       return true;
     }
     return false;
   }
 
-  private boolean flowedOut(final Particle particle) {
+  /**
+   * Flags the particles that are out to be removed, and queues them to be respawned, in chunk order
+   */
+  private void removeOutParticles() {
+    for (final List<Particle> outParticles : chunksOutParticles) {
+      for (final Particle particle : outParticles) {
+        respawnQueue.add(particle);
+        removeWhenFinish(particle);
+      }
+      outParticles.clear();
+    }
+  }
+
+  private void resetChunks() {
+    final int nChunks = nChunks();
+    if (chunksKineticEnergy == null || chunksKineticEnergy.length != nChunks) {
+      chunksKineticEnergy = new double[nChunks];
+      chunksJustFlowed = new long[nChunks];
+      chunksMaxPressure = new double[nChunks];
+      chunksMaxSuperposition = new double[nChunks];
+      chunksMaxNormalVelocity = new double[nChunks];
+      chunksMaxSpeed = new double[nChunks];
+      chunksBallistic = new int[nChunks];
+      chunksFixed = new int[nChunks];
+      chunksIntegrated = new int[nChunks];
+      chunksOutParticles = new ArrayList<>(nChunks);
+      chunksRespawnAreaParticles = new ArrayList<>(nChunks);
+      chunksToSleep = new ArrayList<>(nChunks);
+      chunksToWake = new ArrayList<>(nChunks);
+      for (int chunk = 0; chunk < nChunks; chunk++) {
+        chunksOutParticles.add(new ArrayList<>());
+        chunksRespawnAreaParticles.add(new ArrayList<>());
+        chunksToSleep.add(new ArrayList<>());
+        chunksToWake.add(new ArrayList<>());
+      }
+    }
+    Arrays.fill(chunksKineticEnergy, 0);
+    Arrays.fill(chunksJustFlowed, 0);
+    Arrays.fill(chunksMaxPressure, 0);
+    Arrays.fill(chunksMaxSuperposition, 0);
+    Arrays.fill(chunksMaxNormalVelocity, 0);
+    Arrays.fill(chunksMaxSpeed, 0);
+    Arrays.fill(chunksBallistic, 0);
+    Arrays.fill(chunksFixed, 0);
+    Arrays.fill(chunksIntegrated, 0);
+  }
+
+  private void mergeChunks() {
+    kineticEnergy = 0;
+    nParticlesJustFlowed = 0;
+    // max pressure is a running one, so it is not reset
+    maxSuperposition = 0;
+    maxNormalVelocity = 0;
+    maxSpeed = 0;
+    nBallistic = 0;
+    nFixed = 0;
+    nIntegrated = 0;
+    for (int chunk = 0; chunk < chunksKineticEnergy.length; chunk++) {
+      kineticEnergy += chunksKineticEnergy[chunk];
+      nParticlesJustFlowed += chunksJustFlowed[chunk];
+      maxPressure = Math.max(maxPressure, chunksMaxPressure[chunk]);
+      maxSuperposition = Math.max(maxSuperposition, chunksMaxSuperposition[chunk]);
+      maxNormalVelocity = Math.max(maxNormalVelocity, chunksMaxNormalVelocity[chunk]);
+      maxSpeed = Math.max(maxSpeed, chunksMaxSpeed[chunk]);
+      nBallistic += chunksBallistic[chunk];
+      nFixed += chunksFixed[chunk];
+      nIntegrated += chunksIntegrated[chunk];
+    }
+    nParticlesFlowed += nParticlesJustFlowed;
+
+    for (final List<Particle> respawnAreaParticles : chunksRespawnAreaParticles) {
+      respawnAreaParticles.forEach(respawnArea::update);
+      respawnAreaParticles.clear();
+    }
+
+    removeOutParticles();
+  }
+
+  /**
+   * @param y the particle's current y, which may not be the given particle's one, e.g., if it is its predicted one
+   */
+  private boolean flowedOut(final Particle particle, final double y) {
     // professor told us to use only the particle's center point, not including its radio
-    if (particle.y() < fallLength && !particle.hasFlowedOut()) {
+    if (y < fallLength && !particle.hasFlowedOut()) {
       particle.hasFlowedOut(true);
       return true;
     }
@@ -199,9 +694,13 @@ public class Gear5GranularMediaSystemData extends Gear5SystemData {
   }
 
   private void spawnParticle(final Particle particle) {
-    this.particles().add(particle);
-    this.predictedRs().put(particle, new HashMap<>(sVectors()));
-    this.currentRs().put(particle, setInitialDerivativeValues(particle));
+    ensureSlotsCapacity(nParticles() + 1);
+    addParticle(particle);
+    final int slot = slotOf(particle);
+    quiet[slot] = false;
+    quietSteps[slot] = 0;
+    disturbed[slot] = false;
+    ballistic[slot] = false;
   }
 
   private double initAndGetMaxRadio() {
@@ -215,22 +714,126 @@ public class Gear5GranularMediaSystemData extends Gear5SystemData {
     return maxRadius;
   }
 
-  // Particle's total force
-  private Vector2D totalParticlesForce(final Particle particle, final Collection<Particle> neighbours) {
-    Vector2D totalParticlesForce = Space2DMaths.nullVector();
-    if (neighbours != null) {
-      for (final Particle neighbour : neighbours) {
-        final Vector2D neighbourForce = neighbourForce(particle, neighbour);
-        totalParticlesForce = totalParticlesForce.add(neighbourForce);
+  // Particles' contact forces
+
+  /**
+   * Visits each pair of colliding particles once, accumulating the force on both particles
+   * (i.e., +F on one of them and -F on the other one), as well as the normal force of the contact on both of them.
+   * Static obstacles are not integrated, so contacts with them only accumulate on the particle.
+   * <P>
+   * Pairs are visited by chunks of slots, each chunk accumulating on its own arrays, which are then reduced
+   * into the first chunk's ones.
+   * <P>
+   * Only pairs with an active particle are visited; sleeping particles take the last slots, and contacts with them
+   * only accumulate on the active particle, as with obstacles.
+   * <P>
+   * Ballistic particles, if detected, are flagged here, as those without neighbours that do not touch any wall.
+   * <P>
+   * For multi-rate integration methods, each slot's contacts are summed up here too, even those of pairs that are
+   * not evaluated as none of their particles is fixed at the current step.
+   */
+  private void accumulatePairForces() {
+    final int nParticles = nParticles();
+    final int nActive = nActiveParticles();
+    final int nChunks = nChunks();
+    if (chunksPairForceX == null || chunksPairForceX.length != nChunks || chunksPairForceX[0].length < nParticles) {
+      final int capacity = Math.max(nParticles, chunksPairForceX == null ? 0 : 2 * chunksPairForceX[0].length);
+      chunksPairForceX = new double[nChunks][capacity];
+      chunksPairForceY = new double[nChunks][capacity];
+      chunksPairNormalForce = new double[nChunks][capacity];
+      wallsMaxSuperposition = new double[capacity];
+      wallsMaxNormalVelocity = new double[capacity];
+      if (multiRate) {
+        chunksContacts = new int[nChunks][capacity];
+        chunksContactsMaxSuperposition = new double[nChunks][capacity];
+        chunksContactsMaxNormalVelocity = new double[nChunks][capacity];
+      }
+    }
+
+    executor().run(nActive, (chunk, from, to) -> {
+      final double[] forceX = chunksPairForceX[chunk];
+      final double[] forceY = chunksPairForceY[chunk];
+      final double[] normalForce = chunksPairNormalForce[chunk];
+      Arrays.fill(forceX, 0, nActive, 0);
+      Arrays.fill(forceY, 0, nActive, 0);
+      Arrays.fill(normalForce, 0, nActive, 0);
+      if (multiRate) {
+        Arrays.fill(chunksContacts[chunk], 0, nActive, 0);
+        Arrays.fill(chunksContactsMaxSuperposition[chunk], 0, nActive, 0);
+        Arrays.fill(chunksContactsMaxNormalVelocity[chunk], 0, nActive, 0);
+      }
+
+      for (int slot = from; slot < to; slot++) {
+        final Particle particle = predictedParticle(slot);
+        if (multiRate) {
+          addWallsContacts(chunk, slot, particle);
+        }
+        // neighbours are supposed to be correctly updated
+        final Collection<Particle> neighbours = currentNeighbours.get(particle);
+        if (detectBallistic) {
+          ballistic[slot] = (neighbours == null || neighbours.isEmpty()) && !touchesAnyWall(particle);
+          if (ballistic[slot]) {
+            // it is not evaluated, so what it would have set is set here
+            particle.normalForce(0);
+            wallsMaxSuperposition[slot] = 0;
+            wallsMaxNormalVelocity[slot] = 0;
+            chunksBallistic[chunk] ++;
+          }
+        }
+        if (neighbours == null) {
+          continue;
+        }
+        for (final Particle neighbour : neighbours) {
+          final int neighbourSlot = slotOf(neighbour);
+          // each pair is visited only from the particle with the lower slot;
+          // obstacles have no slot, so pairs with an obstacle are visited from the particle
+          if (neighbourSlot > slot || neighbourSlot < 0) {
+            accumulateNeighbourForce(chunk, slot, particle, neighbourSlot, neighbour, neighbourSlot >= nActive,
+                    forceX, forceY, normalForce);
+          }
+        }
       }
+    });
+
+    if (nChunks > 1) {
+      executor().run(nActive, (chunk, from, to) -> {
+        for (int c = 1; c < nChunks; c++) {
+          for (int slot = from; slot < to; slot++) {
+            chunksPairForceX[0][slot] += chunksPairForceX[c][slot];
+            chunksPairForceY[0][slot] += chunksPairForceY[c][slot];
+            chunksPairNormalForce[0][slot] += chunksPairNormalForce[c][slot];
+          }
+          if (multiRate) {
+            for (int slot = from; slot < to; slot++) {
+              chunksContacts[0][slot] += chunksContacts[c][slot];
+              chunksContactsMaxSuperposition[0][slot] =
+                      Math.max(chunksContactsMaxSuperposition[0][slot], chunksContactsMaxSuperposition[c][slot]);
+              chunksContactsMaxNormalVelocity[0][slot] =
+                      Math.max(chunksContactsMaxNormalVelocity[0][slot], chunksContactsMaxNormalVelocity[c][slot]);
+            }
+          }
+        }
+      });
     }
-    return totalParticlesForce;
   }
 
-  private Vector2D neighbourForce(final Particle particle, final Particle neighbour) {
+  /**
+   * @param isSleeping true if the neighbour is a sleeping particle; false otherwise
+   */
+  private void accumulateNeighbourForce(final int chunk, final int particleSlot, final Particle particle,
+                                        final int neighbourSlot, final Particle neighbour, final boolean isSleeping,
+                                        final double[] forceX, final double[] forceY, final double[] normalForce) {
     final double superposition = Space2DMaths.superpositionBetween(particle, neighbour);
     if (superposition < 0) {
-      return Space2DMaths.nullVector();
+      return;
+    }
+
+    final boolean isObstacle = neighbourSlot < 0;
+    if (!isDue(particleSlot) && (isObstacle || isSleeping || !isDue(neighbourSlot))) {
+      // none of them is fixed at the current step, so their force is not needed, only their contact
+      addContact(chunk, particleSlot, neighbourSlot, neighbour, isSleeping, superposition,
+              normalVelocity(particleSlot, particle, neighbourSlot, neighbour));
+      return;
     }
 
     final Vector2D[] normalAndTangentialVersors =
@@ -242,36 +845,138 @@ public class Gear5GranularMediaSystemData extends Gear5SystemData {
       IOService.exit(IOService.ExitStatus.PARTICLES_AT_SAME_POSITION, new Object[] {particle, neighbour});
 
       // should not reach here; written so as validators don't complain about possible null's access
-      return Space2DMaths.nullVector();
+      return;
     }
 
     final Vector2D normalVersor = normalAndTangentialVersors[NORMAL];
     final Vector2D tangentialVersor = normalAndTangentialVersors[TANGENTIAL];
 
-    final Vector2D particlePredictedVelocity = getPredictedR(particle, VELOCITY_DERIVED_ORDER);
-    final Vector2D neighbourPredictedVelocity = getPredictedR(neighbour, VELOCITY_DERIVED_ORDER);
-    final Vector2D relativeVelocity = Space2DMaths.relativeVector(neighbourPredictedVelocity, particlePredictedVelocity);
+    // obstacles do not move, and sleeping particles' velocities are zero
+    final double neighbourVx = isObstacle ? 0 : getPredictedRX(neighbourSlot, VELOCITY_DERIVED_ORDER);
+    final double neighbourVy = isObstacle ? 0 : getPredictedRY(neighbourSlot, VELOCITY_DERIVED_ORDER);
+    final Vector2D relativeVelocity = Vector2D.builder(
+            getPredictedRX(particleSlot, VELOCITY_DERIVED_ORDER) - neighbourVx,
+            getPredictedRY(particleSlot, VELOCITY_DERIVED_ORDER) - neighbourVy)
+            .build();
+
+    final double normalVelocity = Math.abs(Space2DMaths.dotProduct(relativeVelocity, normalVersor));
+    addContact(chunk, particleSlot, neighbourSlot, neighbour, isSleeping, superposition, normalVelocity);
 
     final Vector2D normalNeighbourForce = normalForce(superposition, normalVersor);
     final Vector2D tangentialNeighbourForce = tangentialForce(superposition, relativeVelocity, tangentialVersor);
+    final Vector2D neighbourForce = normalNeighbourForce.add(tangentialNeighbourForce);
+    final double normalNeighbourForceModule = normalNeighbourForce.norm2();
+
+    forceX[particleSlot] += neighbourForce.x();
+    forceY[particleSlot] += neighbourForce.y();
+    normalForce[particleSlot] += normalNeighbourForceModule;
+
+    if (!isObstacle && !isSleeping) {
+      // the neighbour receives the same force, in the opposite direction (Newton's third law)
+      forceX[neighbourSlot] -= neighbourForce.x();
+      forceY[neighbourSlot] -= neighbourForce.y();
+      normalForce[neighbourSlot] += normalNeighbourForceModule;
+    }
+  }
 
-    particle.increaseNormalForce(normalNeighbourForce.norm2());
+  /**
+   * Updates the contacts' values, and the sleeping particles' state, with the given contact
+   * @param isSleeping true if the neighbour is a sleeping particle; false otherwise
+   */
+  private void addContact(final int chunk, final int particleSlot, final int neighbourSlot, final Particle neighbour,
+                          final boolean isSleeping, final double superposition, final double normalVelocity) {
+    final boolean isObstacle = neighbourSlot < 0;
+    chunksMaxSuperposition[chunk] = Math.max(chunksMaxSuperposition[chunk], superposition);
+    chunksMaxNormalVelocity[chunk] = Math.max(chunksMaxNormalVelocity[chunk], normalVelocity);
+
+    if (multiRate) {
+      addContact(chunk, particleSlot, superposition, normalVelocity);
+      if (!isObstacle && !isSleeping) {
+        addContact(chunk, neighbourSlot, superposition, normalVelocity);
+      }
+    }
+
+    if (sleepSteps > 0 && !isObstacle) {
+      if (isSleeping) {
+        if (!quiet[particleSlot] || normalVelocity >= sleepSpeed) {
+          chunksToWake.get(chunk).add(neighbour);
+        }
+      } else {
+        // only true is written, so chunks may write it concurrently
+        if (!quiet[particleSlot]) {
+          disturbed[neighbourSlot] = true;
+        }
+        if (!quiet[neighbourSlot]) {
+          disturbed[particleSlot] = true;
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the absolute relative normal velocity of the given particles, with their predicted velocities, calculated
+   * in place, without building any vector
+   */
+  private double normalVelocity(final int particleSlot, final Particle particle,
+                                final int neighbourSlot, final Particle neighbour) {
+    final double dx = neighbour.x() - particle.x();
+    final double dy = neighbour.y() - particle.y();
+    final double distance = Math.sqrt(dx * dx + dy * dy);
+    if (distance == 0) {
+      return 0;
+    }
+    // obstacles do not move, and sleeping particles' velocities are zero
+    final boolean isObstacle = neighbourSlot < 0;
+    final double relativeVx = getPredictedRX(particleSlot, VELOCITY_DERIVED_ORDER)
+            - (isObstacle ? 0 : getPredictedRX(neighbourSlot, VELOCITY_DERIVED_ORDER));
+    final double relativeVy = getPredictedRY(particleSlot, VELOCITY_DERIVED_ORDER)
+            - (isObstacle ? 0 : getPredictedRY(neighbourSlot, VELOCITY_DERIVED_ORDER));
+    return Math.abs((relativeVx * dx + relativeVy * dy) / distance);
+  }
 
-    return normalNeighbourForce.add(tangentialNeighbourForce);
+  private void addContact(final int chunk, final int slot, final double superposition, final double normalVelocity) {
+    chunksContacts[chunk][slot] ++;
+    chunksContactsMaxSuperposition[chunk][slot] = Math.max(chunksContactsMaxSuperposition[chunk][slot], superposition);
+    chunksContactsMaxNormalVelocity[chunk][slot] =
+            Math.max(chunksContactsMaxNormalVelocity[chunk][slot], normalVelocity);
+  }
+
+  private void addWallsContacts(final int chunk, final int slot, final Particle particle) {
+    for (final Wall wall : walls) {
+      final double superposition = Space2DMaths.superpositionBetween(particle, wall);
+      if (superposition > 0) {
+        final Vector2D[] normalAndTangentialVersors = Space2DMaths.normalAndTangentialVersors(particle, wall);
+        final double normalVelocity = normalAndTangentialVersors == null ? 0 : Math.abs(
+                getPredictedRX(slot, VELOCITY_DERIVED_ORDER) * normalAndTangentialVersors[NORMAL].x()
+                        + getPredictedRY(slot, VELOCITY_DERIVED_ORDER) * normalAndTangentialVersors[NORMAL].y());
+        addContact(chunk, slot, superposition, normalVelocity);
+      }
+    }
+  }
+
+  private boolean touchesAnyWall(final Particle particle) {
+    for (final Wall wall : walls) {
+      if (Space2DMaths.superpositionBetween(particle, wall) > 0) {
+        return true;
+      }
+    }
+    return false;
   }
 
   // Walls total force
-  private Vector2D totalWallsForce(final Particle particle) {
+  private Vector2D totalWallsForce(final Particle particle, final int slot) {
+    wallsMaxSuperposition[slot] = 0;
+    wallsMaxNormalVelocity[slot] = 0;
     Vector2D totalWallsForce = Space2DMaths.nullVector();
     for (final Wall wall : walls) {
-      final Vector2D wallForce = wallForce(particle, wall);
+      final Vector2D wallForce = wallForce(particle, slot, wall);
       totalWallsForce = totalWallsForce.add(wallForce);
     }
 
     return totalWallsForce;
   }
 
-  private Vector2D wallForce(final Particle particle, final Wall wall) {
+  private Vector2D wallForce(final Particle particle, final int particleSlot, final Wall wall) {
     final double superposition = Space2DMaths.superpositionBetween(particle, wall);
     if (superposition <= 0) { // not colliding => no force
       return Space2DMaths.nullVector();
@@ -292,7 +997,14 @@ public class Gear5GranularMediaSystemData extends Gear5SystemData {
     final Vector2D normalVersor = normalAndTangentialVersors[NORMAL];
     final Vector2D tangentialVersor = normalAndTangentialVersors[TANGENTIAL];
 
-    final Vector2D relativeVelocity = getPredictedR(particle, VELOCITY_DERIVED_ORDER);
+    final Vector2D relativeVelocity = Vector2D.builder(
+            getPredictedRX(particleSlot, VELOCITY_DERIVED_ORDER),
+            getPredictedRY(particleSlot, VELOCITY_DERIVED_ORDER))
+            .build();
+
+    wallsMaxSuperposition[particleSlot] = Math.max(wallsMaxSuperposition[particleSlot], superposition);
+    wallsMaxNormalVelocity[particleSlot] = Math.max(wallsMaxNormalVelocity[particleSlot],
+            Math.abs(Space2DMaths.dotProduct(relativeVelocity, normalVersor)));
 
     final Vector2D normalForce = normalForce(superposition, normalVersor);
     final Vector2D tangentialForce = tangentialForce(superposition, relativeVelocity, tangentialVersor);
@@ -318,45 +1030,60 @@ public class Gear5GranularMediaSystemData extends Gear5SystemData {
     return tangentialVersor.times(tangentialNeighbourForceModule);
   }
 
+  /**
+   * Row of cells where particles are respawned.
+   * <P>
+   * A cell is empty when no particle is taking it. Respawned particles take the cell they are respawned at, and
+   * keep taking the cell under them (and its right neighbour) until they go down the respawn row.
+   * Empty cells are saved at a bitset, and how many particles are taking each cell, at a counter per cell.
+   */
   private static class RespawnArea {
-    private final Deque<Cell> emptyCells;
-    private final Map<Particle, Collection<Cell>> fullCellsMap;
-    private final int[] particlesOnCell;
     private final double cellSize;
     private final double yCells;
-    private final double minXPos;
-    private final double maxXPos;
-
     private final double respawnMinX;
-    private final double respawnMaxX;
+    // particles whose bottom is below this value do not take cells anymore
+    private final double releaseMinY;
+    // particles whose bottom is below this value are not taking any cell, as they have been released before,
+    // provided that no particle moves more than a cell size in one step
+    private final double takingMinY;
+
+    private final double[] cellsX;
+    private final int nCells;
+    private final BitSet emptyCells;
+    private final int[] particlesOnCell;
+    // cells taken by each particle, as {first, last} cell indexes (empty if first > last)
+    private final Map<Particle, int[]> takenCells;
 
-    private final HashMap<Integer, Cell> respawnCellsMap;
+    // next cell to be checked when respawning, so as empty cells are used in turns
+    private int nextCell;
 
     private RespawnArea(final double respawnMinX, final double respawnMaxX,
                         final double respawnMinY, final double respawnMaxY,
                         final double maxRadius) {
-
-      this.emptyCells = new LinkedList<>();
-      this.respawnCellsMap = new HashMap<>();
-      this.fullCellsMap = new HashMap<>();
-
       final double diameter = 2 * maxRadius;
       this.cellSize = (1.1 * diameter);
       this.yCells = (respawnMaxY + respawnMinY) / 2;
-      this.minXPos = respawnMinX + cellSize/2;
-      this.maxXPos = respawnMaxX - cellSize/2;
-
       this.respawnMinX = respawnMinX;
-      this.respawnMaxX = respawnMaxX;
+      this.releaseMinY = yCells - cellSize;
+      this.takingMinY = releaseMinY - cellSize;
+
+      final double minXPos = respawnMinX + cellSize/2;
+      final double maxXPos = respawnMaxX - cellSize/2;
+      final List<Double> cellsXList = new ArrayList<>();
+      for (double i = minXPos; i < maxXPos ; i += cellSize) {
+        cellsXList.add(i);
+      }
+      this.nCells = cellsXList.size();
+      this.cellsX = new double[nCells];
+      for (int index = 0; index < nCells; index++) {
+        cellsX[index] = cellsXList.get(index);
+      }
 
-      final int nCells = (int) ((maxXPos - minXPos)/cellSize) + 1;
+      this.emptyCells = new BitSet(nCells);
+      this.emptyCells.set(0, nCells);
       this.particlesOnCell = new int[nCells];
-      int index = 0;
-      for (double i = minXPos; i < maxXPos ; i += cellSize, index++) {
-        final Cell cell = new Cell(i, yCells, index);
-        emptyCells.add(cell);
-        respawnCellsMap.put(index, cell);
-      }
+      this.takenCells = new HashMap<>();
+      this.nextCell = 0;
     }
 
     private boolean hasNextCell() {
@@ -364,18 +1091,30 @@ public class Gear5GranularMediaSystemData extends Gear5SystemData {
     }
 
     private Particle respawn(final Particle particle) {
-      final Cell cell = emptyCells.poll();
-      final Particle respawnedParticle = particle.respawn(cell.x, cell.y, 0, - particle.mass() * G);
+      int cell = emptyCells.nextSetBit(nextCell);
+      if (cell < 0) {
+        cell = emptyCells.nextSetBit(0);
+      }
+      nextCell = cell + 1 < nCells ? cell + 1 : 0;
 
-      final Set<Cell> cells = new HashSet<>();
-      cells.add(cell);
-      fullCellsMap.put(respawnedParticle, cells);
-      particlesOnCell[cell.index] ++;
+      final Particle respawnedParticle = particle.respawn(cellsX[cell], yCells, 0, - particle.mass() * G);
+      take(cell, cell);
+      takenCells.put(respawnedParticle, new int[] {cell, cell});
       return respawnedParticle;
     }
 
+    /**
+     * @param particle a system's particle, or its predicted one
+     * @param y the particle's current y
+     * @return true if the given particle may be taking any respawn cell; false otherwise
+     * @implNote this method only reads the respawn area, so it can be called concurrently
+     */
+    private boolean isTaking(final Particle particle, final double y) {
+      return y + particle.radio() >= takingMinY && takenCells.containsKey(particle);
+    }
+
     private void update(final Particle particle) {
-      final Collection<Cell> cells = fullCellsMap.get(particle);
+      final int[] cells = takenCells.get(particle);
       // if particle does not have taken cells, return
       if (cells == null) {
         return;
@@ -384,63 +1123,70 @@ public class Gear5GranularMediaSystemData extends Gear5SystemData {
       // let's update each taken cell with current position
 
       // first, remove previous cells
-      for (final Cell cell : cells) {
-        fullCellsMap.remove(particle);
-        particlesOnCell[cell.index] --;
-        if (particlesOnCell[cell.index] == 0) { // no more particles on this cell => empty cell
-          emptyCells.add(cell);
-        }
-      }
-
+      release(cells[0], cells[1]);
 
       // particle is down of the respawn area, then finished update
-      if (particle.y() + particle.radio() < yCells - cellSize) {
+      if (particle.y() + particle.radio() < releaseMinY) {
+        takenCells.remove(particle);
         return;
       }
 
-      // particle is occupying some respawn cells (at most 2)
-
+      // particle is occupying some respawn cells (at most 2): the one under it and its right neighbour
       // take cells for that particle so as to avoid making the system crash
-      final Collection<Cell> takenCells = getTakenCells(particle);
-      // occupied
-      fullCellsMap.put(particle, takenCells);
-      for (final Cell takenCell : takenCells) {
-        emptyCells.remove(takenCell); // not available any more
-        particlesOnCell[takenCell.index] ++;
+      final int cell = (int) Math.floor((particle.x() - respawnMinX) / cellSize);
+      cells[0] = Math.max(cell, 0);
+      cells[1] = Math.min(cell + 1, nCells - 1);
+      take(cells[0], cells[1]);
+    }
+
+    private void checkpoint(final Checkpoint checkpoint) {
+      checkpoint.respawnCells(nextCell, particlesOnCell, takenCells.size());
+      int i = 0;
+      for (final Map.Entry<Particle, int[]> entry : takenCells.entrySet()) {
+        checkpoint.takenCells(i++, entry.getKey().id(), entry.getValue()[0], entry.getValue()[1]);
       }
     }
 
-    private Collection<Cell> getTakenCells(final Particle particle) {
-      final Collection<Cell> takenCells = new HashSet<>();
-      final double pX = particle.x();
-      int index = 0;
-      for (double i = respawnMinX ; i < respawnMaxX ; i += cellSize, index ++) {
-        if (i > pX) {
-          // could be because we are considering the neighbour cell too
-          addIfNotNull(takenCells, respawnCellsMap.get(index - 1));
-          addIfNotNull(takenCells, respawnCellsMap.get(index));
-          return takenCells;
+    /**
+     * @param particlesById the system's and the queued particles, by id; taken cells are restored for them
+     */
+    private void restore(final Checkpoint checkpoint, final Map<Long, Particle> particlesById) {
+      final int[] savedParticlesOnCell = checkpoint.particlesOnCell();
+      if (savedParticlesOnCell.length != nCells) {
+        throw new IllegalArgumentException("Checkpoint's number of respawn cells is " + savedParticlesOnCell.length);
+      }
+      System.arraycopy(savedParticlesOnCell, 0, particlesOnCell, 0, nCells);
+      emptyCells.clear();
+      for (int cell = 0; cell < nCells; cell++) {
+        if (particlesOnCell[cell] == 0) {
+          emptyCells.set(cell);
         }
       }
-      // should never reach here; if so, particle is out of the map
-      return takenCells;
-    }
+      nextCell = checkpoint.nextCell();
 
-    private void addIfNotNull(final Collection<Cell> takenCells, final Cell cell) {
-      if (cell != null) {
-        takenCells.add(cell);
+      takenCells.clear();
+      for (int i = 0; i < checkpoint.nTaken(); i++) {
+        final Particle particle = particlesById.get(checkpoint.takenId(i));
+        if (particle == null) {
+          throw new IllegalArgumentException("Checkpoint's respawn cells are taken by an unknown particle");
+        }
+        takenCells.put(particle, new int[] {checkpoint.takenFirstCell(i), checkpoint.takenLastCell(i)});
       }
     }
 
-    private static class Cell {
-      private final double x;
-      private final double y;
-      private final int index;
+    private void take(final int firstCell, final int lastCell) {
+      for (int cell = firstCell; cell <= lastCell; cell++) {
+        particlesOnCell[cell] ++;
+        emptyCells.clear(cell); // not available any more
+      }
+    }
 
-      private Cell(final double x, final double y, final int index) {
-        this.x = x;
-        this.y = y;
-        this.index = index;
+    private void release(final int firstCell, final int lastCell) {
+      for (int cell = firstCell; cell <= lastCell; cell++) {
+        particlesOnCell[cell] --;
+        if (particlesOnCell[cell] == 0) { // no more particles on this cell => empty cell
+          emptyCells.set(cell);
+        }
       }
     }
   }
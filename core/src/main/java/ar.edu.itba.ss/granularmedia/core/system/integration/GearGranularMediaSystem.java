@@ -1,5 +1,6 @@
 package ar.edu.itba.ss.granularmedia.core.system.integration;
 
+import ar.edu.itba.ss.granularmedia.interfaces.NeighboursFinder;
 import ar.edu.itba.ss.granularmedia.interfaces.NumericIntegrationMethod;
 import ar.edu.itba.ss.granularmedia.interfaces.TimeDrivenSimulationSystem;
 import ar.edu.itba.ss.granularmedia.models.Particle;
@@ -7,6 +8,8 @@ import ar.edu.itba.ss.granularmedia.models.StaticData;
 import ar.edu.itba.ss.granularmedia.models.Wall;
 import ar.edu.itba.ss.granularmedia.services.gear.Gear5SystemData;
 import ar.edu.itba.ss.granularmedia.services.gear.GearPredictorCorrector;
+import ar.edu.itba.ss.granularmedia.services.gear.MultiRateGearPredictorCorrector;
+import ar.edu.itba.ss.granularmedia.services.gear.VelocityVerlet;
 
 import java.util.*;
 
@@ -18,7 +21,35 @@ public class GearGranularMediaSystem
   private final Gear5GranularMediaSystemData systemData;
 
   public GearGranularMediaSystem(final Collection<Particle> systemParticles,
-                                 final Collection<Wall> systemWalls, final StaticData staticData) {
+                                 final Collection<Particle> obstacles,
+                                 final Collection<Wall> systemWalls, final StaticData staticData,
+                                 final NeighboursFinder neighboursFinder,
+                                 final int nThreads) {
+    this(systemParticles, obstacles, systemWalls, staticData, neighboursFinder, nThreads, Integrator.GEAR5, 0,
+            false, 0);
+  }
+
+  /**
+   * @param integrator numeric integration method used to evolve the system
+   * @param sleepSteps how many steps a particle and its neighbours should be quiet before it sleeps, i.e., it is not
+   *                   integrated until it is disturbed; 0 if particles should never sleep
+   * @param ballistic whether particles that touch nothing are advanced in closed form, only feeling gravity
+   * @param multiRateLevels how many time step levels above dt particles may be integrated with, i.e., time steps go
+   *                        from dt to {@code dt * 2^multiRateLevels}; 0 if all particles are integrated with dt.
+   *                        Only the gear predictor corrector integrator has levels
+   */
+  public GearGranularMediaSystem(final Collection<Particle> systemParticles,
+                                 final Collection<Particle> obstacles,
+                                 final Collection<Wall> systemWalls, final StaticData staticData,
+                                 final NeighboursFinder neighboursFinder,
+                                 final int nThreads,
+                                 final Integrator integrator,
+                                 final int sleepSteps,
+                                 final boolean ballistic,
+                                 final int multiRateLevels) {
+    if (multiRateLevels > 0 && integrator != Integrator.GEAR5) {
+      throw new IllegalArgumentException("Only " + Integrator.GEAR5 + " integrator has time step levels");
+    }
     final Collection<Particle> updatedSystemParticles = new HashSet<>(systemParticles.size());
     systemParticles.forEach(particle -> {
       final Particle updatedParticle = particle.withForceY(-particle.mass() * G);
@@ -27,8 +58,17 @@ public class GearGranularMediaSystem
 
     // Notice length is the whole system's length (silo's length + fallLength + respawnLength) and not
     // simply the silo's length
-    this.systemData = new Gear5GranularMediaSystemData(updatedSystemParticles, systemWalls, staticData);
-    this.integrationMethod = new GearPredictorCorrector<>();
+    // velocity verlet only keeps the particles' position, velocity and acceleration
+    final int sVectors = integrator == Integrator.VERLET ? VelocityVerlet.S_VECTORS : Gear5SystemData.S_VECTORS;
+    this.systemData = new Gear5GranularMediaSystemData(updatedSystemParticles, obstacles, systemWalls, staticData,
+            neighboursFinder, sVectors, sleepSteps, ballistic, multiRateLevels > 0);
+    if (integrator == Integrator.VERLET) {
+      this.integrationMethod = new VelocityVerlet<>(nThreads);
+    } else if (multiRateLevels > 0) {
+      this.integrationMethod = new MultiRateGearPredictorCorrector<>(multiRateLevels, nThreads);
+    } else {
+      this.integrationMethod = new GearPredictorCorrector<>(nThreads);
+    }
   }
 
   @Override
@@ -40,4 +80,22 @@ public class GearGranularMediaSystem
   public void evolveSystem(final double dt) {
     integrationMethod.evolveSystem(systemData, dt);
   }
+
+  /**
+   * Releases the threads used to evolve the system, if any
+   */
+  public void shutdown() {
+    integrationMethod.shutdown();
+  }
+
+  public enum Integrator {
+    /**
+     * Gear predictor corrector of order 5
+     */
+    GEAR5,
+    /**
+     * Velocity verlet, with one force evaluation per step and much less memory
+     */
+    VERLET
+  }
 }
@@ -0,0 +1,207 @@
+package ar.edu.itba.ss.granularmedia.core.helpers;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+public class AsciiFormatterTest {
+  private static final long SEED = 42;
+  private static final int N_RANDOM = 100_000;
+  // bytes before the written number, which should not be touched
+  private static final int OFFSET = 3;
+  private static final byte UNTOUCHED = '#';
+
+  @Test
+  public void longsTest() {
+    for (final long value : new long[] {0, 1, -1, 9, 10, -10, 99, 100, 123_456_789, Integer.MAX_VALUE,
+            Integer.MIN_VALUE, 999_999_999_999_999_999L, 1_000_000_000_000_000_000L, Long.MAX_VALUE,
+            Long.MIN_VALUE + 1, Long.MIN_VALUE}) {
+      Assert.assertEquals(Long.toString(value), putLong(value));
+    }
+    final Random random = new Random(SEED);
+    for (int i = 0; i < N_RANDOM; i++) {
+      final long value = random.nextLong() >> random.nextInt(64);
+      Assert.assertEquals(Long.toString(value), putLong(value));
+    }
+  }
+
+  @Test
+  public void specialValuesTest() {
+    Assert.assertEquals("0.0", putDouble(0.0));
+    Assert.assertEquals("-0.0", putDouble(-0.0));
+    Assert.assertEquals("NaN", putDouble(Double.NaN));
+    Assert.assertEquals("Infinity", putDouble(Double.POSITIVE_INFINITY));
+    Assert.assertEquals("-Infinity", putDouble(Double.NEGATIVE_INFINITY));
+    // too far from the scaling powers, so as they are written by the JDK
+    for (final double value : new double[] {Double.MAX_VALUE, -Double.MAX_VALUE, Double.MIN_VALUE,
+            Double.MIN_NORMAL, 1e300, -1e-300}) {
+      Assert.assertEquals(Double.toString(value), putDouble(value));
+    }
+  }
+
+  @Test
+  public void plainAndScientificSwitchTest() {
+    Assert.assertEquals("0.001", putDouble(1e-3));
+    Assert.assertEquals("-0.001", putDouble(-1e-3));
+    Assert.assertEquals("9.99E-4", putDouble(9.99e-4));
+    Assert.assertEquals("0.00123456789", putDouble(1.23456789e-3));
+    Assert.assertEquals("9999999.0", putDouble(9_999_999));
+    Assert.assertEquals("9999999.999", putDouble(9_999_999.999));
+    Assert.assertEquals("1.0E7", putDouble(1e7));
+    Assert.assertEquals("1.0000001E7", putDouble(10_000_001));
+    Assert.assertEquals("1.0", putDouble(1));
+    Assert.assertEquals("123.456", putDouble(123.456));
+    Assert.assertEquals("100.0", putDouble(100));
+    Assert.assertEquals("0.1", putDouble(0.1));
+  }
+
+  @Test
+  public void singleDigitScientificTest() {
+    Assert.assertEquals("1.0E-4", putDouble(1e-4));
+    Assert.assertEquals("5.0E-5", putDouble(5e-5));
+    Assert.assertEquals("-2.0E10", putDouble(-2e10));
+    Assert.assertEquals("9.0E7", putDouble(9e7));
+    Assert.assertEquals("1.0E-200", putDouble(1e-200));
+  }
+
+  @Test
+  public void roundingCarryTest() {
+    // rounded to MAX_MANTISSA, so as the exponent grows by one
+    Assert.assertEquals("10.0", putDouble(9.99999999996));
+    Assert.assertEquals("1.0E7", putDouble(9_999_999.9999));
+    Assert.assertEquals("0.001", putDouble(9.999999999999e-4));
+    Assert.assertEquals("-1.0E-7", putDouble(-9.9999999999e-8));
+    Assert.assertEquals("1.0E11", putDouble(99_999_999_999.9));
+    // rounded up, without a carry
+    Assert.assertEquals("1.000000001", putDouble(1.0000000005000001));
+    Assert.assertEquals("9.999999999", putDouble(9.9999999994));
+  }
+
+  @Test
+  public void exponentEstimateTest() {
+    // the estimate comes from the binary exponent, so powers of two and ten, and their neighbours, are its edges
+    for (int k = -960; k <= 960; k++) {
+      final double power = Math.pow(2, k);
+      assertAsJdk(power);
+      assertAsJdk(Math.nextUp(power));
+      assertAsJdk(Math.nextDown(power));
+    }
+    for (int k = -289; k <= 289; k++) {
+      final double power = Double.parseDouble("1e" + k);
+      assertAsJdk(power);
+      assertAsJdk(Math.nextUp(power));
+      assertAsJdk(Math.nextDown(power));
+      assertAsJdk(-power);
+    }
+  }
+
+  @Test
+  public void tenSignificantDigitsAreWrittenAsJdkTest() {
+    // doubles with up to 10 significant digits should be written with exactly those digits
+    final Random random = new Random(SEED);
+    for (int i = 0; i < N_RANDOM; i++) {
+      final BigDecimal decimal = new BigDecimal(BigInteger.valueOf(1 + (long) (random.nextDouble() * 9_999_999_999L)),
+              random.nextInt(80) - 40);
+      final double value = decimal.doubleValue();
+      Assert.assertEquals(jdkLayout(false, decimal), putDouble(value));
+      Assert.assertEquals(jdkLayout(true, decimal), putDouble(-value));
+    }
+  }
+
+  @Test
+  public void randomDoublesTest() {
+    final Random random = new Random(SEED);
+    for (int i = 0; i < N_RANDOM; i++) {
+      final double any = Double.longBitsToDouble(random.nextLong());
+      // beyond, they are written by the JDK
+      if (Math.abs(any) >= 1e-289 && Math.abs(any) < 1e289) {
+        assertAsJdk(any);
+      }
+      // magnitudes as the simulation's ones
+      assertAsJdk(random.nextGaussian() * Math.pow(10, random.nextInt(20) - 10));
+    }
+  }
+
+  // helpers
+
+  /**
+   * Asserts that the written value is the given one rounded to {@link AsciiFormatter#SIGNIFICANT_DIGITS}
+   * significant digits, with the same layout as {@link Double#toString(double)}
+   */
+  private static void assertAsJdk(final double value) {
+    final String written = putDouble(value);
+    final BigDecimal abs = new BigDecimal(Math.abs(value));
+    final String down = jdkLayout(value < 0, abs.round(new MathContext(AsciiFormatter.SIGNIFICANT_DIGITS,
+            RoundingMode.DOWN)));
+    final String up = jdkLayout(value < 0, abs.round(new MathContext(AsciiFormatter.SIGNIFICANT_DIGITS,
+            RoundingMode.UP)));
+    Assert.assertTrue(value + " written as " + written, written.equals(down) || written.equals(up));
+
+    // the nearest one, but for the rounding errors of the scaling
+    final double parsed = Double.parseDouble(written);
+    final double exponent = Math.floor(Math.log10(Math.abs(parsed)));
+    final double halfUnit = 0.5 * Math.pow(10, exponent - (AsciiFormatter.SIGNIFICANT_DIGITS - 1));
+    Assert.assertTrue(value + " written as " + written,
+            Math.abs(parsed - value) <= halfUnit + 4 * Math.ulp(value));
+  }
+
+  /**
+   * @return the given value as {@link Double#toString(double)} specifies it, but with its exact digits;
+   * the JDK's own may have more digits than needed (see JDK-4511638)
+   */
+  private static String jdkLayout(final boolean negative, final BigDecimal abs) {
+    final BigDecimal stripped = abs.stripTrailingZeros();
+    final String digits = stripped.unscaledValue().toString();
+    final int exponent = digits.length() - 1 - stripped.scale();
+    final StringBuilder sb = new StringBuilder(negative ? "-" : "");
+    if (exponent >= -3 && exponent < 7) {
+      if (exponent < 0) {
+        sb.append("0.");
+        for (int i = -1; i > exponent; i--) {
+          sb.append('0');
+        }
+        return sb.append(digits).toString();
+      }
+      final int nIntegerDigits = exponent + 1;
+      for (int i = 0; i < nIntegerDigits; i++) {
+        sb.append(i < digits.length() ? digits.charAt(i) : '0');
+      }
+      return sb.append('.').append(digits.length() > nIntegerDigits ? digits.substring(nIntegerDigits) : "0")
+              .toString();
+    }
+    return sb.append(digits.charAt(0)).append('.').append(digits.length() > 1 ? digits.substring(1) : "0")
+            .append('E').append(exponent).toString();
+  }
+
+  private static String putDouble(final double value) {
+    final byte[] buffer = buffer(AsciiFormatter.MAX_DOUBLE_CHARS);
+    final int end = AsciiFormatter.putDouble(buffer, OFFSET, value);
+    return written(buffer, end);
+  }
+
+  private static String putLong(final long value) {
+    final byte[] buffer = buffer(AsciiFormatter.MAX_LONG_CHARS);
+    final int end = AsciiFormatter.putLong(buffer, OFFSET, value);
+    return written(buffer, end);
+  }
+
+  private static byte[] buffer(final int maxChars) {
+    final byte[] buffer = new byte[OFFSET + maxChars];
+    Arrays.fill(buffer, UNTOUCHED);
+    return buffer;
+  }
+
+  private static String written(final byte[] buffer, final int end) {
+    for (int i = 0; i < OFFSET; i++) {
+      Assert.assertEquals(UNTOUCHED, buffer[i]);
+    }
+    return new String(buffer, OFFSET, end - OFFSET, StandardCharsets.US_ASCII);
+  }
+}
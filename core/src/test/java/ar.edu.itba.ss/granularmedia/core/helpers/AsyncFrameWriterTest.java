@@ -0,0 +1,168 @@
+package ar.edu.itba.ss.granularmedia.core.helpers;
+
+import ar.edu.itba.ss.granularmedia.core.helpers.AsyncFrameWriter.Backpressure;
+import ar.edu.itba.ss.granularmedia.services.IOService;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncFrameWriterTest {
+  private static final long TIMEOUT_MILLIS = 10_000;
+  // how long a blocked write is given to, wrongly, return
+  private static final long BLOCKED_MILLIS = 200;
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void fullWriterBlocksTest() throws IOException, InterruptedException {
+    final Path kineticEnergyFile = kineticEnergyFile();
+    final GatedTrajectoryWriter trajectoryWriter = new GatedTrajectoryWriter();
+    final AsyncFrameWriter writer = new AsyncFrameWriter(trajectoryWriter, kineticEnergyFile, 1, Backpressure.BLOCK);
+
+    // one snapshot being written and one waiting => no free snapshots
+    Assert.assertTrue(write(writer, 0));
+    trajectoryWriter.awaitWriting();
+    Assert.assertTrue(write(writer, 1));
+
+    final Thread blocked = new Thread(() -> write(writer, 2));
+    blocked.start();
+    blocked.join(BLOCKED_MILLIS);
+    Assert.assertTrue(blocked.isAlive());
+
+    trajectoryWriter.open();
+    blocked.join(TIMEOUT_MILLIS);
+    Assert.assertFalse(blocked.isAlive());
+    writer.close();
+
+    Assert.assertEquals(0, writer.nDroppedFrames());
+    Assert.assertEquals(steps(0, 3), trajectoryWriter.steps);
+    Assert.assertEquals(steps(0, 3), kineticEnergySteps(kineticEnergyFile));
+  }
+
+  @Test
+  public void fullWriterDropsSnapshotsButNotKineticEnergyTest() throws IOException, InterruptedException {
+    final Path kineticEnergyFile = kineticEnergyFile();
+    final GatedTrajectoryWriter trajectoryWriter = new GatedTrajectoryWriter();
+    final AsyncFrameWriter writer = new AsyncFrameWriter(trajectoryWriter, kineticEnergyFile, 1, Backpressure.DROP);
+
+    Assert.assertTrue(write(writer, 0));
+    trajectoryWriter.awaitWriting();
+    Assert.assertTrue(write(writer, 1));
+    for (int step = 2; step < 5; step++) {
+      Assert.assertFalse(write(writer, step));
+    }
+    Assert.assertEquals(3, writer.nDroppedFrames());
+
+    trajectoryWriter.open();
+    writer.close();
+
+    Assert.assertEquals(3, writer.nDroppedFrames());
+    Assert.assertEquals(steps(0, 2), trajectoryWriter.steps);
+    Assert.assertEquals(steps(0, 5), kineticEnergySteps(kineticEnergyFile));
+  }
+
+  @Test
+  public void closeWritesQueuedFramesTest() throws IOException, InterruptedException {
+    final Path kineticEnergyFile = kineticEnergyFile();
+    final GatedTrajectoryWriter trajectoryWriter = new GatedTrajectoryWriter();
+    final AsyncFrameWriter writer = new AsyncFrameWriter(trajectoryWriter, kineticEnergyFile, 4, Backpressure.DROP);
+
+    for (int step = 0; step < 5; step++) {
+      Assert.assertTrue(write(writer, step));
+    }
+    trajectoryWriter.awaitWriting();
+    Assert.assertFalse(trajectoryWriter.closed);
+
+    trajectoryWriter.open();
+    writer.close();
+
+    Assert.assertTrue(trajectoryWriter.closed);
+    Assert.assertEquals(steps(0, 5), trajectoryWriter.steps);
+    Assert.assertEquals(steps(0, 5), kineticEnergySteps(kineticEnergyFile));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void closedWriterRejectsFramesTest() throws IOException {
+    final Path kineticEnergyFile = kineticEnergyFile();
+    final AsyncFrameWriter writer = new AsyncFrameWriter(null, kineticEnergyFile, 1, Backpressure.BLOCK);
+    writer.close();
+    IOService.closeOutputFile(kineticEnergyFile);
+    write(writer, 0);
+  }
+
+  // helpers
+
+  /**
+   * Trajectory writer that records the written frames' steps, but does not write them until it is opened
+   */
+  private static class GatedTrajectoryWriter implements TrajectoryWriter {
+    private final List<Long> steps = Collections.synchronizedList(new ArrayList<>());
+    private final Semaphore gate = new Semaphore(0);
+    private final CountDownLatch writing = new CountDownLatch(1);
+    private volatile boolean closed;
+
+    @Override
+    public void write(final FrameSnapshot frame) {
+      writing.countDown();
+      gate.acquireUninterruptibly();
+      gate.release();
+      steps.add(frame.step());
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+
+    private void awaitWriting() throws InterruptedException {
+      Assert.assertTrue(writing.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    private void open() {
+      gate.release();
+    }
+  }
+
+  private Path kineticEnergyFile() throws IOException {
+    final Path path = folder.newFile().toPath();
+    Assert.assertTrue(IOService.openOutputFile(path, true));
+    return path;
+  }
+
+  private static boolean write(final AsyncFrameWriter writer, final long step) {
+    return writer.write(Collections.emptyList(), step, step * 0.01, step, 0);
+  }
+
+  private static List<Long> steps(final long from, final long to) {
+    final List<Long> steps = new ArrayList<>();
+    for (long step = from; step < to; step++) {
+      steps.add(step);
+    }
+    return steps;
+  }
+
+  /**
+   * Closes the given kinetic energy file
+   * @return the steps of its records
+   */
+  private static List<Long> kineticEnergySteps(final Path kineticEnergyFile) throws IOException {
+    IOService.closeOutputFile(kineticEnergyFile);
+    final List<Long> steps = new ArrayList<>();
+    for (final String line : Files.readAllLines(kineticEnergyFile)) {
+      steps.add(Long.parseLong(line.substring(0, line.indexOf(','))));
+    }
+    return steps;
+  }
+}
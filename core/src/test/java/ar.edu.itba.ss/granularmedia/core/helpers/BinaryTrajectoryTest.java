@@ -0,0 +1,233 @@
+package ar.edu.itba.ss.granularmedia.core.helpers;
+
+import ar.edu.itba.ss.granularmedia.core.helpers.BinaryTrajectoryFormat.Precision;
+import ar.edu.itba.ss.granularmedia.models.Particle;
+import ar.edu.itba.ss.granularmedia.models.ParticleType;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+public class BinaryTrajectoryTest {
+  private static final long SEED = 42;
+  private static final int N_PARTICLES = 50;
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void doublePrecisionConvertsToTheSameXyzTest() throws IOException {
+    final List<FrameSnapshot> frames = frames();
+    final Path binary = writeBinary(frames, Precision.DOUBLE, true, true);
+
+    final ByteArrayOutputStream xyz = new ByteArrayOutputStream();
+    try (final XyzTrajectoryWriter writer = new XyzTrajectoryWriter(xyz, fixedParticles())) {
+      frames.forEach(writer::write);
+    }
+    final ByteArrayOutputStream converted = new ByteArrayOutputStream();
+    final FrameSnapshot frame = new FrameSnapshot();
+    try (final BinaryTrajectoryReader reader = new BinaryTrajectoryReader(binary);
+         final XyzTrajectoryWriter writer = new XyzTrajectoryWriter(converted, reader.fixedParticles())) {
+      while (reader.next(frame)) {
+        writer.write(frame);
+      }
+    }
+    Assert.assertArrayEquals(xyz.toByteArray(), converted.toByteArray());
+  }
+
+  @Test
+  public void framesAreReadBackTest() throws IOException {
+    final List<FrameSnapshot> frames = frames();
+    for (final Precision precision : Precision.values()) {
+      for (final boolean forces : new boolean[] {false, true}) {
+        for (final boolean pressures : new boolean[] {false, true}) {
+          final String message = precision + (forces ? " with" : " without") + " forces and"
+                  + (pressures ? " with" : " without") + " pressures";
+          final Path binary = writeBinary(frames, precision, forces, pressures);
+          try (final BinaryTrajectoryReader reader = new BinaryTrajectoryReader(binary)) {
+            Assert.assertEquals(message, precision, reader.precision());
+            Assert.assertEquals(message, forces, reader.hasForces());
+            Assert.assertEquals(message, pressures, reader.hasPressures());
+            Assert.assertEquals(message, N_PARTICLES, reader.nParticles());
+            assertFixedParticles(message, reader.fixedParticles());
+
+            final FrameSnapshot frame = new FrameSnapshot();
+            for (final FrameSnapshot expected : frames) {
+              Assert.assertTrue(message, reader.next(frame));
+              assertFrame(message, expected, frame, precision, forces, pressures);
+            }
+            Assert.assertFalse(message, reader.next(frame));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void emptyTrajectoryHasOnlyHeaderTest() throws IOException {
+    final Path binary = writeBinary(Collections.emptyList(), Precision.SINGLE, true, false);
+    try (final BinaryTrajectoryReader reader = new BinaryTrajectoryReader(binary)) {
+      Assert.assertEquals(N_PARTICLES, reader.nParticles());
+      assertFixedParticles("empty", reader.fixedParticles());
+      Assert.assertFalse(reader.next(new FrameSnapshot()));
+    }
+  }
+
+  @Test
+  public void particleNotAtFirstFrameIsReadBackTest() throws IOException {
+    // e.g., a particle waiting to be respawned when the simulation is resumed
+    final Random random = new Random(SEED);
+    final FrameSnapshot first = new FrameSnapshot();
+    first.capture(particles(random).subList(1, N_PARTICLES), 0, 0, 0, 0);
+    final FrameSnapshot second = new FrameSnapshot();
+    second.capture(particles(random), 1, 0.01, 1, 1);
+    final Path binary = writeBinary(Arrays.asList(first, second), Precision.DOUBLE, true, true);
+
+    try (final BinaryTrajectoryReader reader = new BinaryTrajectoryReader(binary)) {
+      Assert.assertEquals(N_PARTICLES, reader.nParticles());
+      final FrameSnapshot frame = new FrameSnapshot();
+      Assert.assertTrue(reader.next(frame));
+      assertFrame("first", first, frame, Precision.DOUBLE, true, true);
+      Assert.assertTrue(reader.next(frame));
+      assertFrame("second", second, frame, Precision.DOUBLE, true, true);
+      Assert.assertFalse(reader.next(frame));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void particleNotAtHeaderIsRejectedTest() {
+    final List<Particle> particles = particles(new Random(SEED));
+    final FrameSnapshot frame = new FrameSnapshot();
+    frame.capture(particles, 0, 0, 0, 0);
+    try (final BinaryTrajectoryWriter writer = new BinaryTrajectoryWriter(new ByteArrayOutputStream(),
+            fixedParticles(), particles.subList(1, N_PARTICLES), Precision.DOUBLE, false, false)) {
+      writer.write(frame);
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void notATrajectoryIsRejectedTest() throws IOException {
+    final Path file = folder.newFile().toPath();
+    Files.write(file, "2\n0\n".getBytes());
+    new BinaryTrajectoryReader(file).close();
+  }
+
+  // helpers
+
+  private Path writeBinary(final List<FrameSnapshot> frames, final Precision precision,
+                           final boolean forces, final boolean pressures) throws IOException {
+    final Path binary = folder.newFile().toPath();
+    try (final BinaryTrajectoryWriter writer = new BinaryTrajectoryWriter(Files.newOutputStream(binary),
+            fixedParticles(), particles(new Random(SEED)), precision, forces, pressures)) {
+      frames.forEach(writer::write);
+    }
+    return binary;
+  }
+
+  /**
+   * @return frames of varying particle counts and orders: all the particles, half of them, none, and all of them
+   * in reverse order
+   */
+  private static List<FrameSnapshot> frames() {
+    final Random random = new Random(SEED);
+    final List<FrameSnapshot> frames = new ArrayList<>();
+    for (int step = 0; step < 4; step++) {
+      final List<Particle> particles = particles(random);
+      final List<Particle> captured;
+      switch (step) {
+        case 1:
+          captured = new ArrayList<>();
+          for (int i = 0; i < particles.size(); i += 2) {
+            captured.add(particles.get(i));
+          }
+          break;
+        case 2:
+          captured = Collections.emptyList();
+          break;
+        case 3:
+          captured = new ArrayList<>(particles);
+          Collections.reverse(captured);
+          break;
+        default:
+          captured = particles;
+      }
+      final FrameSnapshot frame = new FrameSnapshot();
+      frame.capture(captured, step * 1000L, step * 0.01, random.nextDouble(), random.nextDouble() * 1e3);
+      frames.add(frame);
+    }
+    return frames;
+  }
+
+  private static List<Particle> particles(final Random random) {
+    final List<Particle> particles = new ArrayList<>(N_PARTICLES);
+    for (int i = 0; i < N_PARTICLES; i++) {
+      // values of different magnitudes, so as floats lose precision and xyz uses both notations
+      final double scale = Math.pow(10, random.nextInt(12) - 6);
+      // static values must be the same at all frames
+      final Particle particle = Particle.builder(random.nextDouble() * scale, random.nextDouble())
+              .id(3 * i + 1)
+              .type(i % 10 == 0 ? ParticleType.SPAWN : ParticleType.COMMON)
+              .vx(random.nextGaussian() * scale).vy(- random.nextDouble())
+              .forceX(random.nextGaussian()).forceY(random.nextGaussian() * scale)
+              .radio(0.001 + i / 1e4).mass(0.01 + i / 1e3)
+              .build();
+      particle.normalForce(random.nextDouble() * scale);
+      particles.add(particle);
+    }
+    return particles;
+  }
+
+  private static List<Particle> fixedParticles() {
+    return Arrays.asList(
+            Particle.builder(0, 0).id(-1).type(ParticleType.WALL).radio(0.01).build(),
+            Particle.builder(0.2, 1).id(-2).type(ParticleType.BORDER).radio(0.01).build(),
+            Particle.builder(0.1, 0.05).id(-3).type(ParticleType.OPENING_LEFT).radio(0.02).mass(1).build());
+  }
+
+  private static void assertFixedParticles(final String message, final List<Particle> actual) {
+    final List<Particle> expected = fixedParticles();
+    Assert.assertEquals(message, expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Assert.assertEquals(message, expected.get(i).id(), actual.get(i).id());
+      Assert.assertEquals(message, expected.get(i).type(), actual.get(i).type());
+      Assert.assertEquals(message, expected.get(i).x(), actual.get(i).x(), 0);
+      Assert.assertEquals(message, expected.get(i).y(), actual.get(i).y(), 0);
+      Assert.assertEquals(message, expected.get(i).radio(), actual.get(i).radio(), 0);
+      Assert.assertEquals(message, expected.get(i).mass(), actual.get(i).mass(), 0);
+    }
+  }
+
+  private static void assertFrame(final String message, final FrameSnapshot expected, final FrameSnapshot actual,
+                                  final Precision precision, final boolean forces, final boolean pressures) {
+    Assert.assertEquals(message, expected.step(), actual.step());
+    Assert.assertEquals(message, expected.time(), actual.time(), 0);
+    Assert.assertEquals(message, expected.kineticEnergy(), actual.kineticEnergy(), 0);
+    Assert.assertEquals(message, expected.maxPressure(), actual.maxPressure(), 0);
+    Assert.assertEquals(message, expected.n(), actual.n());
+    for (int i = 0; i < expected.n(); i++) {
+      Assert.assertEquals(message, expected.id(i), actual.id(i));
+      Assert.assertEquals(message, expected.type(i), actual.type(i));
+      Assert.assertEquals(message, expected.radio(i), actual.radio(i), 0);
+      Assert.assertEquals(message, expected.mass(i), actual.mass(i), 0);
+      assertReal(message, expected.x(i), actual.x(i), precision);
+      assertReal(message, expected.y(i), actual.y(i), precision);
+      assertReal(message, expected.vx(i), actual.vx(i), precision);
+      assertReal(message, expected.vy(i), actual.vy(i), precision);
+      assertReal(message, forces ? expected.forceX(i) : 0, actual.forceX(i), precision);
+      assertReal(message, forces ? expected.forceY(i) : 0, actual.forceY(i), precision);
+      assertReal(message, pressures ? expected.pressure(i) : 0, actual.pressure(i), precision);
+    }
+  }
+
+  private static void assertReal(final String message, final double expected, final double actual,
+                                 final Precision precision) {
+    final double written = precision == Precision.SINGLE ? (float) expected : expected;
+    Assert.assertEquals(message, Double.doubleToLongBits(written), Double.doubleToLongBits(actual));
+  }
+}
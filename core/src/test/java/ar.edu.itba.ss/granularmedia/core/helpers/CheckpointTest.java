@@ -0,0 +1,253 @@
+package ar.edu.itba.ss.granularmedia.core.helpers;
+
+import ar.edu.itba.ss.granularmedia.models.Particle;
+import ar.edu.itba.ss.granularmedia.models.ParticleType;
+import ar.edu.itba.ss.granularmedia.services.IOService;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+public class CheckpointTest {
+  private static final long SEED = 42;
+  private static final int N_SLOTS = 40;
+  private static final int N_QUEUED = 7;
+  private static final int S_VECTORS = 6;
+  private static final int N_CELLS = 12;
+  private static final int N_TAKEN = 5;
+  private static final double BIN_WIDTH = 0.25;
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void roundTripTest() throws IOException {
+    final Checkpoint checkpoint = checkpoint();
+    final byte[] bytes = bytes(checkpoint);
+    final Checkpoint read = Checkpoint.read(file(bytes));
+
+    Assert.assertEquals(checkpoint.dt(), read.dt(), 0);
+    Assert.assertEquals(checkpoint.step(), read.step());
+    Assert.assertEquals(checkpoint.logStep(), read.logStep());
+    Assert.assertEquals(checkpoint.currentTime(), read.currentTime(), 0);
+    Assert.assertEquals(checkpoint.considerKineticEnergy(), read.considerKineticEnergy());
+    Assert.assertEquals(checkpoint.flowBinWidth, read.flowBinWidth, 0);
+    Assert.assertEquals(checkpoint.flowParticlesFlowed, read.flowParticlesFlowed);
+    Assert.assertEquals(checkpoint.flowCurrentBin, read.flowCurrentBin);
+    Assert.assertEquals(checkpoint.flowCurrentBinParticlesFlowed, read.flowCurrentBinParticlesFlowed);
+    Assert.assertEquals(checkpoint.kineticEnergy(), read.kineticEnergy(), 0);
+    Assert.assertEquals(checkpoint.maxPressure(), read.maxPressure(), 0);
+    Assert.assertEquals(checkpoint.nParticlesFlowed(), read.nParticlesFlowed());
+
+    Assert.assertEquals(N_SLOTS, read.nSlots());
+    Assert.assertEquals(N_QUEUED, read.nQueued());
+    Assert.assertEquals(S_VECTORS, read.sVectors());
+    for (int i = 0; i < N_SLOTS + N_QUEUED; i++) {
+      assertSameParticle(checkpoint.particle(i), read.particle(i));
+    }
+    for (int slot = 0; slot < N_SLOTS; slot++) {
+      for (int order = 0; order < S_VECTORS; order++) {
+        Assert.assertEquals(checkpoint.rX(slot, order), read.rX(slot, order), 0);
+        Assert.assertEquals(checkpoint.rY(slot, order), read.rY(slot, order), 0);
+      }
+    }
+    Assert.assertEquals(checkpoint.nActive(), read.nActive());
+    for (int slot = 0; slot < N_SLOTS; slot++) {
+      Assert.assertEquals(checkpoint.quiet(slot), read.quiet(slot));
+      Assert.assertEquals(checkpoint.quietSteps(slot), read.quietSteps(slot));
+      Assert.assertEquals(checkpoint.level(slot), read.level(slot));
+      Assert.assertEquals(checkpoint.elapsedSteps(slot), read.elapsedSteps(slot));
+      Assert.assertEquals(checkpoint.syncRequested(slot), read.syncRequested(slot));
+    }
+
+    Assert.assertEquals(checkpoint.nextCell(), read.nextCell());
+    Assert.assertArrayEquals(checkpoint.particlesOnCell(), read.particlesOnCell());
+    Assert.assertEquals(N_TAKEN, read.nTaken());
+    for (int i = 0; i < N_TAKEN; i++) {
+      Assert.assertEquals(checkpoint.takenId(i), read.takenId(i));
+      Assert.assertEquals(checkpoint.takenFirstCell(i), read.takenFirstCell(i));
+      Assert.assertEquals(checkpoint.takenLastCell(i), read.takenLastCell(i));
+    }
+
+    // nothing is lost, so the read checkpoint is written back the same
+    Assert.assertArrayEquals(bytes, bytes(read));
+  }
+
+  @Test
+  public void corruptedValueIsRejectedTest() throws IOException {
+    final byte[] bytes = bytes(checkpoint());
+    // last byte before the checksum, which is part of the last taken cell
+    bytes[bytes.length - Long.BYTES - 1] ^= 1;
+    assertChecksumMismatch(bytes);
+  }
+
+  @Test
+  public void corruptedChecksumIsRejectedTest() throws IOException {
+    final byte[] bytes = bytes(checkpoint());
+    bytes[bytes.length - 1] ^= 1;
+    assertChecksumMismatch(bytes);
+  }
+
+  @Test(expected = IOException.class)
+  public void truncatedCheckpointIsRejectedTest() throws IOException {
+    final byte[] bytes = bytes(checkpoint());
+    Checkpoint.read(file(Arrays.copyOf(bytes, bytes.length - 3)));
+  }
+
+  @Test(expected = IOException.class)
+  public void notACheckpointIsRejectedTest() throws IOException {
+    final byte[] bytes = bytes(checkpoint());
+    bytes[0] ^= 1;
+    Checkpoint.read(file(bytes));
+  }
+
+  @Test
+  public void resumedFlowRecorderTest() throws IOException {
+    // the flow file of a recording that is suspended at a checkpoint and resumed should be the same as if it was not
+    for (final double binWidth : new double[] {0, BIN_WIDTH}) {
+      final Path uninterrupted = folder.newFile().toPath();
+      final FlowRecorder recorder = recorder(uninterrupted, binWidth);
+      record(recorder, 0, 100);
+      record(recorder, 100, 200);
+      recorder.close(200 * 0.01);
+
+      final Path resumed = folder.newFile().toPath();
+      final FlowRecorder first = recorder(resumed, binWidth);
+      record(first, 0, 100);
+      first.flush();
+      // only the flow counters are overwritten
+      final Checkpoint checkpoint = checkpoint();
+      first.checkpoint(checkpoint);
+      first.suspend();
+      final Checkpoint read = Checkpoint.read(file(bytes(checkpoint)));
+
+      final FlowRecorder second = recorder(resumed, binWidth);
+      second.restore(read);
+      Assert.assertEquals(first.nParticlesFlowed(), second.nParticlesFlowed());
+      record(second, 100, 200);
+      second.close(200 * 0.01);
+
+      Assert.assertEquals(recorder.nParticlesFlowed(), second.nParticlesFlowed());
+      Assert.assertTrue(Files.size(uninterrupted) > 0);
+      Assert.assertEquals(new String(Files.readAllBytes(uninterrupted)), new String(Files.readAllBytes(resumed)));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void flowRecorderOfOtherBinWidthIsRejectedTest() throws IOException {
+    final Checkpoint checkpoint = new Checkpoint();
+    final Path path = folder.newFile().toPath();
+    final FlowRecorder recorder = recorder(path, BIN_WIDTH);
+    recorder.checkpoint(checkpoint);
+    recorder.close(0);
+    recorder(path, 2 * BIN_WIDTH).restore(checkpoint);
+  }
+
+  // helpers
+
+  private static Checkpoint checkpoint() {
+    final Random random = new Random(SEED);
+    final ParticleType[] types = ParticleType.values();
+    final Checkpoint checkpoint = new Checkpoint();
+    checkpoint.run(1e-5, 123_456, 789, 1.23456, true);
+    checkpoint.flowBinWidth = BIN_WIDTH;
+    checkpoint.flowParticlesFlowed = 321;
+    checkpoint.flowCurrentBin = 4;
+    checkpoint.flowCurrentBinParticlesFlowed = 17;
+    checkpoint.system(random.nextDouble(), random.nextDouble() * 1e3, 321);
+
+    checkpoint.particles(N_SLOTS, N_QUEUED, S_VECTORS);
+    for (int i = 0; i < N_SLOTS + N_QUEUED; i++) {
+      final Particle particle = Particle.builder(random.nextDouble(), random.nextDouble())
+              .id(i + 1)
+              .type(types[i % types.length])
+              .isColliding(random.nextBoolean())
+              .vx(random.nextGaussian()).vy(random.nextGaussian())
+              .forceX(random.nextGaussian()).forceY(random.nextGaussian())
+              .radio(random.nextDouble() / 100).mass(0.01)
+              .build();
+      particle.normalForce(random.nextDouble());
+      particle.hasFlowedOut(random.nextBoolean());
+      checkpoint.particle(i, particle);
+    }
+    for (int slot = 0; slot < N_SLOTS; slot++) {
+      for (int order = 0; order < S_VECTORS; order++) {
+        checkpoint.r(slot, order, random.nextGaussian(), random.nextGaussian());
+      }
+    }
+    checkpoint.sleeping(N_SLOTS - 3);
+    for (int slot = 0; slot < N_SLOTS; slot++) {
+      checkpoint.sleeping(slot, random.nextBoolean(), random.nextInt(100));
+      checkpoint.level(slot, random.nextInt(4), random.nextInt(8), random.nextBoolean());
+    }
+
+    final int[] particlesOnCell = new int[N_CELLS];
+    for (int cell = 0; cell < N_CELLS; cell++) {
+      particlesOnCell[cell] = random.nextInt(3);
+    }
+    checkpoint.respawnCells(5, particlesOnCell, N_TAKEN);
+    for (int i = 0; i < N_TAKEN; i++) {
+      checkpoint.takenCells(i, N_SLOTS + i + 1, i, i + 2);
+    }
+    return checkpoint;
+  }
+
+  private static byte[] bytes(final Checkpoint checkpoint) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    checkpoint.write(out);
+    return out.toByteArray();
+  }
+
+  private Path file(final byte[] bytes) throws IOException {
+    final Path path = folder.newFile().toPath();
+    Files.write(path, bytes);
+    return path;
+  }
+
+  private void assertChecksumMismatch(final byte[] bytes) throws IOException {
+    try {
+      Checkpoint.read(file(bytes));
+      Assert.fail("A corrupted checkpoint should be rejected");
+    } catch (final IOException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().contains("checksum"));
+    }
+  }
+
+  private static void assertSameParticle(final Particle expected, final Particle actual) {
+    Assert.assertEquals(expected.id(), actual.id());
+    Assert.assertEquals(expected.type(), actual.type());
+    Assert.assertEquals(expected.isColliding(), actual.isColliding());
+    Assert.assertEquals(expected.hasFlowedOut(), actual.hasFlowedOut());
+    Assert.assertEquals(expected.x(), actual.x(), 0);
+    Assert.assertEquals(expected.y(), actual.y(), 0);
+    Assert.assertEquals(expected.vx(), actual.vx(), 0);
+    Assert.assertEquals(expected.vy(), actual.vy(), 0);
+    Assert.assertEquals(expected.forceX(), actual.forceX(), 0);
+    Assert.assertEquals(expected.forceY(), actual.forceY(), 0);
+    Assert.assertEquals(expected.radio(), actual.radio(), 0);
+    Assert.assertEquals(expected.mass(), actual.mass(), 0);
+    Assert.assertEquals(expected.normalForce(), actual.normalForce(), 0);
+  }
+
+  private static FlowRecorder recorder(final Path path, final double binWidth) {
+    Assert.assertTrue(IOService.openOutputFile(path, true));
+    return binWidth == 0 ? FlowRecorder.events(path) : FlowRecorder.binned(path, binWidth);
+  }
+
+  /**
+   * Records the flow of the steps in {@code [from, to)}, with a time step of 0.01
+   */
+  private static void record(final FlowRecorder recorder, final int from, final int to) {
+    final Random random = new Random(SEED + from);
+    for (int step = from; step < to; step++) {
+      recorder.record(random.nextInt(4) == 0 ? random.nextInt(3) : 0, step, step * 0.01);
+    }
+  }
+}
@@ -0,0 +1,197 @@
+package ar.edu.itba.ss.granularmedia.core.helpers;
+
+import ar.edu.itba.ss.granularmedia.models.Particle;
+import ar.edu.itba.ss.granularmedia.models.ParticleType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class DynamicFileParserTest {
+  private static final long SEED = 42;
+  private static final int N_RANDOM = 100_000;
+  private static final int N_THREADS = 4;
+  // enough particles as to be parsed in parallel
+  private static final int N_PARALLEL_PARTICLES = 25_000;
+
+  @Test
+  public void significantDigitsTest() {
+    assertParsedAsJdk(
+            "123456789012345", "1234567890123456", "12345678901234567890", "9007199254740993",
+            "999999999999999", "9999999999999999", "0.123456789012345", "0.1234567890123456",
+            "123456789012345.6789", "0.000000000000000123456789012345", "0.0000000000000001234567890123456",
+            "1.0000000000000000000", "100000000000000000000000", "0.30000000000000004", "2.2250738585072014E-308",
+            "4.9E-324", "1.7976931348623157E308", "00000000000000000001.5", "1.00000000000000000001");
+  }
+
+  @Test
+  public void exponentsTest() {
+    final List<String> tokens = new ArrayList<>();
+    // beyond the exact powers of ten too, which go to the slow path
+    for (int exponent = -25; exponent <= 25; exponent++) {
+      tokens.add("1e" + exponent);
+      tokens.add("1E" + (exponent >= 0 ? "+" : "") + exponent);
+      tokens.add("-7.5E" + exponent);
+      tokens.add("123456789012345e" + exponent);
+      tokens.add("0.123456789012345E" + exponent);
+      tokens.add("999999999999999e" + exponent);
+    }
+    tokens.add("1e400");
+    tokens.add("1e-400");
+    tokens.add("1e0000000000000000000001");
+    assertParsedAsJdk(tokens.toArray(new String[tokens.size()]));
+  }
+
+  @Test
+  public void signsAndZerosTest() {
+    assertParsedAsJdk("-0.0", "-0", "0", "+0.0", "0.0E-3", "-0.0E10", "-0e-400", "+1.5", "-1.5", ".5", "-.5", "5.",
+            "0.000", "-00.00");
+  }
+
+  @Test
+  public void randomDoublesTest() {
+    final Random random = new Random(SEED);
+    final String[] tokens = new String[N_RANDOM];
+    for (int i = 0; i < N_RANDOM; i++) {
+      final double value;
+      switch (i % 3) {
+        case 0:
+          value = Double.longBitsToDouble(random.nextLong());
+          break;
+        case 1:
+          // magnitudes as the simulation's ones, both at plain and scientific notation
+          value = random.nextGaussian() * Math.pow(10, random.nextInt(20) - 10);
+          break;
+        default:
+          value = (float) random.nextGaussian();
+      }
+      tokens[i] = Double.isNaN(value) || Double.isInfinite(value) ? "0.0" : Double.toString(value);
+    }
+    assertParsedAsJdk(tokens);
+  }
+
+  @Test
+  public void exponentWithoutDigitsIsRejectedTest() {
+    for (final String token : new String[] {"1e", "1E+", "-1.5e-", "e5", ".", "-", "1.2.3", "1e5x"}) {
+      try {
+        Double.parseDouble(token);
+        Assert.fail("'" + token + "' should not be a number");
+      } catch (final NumberFormatException ignored) {
+        // rejected by the JDK; it should be rejected by the parser too
+      }
+      try {
+        parse(file(token), 1);
+        Assert.fail("'" + token + "' should be rejected");
+      } catch (final IllegalArgumentException e) {
+        Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("line 2: "));
+      }
+    }
+  }
+
+  @Test
+  public void parallelParsingTest() {
+    final List<Particle> particles = particles(N_PARALLEL_PARTICLES);
+    final StringBuilder sb = new StringBuilder(OutputSerializerHelper.dynamicHeader(particles.size()));
+    particles.forEach(particle -> OutputSerializerHelper.serializeDynamic(particle, sb));
+    final ByteBuffer file = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.US_ASCII));
+
+    final Particle[] serial = DynamicFileParser.parse(file, 1);
+    assertSameParticles(particles, serial);
+    final Particle[] parallel = DynamicFileParser.parse(file, N_THREADS);
+    assertSameParticles(particles, parallel);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void missingLinesAreRejectedTest() {
+    parse("3\n" + line("1.0") + line("2.0"), 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void badLineIsRejectedWhenParsedInParallelTest() {
+    final List<Particle> particles = particles(N_PARALLEL_PARTICLES);
+    final StringBuilder sb = new StringBuilder(OutputSerializerHelper.dynamicHeader(particles.size()));
+    particles.forEach(particle -> OutputSerializerHelper.serializeDynamic(particle, sb));
+    sb.append(line("1e"));
+    sb.replace(0, sb.indexOf("\n"), String.valueOf(particles.size() + 1));
+    parse(sb.toString(), N_THREADS);
+  }
+
+  // helpers
+
+  /**
+   * Asserts that each token is parsed, at every signed real column of a particle's line, to the same double as
+   * {@link Double#parseDouble(String)}'s, bit by bit (so as {@code -0.0} is not {@code 0.0})
+   */
+  private static void assertParsedAsJdk(final String... tokens) {
+    final Particle[] particles = parse(file(tokens), 1);
+    Assert.assertEquals(tokens.length, particles.length);
+    for (int i = 0; i < tokens.length; i++) {
+      final long expected = Double.doubleToLongBits(Double.parseDouble(tokens[i]));
+      final Particle particle = particles[i];
+      for (final double value : new double[] {particle.x(), particle.y(), particle.vx(), particle.vy(),
+              particle.forceX(), particle.forceY()}) {
+        Assert.assertEquals(tokens[i], expected, Double.doubleToLongBits(value));
+      }
+    }
+  }
+
+  private static Particle[] parse(final String file, final int nThreads) {
+    return DynamicFileParser.parse(ByteBuffer.wrap(file.getBytes(StandardCharsets.US_ASCII)), nThreads);
+  }
+
+  /**
+   * @return a dynamic file with a particle per token, with all its real values equal to the token
+   */
+  private static String file(final String... tokens) {
+    final StringBuilder sb = new StringBuilder();
+    sb.append(tokens.length).append('\n');
+    for (final String token : tokens) {
+      sb.append(line(token));
+    }
+    return sb.toString();
+  }
+
+  private static String line(final String real) {
+    final String r = real + '\t';
+    // radio and mass cannot be negative
+    return "7\t" + r + r + r + r + r + r + "1\t0\t0\t0.01\t0.1\t5\t" + ParticleType.COMMON + "\n";
+  }
+
+  private static List<Particle> particles(final int n) {
+    final Random random = new Random(SEED);
+    final ParticleType[] types = ParticleType.values();
+    final List<Particle> particles = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      particles.add(Particle.builder(random.nextDouble(), random.nextDouble() * 10)
+              .id(i + 1)
+              .vx(random.nextGaussian()).vy(random.nextGaussian() * 1e-5)
+              .forceX(random.nextGaussian() * 1e3).forceY(- random.nextDouble())
+              .radio(random.nextDouble() / 100).mass(0.01)
+              .type(types[i % types.length])
+              .build());
+    }
+    return particles;
+  }
+
+  private static void assertSameParticles(final List<Particle> expected, final Particle[] actual) {
+    Assert.assertEquals(expected.size(), actual.length);
+    for (int i = 0; i < actual.length; i++) {
+      final Particle e = expected.get(i);
+      final Particle a = actual[i];
+      Assert.assertEquals(e.id(), a.id());
+      Assert.assertEquals(e.type(), a.type());
+      Assert.assertEquals(e.x(), a.x(), 0);
+      Assert.assertEquals(e.y(), a.y(), 0);
+      Assert.assertEquals(e.vx(), a.vx(), 0);
+      Assert.assertEquals(e.vy(), a.vy(), 0);
+      Assert.assertEquals(e.forceX(), a.forceX(), 0);
+      Assert.assertEquals(e.forceY(), a.forceY(), 0);
+      Assert.assertEquals(e.radio(), a.radio(), 0);
+      Assert.assertEquals(e.mass(), a.mass(), 0);
+    }
+  }
+}
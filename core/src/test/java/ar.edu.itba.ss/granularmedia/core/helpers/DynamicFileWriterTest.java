@@ -0,0 +1,116 @@
+package ar.edu.itba.ss.granularmedia.core.helpers;
+
+import ar.edu.itba.ss.granularmedia.models.Particle;
+import ar.edu.itba.ss.granularmedia.models.ParticleType;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class DynamicFileWriterTest {
+  private static final long SEED = 42;
+  private static final int N_THREADS = 4;
+  // more than the writer's buffer takes, and enough as to be parsed in parallel
+  private static final int N_MANY_PARTICLES = 25_000;
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void fewerParticlesThanExpectedAreParsedBackTest() throws IOException {
+    final List<Particle> particles = particles(10);
+    final byte[] bytes = write(particles, 1_000_000);
+
+    // "10", blanks up to the room of "1000000", and the new line
+    final String header = new String(bytes, 0, OutputSerializerHelper.dynamicHeader(1_000_000).length(),
+            StandardCharsets.US_ASCII);
+    Assert.assertEquals("10" + "     " + System.lineSeparator(), header);
+
+    assertSameParticles(particles, DynamicFileParser.parse(ByteBuffer.wrap(bytes), 1));
+  }
+
+  @Test
+  public void expectedParticlesAreWrittenAsDynamicOutputTest() throws IOException {
+    final List<Particle> particles = particles(100);
+    final byte[] bytes = write(particles, particles.size());
+    Assert.assertEquals(OutputSerializerHelper.dynamicOutput(particles), new String(bytes, StandardCharsets.US_ASCII));
+  }
+
+  @Test
+  public void manyParticlesAreParsedBackTest() throws IOException {
+    final List<Particle> particles = particles(N_MANY_PARTICLES);
+    final ByteBuffer file = ByteBuffer.wrap(write(particles, 10L * N_MANY_PARTICLES));
+    assertSameParticles(particles, DynamicFileParser.parse(file, 1));
+    assertSameParticles(particles, DynamicFileParser.parse(file, N_THREADS));
+  }
+
+  @Test
+  public void noParticlesAreParsedBackTest() throws IOException {
+    final byte[] bytes = write(Collections.emptyList(), 100);
+    Assert.assertEquals("0" + "  " + System.lineSeparator(), new String(bytes, StandardCharsets.US_ASCII));
+    Assert.assertEquals(0, DynamicFileParser.parse(ByteBuffer.wrap(bytes), 1).length);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void moreParticlesThanExpectedAreRejectedTest() throws IOException {
+    write(particles(10), 9);
+  }
+
+  // helpers
+
+  private byte[] write(final List<Particle> particles, final long maxParticles) throws IOException {
+    final Path path = folder.newFile().toPath();
+    try (final DynamicFileWriter writer = new DynamicFileWriter(
+            FileChannel.open(path, StandardOpenOption.WRITE), maxParticles)) {
+      particles.forEach(writer::write);
+      Assert.assertEquals(particles.size(), writer.nParticles());
+    }
+    return Files.readAllBytes(path);
+  }
+
+  private static List<Particle> particles(final int n) {
+    final Random random = new Random(SEED);
+    final ParticleType[] types = ParticleType.values();
+    final List<Particle> particles = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      particles.add(Particle.builder(random.nextDouble(), random.nextDouble() * 10)
+              .id(i + 1)
+              .vx(random.nextGaussian()).vy(random.nextGaussian() * 1e-5)
+              .forceX(random.nextGaussian() * 1e3).forceY(- random.nextDouble())
+              .radio(random.nextDouble() / 100).mass(0.01)
+              .type(types[i % types.length])
+              .build());
+    }
+    return particles;
+  }
+
+  private static void assertSameParticles(final List<Particle> expected, final Particle[] actual) {
+    Assert.assertEquals(expected.size(), actual.length);
+    for (int i = 0; i < actual.length; i++) {
+      final Particle e = expected.get(i);
+      final Particle a = actual[i];
+      Assert.assertEquals(e.id(), a.id());
+      Assert.assertEquals(e.type(), a.type());
+      Assert.assertEquals(e.x(), a.x(), 0);
+      Assert.assertEquals(e.y(), a.y(), 0);
+      Assert.assertEquals(e.vx(), a.vx(), 0);
+      Assert.assertEquals(e.vy(), a.vy(), 0);
+      Assert.assertEquals(e.forceX(), a.forceX(), 0);
+      Assert.assertEquals(e.forceY(), a.forceY(), 0);
+      Assert.assertEquals(e.radio(), a.radio(), 0);
+      Assert.assertEquals(e.mass(), a.mass(), 0);
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package ar.edu.itba.ss.granularmedia.core.helpers;
+
+import ar.edu.itba.ss.granularmedia.services.IOService;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class FlowRecorderTest {
+  // exact as a double, so as bins' limits are too
+  private static final double BIN_WIDTH = 0.25;
+  // far from 0, so as each event's line is long
+  private static final long FIRST_STEP = 1_000_000;
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void emptyBinsAreWrittenBetweenRecordsTest() throws IOException {
+    final Path path = flowFile();
+    final FlowRecorder recorder = FlowRecorder.binned(path, BIN_WIDTH);
+    recorder.record(2, 1, 0.1);
+    recorder.record(1, 2, 0.2);
+    // bins 1, 2 and 3 have no records at all
+    recorder.record(3, 3, 1.1);
+    recorder.record(0, 4, 1.2);
+    recorder.close(1.25);
+
+    Assert.assertEquals(6, recorder.nParticlesFlowed());
+    Assert.assertEquals(
+            OutputSerializerHelper.flowBinSerializer(0, 0.25, 3)
+                    + OutputSerializerHelper.flowBinSerializer(0.25, 0.5, 0)
+                    + OutputSerializerHelper.flowBinSerializer(0.5, 0.75, 0)
+                    + OutputSerializerHelper.flowBinSerializer(0.75, 1, 0)
+                    + OutputSerializerHelper.flowBinSerializer(1, 1.25, 3),
+            read(path));
+  }
+
+  @Test
+  public void partialLastBinIsWrittenUpToEndTimeTest() throws IOException {
+    final Path path = flowFile();
+    final FlowRecorder recorder = FlowRecorder.binned(path, BIN_WIDTH);
+    recorder.record(1, 1, 0.1);
+    recorder.record(4, 2, 0.3);
+    recorder.close(0.375);
+
+    final String lastBin = OutputSerializerHelper.flowBinSerializer(0.25, 0.375, 4);
+    Assert.assertTrue(lastBin, lastBin.startsWith("0.25,0.375,4,32.0"));
+    Assert.assertEquals(OutputSerializerHelper.flowBinSerializer(0, 0.25, 1) + lastBin, read(path));
+  }
+
+  @Test
+  public void lastBinIsNotWrittenIfItHasNotStartedTest() throws IOException {
+    final Path path = flowFile();
+    final FlowRecorder recorder = FlowRecorder.binned(path, BIN_WIDTH);
+    recorder.record(1, 1, 0.1);
+    // bin [0.25, 0.5) starts, but no time has elapsed within it
+    recorder.record(0, 2, 0.25);
+    recorder.close(0.25);
+
+    Assert.assertEquals(OutputSerializerHelper.flowBinSerializer(0, 0.25, 1), read(path));
+  }
+
+  @Test
+  public void eventsAreWrittenWhenBatchIsFullTest() throws IOException {
+    final Path path = flowFile();
+    final FlowRecorder recorder = FlowRecorder.events(path);
+    final int nEvents = FlowRecorder.EVENTS_BATCH + 1;
+    final long[] steps = new long[nEvents];
+    final double[] times = new double[nEvents];
+    for (int i = 0; i < nEvents; i++) {
+      steps[i] = FIRST_STEP + i;
+      times[i] = steps[i] * 1e-3;
+    }
+    // one batch is big enough as to be written at once
+    final String batch = OutputSerializerHelper.flowEventsSerializer(steps, times, FlowRecorder.EVENTS_BATCH);
+    Assert.assertTrue(batch.length() >= FlowRecorder.OUTPUT_BATCH);
+
+    for (int i = 0; i < FlowRecorder.EVENTS_BATCH; i++) {
+      recorder.record(1, steps[i], times[i]);
+    }
+    // events are kept in memory up to a full batch, growing their arrays meanwhile
+    Assert.assertEquals(0, Files.size(path));
+
+    recorder.record(1, steps[FlowRecorder.EVENTS_BATCH], times[FlowRecorder.EVENTS_BATCH]);
+    Assert.assertTrue(Files.size(path) > 0);
+
+    recorder.close(times[nEvents - 1]);
+    Assert.assertEquals(nEvents, recorder.nParticlesFlowed());
+    Assert.assertEquals(OutputSerializerHelper.flowEventsSerializer(steps, times, nEvents), read(path));
+  }
+
+  @Test
+  public void severalEventsAtTheSameStepTest() throws IOException {
+    final Path path = flowFile();
+    final FlowRecorder recorder = FlowRecorder.events(path);
+    recorder.record(0, 1, 0.01);
+    recorder.record(3, 2, 0.02);
+    recorder.record(1, 3, 0.03);
+    recorder.close(0.03);
+
+    Assert.assertEquals(4, recorder.nParticlesFlowed());
+    Assert.assertEquals(OutputSerializerHelper.flowEventsSerializer(
+            new long[] {2, 2, 2, 3}, new double[] {0.02, 0.02, 0.02, 0.03}, 4), read(path));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void binWidthShouldBePositiveTest() {
+    FlowRecorder.binned(folder.getRoot().toPath().resolve("flow.csv"), 0);
+  }
+
+  // helpers
+
+  private Path flowFile() throws IOException {
+    final Path path = folder.newFile().toPath();
+    Assert.assertTrue(IOService.openOutputFile(path, true));
+    return path;
+  }
+
+  private static String read(final Path path) throws IOException {
+    return new String(Files.readAllBytes(path));
+  }
+}
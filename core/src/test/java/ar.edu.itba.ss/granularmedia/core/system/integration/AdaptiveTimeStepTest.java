@@ -0,0 +1,96 @@
+package ar.edu.itba.ss.granularmedia.core.system.integration;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptiveTimeStepTest {
+  private static final double MIN_DT = 1e-7;
+  private static final double MAX_DT = 1e-3;
+  private static final double CONTACT_DT = 1e-5;
+  private static final double MIN_RADIO = 0.01;
+
+  private final AdaptiveTimeStep adaptiveTimeStep = new AdaptiveTimeStep(MIN_DT, MAX_DT, CONTACT_DT, MIN_RADIO);
+
+  @Test
+  public void compressedContactTakesMinDtTest() {
+    final double compressed = Math.nextUp(AdaptiveTimeStep.MAX_SUPERPOSITION * MIN_RADIO);
+    // whatever the last dt, and even if nothing moves
+    Assert.assertEquals(MIN_DT, adaptiveTimeStep.next(MAX_DT, compressed, 0, 0), 0);
+    Assert.assertEquals(MIN_DT, adaptiveTimeStep.next(CONTACT_DT, compressed, 0, 0), 0);
+    // not yet compressed
+    Assert.assertEquals(CONTACT_DT,
+            adaptiveTimeStep.next(MAX_DT, AdaptiveTimeStep.MAX_SUPERPOSITION * MIN_RADIO, 0, 0), 0);
+  }
+
+  @Test
+  public void contactsCapDtTest() {
+    final double superposition = AdaptiveTimeStep.MAX_SUPERPOSITION * MIN_RADIO / 2;
+    Assert.assertEquals(CONTACT_DT, adaptiveTimeStep.next(MAX_DT, superposition, 0, 0), 0);
+    Assert.assertEquals(CONTACT_DT, adaptiveTimeStep.next(CONTACT_DT, superposition, 0, 0), 0);
+    // below the cap, it grows as usual
+    final double dt = CONTACT_DT / 2;
+    Assert.assertEquals(AdaptiveTimeStep.MAX_GROWTH * dt, adaptiveTimeStep.next(dt, superposition, 0, 0), 0);
+    // without contacts, only the max dt caps it
+    Assert.assertEquals(MAX_DT, adaptiveTimeStep.next(MAX_DT, 0, 0, 0), 0);
+  }
+
+  @Test
+  public void approachingContactsCapDtTest() {
+    final double maxSuperpositionChange = AdaptiveTimeStep.MAX_SUPERPOSITION_CHANGE * MIN_RADIO;
+    final double superposition = AdaptiveTimeStep.MAX_SUPERPOSITION * MIN_RADIO / 2;
+    final double normalVelocity = maxSuperpositionChange / (CONTACT_DT / 4);
+    Assert.assertEquals(CONTACT_DT / 4, adaptiveTimeStep.next(CONTACT_DT, superposition, normalVelocity, 0), 0);
+    // particles that may get in contact head on
+    final double speed = maxSuperpositionChange / (2 * MAX_DT / 8);
+    Assert.assertEquals(MAX_DT / 8, adaptiveTimeStep.next(MAX_DT, 0, 0, speed), 0);
+    // never below the min dt
+    Assert.assertEquals(MIN_DT, adaptiveTimeStep.next(MAX_DT, 0, 0, Double.MAX_VALUE), 0);
+  }
+
+  @Test
+  public void dtGrowsSlowlyButIsReducedAtOnceTest() {
+    double dt = MIN_DT;
+    int nSteps = 0;
+    while (dt < MAX_DT) {
+      final double nextDt = adaptiveTimeStep.next(dt, 0, 0, 0);
+      Assert.assertEquals(Math.min(MAX_DT, AdaptiveTimeStep.MAX_GROWTH * dt), nextDt, 0);
+      dt = nextDt;
+      nSteps ++;
+    }
+    // from the min to the max dt takes log(MAX_DT / MIN_DT) / log(MAX_GROWTH) steps
+    Assert.assertEquals(Math.ceil(Math.log(MAX_DT / MIN_DT) / Math.log(AdaptiveTimeStep.MAX_GROWTH)), nSteps, 1);
+    Assert.assertEquals(MAX_DT, adaptiveTimeStep.next(dt, 0, 0, 0), 0);
+
+    // a contact takes the contact dt at once
+    Assert.assertEquals(CONTACT_DT,
+            adaptiveTimeStep.next(dt, AdaptiveTimeStep.MAX_SUPERPOSITION * MIN_RADIO / 2, 0, 0), 0);
+  }
+
+  @Test
+  public void stepEndsAtNextEventTest() {
+    final double dt = CONTACT_DT;
+    final double currentTime = 0.123;
+    final double nextEventTime = currentTime + dt / 3;
+    Assert.assertEquals(nextEventTime - currentTime, adaptiveTimeStep.until(dt, currentTime, nextEventTime), 0);
+    // gaps a bit longer than the min dt are taken too
+    final double closeEventTime = currentTime + 2 * MIN_DT;
+    Assert.assertEquals(closeEventTime - currentTime, adaptiveTimeStep.until(dt, currentTime, closeEventTime), 0);
+    // event is after the step
+    Assert.assertEquals(dt, adaptiveTimeStep.until(dt, currentTime, currentTime + 2 * dt), 0);
+  }
+
+  @Test
+  public void eventCloserThanMinDtIsIgnoredTest() {
+    final double dt = CONTACT_DT;
+    final double currentTime = 0.123;
+    Assert.assertEquals(dt, adaptiveTimeStep.until(dt, currentTime, currentTime + MIN_DT / 2), 0);
+    Assert.assertEquals(dt, adaptiveTimeStep.until(dt, currentTime, currentTime), 0);
+    // already stepped over
+    Assert.assertEquals(dt, adaptiveTimeStep.until(dt, currentTime, currentTime - dt), 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void contactDtBelowMinDtIsRejectedTest() {
+    new AdaptiveTimeStep(MIN_DT, MAX_DT, MIN_DT / 2, MIN_RADIO);
+  }
+}
@@ -19,4 +19,13 @@ public interface NeighboursFinder {
    * each point collides
    */
   Map<Particle,Collection<Particle>> run(Collection<Particle> particles);
+
+  /**
+   * Discards any state kept between runs, so as the next run's result depends only on its given particles,
+   * as if it were the first one.
+   * <p>
+   * Stateless implementations do not need to override it.
+   */
+  default void reset() {
+  }
 }
@@ -37,4 +37,12 @@ public interface NumericIntegrationMethod<K> {
    */
   void evolveSystem(final K systemData,
                     final double dt);
+
+  /**
+   * Releases any resource used to evolve the system, e.g., its threads.
+   * <p>
+   * Implementations that use no such resources do not need to override it.
+   */
+  default void shutdown() {
+  }
 }
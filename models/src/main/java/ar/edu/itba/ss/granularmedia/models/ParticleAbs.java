@@ -10,10 +10,6 @@ import org.immutables.value.Value;
         get = ""
 )
 public abstract class ParticleAbs {
-  private static double maxPressure = 0;
-
-  private static long idGen = 1;
-
   private double normalForce = 0;
 
   private boolean hasFlowedOut = false;
@@ -26,10 +22,10 @@ public abstract class ParticleAbs {
     this.hasFlowedOut = hasFlowedOut;
   }
 
-  @Value.Default
-  public long id() {
-    return idGen ++;
-  }
+  /**
+   * @return the particle's id, which is given by whoever creates it, and is unique within its system
+   */
+  public abstract long id();
 
   @Value.Default
   @Value.Auxiliary
@@ -90,13 +86,13 @@ public abstract class ParticleAbs {
     return 0;
   }
 
-  @Value.Derived
-  @Value.Auxiliary
+  // derived values are only computed if they are asked for, as most particles are only seen by their position
+  @Value.Lazy
   public double speed() {
-    return Math.sqrt(Math.pow(vx(), 2) + Math.pow(vy(), 2));
+    return Math.sqrt(vx() * vx() + vy() * vy());
   }
 
-  private double normalForce() {
+  public double normalForce() {
     return normalForce;
   }
 
@@ -108,8 +104,7 @@ public abstract class ParticleAbs {
     this.normalForce += normalForce;
   }
 
-  @Value.Derived
-  @Value.Auxiliary
+  @Value.Lazy
   double perimeter() {
     return 2 * Math.PI * radio();
   }
@@ -118,33 +113,22 @@ public abstract class ParticleAbs {
     return normalForce() / perimeter();
   }
 
-  @Value.Check
-  void checkSpeed() {
-    if (speed() < 0) {
-      throw new IllegalArgumentException("Speed (velocity's module) should be >= 0");
-    }
-  }
-
-  @Value.Derived
-  @Value.Auxiliary
+  @Value.Lazy
   public double kineticEnergy() {
-    return 1/2.0d * mass() * Math.pow(speed(), 2);
+    return 1/2.0d * mass() * (speed() * speed());
   }
 
-  @Value.Derived
-  @Value.Auxiliary
+  @Value.Lazy
   public Vector2D r0() {
     return Vector2D.builder(x(), y()).build();
   }
 
-  @Value.Derived
-  @Value.Auxiliary
+  @Value.Lazy
   public Vector2D r1() {
     return Vector2D.builder(vx(), vy()).build();
   }
 
-  @Value.Derived
-  @Value.Auxiliary
+  @Value.Lazy
   public Vector2D r2() {
     if (Double.valueOf(0).equals(mass())) {
       return Vector2D.builder(0, 0).build();
@@ -152,14 +136,6 @@ public abstract class ParticleAbs {
     return Vector2D.builder(forceX()/mass(), forceY()/mass()).build();
   }
 
-  public static double getMaxPressure() {
-    return maxPressure;
-  }
-
-  public static void setMaxPressure(final double maxPressure) {
-    ParticleAbs.maxPressure = maxPressure;
-  }
-
   public Particle respawn(final double x, final double y, final double forceX, final double forceY) {
     return Particle.builder(x, y).id(id())
             .radio(radio()).mass(mass()).forceX(forceX).forceY(forceY).type(type())
@@ -167,13 +143,14 @@ public abstract class ParticleAbs {
   }
 
   public Particle update(final Vector2DAbs uP, final Vector2DAbs uV, final Vector2DAbs uF) {
-    if (pressure() > maxPressure) {
-      maxPressure = pressure();
-    }
+    return update(uP.x(), uP.y(), uV.x(), uV.y(), uF.x(), uF.y());
+  }
 
-    final Particle particle = Particle.builder(uP.x(), uP.y())
-            .vx(uV.x()).vy(uV.y())
-            .forceX(uF.x()).forceY(uF.y())
+  public Particle update(final double x, final double y, final double vx, final double vy,
+                         final double forceX, final double forceY) {
+    final Particle particle = Particle.builder(x, y)
+            .vx(vx).vy(vy)
+            .forceX(forceX).forceY(forceY)
             .id(id())
             .type(type())
             .isColliding(isColliding())
@@ -20,7 +20,7 @@ public abstract class Vector2DAbs {
   @Value.Derived
   @Value.Auxiliary
   public double norm2() {
-    return Math.sqrt(Math.pow(x(),2) + Math.pow(y(),2));
+    return Math.sqrt(x() * x() + y() * y());
   }
 
   public Vector2D add(final Vector2DAbs v) {
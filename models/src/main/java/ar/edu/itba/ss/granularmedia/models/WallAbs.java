@@ -14,6 +14,12 @@ import static ar.edu.itba.ss.granularmedia.models.ParticleType.*;
 public abstract class WallAbs {
   private static final Double ZERO = 0d;
 
+  /**
+   * @return the wall's id, which is unique within its system, and is {@code > 0};
+   * its start and end particles' ids are derived from it, as {@code -(2 * id - 1)} and {@code -2 * id}
+   */
+  public abstract long id();
+
   // c1
   @Value.Default
   @Builder.Parameter
@@ -118,6 +124,9 @@ public abstract class WallAbs {
 
   @Value.Check
   void checkParameters() {
+    if (id() <= 0) {
+      throw new IllegalArgumentException("Wall's id should be > 0");
+    }
     if (ZERO.equals(length() + width())) {
       throw new IllegalArgumentException("You should not create a Wall without " +
               "width neither length");
@@ -126,14 +135,14 @@ public abstract class WallAbs {
 
   @Value.Derived
   public Particle start() {
-    final Particle.Builder builder = Particle.builder(xFrom(), yFrom()).mass(Double.MAX_VALUE);
+    final Particle.Builder builder = Particle.builder(xFrom(), yFrom()).id(-(2 * id() - 1)).mass(Double.MAX_VALUE);
     chooseType(builder);
     return builder.build();
   }
 
   @Value.Derived
   public Particle end() {
-    final Particle.Builder builder = Particle.builder(xTo(), yTo()).mass(Double.MAX_VALUE);
+    final Particle.Builder builder = Particle.builder(xTo(), yTo()).id(-2 * id()).mass(Double.MAX_VALUE);
     chooseType(builder);
     return builder.build();
   }
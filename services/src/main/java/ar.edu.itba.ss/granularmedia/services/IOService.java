@@ -4,11 +4,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 import static ar.edu.itba.ss.granularmedia.services.IOService.ExitStatus.*;
@@ -19,9 +23,15 @@ public class IOService {
   private static final String CHECK_LOGS = "\nCheck logs for more info.";
   private static final String ABORTING = CHECK_LOGS + "\nAborting...";
   private static final String NO_DETAIL = "[NO DETAIL GIVEN]";
+  private static final String OPTION_PREFIX = "--";
 
-  private static final Map<Path, BufferedWriter> outputFiles = new HashMap<>();
-  private static final Map<Path, Stream<String>> inputFiles = new HashMap<>();
+  // files may be opened, written and closed from several threads, e.g., by simulations running at the same time;
+  // each file is owned by whoever opened it, so a file cannot be opened again until it is closed
+  private static final Map<Path, BufferedWriter> outputFiles = new ConcurrentHashMap<>();
+  private static final Map<Path, Stream<String>> inputFiles = new ConcurrentHashMap<>();
+
+  // set when the program is aborted by this service, so as shutdown hooks know it is not an external request
+  private static volatile boolean exiting = false;
 
   // Exit Codes
   public enum ExitStatus {
@@ -37,7 +47,9 @@ public class IOService {
             "[FAIL] - Invalid argument. Try 'help' for more information." + ABORTING),
     NOT_A_FILE(-5, "", ""),
     UNEXPECTED_ERROR(-6, "", ""),
-    BAD_FILE_FORMAT(-7, "", ""),
+    BAD_FILE_FORMAT(-7,
+            "[FAIL] - Bad file format: {}",
+            "[FAIL] - Bad file format." + ABORTING),
     MKDIRS_FAILED(-8,
             "[FAIL] - Create directory operation failed while trying to create dir: '{}'",
             "[FAIL] - Create directory operation failed." + ABORTING),
@@ -118,6 +130,53 @@ public class IOService {
     return pathToFile;
   }
 
+  /**
+   * Creates the specified {@code fileName.fileExtension} file at the specified {@code fileFolder} destination folder,
+   * as {@link #createOutputFile(String, String, String)} does, and opens it for writing raw bytes.
+   * <P>
+   * The returned stream is not managed by this service, so it should be closed by the caller.
+   * @param fileFolder folder to save the new file
+   * @param fileName file's name without extension
+   * @param fileExtension file's extension
+   * @return a buffered stream to write the created file
+   */
+  public static OutputStream createOutputStream(final String fileFolder,
+                                                final String fileName,
+                                                final String fileExtension) {
+    final Path pathToFile = IOService.createFile(fileFolder, fileName + fileExtension);
+    try {
+      return new BufferedOutputStream(new FileOutputStream(pathToFile.toFile()));
+    } catch (final IOException e) {
+      exit(COULD_NOT_OPEN_OUTPUT_FILE, pathToFile);
+      // should never reach here
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Creates the specified {@code fileName.fileExtension} file at the specified {@code fileFolder} destination folder,
+   * as {@link #createOutputFile(String, String, String)} does, and opens a channel to write it at any position.
+   * <P>
+   * The returned channel is not managed by this service, so it should be closed by the caller.
+   * @param fileFolder folder to save the new file
+   * @param fileName file's name without extension
+   * @param fileExtension file's extension
+   * @return a channel to write the created file
+   */
+  public static FileChannel createOutputChannel(final String fileFolder,
+                                                final String fileName,
+                                                final String fileExtension) {
+    final Path pathToFile = IOService.createFile(fileFolder, fileName + fileExtension);
+    try {
+      return FileChannel.open(pathToFile,
+              StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    } catch (final IOException e) {
+      exit(COULD_NOT_OPEN_OUTPUT_FILE, pathToFile);
+      // should never reach here
+      throw new IllegalStateException(e);
+    }
+  }
+
   private static Path createFile(final String destFolder, final String file) {
     return createFile(destFolder, file, null);
   }
@@ -139,8 +198,8 @@ public class IOService {
    */
   private static Path createFile(final String destFolder, final String file, final String data) {
     final File dataFolder = new File(destFolder);
-    // tries to make directory
-    if (Files.notExists(Paths.get(destFolder)) && !dataFolder.mkdirs()) {
+    // tries to make directory; it may have just been made by another thread
+    if (Files.notExists(Paths.get(destFolder)) && !dataFolder.mkdirs() && !dataFolder.isDirectory()) {
       exit(MKDIRS_FAILED, destFolder);
     }
 
@@ -180,22 +239,33 @@ public class IOService {
   public static void exit(final ExitStatus exitStatus, final Object errorSource) {
     final Object reason = errorSource == null ? NO_DETAIL : errorSource;
     writeFailMessages(exitStatus, reason);
+    exiting = true;
     System.exit(exitStatus.getCode());
   }
 
+  /**
+   * @return true if the program is being aborted with {@link #exit(ExitStatus, Object)}; false otherwise
+   */
+  public static boolean isExiting() {
+    return exiting;
+  }
+
   /**
    * Opens the given {@code pathToFile} file with the given {@code append} mode.
    *
    * @param pathToFile path to the file to be opened for writing
    * @param append mode of write - true for append ; false otherwise
-   * @return true if the file could be successfully opened ; false otherwise
+   * @return true if the file could be successfully opened ; false otherwise, e.g., if it is already opened
    */
   public static boolean openOutputFile(final Path pathToFile, final boolean append) {
     try {
       final BufferedWriter writer = new BufferedWriter(new FileWriter(pathToFile.toFile(), append));
 
       // if here, there was no exception
-      outputFiles.put(pathToFile, writer);
+      if (outputFiles.putIfAbsent(pathToFile, writer) != null) {
+        writer.close();
+        return false; // file already opened by someone else
+      }
 
       return true; // file opened
     } catch (final IOException e) {
@@ -230,6 +300,27 @@ public class IOService {
     }
   }
 
+  /**
+   * Maps the whole given {@code pathToFile} file into memory, so as it can be read without copying it first.
+   * The mapping is valid even after this method returns, and it is released when the returned buffer is collected.
+   * <P>
+   * Exits if the file could not be mapped, or if it is bigger than 2GB.
+   * @param pathToFile path to the input file to be mapped
+   * @return a read-only buffer with the file's content
+   */
+  public static MappedByteBuffer mapInputFile(final Path pathToFile) {
+    try (final FileChannel channel = FileChannel.open(pathToFile)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        exit(BAD_FILE_FORMAT, "file too big to be mapped: " + pathToFile);
+      }
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } catch (final IOException e) {
+      exit(COULD_NOT_OPEN_INPUT_FILE, pathToFile);
+      // should never reach here
+      throw new IllegalStateException(e);
+    }
+  }
+
   /**
    * Closes the given {@code pathToFile} file
    * @param pathToFile path to the input file to be closed
@@ -277,6 +368,22 @@ public class IOService {
     }
   }
 
+  /**
+   * Parses as long the given string.
+   * Exits if an error is encountered
+   * @param s string to be parsed
+   * @param varErrMsg variable name to be displayed if an error raise
+   * @return the parsed long
+   */
+  public static long parseAsLong(final String s, final String varErrMsg) {
+    try {
+      return Long.parseLong(s);
+    } catch (NumberFormatException e) {
+      exit(NUMBER_EXPECTED, new Object[] { varErrMsg, e });
+      return -1;
+    }
+  }
+
   /**
    * Parses as boolean the given string.
    * Exits if an error is encountered
@@ -294,12 +401,49 @@ public class IOService {
   }
 
 
+  /**
+   * Parses the optional arguments of the given {@code args}, starting at the {@code firstOptionalIndex} index.
+   * <P>
+   * Optional arguments should be given as {@code --name value} pairs. If an option is followed by another option,
+   * or if it is the last argument, it is considered a flag, and its value is set as {@code "true"}.
+   * <P>
+   * Exits if an argument that is not an option is found where an option was expected
+   * @param args program's arguments
+   * @param firstOptionalIndex index of the first optional argument
+   * @return a map containing as key each option's name (without the leading {@code --}) and its value
+   */
+  public static Map<String, String> parseOptionalArguments(final String[] args, final int firstOptionalIndex) {
+    final Map<String, String> options = new HashMap<>();
+    int i = firstOptionalIndex;
+    while (i < args.length) {
+      final String arg = args[i];
+      if (!isOption(arg)) {
+        exit(BAD_ARGUMENT, arg);
+        // should never reach here
+        throw new IllegalStateException();
+      }
+      final String name = arg.substring(OPTION_PREFIX.length());
+      if (i + 1 < args.length && !isOption(args[i + 1])) {
+        options.put(name, args[i + 1]);
+        i += 2;
+      } else {
+        options.put(name, Boolean.TRUE.toString());
+        i ++;
+      }
+    }
+    return options;
+  }
+
   public static Stream<String> readLines(final Path filePath) {
     return inputFiles.get(filePath);
   }
 
   // private methods
 
+  private static boolean isOption(final String arg) {
+    return arg.startsWith(OPTION_PREFIX) && arg.length() > OPTION_PREFIX.length();
+  }
+
   private static void writeFailMessages(final ExitStatus exitStatus, final Object reason) {
     LOGGER.error(exitStatus.getLoggerMsg(), reason);
     System.out.println(exitStatus.getMsg());
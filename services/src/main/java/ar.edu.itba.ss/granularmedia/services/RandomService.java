@@ -1,14 +1,37 @@
 package ar.edu.itba.ss.granularmedia.services;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
+/**
+ * Seeded stream of pseudo-aleatory values; the same seed always gives the same values.
+ * <P>
+ * A stream is not thread-safe: each simulation of a sweep uses its own stream, created from its own seed.
+ */
 public class RandomService {
-  private static final Random random = new Random();
+  private final long seed;
+  private final SplittableRandom random;
 
   /**
-   * Don't let anyone instantiate this class.
+   * Creates a stream with a randomly chosen seed, which can be got with {@link #seed()} so as to reproduce it
    */
-  private RandomService() {}
+  public RandomService() {
+    this(new SplittableRandom().nextLong());
+  }
+
+  /**
+   * @param seed the stream's seed
+   */
+  public RandomService(final long seed) {
+    this.seed = seed;
+    this.random = new SplittableRandom(seed);
+  }
+
+  /**
+   * @return the seed this stream was created with
+   */
+  public long seed() {
+    return seed;
+  }
 
   /**
    * Gets a new pseudo-aleatory random double between the min (inclusive) and max (exclusive) values
@@ -16,7 +39,7 @@ public class RandomService {
    * @param max the max value
    * @return a value between the min (inclusive) and the max (exclusive) value
    */
-  public static double randomDouble(final double min, final double max) {
+  public double randomDouble(final double min, final double max) {
     return min + random.nextDouble() * (max-min);
   }
 }
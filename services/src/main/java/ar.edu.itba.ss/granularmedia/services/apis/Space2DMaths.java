@@ -4,7 +4,6 @@ import ar.edu.itba.ss.granularmedia.models.Particle;
 import ar.edu.itba.ss.granularmedia.models.Vector2D;
 import ar.edu.itba.ss.granularmedia.models.Wall;
 
-import static java.lang.Math.pow;
 import static java.lang.Math.sqrt;
 
 // Class and methods package-private as they will be used only within the 'services' package
@@ -17,7 +16,9 @@ public abstract class Space2DMaths {
   }
 
   public static double distanceBetween(final Particle p1, final Particle p2) {
-    return sqrt(pow(p2.x() - p1.x(), 2) + pow(p2.y() - p1.y(), 2)) - p1.radio() - p2.radio();
+    final double dx = p2.x() - p1.x();
+    final double dy = p2.y() - p1.y();
+    return sqrt(dx * dx + dy * dy) - p1.radio() - p2.radio();
   }
 
   public static double superpositionBetween(final Particle particle, final Particle neighbour) {
@@ -2,10 +2,10 @@ package ar.edu.itba.ss.granularmedia.services.factories;
 
 import ar.edu.itba.ss.granularmedia.models.Particle;
 import ar.edu.itba.ss.granularmedia.services.RandomService;
-import ar.edu.itba.ss.granularmedia.services.apis.Space2DMaths;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public class ParticleFactory {
   private static ParticleFactory particleFactory;
@@ -21,18 +21,39 @@ public class ParticleFactory {
   }
 
   /**
-   * Creates a new particle with the given x and y position, and all default attributes
+   * Creates a new particle with the given x and y position, and all default attributes, to be used as a bound of
+   * the generated particles' positions; as it is not a system's particle, its id is 0
    * @param x x position
    * @param y y position
    * @return the created particle
    */
   public Particle create(final double x, final double y) {
-    return Particle.builder(x, y).build();
+    return Particle.builder(x, y).id(0).build();
+  }
+
+  /**
+   * Generates random positioned particles based on the given parameters, with a randomly seeded stream.
+   * @see #randomPoints(Particle, Particle, double[], double, boolean, int, RandomService)
+   */
+  public Set<Particle> randomPoints(final Particle leftBottomParticle,
+                             final Particle rightTopParticle,
+                             final double[] radios,
+                             final double mass,
+                             final boolean overlapAllowed,
+                             final int maxTries) {
+    return randomPoints(leftBottomParticle, rightTopParticle, radios, mass, overlapAllowed, maxTries,
+            new RandomService());
   }
 
   /**
    * Generates random positioned particles based on the given parameters.
    * Collisions are accepted or not depending the given parameter.
+   * <P>
+   * Particles' ids are given in generation order, starting at 1, so as the same stream's seed
+   * always generates the same particles.
+   * <P>
+   * Already generated particles are kept at a spatial hash, so each new particle is only checked against the ones
+   * around it.
    *
    * @param leftBottomParticle the particle at that corner of the area to where the particles must belong ; null if random
    * @param rightTopParticle the particle at that corner of the area to where the particles must belong ; null if random
@@ -41,6 +62,7 @@ public class ParticleFactory {
    * @param overlapAllowed whether the particles can collide or not
    * @param maxTries how many times the function will try to generate non-colliding particles - consecutively.
    *                 If this limit is reached, the set as is at that moment is returned
+   * @param random stream from where particles' positions are taken
    * @return a set containing the generated particles - could have less than amount particles
    * due to having reach maxTries without being able to find an empty place where the particle does not collide
    */
@@ -49,7 +71,31 @@ public class ParticleFactory {
                              final double[] radios,
                              final double mass,
                              final boolean overlapAllowed,
-                             final int maxTries) {
+                             final int maxTries,
+                             final RandomService random) {
+    final Set<Particle> generatedParticles = new HashSet<>(radios.length);
+    // for sure that each particle is not at the set, as each one has its own id
+    randomPoints(leftBottomParticle, rightTopParticle, radios, mass, overlapAllowed, maxTries, random,
+            generatedParticles::add);
+    return generatedParticles;
+  }
+
+  /**
+   * Generates random positioned particles as {@link #randomPoints(Particle, Particle, double[], double, boolean, int,
+   * RandomService)} does, but hands each one to the given consumer as soon as it is generated, instead of keeping
+   * all of them, so as huge amounts of particles can be streamed, e.g., to a file.
+   *
+   * @param sink consumer of each generated particle, in generation order
+   * @return how many particles were generated - could be less than {@code radios.length}
+   */
+  public int randomPoints(final Particle leftBottomParticle,
+                          final Particle rightTopParticle,
+                          final double[] radios,
+                          final double mass,
+                          final boolean overlapAllowed,
+                          final int maxTries,
+                          final RandomService random,
+                          final Consumer<Particle> sink) {
     final double minX, minY, maxX, maxY;
     if (leftBottomParticle != null) {
       minX = leftBottomParticle.x();
@@ -67,11 +113,13 @@ public class ParticleFactory {
 
     final int amount = radios.length;
 
-    final Set<Particle> generatedParticles = new HashSet<>(amount);
-
+    final PlacedParticlesGrid placedParticles = overlapAllowed ? null :
+            new PlacedParticlesGrid(minX, maxX, minY, maxY, maxRadio(radios), amount);
 
+    int nGenerated = 0;
     for (final double radio : radios) {
       final Particle currentParticle;
+      final long id = nGenerated + 1;
 
       // adapt max and min (x,y) so that current particle does not overlaps the silo's border
       final double currMinX, currMaxX, currMinY, currMaxY;
@@ -81,20 +129,81 @@ public class ParticleFactory {
       currMaxY = maxY - radio;
 
       if (overlapAllowed) {
-        currentParticle = createOverlappedParticle(currMinX, currMaxX, currMinY, currMaxY, radio, mass);
+        currentParticle = createOverlappedParticle(currMinX, currMaxX, currMinY, currMaxY, radio, mass, id, random);
       } else {
         currentParticle = createNonOverlappedParticle(
-                currMinX, currMaxX, currMinY, currMaxY, radio, mass, generatedParticles, maxTries);
+                currMinX, currMaxX, currMinY, currMaxY, radio, mass, id, placedParticles, maxTries, random);
         if (currentParticle == null) { // could not generate a new particle that does not overlap
-          return generatedParticles;
+          return nGenerated;
         }
+        placedParticles.add(currentParticle);
       }
 
-      // for sure that the particle is not at the set; if it were, it would have overlapped with itself
-      generatedParticles.add(currentParticle);
+      sink.accept(currentParticle);
+      nGenerated ++;
     }
 
-    return generatedParticles;
+    return nGenerated;
+  }
+
+  /**
+   * Generates particles settled into a dense packing, resting on the bottom of the given area and on each other,
+   * as if they were dropped one by one into it and let come to rest.
+   * <P>
+   * Particles are placed by sequential deposition: each one is dropped from a random x position, and rolls over the
+   * ones already placed until the bottom, a side or two particles around it hold it.
+   * No dynamics are integrated, so this is much faster than letting randomly placed particles fall.
+   * The bottom is considered closed all along the area.
+   * <P>
+   * Particles' ids are given in deposition order, starting at 1, so as the same stream's seed
+   * always generates the same particles.
+   *
+   * @param leftBottomParticle the particle at that corner of the area where the particles are settled
+   * @param rightTopParticle the particle at that corner of the area where the particles are settled
+   * @param radios the particle's radios, in deposition order
+   * @param mass the particle's mass
+   * @param random stream from where the particles' drop positions are taken
+   * @return a set containing the settled particles - could have less than {@code radios.length} particles
+   * if the area is filled up before all of them are settled
+   */
+  public Set<Particle> settledPoints(final Particle leftBottomParticle,
+                                     final Particle rightTopParticle,
+                                     final double[] radios,
+                                     final double mass,
+                                     final RandomService random) {
+    final Set<Particle> settledParticles = new HashSet<>(radios.length);
+    settledPoints(leftBottomParticle, rightTopParticle, radios, mass, random, settledParticles::add);
+    return settledParticles;
+  }
+
+  /**
+   * Generates settled particles as {@link #settledPoints(Particle, Particle, double[], double, RandomService)} does,
+   * but hands each one to the given consumer as soon as it is settled, instead of keeping all of them.
+   *
+   * @param sink consumer of each settled particle, in deposition order
+   * @return how many particles were settled - could be less than {@code radios.length}
+   */
+  public int settledPoints(final Particle leftBottomParticle,
+                           final Particle rightTopParticle,
+                           final double[] radios,
+                           final double mass,
+                           final RandomService random,
+                           final Consumer<Particle> sink) {
+    final SequentialDeposition deposition = new SequentialDeposition(
+            leftBottomParticle.x(), rightTopParticle.x(), leftBottomParticle.y(), rightTopParticle.y(),
+            maxRadio(radios), radios.length, random);
+
+    int nSettled = 0;
+    for (final double radio : radios) {
+      final Particle particle = deposition.deposit(particleRadio(radio), mass, nSettled + 1);
+      if (particle == null) { // the area is full
+        return nSettled;
+      }
+      sink.accept(particle);
+      nSettled ++;
+    }
+
+    return nSettled;
   }
 
   /**
@@ -105,12 +214,15 @@ public class ParticleFactory {
    * @param maxY max y position the particle can have
    * @param radio particle's radio
    * @param mass particle's mass
+   * @param id particle's id
+   * @param random stream from where the particle's position is taken
    * @return the new particle
    */
   private Particle createOverlappedParticle(final double minX, final double maxX,
                                             final double minY, final double maxY,
-                                            final double radio, final double mass) {
-    return createParticle(minX, maxX, minY, maxY, radio, mass);
+                                            final double radio, final double mass,
+                                            final long id, final RandomService random) {
+    return createParticle(minX, maxX, minY, maxY, radio, mass, id, random);
   }
 
   /**
@@ -126,28 +238,35 @@ public class ParticleFactory {
    * @param maxY max y position the particle can have
    * @param radio particle's radio
    * @param mass particle's mass
-   * @param generatedParticles all the previous generated particles
+   * @param id particle's id
+   * @param placedParticles all the previous generated particles
    * @param maxTries how many times it will try to create a new non-overlapping particle
+   * @param random stream from where the particle's position is taken
    * @return the created particle if it does not overlap with any of the previous generated ones and
    * {@code maxTries}; null otherwise
    */
   private Particle createNonOverlappedParticle(final double minX, final double maxX,
                                                final double minY, final double maxY,
                                                final double radio, final double mass,
-                                               final Set<Particle> generatedParticles,
-                                               final int maxTries) {
+                                               final long id,
+                                               final PlacedParticlesGrid placedParticles,
+                                               final int maxTries,
+                                               final RandomService random) {
+    final double pR = particleRadio(radio);
     int tries = 0;
-    Particle createdParticle;
+    double pX, pY;
+    // the particle is only created once its position is accepted
     do {
-      createdParticle = createParticle(minX, maxX, minY, maxY, radio, mass);
+      pX = random.randomDouble(minX, maxX);
+      pY = random.randomDouble(minY, maxY);
 
       tries++;
       if (tries > maxTries) {
         return null;
       }
-    } while (overlaps(createdParticle, generatedParticles));
+    } while (placedParticles.overlaps(pX, pY, pR));
 
-    return createdParticle;
+    return Particle.builder(pX, pY).id(id).radio(pR).mass(mass).build();
   }
 
   /**
@@ -158,32 +277,30 @@ public class ParticleFactory {
    * @param maxY max y
    * @param radio radio
    * @param mass particle's mass
+   * @param id particle's id
+   * @param random stream from where the particle's position is taken
    * @return the new particle created with the specified criteria & parameters
    */
   private Particle createParticle(final double minX, final double maxX,
                                 final double minY, final double maxY,
-                                final double radio, final double mass) {
-    double pX = RandomService.randomDouble(minX, maxX);
-    double pY = RandomService.randomDouble(minY, maxY);
-    double pR = radio <= -1 ? 0 : radio;
+                                final double radio, final double mass,
+                                final long id, final RandomService random) {
+    double pX = random.randomDouble(minX, maxX);
+    double pY = random.randomDouble(minY, maxY);
+    double pR = particleRadio(radio);
 
-    return Particle.builder(pX, pY).radio(pR).mass(mass).build();
+    return Particle.builder(pX, pY).id(id).radio(pR).mass(mass).build();
   }
 
-  /**
-   * Checks whether the just created particles overlaps all the previous created particles
-   * @param currentParticle the just created particle
-   * @param generatedParticles all previous particles
-   * @return true if current particle overlaps any of the previous created ones; false otherwise
-   */
-  private boolean overlaps(final Particle currentParticle,
-                           final Set<Particle> generatedParticles) {
-    for (Particle each : generatedParticles) {
-      if (Space2DMaths.distanceBetween(each, currentParticle) < 0) {
-        return true;
-      }
-    }
+  private static double particleRadio(final double radio) {
+    return radio <= -1 ? 0 : radio;
+  }
 
-    return false;
+  private static double maxRadio(final double[] radios) {
+    double maxRadio = 0;
+    for (final double radio : radios) {
+      maxRadio = Math.max(maxRadio, particleRadio(radio));
+    }
+    return maxRadio;
   }
 }
@@ -0,0 +1,167 @@
+package ar.edu.itba.ss.granularmedia.services.factories;
+
+import ar.edu.itba.ss.granularmedia.models.Particle;
+
+import java.util.Arrays;
+
+/**
+ * Spatial hash of the particles already placed within an area, so as checking whether a new particle overlaps any of
+ * them only looks at the particles of the cells around it.
+ * <P>
+ * Cells are at least as big as the biggest diameter, so overlapping particles are always at the same or at adjacent
+ * cells. Each cell keeps its particles as a linked list over primitive arrays, so placing a particle does not allocate.
+ */
+/* package-private */ class PlacedParticlesGrid {
+  // cells per particle, at most; cells are enlarged beyond it, so as sparse areas do not waste memory
+  private static final int MAX_CELLS_PER_PARTICLE = 4;
+  /* package-private */ static final int EMPTY = -1;
+
+  private final double minX;
+  private final double minY;
+  private final double cellSize;
+  private final int nCellsX;
+  private final int nCellsY;
+
+  // first particle of each cell; next particle of the same cell for each particle
+  private final int[] cellsFirst;
+  private final int[] next;
+  private final double[] xs;
+  private final double[] ys;
+  private final double[] radios;
+  private int nParticles;
+
+  /**
+   * @param minX area's min x
+   * @param maxX area's max x
+   * @param minY area's min y
+   * @param maxY area's max y
+   * @param maxRadio biggest radio of the particles to be placed
+   * @param capacity how many particles can be placed, at most
+   */
+  /* package-private */ PlacedParticlesGrid(final double minX, final double maxX,
+                                            final double minY, final double maxY,
+                                            final double maxRadio, final int capacity) {
+    this.minX = minX;
+    this.minY = minY;
+    final double width = maxX - minX;
+    final double height = maxY - minY;
+    final long maxCells = Math.max(1L, (long) capacity * MAX_CELLS_PER_PARTICLE);
+    if (!(maxRadio > 0) || !Double.isFinite(width) || !Double.isFinite(height)
+            || !(width > 0) || !(height > 0)) {
+      // a single cell, i.e., all placed particles are checked
+      this.cellSize = Double.POSITIVE_INFINITY;
+      this.nCellsX = this.nCellsY = 1;
+    } else {
+      // enlarged until the cells fit
+      double cellSize = 2 * maxRadio;
+      while ((double) nCells(width, cellSize) * nCells(height, cellSize) > maxCells) {
+        cellSize *= 2;
+      }
+      this.cellSize = cellSize;
+      this.nCellsX = (int) nCells(width, cellSize);
+      this.nCellsY = (int) nCells(height, cellSize);
+    }
+
+    this.cellsFirst = new int[nCellsX * nCellsY];
+    Arrays.fill(cellsFirst, EMPTY);
+    this.next = new int[capacity];
+    this.xs = new double[capacity];
+    this.ys = new double[capacity];
+    this.radios = new double[capacity];
+  }
+
+  /* package-private */ void add(final Particle particle) {
+    final int i = nParticles++;
+    xs[i] = particle.x();
+    ys[i] = particle.y();
+    radios[i] = particle.radio();
+    final int cell = cellY(particle.y()) * nCellsX + cellX(particle.x());
+    next[i] = cellsFirst[cell];
+    cellsFirst[cell] = i;
+  }
+
+  /**
+   * @return true if a particle at the given position, with the given radio, overlaps any of the placed particles,
+   * as {@link ar.edu.itba.ss.granularmedia.services.apis.Space2DMaths#distanceBetween(Particle, Particle)}
+   * considers it; false otherwise
+   */
+  /* package-private */ boolean overlaps(final double x, final double y, final double radio) {
+    final int cellX = cellX(x);
+    final int cellY = cellY(y);
+    for (int cy = Math.max(0, cellY - 1); cy <= Math.min(nCellsY - 1, cellY + 1); cy++) {
+      for (int cx = Math.max(0, cellX - 1); cx <= Math.min(nCellsX - 1, cellX + 1); cx++) {
+        for (int i = cellsFirst[cy * nCellsX + cx]; i != EMPTY; i = next[i]) {
+          final double dx = x - xs[i];
+          final double dy = y - ys[i];
+          if (Math.sqrt(dx * dx + dy * dy) - radios[i] - radio < 0) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  // cells' traversal, for those which need more than overlaps
+  /* package-private */ int nCellsX() {
+    return nCellsX;
+  }
+
+  /* package-private */ int nCellsY() {
+    return nCellsY;
+  }
+
+  /**
+   * @return cells' side; it is at least the biggest diameter
+   */
+  /* package-private */ double cellSize() {
+    return cellSize;
+  }
+
+  /**
+   * @return the first placed particle of the given cell; {@link #EMPTY} if there is none
+   */
+  /* package-private */ int first(final int cellX, final int cellY) {
+    return cellsFirst[cellY * nCellsX + cellX];
+  }
+
+  /**
+   * @return the next placed particle of the same cell as the given one; {@link #EMPTY} if there is none
+   */
+  /* package-private */ int next(final int i) {
+    return next[i];
+  }
+
+  /* package-private */ double x(final int i) {
+    return xs[i];
+  }
+
+  /* package-private */ double y(final int i) {
+    return ys[i];
+  }
+
+  /* package-private */ double radio(final int i) {
+    return radios[i];
+  }
+
+  /* package-private */ int cellX(final double x) {
+    return cell(x - minX, nCellsX);
+  }
+
+  /* package-private */ int cellY(final double y) {
+    return cell(y - minY, nCellsY);
+  }
+
+  private int cell(final double offset, final int nCells) {
+    // positions out of the area are kept at its border cells; overlapping particles are still adjacent
+    final double cell = Math.floor(offset / cellSize);
+    if (!(cell >= 0)) {
+      return 0;
+    }
+    return cell >= nCells ? nCells - 1 : (int) cell;
+  }
+
+  private static long nCells(final double length, final double cellSize) {
+    return Math.max(1L, (long) Math.ceil(length / cellSize));
+  }
+}
@@ -0,0 +1,274 @@
+package ar.edu.itba.ss.granularmedia.services.factories;
+
+import ar.edu.itba.ss.granularmedia.models.Particle;
+import ar.edu.itba.ss.granularmedia.services.RandomService;
+
+import static ar.edu.itba.ss.granularmedia.services.factories.PlacedParticlesGrid.EMPTY;
+
+/**
+ * Sequential deposition of disks into a box with a floor and two side walls, as if each one were dropped from the top
+ * after the previous ones have come to rest.
+ * <P>
+ * Each disk is dropped from a random x position until it touches the floor or a placed disk. If it lands on a disk,
+ * it rolls over it, keeping in touch with it, until it either:
+ * <ul>
+ *   <li>reaches the floor or a side wall, where it rests;</li>
+ *   <li>touches a second disk at the other side, which cradles it, so it rests;</li>
+ *   <li>touches a second disk at the same side, over which it goes on rolling;</li>
+ *   <li>reaches the height of the disk's center, from where it falls again.</li>
+ * </ul>
+ * This way, each disk rests on the floor, on a disk and a wall, or on two disks around it, so the packing is dense and
+ * stable under gravity, without integrating any dynamics.
+ * <P>
+ * Disks are placed slightly apart from the ones they touch, so as they never overlap because of rounding errors.
+ */
+/* package-private */ class SequentialDeposition {
+  // relative to the sum of the radios of two touching disks
+  private static final double CONTACT_GAP = 1e-9;
+  // angles closer than it are considered the same, so as a disk does not touch again the disk it has just left
+  private static final double ANGLE_EPSILON = 1e-12;
+  // a disk rolls over at most these many disks; if it does not rest by then, it is left where it is
+  private static final int MAX_ROLLS = 1000;
+
+  private static final int NO_SUPPORT = -1;
+  private static final int RIGHT = 1;
+  private static final int LEFT = -1;
+
+  private final double minX;
+  private final double maxX;
+  private final double minY;
+  private final double maxY;
+  private final PlacedParticlesGrid placedParticles;
+  private final RandomService random;
+
+  // the disk being deposited
+  private double x;
+  private double y;
+  private double radio;
+
+  // highest placed disk's top, so as disks are dropped from just above it
+  private double pileTop;
+
+  /**
+   * @param minX left wall's x
+   * @param maxX right wall's x
+   * @param minY floor's y
+   * @param maxY box's top y; disks that would rest above it are not placed
+   * @param maxRadio biggest radio of the disks to be placed
+   * @param capacity how many disks can be placed, at most
+   * @param random stream from where the drop positions are taken
+   */
+  /* package-private */ SequentialDeposition(final double minX, final double maxX,
+                                             final double minY, final double maxY,
+                                             final double maxRadio, final int capacity,
+                                             final RandomService random) {
+    this.minX = minX;
+    this.maxX = maxX;
+    this.minY = minY;
+    this.maxY = maxY;
+    this.placedParticles = new PlacedParticlesGrid(minX, maxX, minY, maxY, maxRadio, capacity);
+    this.random = random;
+    this.pileTop = minY;
+  }
+
+  /**
+   * Drops a disk with the given radio, and places it where it rests
+   * @return the placed particle; null if it would rest above the box's top
+   */
+  /* package-private */ Particle deposit(final double radio, final double mass, final long id) {
+    this.radio = radio;
+    this.x = random.randomDouble(minX + radio, maxX - radio);
+    this.y = pileTop + radio;
+
+    int support = drop(NO_SUPPORT);
+    int rolls = 0;
+    while (support != NO_SUPPORT && rolls < MAX_ROLLS) {
+      support = roll(support);
+      rolls ++;
+    }
+
+    if (y + radio > maxY) {
+      return null;
+    }
+    final Particle particle = Particle.builder(x, y).id(id).radio(radio).mass(mass).build();
+    placedParticles.add(particle);
+    pileTop = Math.max(pileTop, y + radio);
+    return particle;
+  }
+
+  /**
+   * Lowers the disk from its current position until it touches the floor or a placed disk
+   * @param leaving the placed disk the disk has just left, if any, which it cannot land on again
+   * @return the placed disk it has landed on; {@link #NO_SUPPORT} if it has landed on the floor
+   */
+  private int drop(final int leaving) {
+    double restY = minY + radio;
+    int support = NO_SUPPORT;
+
+    final double cellSize = placedParticles.cellSize();
+    final int fromCellX = placedParticles.cellX(x) - 1;
+    final int toCellX = placedParticles.cellX(x) + 1;
+    for (int cellY = placedParticles.cellY(y); cellY >= 0; cellY--) {
+      // disks of this row and below cannot be touched higher than this
+      if (restY >= minY + (cellY + 2) * cellSize) {
+        break;
+      }
+      for (int cellX = Math.max(0, fromCellX); cellX <= Math.min(placedParticles.nCellsX() - 1, toCellX); cellX++) {
+        for (int i = placedParticles.first(cellX, cellY); i != EMPTY; i = placedParticles.next(i)) {
+          if (i == leaving) {
+            continue;
+          }
+          final double contactDistance = contactDistance(i);
+          final double dx = x - placedParticles.x(i);
+          if (Math.abs(dx) >= contactDistance) {
+            continue;
+          }
+          final double contactY = placedParticles.y(i) + Math.sqrt(contactDistance * contactDistance - dx * dx);
+          if (contactY <= y && contactY > restY) {
+            restY = contactY;
+            support = i;
+          }
+        }
+      }
+    }
+
+    y = restY;
+    return support;
+  }
+
+  /**
+   * Rolls the disk over the given placed disk, until it rests or it leaves it
+   * @return the placed disk it goes on rolling over, or it has fallen on; {@link #NO_SUPPORT} if it rests
+   */
+  private int roll(final int support) {
+    final double supportX = placedParticles.x(support);
+    final double supportY = placedParticles.y(support);
+    final double distance = contactDistance(support);
+    final int direction = x > supportX ? RIGHT : x < supportX ? LEFT : randomDirection();
+    final double fromAngle = Math.atan2(y - supportY, x - supportX);
+
+    // horizontal angle, where the disk leaves the support and falls again
+    double toAngle = direction == RIGHT ? 0 : Math.PI;
+    int rest = EventType.FALL;
+    int touched = NO_SUPPORT;
+
+    // side wall
+    final double wallX = direction == RIGHT ? maxX - radio : minX + radio;
+    if (direction == RIGHT ? x >= wallX : x <= wallX) {
+      return NO_SUPPORT;
+    }
+    final double wallCos = (wallX - supportX) / distance;
+    if (wallCos >= -1 && wallCos <= 1) {
+      final double wallAngle = Math.acos(wallCos);
+      if (isAhead(wallAngle, fromAngle, toAngle, direction)) {
+        toAngle = wallAngle;
+        rest = EventType.REST;
+      }
+    }
+
+    // floor
+    final double floorSin = (minY + radio - supportY) / distance;
+    if (floorSin >= 0 && floorSin <= 1) {
+      final double floorAngle = direction == RIGHT ? Math.asin(floorSin) : Math.PI - Math.asin(floorSin);
+      if (isAhead(floorAngle, fromAngle, toAngle, direction)) {
+        toAngle = floorAngle;
+        rest = EventType.REST;
+      }
+    }
+
+    // other placed disks
+    final int supportCellX = placedParticles.cellX(supportX);
+    final int supportCellY = placedParticles.cellY(supportY);
+    for (int cellY = Math.max(0, supportCellY - 2);
+         cellY <= Math.min(placedParticles.nCellsY() - 1, supportCellY + 2); cellY++) {
+      for (int cellX = Math.max(0, supportCellX - 2);
+           cellX <= Math.min(placedParticles.nCellsX() - 1, supportCellX + 2); cellX++) {
+        for (int i = placedParticles.first(cellX, cellY); i != EMPTY; i = placedParticles.next(i)) {
+          if (i == support) {
+            continue;
+          }
+          final double touchAngle = touchAngle(supportX, supportY, distance, i, fromAngle, toAngle, direction);
+          if (!Double.isNaN(touchAngle)) {
+            toAngle = touchAngle;
+            rest = EventType.TOUCH;
+            touched = i;
+          }
+        }
+      }
+    }
+
+    // kept within the box, which rounding errors could leave by a tiny bit when it rests on the floor or a wall
+    x = Math.min(Math.max(supportX + distance * Math.cos(toAngle), minX + radio), maxX - radio);
+    y = Math.max(supportY + distance * Math.sin(toAngle), minY + radio);
+    switch (rest) {
+      case EventType.REST:
+        return NO_SUPPORT;
+      case EventType.TOUCH:
+        // cradled by a disk at the other side; otherwise, it goes on rolling over the touched one
+        final boolean cradled = direction == RIGHT ? placedParticles.x(touched) > x : placedParticles.x(touched) < x;
+        return cradled ? NO_SUPPORT : touched;
+      default:
+        return drop(support);
+    }
+  }
+
+  /**
+   * @return the first angle ahead of {@code fromAngle}, and not beyond {@code toAngle}, at which the disk rolling over
+   * the support touches the given placed disk; NaN if it does not touch it
+   */
+  private double touchAngle(final double supportX, final double supportY, final double distance,
+                            final int i, final double fromAngle, final double toAngle, final int direction) {
+    // intersections between the circle the disk's center rolls along and the one of the centers touching disk i
+    final double touchDistance = contactDistance(i);
+    final double dx = placedParticles.x(i) - supportX;
+    final double dy = placedParticles.y(i) - supportY;
+    final double centersDistance = Math.sqrt(dx * dx + dy * dy);
+    if (centersDistance == 0 || centersDistance > distance + touchDistance
+            || centersDistance < Math.abs(distance - touchDistance)) {
+      return Double.NaN;
+    }
+    final double a = (distance * distance - touchDistance * touchDistance + centersDistance * centersDistance)
+            / (2 * centersDistance);
+    final double h = Math.sqrt(Math.max(0, distance * distance - a * a));
+    final double baseX = a * dx / centersDistance;
+    final double baseY = a * dy / centersDistance;
+    final double angle1 = Math.atan2(baseY + h * dx / centersDistance, baseX - h * dy / centersDistance);
+    final double angle2 = Math.atan2(baseY - h * dx / centersDistance, baseX + h * dy / centersDistance);
+
+    double touchAngle = Double.NaN;
+    if (isAhead(angle1, fromAngle, toAngle, direction)) {
+      touchAngle = angle1;
+    }
+    if (isAhead(angle2, fromAngle, Double.isNaN(touchAngle) ? toAngle : touchAngle, direction)) {
+      touchAngle = angle2;
+    }
+    return touchAngle;
+  }
+
+  /**
+   * @return true if the given angle is reached before {@code toAngle} when rolling from {@code fromAngle}
+   * in the given direction; false otherwise
+   */
+  private static boolean isAhead(final double angle, final double fromAngle, final double toAngle,
+                                 final int direction) {
+    if (direction == RIGHT) { // angles decrease
+      return angle < fromAngle - ANGLE_EPSILON && angle >= toAngle;
+    }
+    return angle > fromAngle + ANGLE_EPSILON && angle <= toAngle;
+  }
+
+  private double contactDistance(final int i) {
+    return (radio + placedParticles.radio(i)) * (1 + CONTACT_GAP);
+  }
+
+  private int randomDirection() {
+    return random.randomDouble(0, 1) < 0.5 ? LEFT : RIGHT;
+  }
+
+  // what ends a roll
+  private static final class EventType {
+    private static final int FALL = 0;
+    private static final int REST = 1;
+    private static final int TOUCH = 2;
+  }
+}
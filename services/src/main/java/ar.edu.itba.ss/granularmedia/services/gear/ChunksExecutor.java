@@ -0,0 +1,137 @@
+package ar.edu.itba.ss.granularmedia.services.gear;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a task over the range {@code [0, size)} split into {@link #nChunks()} contiguous chunks,
+ * one per thread, and waits until all of them have finished.
+ * <P>
+ * Chunk {@code c} always covers indexes before the ones of chunk {@code c + 1}, so results merged in chunk order
+ * keep the same order as a serial run over the whole range.
+ * The first chunk is run by the calling thread; the rest of them by daemon threads owned by this executor.
+ */
+public final class ChunksExecutor {
+  /**
+   * Executor that runs the whole range on the calling thread
+   */
+  public static final ChunksExecutor SERIAL = new ChunksExecutor(1);
+
+  private final int nChunks;
+  private final ExecutorService executorService;
+
+  /**
+   * @param nThreads number of threads to be used, including the calling one
+   * @throws IllegalArgumentException if {@code nThreads} is {@code < 1}
+   */
+  public ChunksExecutor(final int nThreads) {
+    if (nThreads < 1) {
+      throw new IllegalArgumentException("Number of threads should be >= 1");
+    }
+    this.nChunks = nThreads;
+    this.executorService = nThreads == 1 ? null : Executors.newFixedThreadPool(nThreads - 1, runnable -> {
+      final Thread thread = new Thread(runnable, "chunks-executor");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public int nChunks() {
+    return nChunks;
+  }
+
+  /**
+   * Runs the given {@code task} over all the chunks of {@code [0, size)}
+   * @param size size of the range to be split
+   * @param task the task to be run over each chunk
+   */
+  public void run(final int size, final ChunkTask task) {
+    if (executorService == null) {
+      task.run(0, 0, size);
+      return;
+    }
+
+    final List<Future<?>> futures = new ArrayList<>(nChunks - 1);
+    for (int chunk = 1; chunk < nChunks; chunk++) {
+      final int cChunk = chunk;
+      futures.add(executorService.submit(() -> task.run(cChunk, from(cChunk, size), from(cChunk + 1, size))));
+    }
+    Throwable failure = null;
+    try {
+      task.run(0, 0, from(1, size));
+    } catch (final Throwable e) {
+      failure = e;
+    }
+    // other chunks write to shared state, so all of them should have finished before returning or throwing;
+    // the first failure, in chunk order, is thrown
+    for (final Future<?> future : futures) {
+      final Throwable chunkFailure = await(future);
+      if (failure == null) {
+        failure = chunkFailure;
+      } else if (chunkFailure != null) {
+        failure.addSuppressed(chunkFailure);
+      }
+    }
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    }
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+    if (failure != null) {
+      throw new IllegalStateException(failure);
+    }
+  }
+
+  /**
+   * Stops this executor's threads. Further runs are not allowed
+   */
+  public void shutdown() {
+    if (executorService != null) {
+      executorService.shutdown();
+    }
+  }
+
+  /**
+   * Waits until the given future has finished, even if the calling thread is interrupted meanwhile, in which case
+   * its interrupted status is set again afterwards
+   * @return the future's failure; null if it has succeeded
+   */
+  private static Throwable await(final Future<?> future) {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          future.get();
+          return null;
+        } catch (final InterruptedException e) {
+          interrupted = true;
+        } catch (final ExecutionException e) {
+          return e.getCause();
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private int from(final int chunk, final int size) {
+    return (int) ((long) size * chunk / nChunks);
+  }
+
+  @FunctionalInterface
+  public interface ChunkTask {
+    /**
+     * @param chunk index of the chunk being run, from 0 to {@code nChunks() - 1}
+     * @param from first index of the chunk (inclusive)
+     * @param to last index of the chunk (exclusive)
+     */
+    void run(int chunk, int from, int to);
+  }
+}
@@ -0,0 +1,97 @@
+package ar.edu.itba.ss.granularmedia.services.gear;
+
+/**
+ * Gear Predictor Corrector steps of order 5, unrolled.
+ * <P>
+ * Derivative values are read from and written to the given {@link GearStateStore} as primitive values,
+ * and constants are taken from the given {@link GearCoefficients}, so none of the steps allocates any object.
+ */
+/* package-private */ final class Gear5Kernel {
+  /* package-private */ static final int ORDER = 5;
+
+  private Gear5Kernel() {
+  }
+
+  /*
+    Prediction step, with c_k = (Δt)^k / k! (i.e., the Pascal triangle of the Taylor expansion)
+
+    r^(p)_0 = r_0 + r_1 c_1 + r_2 c_2 + r_3 c_3 + r_4 c_4 + r_5 c_5
+    r^(p)_1 = r_1 + r_2 c_1 + r_3 c_2 + r_4 c_3 + r_5 c_4
+    r^(p)_2 = r_2 + r_3 c_1 + r_4 c_2 + r_5 c_3
+    r^(p)_3 = r_3 + r_4 c_1 + r_5 c_2
+    r^(p)_4 = r_4 + r_5 c_1
+    r^(p)_5 = r_5
+   */
+  /* package-private */ static void predict(final GearStateStore store,
+                                            final GearCoefficients coefficients,
+                                            final int slot) {
+    final double c1 = coefficients.predicted(1);
+    final double c2 = coefficients.predicted(2);
+    final double c3 = coefficients.predicted(3);
+    final double c4 = coefficients.predicted(4);
+    final double c5 = coefficients.predicted(5);
+
+    final double x0 = store.rX(slot, 0);
+    final double x1 = store.rX(slot, 1);
+    final double x2 = store.rX(slot, 2);
+    final double x3 = store.rX(slot, 3);
+    final double x4 = store.rX(slot, 4);
+    final double x5 = store.rX(slot, 5);
+
+    final double y0 = store.rY(slot, 0);
+    final double y1 = store.rY(slot, 1);
+    final double y2 = store.rY(slot, 2);
+    final double y3 = store.rY(slot, 3);
+    final double y4 = store.rY(slot, 4);
+    final double y5 = store.rY(slot, 5);
+
+    store.predictedR(slot, 0,
+            x0 + x1 * c1 + x2 * c2 + x3 * c3 + x4 * c4 + x5 * c5,
+            y0 + y1 * c1 + y2 * c2 + y3 * c3 + y4 * c4 + y5 * c5);
+    store.predictedR(slot, 1,
+            x1 + x2 * c1 + x3 * c2 + x4 * c3 + x5 * c4,
+            y1 + y2 * c1 + y3 * c2 + y4 * c3 + y5 * c4);
+    store.predictedR(slot, 2,
+            x2 + x3 * c1 + x4 * c2 + x5 * c3,
+            y2 + y3 * c1 + y4 * c2 + y5 * c3);
+    store.predictedR(slot, 3,
+            x3 + x4 * c1 + x5 * c2,
+            y3 + y4 * c1 + y5 * c2);
+    store.predictedR(slot, 4,
+            x4 + x5 * c1,
+            y4 + y5 * c1);
+    store.predictedR(slot, 5, x5, y5);
+  }
+
+  /**
+   * Saves the delta R2 of the particle at the given {@code slot}, given its evaluated acceleration
+   */
+  /* package-private */ static void evaluate(final GearStateStore store,
+                                             final GearCoefficients coefficients,
+                                             final int slot,
+                                             final double accelerationX,
+                                             final double accelerationY) {
+    final double constant = coefficients.evaluate();
+    store.deltaR2(slot,
+            (accelerationX - store.predictedRX(slot, 2)) * constant,
+            (accelerationY - store.predictedRY(slot, 2)) * constant);
+  }
+
+  /*
+    Fix step, with f_k = alpha_k * k! / (Δt)^k
+
+    r_k = r^(p)_k + f_k * ΔR2
+   */
+  /* package-private */ static void fix(final GearStateStore store,
+                                        final GearCoefficients coefficients,
+                                        final int slot) {
+    final double deltaR2X = store.deltaR2X(slot);
+    final double deltaR2Y = store.deltaR2Y(slot);
+    for (int order = 0; order <= ORDER; order++) {
+      final double constant = coefficients.fix(order);
+      store.r(slot, order,
+              store.predictedRX(slot, order) + deltaR2X * constant,
+              store.predictedRY(slot, order) + deltaR2Y * constant);
+    }
+  }
+}
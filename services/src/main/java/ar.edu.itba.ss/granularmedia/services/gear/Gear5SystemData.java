@@ -6,6 +6,9 @@ import java.util.Collection;
 
 /**
  * Data manager of a Gear Predictor Corrector numeric integration method of order 5
+ * <P>
+ * It can also keep only the particles' position, velocity and acceleration, so as to be integrated with much less
+ * memory by {@link VelocityVerlet}, with the same system's logic.
  */
 public abstract class Gear5SystemData extends GearSystemData {
   /**
@@ -13,9 +16,9 @@ public abstract class Gear5SystemData extends GearSystemData {
    */
   private static final int ORDER = 5;
   /**
-   * Size of the memory structures to be used when using this data manager
+   * Size of the memory structures to be used when using this data manager with {@link GearPredictorCorrector}
    */
-  private static final int S_VECTORS = ORDER + 1;
+  public static final int S_VECTORS = ORDER + 1;
 
   private static final long[] factorial = new long[S_VECTORS];
   private static final double[] alpha = new double[S_VECTORS];
@@ -35,17 +38,22 @@ public abstract class Gear5SystemData extends GearSystemData {
   }
 
   public Gear5SystemData(final Collection<Particle> particles) {
-    super(particles);
+    this(particles, S_VECTORS);
   }
 
-  @Override
-  protected int order() {
-    return ORDER;
+  /**
+   * @param particles system's particles
+   * @param sVectors number of derivative values kept for each particle: {@link #S_VECTORS} to be integrated by
+   *                 {@link GearPredictorCorrector}, or {@link VelocityVerlet#S_VECTORS} to be integrated by
+   *                 {@link VelocityVerlet} only
+   */
+  public Gear5SystemData(final Collection<Particle> particles, final int sVectors) {
+    super(particles, checkSVectors(sVectors));
   }
 
   @Override
-  protected int sVectors() {
-    return S_VECTORS;
+  protected int order() {
+    return ORDER;
   }
 
   @Override
@@ -57,4 +65,12 @@ public abstract class Gear5SystemData extends GearSystemData {
   /* package-private */ double alpha(final int n) {
     return alpha[n];
   }
+
+  private static int checkSVectors(final int sVectors) {
+    if (sVectors < VelocityVerlet.S_VECTORS || sVectors > S_VECTORS) {
+      throw new IllegalArgumentException("Expected between " + VelocityVerlet.S_VECTORS + " and " + S_VECTORS
+              + " derivative values; found " + sVectors);
+    }
+    return sVectors;
+  }
 }
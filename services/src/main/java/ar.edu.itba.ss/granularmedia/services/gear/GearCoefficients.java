@@ -0,0 +1,64 @@
+package ar.edu.itba.ss.granularmedia.services.gear;
+
+/**
+ * Gear Predictor Corrector constants for a given order and dt.
+ * <P>
+ * Constants are recalculated only when a different dt is used, so as a fixed dt integration
+ * calculates them only once.
+ */
+/* package-private */ final class GearCoefficients {
+  private final int order;
+  private final double[] alpha;
+  private final long[] factorial;
+
+  // (Δt)^(term) / term!, for each term of the prediction step
+  private final double[] predicted;
+  // alpha(order) * order! / (Δt)^(order), for each order of the fix step
+  private final double[] fix;
+  // (Δt)^2 / 2!, for the evaluate step
+  private double evaluate;
+
+  private double dt;
+
+  /* package-private */ GearCoefficients(final int order, final double[] alpha, final long[] factorial) {
+    this.order = order;
+    this.alpha = alpha;
+    this.factorial = factorial;
+    this.predicted = new double[order + 1];
+    this.fix = new double[order + 1];
+    this.dt = Double.NaN; // so as the first update always calculates the constants
+  }
+
+  /**
+   * Updates the constants so as they correspond to the given {@code dt}, if they do not already
+   * @param dt the dt to be used
+   * @return this instance
+   */
+  /* package-private */ GearCoefficients update(final double dt) {
+    if (dt == this.dt) {
+      return this;
+    }
+    double dtPow = 1; // (Δt)^(0)
+    for (int k = 0; k <= order; k++) {
+      predicted[k] = dtPow / factorial[k];
+      fix[k] = alpha[k] * factorial[k] / dtPow;
+      dtPow *= dt;
+    }
+    // taken from Gear Predictor Corrector theory
+    evaluate = dt * dt / factorial[2];
+    this.dt = dt;
+    return this;
+  }
+
+  /* package-private */ double predicted(final int term) {
+    return predicted[term];
+  }
+
+  /* package-private */ double evaluate() {
+    return evaluate;
+  }
+
+  /* package-private */ double fix(final int order) {
+    return fix[order];
+  }
+}
@@ -4,69 +4,114 @@ import ar.edu.itba.ss.granularmedia.interfaces.NumericIntegrationMethod;
 import ar.edu.itba.ss.granularmedia.models.Particle;
 import ar.edu.itba.ss.granularmedia.models.Vector2D;
 
-import java.util.Collection;
-import java.util.HashSet;
 
+/**
+ * Gear Predictor Corrector numeric integration method.
+ * <P>
+ * Particles are split in chunks of slots that are predicted, evaluated and fixed in parallel by a
+ * {@link ChunksExecutor}. With only one thread, the whole system is integrated serially at the calling thread.
+ * <P>
+ * Ballistic particles, i.e., those the system's data reports that only feel a constant acceleration, are advanced
+ * in closed form, without being evaluated, once their higher derivatives have been dropped.
+ */
 public class GearPredictorCorrector<K extends GearSystemData> implements NumericIntegrationMethod<K> {
-  @Override
-  public void evolveSystem(final GearSystemData systemData, final double dt) {
-    final int nParticles = systemData.nParticles();
+  private final ChunksExecutor executor;
 
-    systemData.prePredict();
+  public GearPredictorCorrector() {
+    this(1);
+  }
 
-    final Collection<Particle> predictedSystemParticles = new HashSet<>(nParticles);
+  /**
+   * @param nThreads number of threads used to integrate the system
+   */
+  public GearPredictorCorrector(final int nThreads) {
+    this.executor = nThreads == 1 ? ChunksExecutor.SERIAL : new ChunksExecutor(nThreads);
+  }
 
-    systemData.particles().forEach(cParticle -> {
-      // predict
-      predict(systemData, dt, cParticle);
+  @Override
+  public void evolveSystem(final GearSystemData systemData, final double dt) {
+    if (systemData.sVectors() <= systemData.order()) {
+      throw new IllegalArgumentException("Gear predictor corrector of order " + systemData.order() + " needs "
+              + (systemData.order() + 1) + " derivative values; system's data keeps " + systemData.sVectors());
+    }
+    final GearCoefficients coefficients = systemData.coefficients(dt);
+    final boolean isOrder5 = systemData.order() == Gear5Kernel.ORDER;
+    final double c1 = coefficients.predicted(1);
+    final double c2 = coefficients.predicted(2);
+    systemData.executor(executor);
 
-      // update the currently predicting values
-      final Particle cPredictedSystemParticle = predictedSystemParticle(systemData, cParticle);
-      predictedSystemParticles.add(cPredictedSystemParticle);
+    systemData.prePredict();
 
-      // inform that this particle has just been predicted
-      systemData.predicted(cPredictedSystemParticle);
+    executor.run(systemData.nActiveParticles(), (chunk, from, to) -> {
+      for (int slot = from ; slot < to ; slot++) {
+        // predict
+        if (systemData.isBallistic(slot)) {
+          systemData.predictBallistic(slot, c1, c2);
+        } else if (isOrder5) {
+          Gear5Kernel.predict(systemData.store(), coefficients, slot);
+        } else {
+          predict(systemData, coefficients, slot);
+        }
+
+        // update the currently predicting values
+        final Particle cPredictedSystemParticle = systemData.predictedSystemParticle(slot);
+        systemData.predictedParticle(slot, cPredictedSystemParticle);
+
+        // inform that this particle has just been predicted
+        systemData.predicted(cPredictedSystemParticle, chunk);
+      }
     });
 
-    // save all the new predicted values
-    systemData.predictedParticles(predictedSystemParticles);
-
     systemData.postPredict();
 
-
-    final Collection<Particle> updatedSystemParticles = new HashSet<>(nParticles);
-
     // fix and evaluate, all at once
     systemData.preEvaluate();
-
-    systemData.predictedParticles().forEach(cParticle -> {
-      evaluate(systemData, dt, cParticle);
-
-      // fix cycle
-      systemData.preFix();
-      fix(systemData, dt, cParticle);
-      // update system's particle
-      final Particle cUpdatedSystemParticle = updatedParticle(systemData, cParticle);
-      updatedSystemParticles.add(cUpdatedSystemParticle);
-
-      // inform that this particle has just been predicted
-      systemData.fixed(cUpdatedSystemParticle);
+    systemData.preFix();
+
+    // particles may have been removed after prediction; inactive ones are neither predicted nor fixed
+    executor.run(systemData.nActiveParticles(), (chunk, from, to) -> {
+      for (int slot = from ; slot < to ; slot++) {
+        final Particle cParticle = systemData.predictedParticle(slot);
+        if (systemData.isBallistic(slot) && systemData.isPredictedBallistic(slot)) {
+          // only a constant acceleration acts on it, which it has been predicted with, so it is neither evaluated
+          // nor corrected
+          systemData.fixBallistic(slot);
+        } else {
+          evaluate(systemData, coefficients, slot, cParticle);
+
+          // fix cycle
+          if (isOrder5) {
+            Gear5Kernel.fix(systemData.store(), coefficients, slot);
+          } else {
+            fix(systemData, coefficients, slot);
+          }
+
+          if (systemData.isBallistic(slot)) {
+            // it has just left its contacts, so it is corrected once, and then it is advanced in closed form
+            systemData.dropHigherDerivatives(slot);
+          }
+        }
+        // update system's particle, which is only built if it is asked for
+        systemData.particleChanged(slot);
+
+        // inform that this particle has just been fixed
+        systemData.fixed(slot, chunk);
+      }
     });
 
-    // update all system's particles
-    systemData.particles(updatedSystemParticles);
     systemData.postFix();
   }
 
-  // private methods
-
-  private Particle predictedSystemParticle(final GearSystemData systemData, final Particle cSystemParticle) {
-    final Vector2D uP = systemData.getPredictedR(cSystemParticle, 0);
-    final Vector2D uV = systemData.getPredictedR(cSystemParticle, 1);
-    final Vector2D uF = systemData.getPredictedR(cSystemParticle, 2).times(cSystemParticle.mass());
-    return cSystemParticle.update(uP, uV, uF);
+  /**
+   * Stops the threads used to integrate the system, if any
+   */
+  @Override
+  public void shutdown() {
+    executor.shutdown();
   }
 
+  // package-private methods, shared with the multi-rate integration method
+
   /*
     Bear in mind this predictor formulas of the GearPredictorCorrector prediction step:
 
@@ -83,13 +128,15 @@ public class GearPredictorCorrector<K extends GearSystemData> implements Numeric
     cTermConstantValue := (Δt)^(term) / term!
     ---------------------------------------------------------
    */
-  private void predict(final GearSystemData systemData, final double dt, final Particle particle) {
+  /* package-private */ static void predict(final GearSystemData systemData, final GearCoefficients coefficients,
+                                            final int slot) {
     // we are going to update the values of all the orders of the derivative for this particle
     // we start iterating over all orders, from the first to the last
     for (int cDerivativeOrder = 0; cDerivativeOrder <= systemData.order() ; cDerivativeOrder++) {
       // initialize the new derivative value;
       // we are going to calculate this new value by adding one term at a time
-      Vector2D cUpdatedDerivativeValue = Vector2D.builder(0,0).build();
+      double cUpdatedDerivativeX = 0;
+      double cUpdatedDerivativeY = 0;
       // watching the gear's prediction step, we can notice that for each new derivative value,
       // the number of terms required is the total order - the current derivative order + 1
       final int nRequiredTerms = systemData.order() - cDerivativeOrder + 1;
@@ -101,50 +148,42 @@ public class GearPredictorCorrector<K extends GearSystemData> implements Numeric
         // again, this can be checked by comparing with any of the derivative formulas
         // at the gear's prediction step
         final int cTermDerivativeOrder = cDerivativeOrder + cTerm;
-        // we get the value of the derivative with the above order of the current particle
-        final Vector2D cTermDerivativeValue = systemData.getR(particle, cTermDerivativeOrder);
         // we get the constant value that goes along with the current term being calculated
-        final double cTermConstantValue = systemData.getPredictedConstantTerm(cTerm, dt);
-        // we append this term to all the previous terms
-        cUpdatedDerivativeValue = cUpdatedDerivativeValue.add(cTermDerivativeValue.times(cTermConstantValue));
+        final double cTermConstantValue = coefficients.predicted(cTerm);
+        // we append this term, i.e., the value of the derivative with the above order of the current particle
+        // times the constant value, to all the previous terms
+        cUpdatedDerivativeX += systemData.getRX(slot, cTermDerivativeOrder) * cTermConstantValue;
+        cUpdatedDerivativeY += systemData.getRY(slot, cTermDerivativeOrder) * cTermConstantValue;
         // we go on with the next term, if any
       }
 
       // we've just calculated the updated value of the derivative with order cDerivativeOrder
       // let's update its value on the system's data
-      systemData.setPredictedR(particle, cDerivativeOrder, cUpdatedDerivativeValue);
+      systemData.setPredictedR(slot, cDerivativeOrder, cUpdatedDerivativeX, cUpdatedDerivativeY);
 
       // well, we are done with this order of derivation, let's go on with the next one, if any
     }
   }
 
-  private void evaluate(final GearSystemData systemData,
-                        final double dt,
-                        final Particle particle) {
-    final Vector2D accelerationWithPredictedVariables = systemData.getForceWithPredicted(particle).div(particle.mass());
-    // '2' value taken from Gear Predictor Corrector theory
-    final Vector2D predictedAcceleration = systemData.getPredictedR(particle, 2);
-    final Vector2D deltaAcceleration = accelerationWithPredictedVariables.sub(predictedAcceleration);
-    final double constant = systemData.getEvaluateConstant(dt);
-    final Vector2D deltaR2 = deltaAcceleration.times(constant);
-    systemData.setDeltaR2(particle, deltaR2);
+  /* package-private */ static void evaluate(final GearSystemData systemData,
+                                             final GearCoefficients coefficients,
+                                             final int slot,
+                                             final Particle particle) {
+    final Vector2D forceWithPredictedVariables = systemData.getForceWithPredicted(particle);
+    final double mass = particle.mass();
+    Gear5Kernel.evaluate(systemData.store(), coefficients, slot,
+            forceWithPredictedVariables.x() / mass, forceWithPredictedVariables.y() / mass);
   }
 
-  private void fix(final GearSystemData systemData, final double dt, final Particle particle) {
+  /* package-private */ static void fix(final GearSystemData systemData, final GearCoefficients coefficients,
+                                        final int slot) {
+    final double deltaR2X = systemData.getDeltaR2X(slot);
+    final double deltaR2Y = systemData.getDeltaR2Y(slot);
     for(int cDerivativeOrder = 0; cDerivativeOrder <= systemData.order() ; cDerivativeOrder++) {
-      final Vector2D predictedR = systemData.getPredictedR(particle, cDerivativeOrder);
-      final Vector2D deltaR2 = systemData.getDeltaR2(particle);
-      final double constant = systemData.getFixConstantOrder(cDerivativeOrder, dt);
-      final Vector2D secondTerm = deltaR2.times(constant);
-      final Vector2D updatedR = predictedR.add(secondTerm);
-      systemData.setR(particle, cDerivativeOrder, updatedR);
+      final double constant = coefficients.fix(cDerivativeOrder);
+      final double updatedRX = systemData.getPredictedRX(slot, cDerivativeOrder) + deltaR2X * constant;
+      final double updatedRY = systemData.getPredictedRY(slot, cDerivativeOrder) + deltaR2Y * constant;
+      systemData.setR(slot, cDerivativeOrder, updatedRX, updatedRY);
     }
   }
-
-  private Particle updatedParticle(final GearSystemData systemData, final Particle particle) {
-    final Vector2D uPosition = systemData.getR(particle, 0);
-    final Vector2D uVelocity = systemData.getR(particle, 1);
-    final Vector2D uForce = systemData.getR(particle, 2).times(particle.mass());
-    return particle.update(uPosition, uVelocity, uForce);
-  }
 }
@@ -0,0 +1,427 @@
+package ar.edu.itba.ss.granularmedia.services.gear;
+
+import ar.edu.itba.ss.granularmedia.models.Particle;
+
+import java.util.Arrays;
+
+/**
+ * Structure of arrays saving the Gear Predictor Corrector state of each of the system's particles.
+ * <P>
+ * Each particle takes a slot, from 0 to {@code size() - 1}. Derivative values of the particle at the slot {@code s}
+ * are saved at the positions {@code s * sVectors + derivativeOrder} of the {@code xs} and {@code ys} arrays,
+ * so accessing them needs neither hashing nor boxing nor new objects.
+ * <P>
+ * Each slot also keeps its particle, which is null if it has changed since it was last built, and its predicted one.
+ * <P>
+ * When a particle is removed, the particle at the last slot is moved to the freed slot (swap-remove),
+ * so slots are always dense. Hence, slots should not be kept while particles are being removed.
+ * <P>
+ * Each slot also keeps its multi-rate state: the particle's time step level, how many steps have elapsed since its
+ * R values were fixed, whether it should be fixed at the next step whatever its level, and whether it is fixed at the
+ * current one. Particles that are integrated at every step are always at level 0, with no elapsed steps.
+ */
+/* package-private */ class GearStateStore {
+  private static final int MIN_CAPACITY = 16;
+  /* package-private */ static final int NO_SLOT = -1;
+
+  private final int sVectors;
+  private final SlotsById slotsById;
+
+  private int size;
+
+  private Particle[] particles;
+  private Particle[] predictedParticles;
+
+  private double[] rXs;
+  private double[] rYs;
+  private double[] predictedRXs;
+  private double[] predictedRYs;
+  private double[] deltaR2Xs;
+  private double[] deltaR2Ys;
+
+  private int[] levels;
+  private int[] elapsedSteps;
+  private boolean[] syncRequested;
+  private boolean[] due;
+
+  /* package-private */ GearStateStore(final int sVectors, final int initialCapacity) {
+    this.sVectors = sVectors;
+    this.size = 0;
+    final int capacity = Math.max(MIN_CAPACITY, initialCapacity);
+    this.slotsById = new SlotsById(capacity);
+    this.particles = new Particle[capacity];
+    this.predictedParticles = new Particle[capacity];
+    this.rXs = new double[capacity * sVectors];
+    this.rYs = new double[capacity * sVectors];
+    this.predictedRXs = new double[capacity * sVectors];
+    this.predictedRYs = new double[capacity * sVectors];
+    this.deltaR2Xs = new double[capacity];
+    this.deltaR2Ys = new double[capacity];
+    this.levels = new int[capacity];
+    this.elapsedSteps = new int[capacity];
+    this.syncRequested = new boolean[capacity];
+    this.due = new boolean[capacity];
+  }
+
+  /* package-private */ int size() {
+    return size;
+  }
+
+  /* package-private */ int sVectors() {
+    return sVectors;
+  }
+
+  /**
+   * Adds the given particle at the end of the store, with all its derivative values set to zero
+   * @param particle the particle to be added
+   * @return the slot taken by the particle
+   * @throws IllegalArgumentException if the particle is already stored
+   */
+  /* package-private */ int add(final Particle particle) {
+    if (slotsById.get(particle.id()) != NO_SLOT) {
+      throw new IllegalArgumentException("Particle already stored: " + particle);
+    }
+    ensureCapacity(size + 1);
+    final int slot = size++;
+    particles[slot] = particle;
+    predictedParticles[slot] = particle;
+    final int from = slot * sVectors;
+    Arrays.fill(rXs, from, from + sVectors, 0);
+    Arrays.fill(rYs, from, from + sVectors, 0);
+    Arrays.fill(predictedRXs, from, from + sVectors, 0);
+    Arrays.fill(predictedRYs, from, from + sVectors, 0);
+    deltaR2Xs[slot] = deltaR2Ys[slot] = 0;
+    levels[slot] = elapsedSteps[slot] = 0;
+    syncRequested[slot] = false;
+    due[slot] = true;
+    slotsById.put(particle.id(), slot);
+    return slot;
+  }
+
+  /**
+   * Removes the given particle, moving the last stored particle to its slot
+   * @param particle the particle to be removed
+   * @return true if the particle was stored; false otherwise
+   */
+  /* package-private */ boolean remove(final Particle particle) {
+    final int slot = slotsById.remove(particle.id());
+    if (slot == NO_SLOT) {
+      return false;
+    }
+    final int last = --size;
+    if (slot != last) {
+      particles[slot] = particles[last];
+      predictedParticles[slot] = predictedParticles[last];
+      final int from = last * sVectors;
+      final int to = slot * sVectors;
+      System.arraycopy(rXs, from, rXs, to, sVectors);
+      System.arraycopy(rYs, from, rYs, to, sVectors);
+      System.arraycopy(predictedRXs, from, predictedRXs, to, sVectors);
+      System.arraycopy(predictedRYs, from, predictedRYs, to, sVectors);
+      deltaR2Xs[slot] = deltaR2Xs[last];
+      deltaR2Ys[slot] = deltaR2Ys[last];
+      levels[slot] = levels[last];
+      elapsedSteps[slot] = elapsedSteps[last];
+      syncRequested[slot] = syncRequested[last];
+      due[slot] = due[last];
+      slotsById.put(predictedParticles[slot].id(), slot);
+    }
+    // release references
+    particles[last] = null;
+    predictedParticles[last] = null;
+    return true;
+  }
+
+  /**
+   * Swaps the particles at the given slots, along with all their values
+   */
+  /* package-private */ void swap(final int slot, final int otherSlot) {
+    if (slot == otherSlot) {
+      return;
+    }
+    final Particle particle = particles[slot];
+    particles[slot] = particles[otherSlot];
+    particles[otherSlot] = particle;
+    final Particle predictedParticle = predictedParticles[slot];
+    predictedParticles[slot] = predictedParticles[otherSlot];
+    predictedParticles[otherSlot] = predictedParticle;
+    for (int order = 0; order < sVectors; order++) {
+      swap(rXs, slot * sVectors + order, otherSlot * sVectors + order);
+      swap(rYs, slot * sVectors + order, otherSlot * sVectors + order);
+      swap(predictedRXs, slot * sVectors + order, otherSlot * sVectors + order);
+      swap(predictedRYs, slot * sVectors + order, otherSlot * sVectors + order);
+    }
+    swap(deltaR2Xs, slot, otherSlot);
+    swap(deltaR2Ys, slot, otherSlot);
+    swap(levels, slot, otherSlot);
+    swap(elapsedSteps, slot, otherSlot);
+    swap(syncRequested, slot, otherSlot);
+    swap(due, slot, otherSlot);
+    slotsById.put(predictedParticles[slot].id(), slot);
+    slotsById.put(predictedParticles[otherSlot].id(), otherSlot);
+  }
+
+  /**
+   * Removes all the stored particles
+   */
+  /* package-private */ void clear() {
+    Arrays.fill(particles, 0, size, null);
+    Arrays.fill(predictedParticles, 0, size, null);
+    size = 0;
+    slotsById.clear();
+  }
+
+  /**
+   * @param particle a particle
+   * @return the slot of the given particle; {@link #NO_SLOT} if it is not stored
+   */
+  /* package-private */ int slotOf(final Particle particle) {
+    return slotsById.get(particle.id());
+  }
+
+  /* package-private */ Particle particle(final int slot) {
+    return particles[slot];
+  }
+
+  /* package-private */ void particle(final int slot, final Particle particle) {
+    particles[slot] = particle;
+  }
+
+  /* package-private */ Particle predictedParticle(final int slot) {
+    return predictedParticles[slot];
+  }
+
+  /* package-private */ void predictedParticle(final int slot, final Particle particle) {
+    predictedParticles[slot] = particle;
+  }
+
+  /* package-private */ double rX(final int slot, final int derivativeOrder) {
+    return rXs[slot * sVectors + derivativeOrder];
+  }
+
+  /* package-private */ double rY(final int slot, final int derivativeOrder) {
+    return rYs[slot * sVectors + derivativeOrder];
+  }
+
+  /* package-private */ void r(final int slot, final int derivativeOrder, final double x, final double y) {
+    final int i = slot * sVectors + derivativeOrder;
+    rXs[i] = x;
+    rYs[i] = y;
+  }
+
+  /* package-private */ double predictedRX(final int slot, final int derivativeOrder) {
+    return predictedRXs[slot * sVectors + derivativeOrder];
+  }
+
+  /* package-private */ double predictedRY(final int slot, final int derivativeOrder) {
+    return predictedRYs[slot * sVectors + derivativeOrder];
+  }
+
+  /* package-private */ void predictedR(final int slot, final int derivativeOrder, final double x, final double y) {
+    final int i = slot * sVectors + derivativeOrder;
+    predictedRXs[i] = x;
+    predictedRYs[i] = y;
+  }
+
+  /* package-private */ double deltaR2X(final int slot) {
+    return deltaR2Xs[slot];
+  }
+
+  /* package-private */ double deltaR2Y(final int slot) {
+    return deltaR2Ys[slot];
+  }
+
+  /* package-private */ void deltaR2(final int slot, final double x, final double y) {
+    deltaR2Xs[slot] = x;
+    deltaR2Ys[slot] = y;
+  }
+
+  /* package-private */ int level(final int slot) {
+    return levels[slot];
+  }
+
+  /* package-private */ void level(final int slot, final int level) {
+    levels[slot] = level;
+  }
+
+  /* package-private */ int elapsedSteps(final int slot) {
+    return elapsedSteps[slot];
+  }
+
+  /* package-private */ void elapsedSteps(final int slot, final int elapsedSteps) {
+    this.elapsedSteps[slot] = elapsedSteps;
+  }
+
+  /* package-private */ boolean syncRequested(final int slot) {
+    return syncRequested[slot];
+  }
+
+  /* package-private */ void syncRequested(final int slot, final boolean syncRequested) {
+    this.syncRequested[slot] = syncRequested;
+  }
+
+  /* package-private */ boolean due(final int slot) {
+    return due[slot];
+  }
+
+  /* package-private */ void due(final int slot, final boolean due) {
+    this.due[slot] = due;
+  }
+
+  // private methods
+
+  private static void swap(final double[] values, final int i, final int j) {
+    final double value = values[i];
+    values[i] = values[j];
+    values[j] = value;
+  }
+
+  private static void swap(final int[] values, final int i, final int j) {
+    final int value = values[i];
+    values[i] = values[j];
+    values[j] = value;
+  }
+
+  private static void swap(final boolean[] values, final int i, final int j) {
+    final boolean value = values[i];
+    values[i] = values[j];
+    values[j] = value;
+  }
+
+  private void ensureCapacity(final int minCapacity) {
+    if (minCapacity <= particles.length) {
+      return;
+    }
+    final int capacity = Math.max(minCapacity, 2 * particles.length);
+    particles = Arrays.copyOf(particles, capacity);
+    predictedParticles = Arrays.copyOf(predictedParticles, capacity);
+    rXs = Arrays.copyOf(rXs, capacity * sVectors);
+    rYs = Arrays.copyOf(rYs, capacity * sVectors);
+    predictedRXs = Arrays.copyOf(predictedRXs, capacity * sVectors);
+    predictedRYs = Arrays.copyOf(predictedRYs, capacity * sVectors);
+    deltaR2Xs = Arrays.copyOf(deltaR2Xs, capacity);
+    deltaR2Ys = Arrays.copyOf(deltaR2Ys, capacity);
+    levels = Arrays.copyOf(levels, capacity);
+    elapsedSteps = Arrays.copyOf(elapsedSteps, capacity);
+    syncRequested = Arrays.copyOf(syncRequested, capacity);
+    due = Arrays.copyOf(due, capacity);
+  }
+
+  /**
+   * Open addressing (linear probing) hash map from particles' ids to their slots,
+   * so as to look up a particle's slot without boxing
+   */
+  private static class SlotsById {
+    private static final double MAX_LOAD = 0.5;
+
+    private long[] ids;
+    private int[] slots;
+    private int mask;
+    private int size;
+
+    private SlotsById(final int expectedSize) {
+      allocate(tableSize(expectedSize));
+    }
+
+    private int get(final long id) {
+      for (int i = index(id); ; i = (i + 1) & mask) {
+        if (slots[i] == NO_SLOT) {
+          return NO_SLOT;
+        }
+        if (ids[i] == id) {
+          return slots[i];
+        }
+      }
+    }
+
+    private void put(final long id, final int slot) {
+      int i = index(id);
+      while (slots[i] != NO_SLOT) {
+        if (ids[i] == id) {
+          slots[i] = slot;
+          return;
+        }
+        i = (i + 1) & mask;
+      }
+      ids[i] = id;
+      slots[i] = slot;
+      if (++size > MAX_LOAD * slots.length) {
+        rehash();
+      }
+    }
+
+    private int remove(final long id) {
+      int i = index(id);
+      while (slots[i] != NO_SLOT) {
+        if (ids[i] == id) {
+          final int slot = slots[i];
+          size--;
+          shiftBack(i);
+          return slot;
+        }
+        i = (i + 1) & mask;
+      }
+      return NO_SLOT;
+    }
+
+    /**
+     * Backward shift deletion, so as no tombstones are needed
+     */
+    private void shiftBack(final int removed) {
+      int hole = removed;
+      int i = (removed + 1) & mask;
+      while (slots[i] != NO_SLOT) {
+        final int home = index(ids[i]);
+        // move the entry to the hole if the hole is between its home and its current position (cyclically)
+        if (((i - home) & mask) >= ((i - hole) & mask)) {
+          ids[hole] = ids[i];
+          slots[hole] = slots[i];
+          hole = i;
+        }
+        i = (i + 1) & mask;
+      }
+      slots[hole] = NO_SLOT;
+    }
+
+    private void clear() {
+      Arrays.fill(slots, NO_SLOT);
+      size = 0;
+    }
+
+    private void rehash() {
+      final long[] oldIds = ids;
+      final int[] oldSlots = slots;
+      allocate(2 * oldSlots.length);
+      size = 0;
+      for (int i = 0; i < oldSlots.length; i++) {
+        if (oldSlots[i] != NO_SLOT) {
+          put(oldIds[i], oldSlots[i]);
+        }
+      }
+    }
+
+    private void allocate(final int tableSize) {
+      ids = new long[tableSize];
+      slots = new int[tableSize];
+      Arrays.fill(slots, NO_SLOT);
+      mask = tableSize - 1;
+    }
+
+    private int index(final long id) {
+      // spread the id bits (MurmurHash3's 64 bits finalizer)
+      long h = id;
+      h ^= h >>> 33;
+      h *= 0xff51afd7ed558ccdL;
+      h ^= h >>> 33;
+      return (int) h & mask;
+    }
+
+    private static int tableSize(final int expectedSize) {
+      int tableSize = 1;
+      while (tableSize * MAX_LOAD < expectedSize + 1) {
+        tableSize <<= 1;
+      }
+      return tableSize;
+    }
+  }
+}
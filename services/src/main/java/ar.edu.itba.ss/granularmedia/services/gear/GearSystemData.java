@@ -7,67 +7,58 @@ import ar.edu.itba.ss.granularmedia.models.Vector2D;
 
 import java.util.*;
 
-import static java.lang.Math.pow;
-
 /* package-private */ abstract class GearSystemData implements SystemData {
     /*
       General notes:
         - R stands for position vector
-        - Map notation
-          - #key: value, where value can be a nested map with the notation { #key: value }
+        - slot stands for the index of a particle at the system's store
    */
 
   /**
-   * Map saving each particle predicted derivatives, at different orders.
-   * Map usage:
-   *  #particle => { #derivative_order => derivative_value }
+   * Structure of arrays saving each particle current and predicted derivatives, at different orders,
+   * and its delta R2 value.
+   * Each particle takes a slot of the store.
    */
-  private final Map<Particle, Map<Integer, Vector2D>> predictedRs;
-
+  private final GearStateStore store;
   /**
-   * Map saving each particle current derivatives, at different orders.
-   * Map usage:
-   *  #particle => { #derivative_order => derivative_value }
+   * Constants of the gear predictor corrector steps, for the last used dt
    */
-  private final Map<Particle, Map<Integer, Vector2D>> currentRs;
+  private final GearCoefficients coefficients;
 
   /**
-   * Map saving each particle current derivatives, at different orders.
-   * Map usage:
-   *  #particle => delta_R2_value }
+   * System's particles, as views of the store. Particles are immutable, so they are not updated while being
+   * integrated: a system's particle is only built, from the store's values, when it is asked for, after its slot has
+   * been fixed; the predicted one is built at each step, as it is given to the system's data hooks, and it carries the
+   * particle's normal force and flags from one step to the next one
    */
-  private final Map<Particle, Vector2D> deltasR2;
-  private final Map<Integer, Map<Double, Double>> predictedConstants;
-  private final Map<Integer, Map<Double, Double>> fixConstants;
-  private final Map<Double, Double> evaluateConstants;
-  /* init */ {
-    predictedConstants = new HashMap<>();
-    fixConstants = new HashMap<>();
-    for (int order = 0 ; order < sVectors() ; order++) {
-      predictedConstants.put(order, new HashMap<>());
-      fixConstants.put(order, new HashMap<>());
-    }
-    evaluateConstants = new HashMap<>();
-  }
+  private final Collection<Particle> particles;
+  private final Collection<Particle> predictedParticles;
+
+  private final Collection<Particle> particlesToRemove;
 
   /**
-   * System's particles
+   * Active particles take the first slots, from 0 to {@code nActive - 1}; only them are integrated
    */
-  private Collection<Particle> particles;
-  private Collection<Particle> predictedParticles;
+  private int nActive;
 
-  private Collection<Particle> particlesToRemove;
+  /**
+   * Executor used by the current gear predictor corrector step
+   */
+  private ChunksExecutor executor;
 
-  /* package-private */ GearSystemData(final Collection<Particle> particles) {
-    this.particles = particles;
-    this.predictedParticles = new HashSet<>();
+  /**
+   * @param particles system's particles
+   * @param sVectors number of derivative values kept for each particle, from order 0
+   */
+  /* package-private */ GearSystemData(final Collection<Particle> particles, final int sVectors) {
+    this.store = new GearStateStore(sVectors, particles.size());
+    particles.forEach(store::add);
+    this.nActive = store.size();
+    this.particles = new SlotsView(false);
+    this.predictedParticles = new SlotsView(true);
     this.particlesToRemove = new HashSet<>();
-
-    final int nParticles = particles.size();
-
-    this.predictedRs = new HashMap<>(nParticles);
-    this.currentRs = new HashMap<>(nParticles);
-    this.deltasR2 = new HashMap<>(nParticles);
+    this.executor = ChunksExecutor.SERIAL;
+    this.coefficients = newCoefficients();
   }
 
   @Override
@@ -75,14 +66,6 @@ import static java.lang.Math.pow;
     return particles;
   }
 
-  protected Map<Particle, Map<Integer, Vector2D>> currentRs(){
-    return this.currentRs;
-  }
-
-  protected Map<Particle, Map<Integer, Vector2D>> predictedRs(){
-    return this.predictedRs;
-  }
-
   // protected
   // access from package and subclasses of any package
 
@@ -111,6 +94,8 @@ import static java.lang.Math.pow;
    * @return a force vector calculated with the predicted values
    * @implNote
    * - if there is the need to use the rest of the system's particles just call particles() method
+   * - forces of particles of different chunks may be calculated concurrently, so the system's state should
+   * only be read, apart from the given {@code particle}'s own state
    */
   protected abstract Vector2D getForceWithPredicted(final Particle particle);
 
@@ -125,11 +110,196 @@ import static java.lang.Math.pow;
    * before the usage of the gear method
    */
   protected void initParticle(final Particle particle) {
-    // initialize maps
-    // create internal predicted map
-    this.predictedRs.put(particle, new HashMap<>(sVectors()));
-    // initialize currentRs map with the first step, using the formula provided for this system
-    this.currentRs.put(particle, setInitialDerivativeValues(particle));
+    final int slot = store.slotOf(particle);
+    // initialize current values with the first step, using the formula provided for this system
+    final Map<Integer, Vector2D> initialDerivativeValues = setInitialDerivativeValues(particle);
+    for (int order = 0 ; order < sVectors() ; order++) {
+      final Vector2D initialDerivativeValue = initialDerivativeValues.get(order);
+      store.r(slot, order, initialDerivativeValue.x(), initialDerivativeValue.y());
+    }
+  }
+
+  /**
+   * Adds the given {@code particle} to the system, initializing it with {@link #initParticle(Particle)}
+   * @param particle the particle to be added
+   */
+  protected void addParticle(final Particle particle) {
+    addActive(particle);
+    initParticle(particle);
+  }
+
+  /**
+   * Adds the given {@code particle} to the system, without initializing its R values,
+   * which should be set afterwards with {@link #setR(int, int, double, double)}, e.g., to restore a saved state
+   * @param particle the particle to be added
+   * @return the slot taken by the particle
+   */
+  protected int restoreParticle(final Particle particle) {
+    return addActive(particle);
+  }
+
+  /**
+   * Removes all the system's particles, e.g., before restoring a saved state
+   */
+  protected void clearParticles() {
+    particlesToRemove.clear();
+    store.clear();
+    nActive = 0;
+  }
+
+  /**
+   * Deactivates the given system's particle: it is frozen, i.e., its derivatives of order 1 and above are set to
+   * zero, and it is neither predicted nor fixed until it is activated again. Other particles go on seeing it, still,
+   * at its current position.
+   * <P>
+   * Active particles take the first slots, so the deactivated particle is moved to the last active slot, which is
+   * left inactive. It should not be called while particles are being integrated.
+   * @param particle an active system's particle
+   */
+  protected void deactivate(final Particle particle) {
+    final int slot = store.slotOf(particle);
+    if (slot == GearStateStore.NO_SLOT || slot >= nActive) {
+      throw new IllegalArgumentException("Not an active particle: " + particle);
+    }
+    if (store.elapsedSteps(slot) > 0) {
+      // it has not been fixed for some steps, so it is frozen where it has been predicted, i.e., where it is seen
+      store.r(slot, 0, store.predictedRX(slot, 0), store.predictedRY(slot, 0));
+      store.elapsedSteps(slot, 0);
+      store.syncRequested(slot, false);
+    }
+    for (int order = 1; order < sVectors(); order++) {
+      store.r(slot, order, 0, 0);
+    }
+    for (int order = 0; order < sVectors(); order++) {
+      store.predictedR(slot, order, store.rX(slot, order), store.rY(slot, order));
+    }
+    final Particle frozenParticle = updatedSystemParticle(slot, store.predictedParticle(slot));
+    store.particle(slot, frozenParticle);
+    store.predictedParticle(slot, frozenParticle);
+    swap(slot, --nActive);
+  }
+
+  /**
+   * Activates the given system's particle, so as it is integrated again, from rest, at the finest time step level.
+   * It should not be called while particles are being integrated.
+   * @param particle an inactive system's particle
+   */
+  protected void activate(final Particle particle) {
+    final int slot = store.slotOf(particle);
+    if (slot == GearStateStore.NO_SLOT || slot < nActive) {
+      throw new IllegalArgumentException("Not an inactive particle: " + particle);
+    }
+    store.level(slot, 0);
+    swap(slot, nActive++);
+  }
+
+  /**
+   * @return the number of active system's particles, i.e., active slots go from 0 to {@code nActiveParticles() - 1},
+   * and inactive ones, from {@code nActiveParticles()} to {@code nParticles() - 1}
+   */
+  protected int nActiveParticles() {
+    return nActive;
+  }
+
+  /**
+   * Informs that the particles at the given slots have just been swapped, e.g., to keep the active particles first,
+   * or to fill the slot of a removed particle, so as any state kept by slot can be swapped too
+   */
+  @SuppressWarnings("WeakerAccess")
+  protected void swapped(@SuppressWarnings("UnusedParameters") final int slot,
+                         @SuppressWarnings("UnusedParameters") final int otherSlot) {
+
+  }
+
+  /**
+   * Ballistic particles only feel a constant acceleration, e.g., gravity, given by {@link #ballisticAccelerationX()}
+   * and {@link #ballisticAccelerationY()}, so they are advanced in closed form, without being evaluated.
+   * <P>
+   * It is asked when each particle is fixed, once the system has been evaluated, and when it is predicted, for
+   * whether it was fixed as a ballistic particle at the previous step
+   * @param slot an active slot
+   * @return true if the particle at the given {@code slot} is ballistic; false otherwise
+   * @implNote particles of different chunks may be asked concurrently
+   */
+  @SuppressWarnings("WeakerAccess")
+  protected boolean isBallistic(@SuppressWarnings("UnusedParameters") final int slot) {
+    return false;
+  }
+
+  /**
+   * @return the x component of the constant acceleration of the ballistic particles
+   */
+  @SuppressWarnings("WeakerAccess")
+  protected double ballisticAccelerationX() {
+    return 0;
+  }
+
+  /**
+   * @return the y component of the constant acceleration of the ballistic particles
+   */
+  @SuppressWarnings("WeakerAccess")
+  protected double ballisticAccelerationY() {
+    return 0;
+  }
+
+  /**
+   * Multi-rate integration methods, e.g., {@link MultiRateGearPredictorCorrector}, integrate each particle with the
+   * biggest time step level, i.e., with a time step of {@code dt * 2^level}, that is not bigger than this one.
+   * <P>
+   * It is asked for each particle when it is fixed, once the system has been evaluated
+   * @param slot an active slot
+   * @return the max time step the particle at the given {@code slot} should be integrated with, given its current
+   * interactions; 0 if it should be integrated with the base dt
+   * @implNote particles of different chunks may be asked concurrently
+   */
+  @SuppressWarnings("WeakerAccess")
+  protected double maxTimeStep(@SuppressWarnings("UnusedParameters") final int slot) {
+    return 0;
+  }
+
+  /**
+   * @param slot an active slot
+   * @return true if the particle at the given {@code slot} is fixed at the current step, so as its force is needed;
+   * false if it is only predicted, as a multi-rate integration method does between its fixes.
+   * It is valid from the end of the prediction step until the end of the fix one
+   */
+  protected boolean isDue(final int slot) {
+    return store.due(slot);
+  }
+
+  /**
+   * @return the time step level of the particle at the given {@code slot}, i.e., it is fixed each {@code 2^level}
+   * steps; always 0 unless it is integrated by a multi-rate integration method
+   */
+  protected int getLevel(final int slot) {
+    return store.level(slot);
+  }
+
+  /**
+   * @return how many steps have elapsed since the particle at the given {@code slot} was fixed, i.e., since the
+   * time of its R values
+   */
+  protected int getElapsedSteps(final int slot) {
+    return store.elapsedSteps(slot);
+  }
+
+  /**
+   * @return true if the particle at the given {@code slot} should be fixed at the next step, whatever its level
+   */
+  protected boolean isSyncRequested(final int slot) {
+    return store.syncRequested(slot);
+  }
+
+  /**
+   * Sets the multi-rate state of the particle at the given {@code slot}, e.g., to restore a saved state
+   * @see #getLevel(int)
+   * @see #getElapsedSteps(int)
+   * @see #isSyncRequested(int)
+   */
+  protected void setLevel(final int slot, final int level, final int elapsedSteps, final boolean syncRequested) {
+    store.level(slot, level);
+    store.elapsedSteps(slot, elapsedSteps);
+    store.syncRequested(slot, syncRequested);
   }
 
   /**
@@ -139,9 +309,12 @@ import static java.lang.Math.pow;
   protected abstract int order();
 
   /**
-   * @return the size of the memory structures to be used when using this data manager
+   * @return the size of the memory structures to be used when using this data manager, i.e., the number of
+   * derivative values kept for each particle
    */
-  protected abstract int sVectors();
+  protected int sVectors() {
+    return store.sVectors();
+  }
 
   /**
    * Gets the predicted R value of order {@code derivativeOrder} of the given {@code particle}
@@ -150,7 +323,89 @@ import static java.lang.Math.pow;
    * @return the predicted R value of order {@code derivativeOrder} of the given {@code particle}; null if none
    */
   protected Vector2D getPredictedR(final Particle particle, final int derivativeOrder) {
-    return predictedRs.get(particle).get(derivativeOrder);
+    final int slot = store.slotOf(particle);
+    if (slot == GearStateStore.NO_SLOT) {
+      return null;
+    }
+    return Vector2D.builder(getPredictedRX(slot, derivativeOrder), getPredictedRY(slot, derivativeOrder)).build();
+  }
+
+  /**
+   * @param particle a system's particle
+   * @return the slot of the given {@code particle} at the system's data store; a negative value if none.
+   * Slots are valid until any particle is removed from the system
+   */
+  protected int slotOf(final Particle particle) {
+    return store.slotOf(particle);
+  }
+
+  /**
+   * @return the number of system's particles, i.e., slots go from 0 to {@code nParticles() - 1}
+   */
+  protected int nParticles() {
+    return store.size();
+  }
+
+  /**
+   * @param slot a slot of the system's store
+   * @return the predicted particle at the given {@code slot}
+   */
+  protected Particle predictedParticle(final int slot) {
+    return store.predictedParticle(slot);
+  }
+
+  /**
+   * Gets the x component of the predicted R value of order {@code derivativeOrder} of the particle at
+   * the given {@code slot}
+   */
+  protected double getPredictedRX(final int slot, final int derivativeOrder) {
+    return store.predictedRX(slot, derivativeOrder);
+  }
+
+  /**
+   * Gets the y component of the predicted R value of order {@code derivativeOrder} of the particle at
+   * the given {@code slot}
+   */
+  protected double getPredictedRY(final int slot, final int derivativeOrder) {
+    return store.predictedRY(slot, derivativeOrder);
+  }
+
+  /**
+   * Gets the x component of the value of order {@code derivativeOrder} of the system's particle at the given
+   * {@code slot}, i.e., its R value if it has been fixed at the current step, or its predicted one otherwise
+   */
+  protected double getSystemRX(final int slot, final int derivativeOrder) {
+    return store.due(slot) ? store.rX(slot, derivativeOrder) : store.predictedRX(slot, derivativeOrder);
+  }
+
+  /**
+   * Gets the y component of the value of order {@code derivativeOrder} of the system's particle at the given
+   * {@code slot}, i.e., its R value if it has been fixed at the current step, or its predicted one otherwise
+   */
+  protected double getSystemRY(final int slot, final int derivativeOrder) {
+    return store.due(slot) ? store.rY(slot, derivativeOrder) : store.predictedRY(slot, derivativeOrder);
+  }
+
+  /**
+   * Gets the x component of the R value of order {@code derivativeOrder} of the particle at the given {@code slot}
+   */
+  protected double getRX(final int slot, final int derivativeOrder) {
+    return store.rX(slot, derivativeOrder);
+  }
+
+  /**
+   * Gets the y component of the R value of order {@code derivativeOrder} of the particle at the given {@code slot}
+   */
+  protected double getRY(final int slot, final int derivativeOrder) {
+    return store.rY(slot, derivativeOrder);
+  }
+
+  /**
+   * Sets the new R value - ({@code x}, {@code y}) - of order {@code derivativeOrder} of the particle
+   * at the given {@code slot}
+   */
+  protected void setR(final int slot, final int derivativeOrder, final double x, final double y) {
+    store.r(slot, derivativeOrder, x, y);
   }
 
   /**
@@ -171,9 +426,12 @@ import static java.lang.Math.pow;
 
   /**
    * Execute some statements just after prediction step for the given particle
+   * @implNote particles of different chunks may be predicted concurrently, so implementations should only
+   * change state owned by the given {@code chunk}, and merge it afterwards, e.g., at {@link #postPredict()}
    */
   @SuppressWarnings("WeakerAccess")
-  protected void predicted(@SuppressWarnings("UnusedParameters") final Particle predictedParticle) {
+  protected void predicted(@SuppressWarnings("UnusedParameters") final Particle predictedParticle,
+                           @SuppressWarnings("UnusedParameters") final int chunk) {
 
   }
 
@@ -210,10 +468,30 @@ import static java.lang.Math.pow;
   }
 
   /**
-   * Execute some statements just after fix step for the given particle
+   * Execute some statements just after fix step for the particle at the given {@code slot}
+   * @implNote particles of different chunks may be fixed concurrently, so implementations should only
+   * change state owned by the given {@code chunk}, and merge it afterwards, e.g., at {@link #postFix()}
+   * <P>
+   * The particle's values should be read with {@link #getSystemRX(int, int)} and {@link #getSystemRY(int, int)};
+   * {@link #particle(int)} builds a new particle, so it should only be called for the particles that are kept
+   */
+  protected void fixed(@SuppressWarnings("UnusedParameters") final int slot,
+                       @SuppressWarnings("UnusedParameters") final int chunk) {
+
+  }
+
+  /**
+   * @return the number of chunks in which particles are split by the current gear predictor corrector step
    */
-  protected void fixed(@SuppressWarnings("UnusedParameters") final Particle particle) {
+  protected int nChunks() {
+    return executor.nChunks();
+  }
 
+  /**
+   * @return the executor used by the current gear predictor corrector step
+   */
+  protected ChunksExecutor executor() {
+    return executor;
   }
 
   /**
@@ -233,92 +511,213 @@ import static java.lang.Math.pow;
   // access allowed from this module and gear package only, i.e., from Gear implementations only
 
   /**
-   * Retrieves the constant for the predicted step of the specified term and the given dt
-   * @param cTerm the term whose constant is needed
-   * @param dt the dt used to calculate the constant
-   * @return the constant for the predicted step for the specified parameters
+   * Retrieves the constants of the gear predictor corrector steps for the given dt
+   * @param dt the dt used to calculate the constants
+   * @return the constants for the given dt
    */
-  /* package-private */ double getPredictedConstantTerm(final int cTerm, final double dt) {
-    return predictedConstants.get(cTerm).computeIfAbsent(dt, aDouble -> pow(dt, cTerm) / factorial(cTerm));
+  /* package-private */ GearCoefficients coefficients(final double dt) {
+    return coefficients.update(dt);
   }
 
-  /* package-private */ double getEvaluateConstant(final double dt) {
-    // taken from Gear Predictor Corrector theory
-    return evaluateConstants.computeIfAbsent(dt, aDouble -> pow(dt, 2)/factorial(2));
+  /**
+   * @return new constants of the gear predictor corrector steps, not shared with {@link #coefficients(double)},
+   * e.g., to keep the constants of several dts at once
+   */
+  /* package-private */ GearCoefficients newCoefficients() {
+    // constants of all the orders, even if not all of them are kept
+    final double[] alphas = new double[order() + 1];
+    final long[] factorials = new long[order() + 1];
+    for (int order = 0 ; order <= order() ; order++) {
+      alphas[order] = alpha(order);
+      factorials[order] = factorial(order);
+    }
+    return new GearCoefficients(order(), alphas, factorials);
   }
 
-  /* package-private */ double getFixConstantOrder(final int order, final double dt) {
-    return fixConstants.get(order).computeIfAbsent(dt,
-            aDouble -> alpha(order) * factorial(order) / pow(dt, order));
+  /* package-private */ void executor(final ChunksExecutor executor) {
+    this.executor = executor;
   }
 
-  /* package-private */ void predictedParticles(final Collection<Particle> predictedParticles) {
-    this.predictedParticles = predictedParticles;
+  /* package-private */ GearStateStore store() {
+    return store;
   }
 
-  /* package-private */ int nParticles() {
-    return particles.size();
+  /**
+   * @param slot a slot of the system's store
+   * @return the system's particle at the given {@code slot}; it is built from the store's values if they have changed
+   * since it was last asked for, and it is the same particle until then
+   */
+  protected Particle particle(final int slot) {
+    Particle particle = store.particle(slot);
+    if (particle == null) {
+      particle = systemParticle(slot);
+      store.particle(slot, particle);
+    }
+    return particle;
   }
 
   /**
-   * Sets the new predicted R value - {@code updatedR} - of order {@code derivativeOrder} of the given {@code particle}
-   * @param particle the particle whose predicted R value of order {@code derivativeOrder} wants to be set
-   * @param derivativeOrder the order of the predicted R value to be set for the given {@code particle}
-   * @param updatedR the updated predicted R value
-   * @return the previous predicted R value; null if none
+   * Updates the system's particle at the given {@code slot}
+   * @param slot the slot of the particle
+   * @param updatedParticle the new system's particle
+   * @implNote This method should be used to update system's particle status only
    */
-  /* package-private */ Vector2D setPredictedR(final Particle particle,
-                                               final int derivativeOrder,
-                                               final Vector2D updatedR) {
-    return predictedRs.get(particle).put(derivativeOrder, updatedR);
+  /* package-private */ void particle(final int slot, final Particle updatedParticle) {
+    store.particle(slot, updatedParticle);
   }
 
   /**
-   * Gets the R value of order {@code derivativeOrder} of the given {@code particle}
-   * @param particle the particle whose R value of order {@code derivativeOrder} wants to be retrieved
-   * @param derivativeOrder the order of the R value to be retrieved for the given particle
-   * @return the R value of order {@code derivativeOrder} of the given {@code particle}; null if none
+   * Flags that the values of the system's particle at the given {@code slot} have changed, e.g., because it has just
+   * been fixed, so as the particle is built again the next time it is asked for
    */
-  /* package-private */ Vector2D getR(final Particle particle, final int derivativeOrder) {
-    return currentRs.get(particle).get(derivativeOrder);
+  /* package-private */ void particleChanged(final int slot) {
+    store.particle(slot, null);
+  }
+
+  /* package-private */ void predictedParticle(final int slot, final Particle predictedParticle) {
+    store.predictedParticle(slot, predictedParticle);
   }
 
   /**
-   * Sets the new R value - {@code updatedR} - of order {@code derivativeOrder} of the given {@code particle}
-   * @param particle the particle whose R value of order {@code derivativeOrder} wants to be set
-   * @param derivativeOrder the order of the R value to be set for the given {@code particle}
-   * @param updatedR the updated R value
-   * @return the previous R value; null if none
+   * @return the system's particle at the given {@code slot}, with its predicted position, velocity and force
    */
-  /* package-private */ Vector2D setR(final Particle particle, final int derivativeOrder, final Vector2D updatedR) {
-    return currentRs.get(particle).put(derivativeOrder, updatedR);
+  /* package-private */ Particle predictedSystemParticle(final int slot) {
+    // the last predicted particle has the same normal force and flags as the system's one
+    final Particle cPredictedParticle = store.predictedParticle(slot);
+    final double mass = cPredictedParticle.mass();
+    return cPredictedParticle.update(getPredictedRX(slot, 0), getPredictedRY(slot, 0),
+            getPredictedRX(slot, 1), getPredictedRY(slot, 1),
+            getPredictedRX(slot, 2) * mass, getPredictedRY(slot, 2) * mass);
   }
 
   /**
-   * Gets the {@code deltaR2} value of the given {@code particle}
-   * @param particle the particle whose {@code deltaR2} value wants to be retrieved
-   * @return the {@code deltaR2} value of the given {@code particle}; null if none
+   * @return the given {@code particle}, with the position, velocity and force of the given {@code slot}
    */
-  /* package-private */ Vector2D getDeltaR2(final Particle particle) {
-    return deltasR2.get(particle);
+  /* package-private */ Particle updatedSystemParticle(final int slot, final Particle particle) {
+    final double mass = particle.mass();
+    return particle.update(getRX(slot, 0), getRY(slot, 0), getRX(slot, 1), getRY(slot, 1),
+            getRX(slot, 2) * mass, getRY(slot, 2) * mass);
   }
 
   /**
-   * Sets the new {@code deltaR2} value - {@code updatedDeltaR2} - of the given {@code particle}
-   * @param particle the particle whose {@code deltaR2} value wants to be set
-   * @return the previous {@code deltaR2} value; null if none
+   * Predicts the ballistic particle at the given {@code slot} in closed form, i.e., with its position, velocity and
+   * acceleration only, as its higher derivatives are zero since it was fixed as a ballistic particle
+   * @param c1 Δt
+   * @param c2 (Δt)^2 / 2
    */
-  /* package-private */ Vector2D setDeltaR2(final Particle particle, final Vector2D updatedDeltaR2) {
-    return deltasR2.put(particle, updatedDeltaR2);
+  /* package-private */ void predictBallistic(final int slot, final double c1, final double c2) {
+    final double x1 = store.rX(slot, 1);
+    final double y1 = store.rY(slot, 1);
+    final double x2 = store.rX(slot, 2);
+    final double y2 = store.rY(slot, 2);
+    store.predictedR(slot, 0, store.rX(slot, 0) + x1 * c1 + x2 * c2, store.rY(slot, 0) + y1 * c1 + y2 * c2);
+    store.predictedR(slot, 1, x1 + x2 * c1, y1 + y2 * c1);
+    store.predictedR(slot, 2, x2, y2);
+    for (int order = 3; order < sVectors(); order++) {
+      store.predictedR(slot, order, 0, 0);
+    }
   }
 
   /**
-   * Updates all the current system's particles
-   * @param updatedSystemParticles the new system's particles
-   * @implNote This method should be used to update system's particle status only
+   * @return true if the particle at the given {@code slot} has been predicted as a ballistic one, i.e., with the
+   * ballistic acceleration and no higher derivatives, so as its predicted values are exact while it is ballistic;
+   * false otherwise, e.g., if it has just left its contacts
+   */
+  /* package-private */ boolean isPredictedBallistic(final int slot) {
+    if (store.predictedRX(slot, 2) != ballisticAccelerationX()
+            || store.predictedRY(slot, 2) != ballisticAccelerationY()) {
+      return false;
+    }
+    for (int order = 3; order < sVectors(); order++) {
+      if (store.predictedRX(slot, order) != 0 || store.predictedRY(slot, order) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return true if the particle at the given {@code slot} has been fixed as a ballistic one, i.e., its R values
+   * have the ballistic acceleration and no higher derivatives, so as it can be predicted in closed form
+   */
+  /* package-private */ boolean isFixedBallistic(final int slot) {
+    if (store.rX(slot, 2) != ballisticAccelerationX() || store.rY(slot, 2) != ballisticAccelerationY()) {
+      return false;
+    }
+    for (int order = 3; order < sVectors(); order++) {
+      if (store.rX(slot, order) != 0 || store.rY(slot, order) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Fixes the ballistic particle at the given {@code slot} in closed form, i.e., with its predicted values, which are
+   * exact as it has been predicted as a ballistic one
    */
-  /* package-private */ void particles(final Collection<Particle> updatedSystemParticles) {
-    particles = updatedSystemParticles;
+  /* package-private */ void fixBallistic(final int slot) {
+    store.r(slot, 0, store.predictedRX(slot, 0), store.predictedRY(slot, 0));
+    store.r(slot, 1, store.predictedRX(slot, 1), store.predictedRY(slot, 1));
+    dropHigherDerivatives(slot);
+  }
+
+  /**
+   * Sets the ballistic acceleration to the particle at the given {@code slot}, and its higher derivatives to zero,
+   * so as it is predicted in closed form while it goes on being ballistic
+   */
+  /* package-private */ void dropHigherDerivatives(final int slot) {
+    store.r(slot, 2, ballisticAccelerationX(), ballisticAccelerationY());
+    for (int order = 3; order < sVectors(); order++) {
+      store.r(slot, order, 0, 0);
+    }
+  }
+
+  /**
+   * Sets the new predicted R value - ({@code x}, {@code y}) - of order {@code derivativeOrder} of the particle
+   * at the given {@code slot}
+   */
+  /* package-private */ void setPredictedR(final int slot, final int derivativeOrder, final double x, final double y) {
+    store.predictedR(slot, derivativeOrder, x, y);
+  }
+
+  /**
+   * Sets whether the particle at the given {@code slot} is fixed at the current step
+   * @see #isDue(int)
+   */
+  /* package-private */ void setDue(final int slot, final boolean due) {
+    store.due(slot, due);
+  }
+
+
+  /**
+   * Gets the R value of order {@code derivativeOrder} of the given {@code particle}
+   * @param particle the particle whose R value of order {@code derivativeOrder} wants to be retrieved
+   * @param derivativeOrder the order of the R value to be retrieved for the given particle
+   * @return the R value of order {@code derivativeOrder} of the given {@code particle}; null if none
+   */
+  /* package-private */ Vector2D getR(final Particle particle, final int derivativeOrder) {
+    final int slot = store.slotOf(particle);
+    if (slot == GearStateStore.NO_SLOT) {
+      return null;
+    }
+    return Vector2D.builder(getRX(slot, derivativeOrder), getRY(slot, derivativeOrder)).build();
+  }
+
+
+  /* package-private */ double getDeltaR2X(final int slot) {
+    return store.deltaR2X(slot);
+  }
+
+  /* package-private */ double getDeltaR2Y(final int slot) {
+    return store.deltaR2Y(slot);
+  }
+
+  /**
+   * Sets the new {@code deltaR2} value - ({@code x}, {@code y}) - of the particle at the given {@code slot}
+   */
+  /* package-private */ void setDeltaR2(final int slot, final double x, final double y) {
+    store.deltaR2(slot, x, y);
   }
 
   /**
@@ -355,6 +754,18 @@ import static java.lang.Math.pow;
     return factorial;
   }
 
+  /**
+   * @return a new system's particle with the current values of the given {@code slot}, and with the normal force and
+   * flags of its predicted particle
+   */
+  private Particle systemParticle(final int slot) {
+    final Particle cPredictedParticle = store.predictedParticle(slot);
+    final double mass = cPredictedParticle.mass();
+    return cPredictedParticle.update(getSystemRX(slot, 0), getSystemRY(slot, 0),
+            getSystemRX(slot, 1), getSystemRY(slot, 1),
+            getSystemRX(slot, 2) * mass, getSystemRY(slot, 2) * mass);
+  }
+
   private void removeParticles() {
     for (Iterator<Particle> iterator = particlesToRemove.iterator(); iterator.hasNext();) {
       remove(iterator.next());
@@ -363,13 +774,77 @@ import static java.lang.Math.pow;
   }
 
   /**
-   * Removes the given {@code particle} from all the system's maps
+   * Removes the given {@code particle} from the system's store, keeping the active particles first
    * @param particle the particle to be removed
    */
   private void remove(final Particle particle) {
-    particles.remove(particle);
-    predictedParticles.remove(particle);
-    predictedRs.remove(particle);
-    currentRs.remove(particle);
+    final int slot = store.slotOf(particle);
+    if (slot == GearStateStore.NO_SLOT) {
+      return;
+    }
+    if (slot < nActive) {
+      swap(slot, --nActive);
+    }
+    // the last particle fills the removed one's slot, which is an inactive one now
+    swap(store.slotOf(particle), store.size() - 1);
+    store.remove(particle);
+  }
+
+  /**
+   * Adds the given particle at the first inactive slot, as an active one
+   * @return the slot taken by the particle
+   */
+  private int addActive(final Particle particle) {
+    final int slot = store.add(particle);
+    swap(slot, nActive);
+    return nActive++;
+  }
+
+  private void swap(final int slot, final int otherSlot) {
+    if (slot != otherSlot) {
+      store.swap(slot, otherSlot);
+      swapped(slot, otherSlot);
+    }
+  }
+
+  /**
+   * Read only view of the current or predicted particles of the store, in slot order
+   */
+  private class SlotsView extends AbstractCollection<Particle> {
+    private final boolean predicted;
+
+    private SlotsView(final boolean predicted) {
+      this.predicted = predicted;
+    }
+
+    @Override
+    public Iterator<Particle> iterator() {
+      return new Iterator<Particle>() {
+        private int slot = 0;
+
+        @Override
+        public boolean hasNext() {
+          return slot < store.size();
+        }
+
+        @Override
+        public Particle next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          return predicted ? store.predictedParticle(slot++) : particle(slot++);
+        }
+      };
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+      return o instanceof Particle && store.slotOf((Particle) o) != GearStateStore.NO_SLOT;
+    }
+
+    @Override
+    public int size() {
+      return store.size();
+    }
   }
 }
@@ -0,0 +1,185 @@
+package ar.edu.itba.ss.granularmedia.services.gear;
+
+import ar.edu.itba.ss.granularmedia.interfaces.NumericIntegrationMethod;
+import ar.edu.itba.ss.granularmedia.models.Particle;
+
+/**
+ * Multi-rate Gear Predictor Corrector numeric integration method.
+ * <P>
+ * Each particle has a time step level, from 0 to the max level, and it is fixed, i.e., evaluated and corrected, each
+ * {@code 2^level} steps, with a time step of {@code dt * 2^level}. So particles whose interactions are stiff or change
+ * fast, as given by {@link GearSystemData#maxTimeStep(int)}, are integrated with the base dt, while quiet ones are
+ * evaluated much less often.
+ * <P>
+ * All particles are predicted at every step, from their last fixed R values to the current time. Hence, the force
+ * of a particle being fixed is evaluated with all the other ones at the same time, whatever their levels, and the
+ * system's particles are always seen at the current time: those that are not fixed go on at their predicted values.
+ * <P>
+ * A particle's level is chosen each time it is fixed, going up at most one level at once. If, between two of its
+ * fixes, its max time step gets smaller than its level's one, e.g., because it has been touched by a fast particle,
+ * it is fixed at the next step, and its level goes down.
+ * <P>
+ * Particles whose max time step is 0 are always at level 0, and they are integrated exactly as
+ * {@link GearPredictorCorrector} does.
+ */
+public class MultiRateGearPredictorCorrector<K extends GearSystemData> implements NumericIntegrationMethod<K> {
+  private final ChunksExecutor executor;
+  private final int maxLevel;
+  // constants for each number of elapsed steps, from 1 to 2^maxLevel, i.e., for dt, 2 * dt, ...
+  private GearCoefficients[] coefficients;
+
+  /**
+   * @param maxLevel max time step level, i.e., particles are integrated with time steps from dt to
+   *                 {@code dt * 2^maxLevel}
+   */
+  public MultiRateGearPredictorCorrector(final int maxLevel) {
+    this(maxLevel, 1);
+  }
+
+  /**
+   * @param maxLevel max time step level, i.e., particles are integrated with time steps from dt to
+   *                 {@code dt * 2^maxLevel}
+   * @param nThreads number of threads used to integrate the system
+   */
+  public MultiRateGearPredictorCorrector(final int maxLevel, final int nThreads) {
+    if (maxLevel < 0 || maxLevel >= Integer.SIZE - 2) {
+      throw new IllegalArgumentException("Invalid max level: " + maxLevel);
+    }
+    this.maxLevel = maxLevel;
+    this.executor = nThreads == 1 ? ChunksExecutor.SERIAL : new ChunksExecutor(nThreads);
+  }
+
+  @Override
+  public void evolveSystem(final GearSystemData systemData, final double dt) {
+    if (systemData.sVectors() <= systemData.order()) {
+      throw new IllegalArgumentException("Gear predictor corrector of order " + systemData.order() + " needs "
+              + (systemData.order() + 1) + " derivative values; system's data keeps " + systemData.sVectors());
+    }
+    updateCoefficients(systemData, dt);
+    final boolean isOrder5 = systemData.order() == Gear5Kernel.ORDER;
+    final GearStateStore store = systemData.store();
+    systemData.executor(executor);
+
+    systemData.prePredict();
+
+    executor.run(systemData.nActiveParticles(), (chunk, from, to) -> {
+      for (int slot = from ; slot < to ; slot++) {
+        // predict, from the time of its last fix to the current one
+        final int elapsedSteps = store.elapsedSteps(slot) + 1;
+        store.elapsedSteps(slot, elapsedSteps);
+        final GearCoefficients slotCoefficients = coefficients(systemData, elapsedSteps, dt);
+        if (systemData.isBallistic(slot) && systemData.isFixedBallistic(slot)) {
+          systemData.predictBallistic(slot, slotCoefficients.predicted(1), slotCoefficients.predicted(2));
+        } else if (isOrder5) {
+          Gear5Kernel.predict(store, slotCoefficients, slot);
+        } else {
+          GearPredictorCorrector.predict(systemData, slotCoefficients, slot);
+        }
+        final int level = Math.min(store.level(slot), maxLevel);
+        systemData.setDue(slot, elapsedSteps >= (1 << level) || store.syncRequested(slot));
+
+        // update the currently predicting values
+        final Particle cPredictedSystemParticle = systemData.predictedSystemParticle(slot);
+        systemData.predictedParticle(slot, cPredictedSystemParticle);
+
+        // inform that this particle has just been predicted
+        systemData.predicted(cPredictedSystemParticle, chunk);
+      }
+    });
+
+    systemData.postPredict();
+
+    // fix and evaluate, all at once
+    systemData.preEvaluate();
+    systemData.preFix();
+
+    // particles may have been removed after prediction; inactive ones are neither predicted nor fixed
+    executor.run(systemData.nActiveParticles(), (chunk, from, to) -> {
+      for (int slot = from ; slot < to ; slot++) {
+        final Particle cParticle = systemData.predictedParticle(slot);
+        final int level = Math.min(store.level(slot), maxLevel);
+        final double maxTimeStep = systemData.maxTimeStep(slot);
+        if (systemData.isDue(slot)) {
+          final GearCoefficients slotCoefficients = coefficients(systemData, store.elapsedSteps(slot), dt);
+          if (systemData.isBallistic(slot) && systemData.isPredictedBallistic(slot)) {
+            systemData.fixBallistic(slot);
+          } else {
+            GearPredictorCorrector.evaluate(systemData, slotCoefficients, slot, cParticle);
+
+            // fix cycle
+            if (isOrder5) {
+              Gear5Kernel.fix(store, slotCoefficients, slot);
+            } else {
+              GearPredictorCorrector.fix(systemData, slotCoefficients, slot);
+            }
+
+            if (systemData.isBallistic(slot)) {
+              systemData.dropHigherDerivatives(slot);
+            }
+          }
+          store.elapsedSteps(slot, 0);
+          store.syncRequested(slot, false);
+          store.level(slot, nextLevel(level, maxTimeStep, dt));
+
+          // update system's particle, which is only built if it is asked for
+          systemData.particleChanged(slot);
+        } else {
+          // it goes on at its predicted values until it is fixed; sooner, if its level is too coarse now
+          if (maxTimeStep < (1 << level) * dt) {
+            store.syncRequested(slot, true);
+          }
+          systemData.particle(slot, cParticle);
+        }
+
+        // inform that this particle has just been fixed
+        systemData.fixed(slot, chunk);
+      }
+    });
+
+    systemData.postFix();
+  }
+
+  /**
+   * Stops the threads used to integrate the system, if any
+   */
+  @Override
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  // private methods
+
+  private void updateCoefficients(final GearSystemData systemData, final double dt) {
+    if (coefficients == null) {
+      coefficients = new GearCoefficients[(1 << maxLevel) + 1];
+      for (int elapsedSteps = 1; elapsedSteps < coefficients.length; elapsedSteps++) {
+        coefficients[elapsedSteps] = systemData.newCoefficients();
+      }
+    }
+    // they are only recalculated if dt changes
+    for (int elapsedSteps = 1; elapsedSteps < coefficients.length; elapsedSteps++) {
+      coefficients[elapsedSteps].update(elapsedSteps * dt);
+    }
+  }
+
+  private GearCoefficients coefficients(final GearSystemData systemData, final int elapsedSteps, final double dt) {
+    if (elapsedSteps < coefficients.length) {
+      return coefficients[elapsedSteps];
+    }
+    // only if its level was set beyond the max one, e.g., by a saved state
+    return systemData.newCoefficients().update(elapsedSteps * dt);
+  }
+
+  /**
+   * @return the biggest level whose time step is not bigger than the given max one, going up at most one level from
+   * the given one, so as it does not jump to a coarse level just as its interactions calm down
+   */
+  private int nextLevel(final int level, final double maxTimeStep, final double dt) {
+    final int maxNextLevel = Math.min(maxLevel, level + 1);
+    int nextLevel = 0;
+    while (nextLevel < maxNextLevel && (2 << nextLevel) * dt <= maxTimeStep) {
+      nextLevel++;
+    }
+    return nextLevel;
+  }
+}
@@ -0,0 +1,129 @@
+package ar.edu.itba.ss.granularmedia.services.gear;
+
+import ar.edu.itba.ss.granularmedia.interfaces.NumericIntegrationMethod;
+import ar.edu.itba.ss.granularmedia.models.Particle;
+import ar.edu.itba.ss.granularmedia.models.Vector2D;
+
+/**
+ * Velocity Verlet numeric integration method.
+ * <P>
+ * It integrates the same system's data as {@link GearPredictorCorrector}, through the same steps and hooks, but
+ * it only uses the particles' position, velocity and acceleration, and evaluates forces once per step, so its
+ * steps are much cheaper. It is second order accurate, which is usually enough for dissipative contacts.
+ * <P>
+ * As forces may depend on velocities, e.g., damped contacts, they are evaluated with the velocities predicted by an
+ * Euler step, which are then corrected with the mean of the old and the new accelerations.
+ * <P>
+ * Particles are split in chunks of slots that are predicted, evaluated and fixed in parallel by a
+ * {@link ChunksExecutor}. With only one thread, the whole system is integrated serially at the calling thread.
+ * <P>
+ * Ballistic particles, i.e., those the system's data reports that only feel a constant acceleration, are fixed
+ * with that acceleration, without evaluating their forces.
+ */
+public class VelocityVerlet<K extends GearSystemData> implements NumericIntegrationMethod<K> {
+  /**
+   * Number of derivative values used for each particle: position, velocity and acceleration
+   */
+  public static final int S_VECTORS = 3;
+
+  private static final int POSITION = 0;
+  private static final int VELOCITY = 1;
+  private static final int ACCELERATION = 2;
+
+  private final ChunksExecutor executor;
+
+  public VelocityVerlet() {
+    this(1);
+  }
+
+  /**
+   * @param nThreads number of threads used to integrate the system
+   */
+  public VelocityVerlet(final int nThreads) {
+    this.executor = nThreads == 1 ? ChunksExecutor.SERIAL : new ChunksExecutor(nThreads);
+  }
+
+  @Override
+  public void evolveSystem(final GearSystemData systemData, final double dt) {
+    if (systemData.sVectors() < S_VECTORS) {
+      throw new IllegalArgumentException("Velocity Verlet needs " + S_VECTORS
+              + " derivative values; system's data keeps " + systemData.sVectors());
+    }
+    final double halfDt = dt / 2;
+    final double halfDt2 = dt * halfDt;
+    systemData.executor(executor);
+
+    systemData.prePredict();
+
+    executor.run(systemData.nActiveParticles(), (chunk, from, to) -> {
+      for (int slot = from ; slot < to ; slot++) {
+        // r(t+Δt) = r(t) + v(t) Δt + a(t) Δt^2 / 2 ; v(t+Δt) ~ v(t) + a(t) Δt
+        final double vX = systemData.getRX(slot, VELOCITY);
+        final double vY = systemData.getRY(slot, VELOCITY);
+        final double aX = systemData.getRX(slot, ACCELERATION);
+        final double aY = systemData.getRY(slot, ACCELERATION);
+        systemData.setPredictedR(slot, POSITION,
+                systemData.getRX(slot, POSITION) + vX * dt + aX * halfDt2,
+                systemData.getRY(slot, POSITION) + vY * dt + aY * halfDt2);
+        systemData.setPredictedR(slot, VELOCITY, vX + aX * dt, vY + aY * dt);
+        systemData.setPredictedR(slot, ACCELERATION, aX, aY);
+
+        // update the currently predicting values
+        final Particle cPredictedSystemParticle = systemData.predictedSystemParticle(slot);
+        systemData.predictedParticle(slot, cPredictedSystemParticle);
+
+        // inform that this particle has just been predicted
+        systemData.predicted(cPredictedSystemParticle, chunk);
+      }
+    });
+
+    systemData.postPredict();
+
+    // fix and evaluate, all at once
+    systemData.preEvaluate();
+    systemData.preFix();
+
+    // particles may have been removed after prediction; inactive ones are neither predicted nor fixed
+    executor.run(systemData.nActiveParticles(), (chunk, from, to) -> {
+      for (int slot = from ; slot < to ; slot++) {
+        final Particle cParticle = systemData.predictedParticle(slot);
+
+        // a(t+Δt) = F(r(t+Δt), v(t+Δt)) / m ; v(t+Δt) = v(t) + (a(t) + a(t+Δt)) Δt / 2
+        final double uAX;
+        final double uAY;
+        if (systemData.isBallistic(slot)) {
+          // only a constant acceleration acts on it, so it is not evaluated
+          uAX = systemData.ballisticAccelerationX();
+          uAY = systemData.ballisticAccelerationY();
+        } else {
+          final Vector2D force = systemData.getForceWithPredicted(cParticle);
+          final double mass = cParticle.mass();
+          uAX = force.x() / mass;
+          uAY = force.y() / mass;
+        }
+        systemData.setR(slot, VELOCITY,
+                systemData.getRX(slot, VELOCITY) + (systemData.getRX(slot, ACCELERATION) + uAX) * halfDt,
+                systemData.getRY(slot, VELOCITY) + (systemData.getRY(slot, ACCELERATION) + uAY) * halfDt);
+        systemData.setR(slot, POSITION,
+                systemData.getPredictedRX(slot, POSITION), systemData.getPredictedRY(slot, POSITION));
+        systemData.setR(slot, ACCELERATION, uAX, uAY);
+
+        // update system's particle, which is only built if it is asked for
+        systemData.particleChanged(slot);
+
+        // inform that this particle has just been fixed
+        systemData.fixed(slot, chunk);
+      }
+    });
+
+    systemData.postFix();
+  }
+
+  /**
+   * Stops the threads used to integrate the system, if any
+   */
+  @Override
+  public void shutdown() {
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,162 @@
+package ar.edu.itba.ss.granularmedia.services.neighboursfinders;
+
+import ar.edu.itba.ss.granularmedia.interfaces.NeighboursFinder;
+import ar.edu.itba.ss.granularmedia.models.Particle;
+import ar.edu.itba.ss.granularmedia.services.apis.Space2DMaths;
+
+import java.util.*;
+
+/**
+ * Cell Index Method (linked-cell) implementation of the {@link NeighboursFinder}.
+ * <P>
+ * The system's area is divided into a uniform grid whose cells side is at least {@code maxDiameter + rc},
+ * so two particles can only collide if they are at the same or at adjacent cells.
+ * Then, each particle is only compared against the particles of its own cell and of half of its neighbour cells
+ * (up, up-right, right and down-right), so as each pair is checked only once.
+ * <P>
+ * Collision condition is exactly the same as the one used by {@link BruteForceMethodImpl}, so both methods
+ * return the same contact sets.
+ * <P>
+ * Particles that are outside the grid (for example, particles that are falling out of the system) are
+ * considered as if they were at the nearest border cell. As this projection never separates two close particles
+ * more than one cell, no collision is missed.
+ */
+public class CellIndexMethodImpl implements NeighboursFinder {
+  private static final int EMPTY = -1;
+
+  private final double rc;
+  private final int mCols;
+  private final int mRows;
+  private final double cellWidth;
+  private final double cellLength;
+
+  // linked cells; reused between runs
+  private final int[] heads;
+  private int[] nexts;
+  private Particle[] particlesAsArray;
+
+  /**
+   * @param width the width of the area containing the particles
+   * @param length the length of the area containing the particles
+   * @param maxDiameter the diameter of the biggest particle of the system
+   * @param rc the interaction radius; particles whose borders are at a distance {@code <= rc} are considered neighbours
+   */
+  public CellIndexMethodImpl(final double width, final double length, final double maxDiameter, final double rc) {
+    if (width <= 0 || length <= 0) {
+      throw new IllegalArgumentException("Width and length should be > 0");
+    }
+    this.rc = rc;
+
+    final double minCellSize = maxDiameter + rc;
+    this.mCols = nCells(width, minCellSize);
+    this.mRows = nCells(length, minCellSize);
+    this.cellWidth = width / mCols;
+    this.cellLength = length / mRows;
+
+    this.heads = new int[mCols * mRows];
+    this.nexts = new int[0];
+    this.particlesAsArray = new Particle[0];
+  }
+
+  @Override
+  public Map<Particle, Collection<Particle>> run(final Collection<Particle> particles) {
+    final int nParticles = particles.size();
+    final Map<Particle, Collection<Particle>> collisionPerParticle = new HashMap<>(nParticles);
+
+    fillCells(particles);
+
+    for (int i = 0; i < nParticles; i++) {
+      // add the point to the map to be returned, with a new empty list
+      collisionPerParticle.put(particlesAsArray[i], new ArrayList<>());
+    }
+
+    calculateCollisions(collisionPerParticle);
+
+    // release references so as not to retain old particles between runs
+    Arrays.fill(particlesAsArray, 0, nParticles, null);
+
+    return collisionPerParticle;
+  }
+
+  // private methods
+
+  private void fillCells(final Collection<Particle> particles) {
+    final int nParticles = particles.size();
+    if (particlesAsArray.length < nParticles) {
+      particlesAsArray = new Particle[nParticles];
+      nexts = new int[nParticles];
+    }
+
+    Arrays.fill(heads, EMPTY);
+
+    int i = 0;
+    for (final Particle particle : particles) {
+      particlesAsArray[i] = particle;
+      final int cell = cellOf(particle);
+      nexts[i] = heads[cell];
+      heads[cell] = i;
+      i++;
+    }
+  }
+
+  private void calculateCollisions(final Map<Particle, Collection<Particle>> collisionPerParticle) {
+    for (int row = 0; row < mRows; row++) {
+      for (int col = 0; col < mCols; col++) {
+        final int cell = row * mCols + col;
+        for (int i = heads[cell]; i != EMPTY; i = nexts[i]) {
+          // same cell: only the particles after the current one, so as to check each pair once
+          checkCollisions(collisionPerParticle, i, nexts[i]);
+          // half of the neighbour cells
+          checkCollisions(collisionPerParticle, i, row + 1, col);
+          checkCollisions(collisionPerParticle, i, row + 1, col + 1);
+          checkCollisions(collisionPerParticle, i, row, col + 1);
+          checkCollisions(collisionPerParticle, i, row - 1, col + 1);
+        }
+      }
+    }
+  }
+
+  private void checkCollisions(final Map<Particle, Collection<Particle>> collisionPerParticle,
+                               final int i, final int row, final int col) {
+    if (row < 0 || row >= mRows || col >= mCols) {
+      return;
+    }
+    checkCollisions(collisionPerParticle, i, heads[row * mCols + col]);
+  }
+
+  private void checkCollisions(final Map<Particle, Collection<Particle>> collisionPerParticle,
+                               final int i, final int firstJ) {
+    final Particle pI = particlesAsArray[i];
+    for (int j = firstJ; j != EMPTY; j = nexts[j]) {
+      final Particle pJ = particlesAsArray[j];
+      final double distance = Space2DMaths.distanceBetween(pI, pJ);
+      if (distance <= rc) {
+        collisionPerParticle.get(pI).add(pJ);
+        collisionPerParticle.get(pJ).add(pI);
+      }
+    }
+  }
+
+  private int cellOf(final Particle particle) {
+    final int col = clamp((int) Math.floor(particle.x() / cellWidth), mCols);
+    final int row = clamp((int) Math.floor(particle.y() / cellLength), mRows);
+    return row * mCols + col;
+  }
+
+  private static int clamp(final int index, final int nCells) {
+    if (index < 0) {
+      return 0;
+    }
+    if (index >= nCells) {
+      return nCells - 1;
+    }
+    return index;
+  }
+
+  private static int nCells(final double size, final double minCellSize) {
+    if (minCellSize <= 0) {
+      return 1;
+    }
+    return Math.max(1, (int) Math.floor(size / minCellSize));
+  }
+}
@@ -0,0 +1,192 @@
+package ar.edu.itba.ss.granularmedia.services.neighboursfinders;
+
+import ar.edu.itba.ss.granularmedia.interfaces.NeighboursFinder;
+import ar.edu.itba.ss.granularmedia.models.Particle;
+import ar.edu.itba.ss.granularmedia.services.apis.Space2DMaths;
+
+import java.util.*;
+
+/**
+ * Verlet list implementation of the {@link NeighboursFinder}.
+ * <P>
+ * Candidate pairs - i.e., the ones whose borders are at a distance {@code <= rc + skin} - are calculated with
+ * the given {@code candidatesFinder}, and they are kept between runs. Each run, only the candidate pairs are
+ * checked against the {@code rc} collision condition.
+ * <P>
+ * The candidate pairs are rebuilt only when any particle has moved more than {@code skin / 2} since the last build,
+ * as until then, no pair that was not a candidate could be at a distance {@code <= rc}.
+ * They are also rebuilt when a particle that was not present at the last build appears, for example,
+ * when a particle is respawned.
+ * <P>
+ * Collision condition is exactly the same as the one used by {@link BruteForceMethodImpl}, so both methods
+ * return the same contact sets.
+ */
+public class VerletListMethodImpl implements NeighboursFinder {
+  private final NeighboursFinder candidatesFinder;
+  private final double rc;
+  private final double maxDisplacement2;
+
+  // particles' index at the last build
+  private final Map<Particle, Integer> indexes;
+  // particles' position at the last build
+  private double[] buildXs;
+  private double[] buildYs;
+  // candidate pairs, saved as adjacency lists: candidates of the i-th particle are
+  // candidates[candidatesFrom[i]] ... candidates[candidatesFrom[i+1] - 1], and only those with index > i are saved
+  private int[] candidatesFrom;
+  private int[] candidates;
+  // current particles, indexed by their index at the last build
+  private Particle[] currentParticles;
+
+  private boolean built;
+  private long nRuns;
+  private long nRebuilds;
+
+  /**
+   * @param candidatesFinder neighbours finder used to build the candidate pairs. It should be initialized with
+   *                         an interaction radius of {@code rc + skin}
+   * @param rc the interaction radius; particles whose borders are at a distance {@code <= rc} are considered neighbours
+   * @param skin the extra distance considered when building the candidate pairs
+   */
+  public VerletListMethodImpl(final NeighboursFinder candidatesFinder, final double rc, final double skin) {
+    if (skin <= 0) {
+      throw new IllegalArgumentException("Skin should be > 0");
+    }
+    this.candidatesFinder = candidatesFinder;
+    this.rc = rc;
+    final double maxDisplacement = skin / 2;
+    this.maxDisplacement2 = maxDisplacement * maxDisplacement;
+
+    this.indexes = new HashMap<>();
+    this.buildXs = new double[0];
+    this.buildYs = new double[0];
+    this.candidatesFrom = new int[1];
+    this.candidates = new int[0];
+    this.currentParticles = new Particle[0];
+    this.built = false;
+  }
+
+  @Override
+  public Map<Particle, Collection<Particle>> run(final Collection<Particle> particles) {
+    nRuns ++;
+
+    if (!built || !updateCurrentParticles(particles)) {
+      build(particles);
+      nRebuilds ++;
+    }
+
+    final Map<Particle, Collection<Particle>> collisionPerParticle = new HashMap<>(particles.size());
+    particles.forEach(particle -> collisionPerParticle.put(particle, new ArrayList<>()));
+
+    for (int i = 0; i < currentParticles.length; i++) {
+      final Particle pI = currentParticles[i];
+      if (pI == null) { // particle no longer at the system
+        continue;
+      }
+      for (int k = candidatesFrom[i]; k < candidatesFrom[i + 1]; k++) {
+        final Particle pJ = currentParticles[candidates[k]];
+        if (pJ != null && Space2DMaths.distanceBetween(pI, pJ) <= rc) {
+          collisionPerParticle.get(pI).add(pJ);
+          collisionPerParticle.get(pJ).add(pI);
+        }
+      }
+    }
+
+    return collisionPerParticle;
+  }
+
+  /**
+   * Makes the next run rebuild the candidate pairs
+   */
+  @Override
+  public void reset() {
+    built = false;
+  }
+
+  /**
+   * @return how many times this method has been run
+   */
+  public long nRuns() {
+    return nRuns;
+  }
+
+  /**
+   * @return how many times the candidate pairs have been rebuilt
+   */
+  public long nRebuilds() {
+    return nRebuilds;
+  }
+
+  /**
+   * @return the ratio between the times the candidate pairs have been rebuilt and the times this method has been run;
+   * 0 if it has not been run yet
+   */
+  public double rebuildFrequency() {
+    return nRuns == 0 ? 0 : (double) nRebuilds / nRuns;
+  }
+
+  // private methods
+
+  /**
+   * Saves each of the given particles at the position of its index at the last build,
+   * checking that none of them has moved too much.
+   * @param particles the current particles
+   * @return true if candidate pairs are still valid; false if they should be rebuilt
+   */
+  private boolean updateCurrentParticles(final Collection<Particle> particles) {
+    Arrays.fill(currentParticles, null);
+    for (final Particle particle : particles) {
+      final Integer index = indexes.get(particle);
+      if (index == null) { // new particle
+        return false;
+      }
+      final double dx = particle.x() - buildXs[index];
+      final double dy = particle.y() - buildYs[index];
+      if (dx * dx + dy * dy > maxDisplacement2) {
+        return false;
+      }
+      currentParticles[index] = particle;
+    }
+    return true;
+  }
+
+  private void build(final Collection<Particle> particles) {
+    final int nParticles = particles.size();
+    indexes.clear();
+    buildXs = new double[nParticles];
+    buildYs = new double[nParticles];
+    currentParticles = new Particle[nParticles];
+
+    int i = 0;
+    for (final Particle particle : particles) {
+      indexes.put(particle, i);
+      buildXs[i] = particle.x();
+      buildYs[i] = particle.y();
+      currentParticles[i] = particle;
+      i++;
+    }
+
+    final Map<Particle, Collection<Particle>> candidatesPerParticle = candidatesFinder.run(particles);
+
+    int nCandidates = 0;
+    for (final Collection<Particle> particleCandidates : candidatesPerParticle.values()) {
+      nCandidates += particleCandidates.size();
+    }
+    candidatesFrom = new int[nParticles + 1];
+    candidates = new int[nCandidates];
+
+    // each pair is saved only once
+    int k = 0;
+    for (i = 0; i < nParticles; i++) {
+      candidatesFrom[i] = k;
+      for (final Particle candidate : candidatesPerParticle.get(currentParticles[i])) {
+        final int j = indexes.get(candidate);
+        if (j > i) {
+          candidates[k++] = j;
+        }
+      }
+    }
+    candidatesFrom[nParticles] = k;
+    built = true;
+  }
+}
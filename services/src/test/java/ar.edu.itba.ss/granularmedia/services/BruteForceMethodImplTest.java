@@ -22,11 +22,11 @@ public class BruteForceMethodImplTest {
         final double r = 0.5;
 
         final Set<Particle> points = new HashSet<>();
-        final Particle p1 = Particle.builder(1,1).radio(r).build();
-        final Particle p2 = Particle.builder(2.5,1).radio(r).build();
-        final Particle p3 = Particle.builder(4,1).radio(r).build();
-        final Particle p4 = Particle.builder(2.5,2.5).radio(r).build();
-        final Particle p5 = Particle.builder(4,5.5).radio(r).build();
+        final Particle p1 = Particle.builder(1,1).id(1).radio(r).build();
+        final Particle p2 = Particle.builder(2.5,1).id(2).radio(r).build();
+        final Particle p3 = Particle.builder(4,1).id(3).radio(r).build();
+        final Particle p4 = Particle.builder(2.5,2.5).id(4).radio(r).build();
+        final Particle p5 = Particle.builder(4,5.5).id(5).radio(r).build();
 
         points.add(p1);
         points.add(p2);
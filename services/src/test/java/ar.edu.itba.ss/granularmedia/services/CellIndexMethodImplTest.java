@@ -0,0 +1,74 @@
+package ar.edu.itba.ss.granularmedia.services;
+
+import ar.edu.itba.ss.granularmedia.interfaces.NeighboursFinder;
+import ar.edu.itba.ss.granularmedia.models.Particle;
+import ar.edu.itba.ss.granularmedia.services.factories.ParticleFactory;
+import ar.edu.itba.ss.granularmedia.services.neighboursfinders.BruteForceMethodImpl;
+import ar.edu.itba.ss.granularmedia.services.neighboursfinders.CellIndexMethodImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+public class CellIndexMethodImplTest {
+  private static final double WIDTH = 20;
+  private static final double LENGTH = 40;
+  private static final double RADIO = 0.5;
+  private static final double MAX_DIAMETER = 2 * RADIO;
+  private static final int N_PARTICLES = 1500;
+
+  @Test
+  public void runWithNoPeriodicLimitTest() {
+    final double rc = 1.5;
+    final NeighboursFinder cellIndexMethod = new CellIndexMethodImpl(5, 6, MAX_DIAMETER, rc);
+
+    final Set<Particle> points = new HashSet<>();
+    final Particle p1 = Particle.builder(1,1).id(1).radio(RADIO).build();
+    final Particle p2 = Particle.builder(2.5,1).id(2).radio(RADIO).build();
+    final Particle p3 = Particle.builder(4,1).id(3).radio(RADIO).build();
+    final Particle p4 = Particle.builder(2.5,2.5).id(4).radio(RADIO).build();
+    final Particle p5 = Particle.builder(4,5.5).id(5).radio(RADIO).build();
+
+    points.add(p1);
+    points.add(p2);
+    points.add(p3);
+    points.add(p4);
+    points.add(p5);
+
+    final Map<Particle, Set<Particle>> processedPoints = asSets(cellIndexMethod.run(points));
+
+    final Map<Particle, Set<Particle>> expectedProcessedPoints = new HashMap<>();
+    expectedProcessedPoints.put(p1, new HashSet<>(Arrays.asList(p2, p4)));
+    expectedProcessedPoints.put(p2, new HashSet<>(Arrays.asList(p1, p3, p4)));
+    expectedProcessedPoints.put(p3, new HashSet<>(Arrays.asList(p2, p4)));
+    expectedProcessedPoints.put(p4, new HashSet<>(Arrays.asList(p1, p2, p3)));
+    expectedProcessedPoints.put(p5, new HashSet<>());
+
+    Assert.assertEquals(expectedProcessedPoints, processedPoints);
+  }
+
+  @Test
+  public void sameContactsAsBruteForceTest() {
+    final double rc = 0;
+    final NeighboursFinder bruteForceMethod = new BruteForceMethodImpl(false, rc);
+    final NeighboursFinder cellIndexMethod = new CellIndexMethodImpl(WIDTH, LENGTH, MAX_DIAMETER, rc);
+
+    final double[] radios = new double[N_PARTICLES];
+    Arrays.fill(radios, RADIO);
+    // overlapped particles, so as there are plenty of contacts
+    final Set<Particle> particles = ParticleFactory.getInstance().randomPoints(
+            Particle.builder(0, 0).id(0).build(), Particle.builder(WIDTH, LENGTH).id(0).build(), radios, 1, true, 0);
+    // particles out of the grid should be considered too
+    particles.add(Particle.builder(WIDTH / 2, -3 * RADIO).id(N_PARTICLES + 1).radio(RADIO).build());
+    particles.add(Particle.builder(WIDTH / 2 + RADIO, -3 * RADIO).id(N_PARTICLES + 2).radio(RADIO).build());
+
+    Assert.assertEquals(asSets(bruteForceMethod.run(particles)), asSets(cellIndexMethod.run(particles)));
+  }
+
+  private static Map<Particle, Set<Particle>> asSets(final Map<Particle, Collection<Particle>> neighbours) {
+    final Map<Particle, Set<Particle>> neighboursAsSets = new HashMap<>();
+    neighbours.forEach((particle, particleNeighbours) ->
+            neighboursAsSets.put(particle, new HashSet<>(particleNeighbours)));
+    return neighboursAsSets;
+  }
+}
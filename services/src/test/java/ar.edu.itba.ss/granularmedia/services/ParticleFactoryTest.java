@@ -3,9 +3,14 @@ package ar.edu.itba.ss.granularmedia.services;
 import ar.edu.itba.ss.granularmedia.models.Particle;
 import ar.edu.itba.ss.granularmedia.services.apis.Space2DMaths;
 import ar.edu.itba.ss.granularmedia.services.factories.ParticleFactory;
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class ParticleFactoryTest {
@@ -18,8 +23,11 @@ public class ParticleFactoryTest {
   private static final int MIN_Y = 0;
   private static final int MAX_X = 20;
   private static final int MAX_Y = 20;
-  private static final Particle leftBottomParticle = Particle.builder(MIN_X, MIN_Y).build();
-  private static final Particle rightTopParticle = Particle.builder(MAX_X, MAX_Y).build();
+  private static final long SEED = 42;
+  // settled particles touch each other with a relative gap of about 1e-9
+  private static final double CONTACT_TOLERANCE = 1e-6;
+  private static final Particle leftBottomParticle = Particle.builder(MIN_X, MIN_Y).id(0).build();
+  private static final Particle rightTopParticle = Particle.builder(MAX_X, MAX_Y).id(0).build();
 
   static {
     radios = new double[N_PARTICLES];
@@ -35,6 +43,103 @@ public class ParticleFactoryTest {
     }
   }
 
+  @Test
+  public void testSameSeedSamePoints() {
+    final ParticleFactory pF = ParticleFactory.getInstance();
+    final RandomService random = new RandomService(SEED);
+    final RandomService sameRandom = new RandomService(SEED);
+
+    final Set<Particle> points = pF.randomPoints(leftBottomParticle, rightTopParticle, radios, MASS, false, MAX_TRIES,
+            random);
+    final Set<Particle> samePoints = pF.randomPoints(leftBottomParticle, rightTopParticle, radios, MASS, false,
+            MAX_TRIES, sameRandom);
+
+    Assert.assertEquals(points.size(), samePoints.size());
+    final Map<Long, Particle> samePointsById = new HashMap<>();
+    samePoints.forEach(p -> samePointsById.put(p.id(), p));
+    for (final Particle p : points) {
+      final Particle same = samePointsById.get(p.id());
+      Assert.assertNotNull(same);
+      Assert.assertEquals(p.x(), same.x(), 0);
+      Assert.assertEquals(p.y(), same.y(), 0);
+    }
+  }
+
+  @Test
+  public void testSettledPoints() {
+    final ParticleFactory pF = ParticleFactory.getInstance();
+    final RandomService random = new RandomService(SEED);
+    final double[] settledRadios = new double[N_PARTICLES];
+    for (int i = 0 ; i < N_PARTICLES ; i++) {
+      settledRadios[i] = random.randomDouble(RADIO / 10, RADIO / 5);
+    }
+
+    final Set<Particle> points = pF.settledPoints(leftBottomParticle, rightTopParticle, settledRadios, MASS, random);
+    Assert.assertEquals(N_PARTICLES, points.size());
+
+    double top = MIN_Y;
+    for (final Particle p1 : points) {
+      // check bounds
+      Assert.assertTrue(p1.x() - p1.radio() >= MIN_X && p1.x() + p1.radio() <= MAX_X);
+      Assert.assertTrue(p1.y() - p1.radio() >= MIN_Y && p1.y() + p1.radio() <= MAX_Y);
+
+      // contacts' normals, i.e., directions in which the floor, the walls and other particles push it
+      final List<double[]> normals = new ArrayList<>();
+      if (p1.y() - p1.radio() - MIN_Y < CONTACT_TOLERANCE) {
+        normals.add(new double[] {0, 1});
+      }
+      if (p1.x() - p1.radio() - MIN_X < CONTACT_TOLERANCE) {
+        normals.add(new double[] {1, 0});
+      }
+      if (MAX_X - p1.x() - p1.radio() < CONTACT_TOLERANCE) {
+        normals.add(new double[] {-1, 0});
+      }
+      for (final Particle p2 : points) {
+        if (p1.equals(p2)) {
+          continue;
+        }
+
+        // check collision
+        final double distance = Space2DMaths.distanceBetween(p1, p2);
+        Assert.assertTrue(distance >= 0);
+        if (distance < CONTACT_TOLERANCE) {
+          normals.add(new double[] {p1.x() - p2.x(), p1.y() - p2.y()});
+        }
+      }
+      // check it rests, i.e., the contacts can hold it against gravity
+      Assert.assertTrue(holdsAgainstGravity(normals));
+
+      top = Math.max(top, p1.y() + p1.radio());
+    }
+
+    // check it is dense, away from the floor and the loose top layer; random disks' packings are about 0.8 dense
+    final double bandMinY = MIN_Y + (top - MIN_Y) / 4;
+    final double bandMaxY = top - (top - MIN_Y) / 4;
+    double bandParticlesArea = 0;
+    for (final Particle p : points) {
+      if (p.y() >= bandMinY && p.y() < bandMaxY) {
+        bandParticlesArea += Math.PI * p.radio() * p.radio();
+      }
+    }
+    Assert.assertTrue(bandParticlesArea / ((MAX_X - MIN_X) * (bandMaxY - bandMinY)) > 0.7);
+  }
+
+  /**
+   * @return true if the upward direction is a non-negative combination of two of the given normals; false otherwise
+   */
+  private static boolean holdsAgainstGravity(final List<double[]> normals) {
+    for (final double[] right : normals) {
+      for (final double[] left : normals) {
+        // right is clockwise from up, left is counterclockwise from up, and they are less than half a turn apart
+        if (right[0] >= 0 && left[0] <= 0 && right[0] * left[1] - right[1] * left[0] >= 0
+                && (right[1] > 0 || left[1] > 0)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
   private void wrappedTestRandomPoints() {
     final ParticleFactory pF = ParticleFactory.getInstance();
 
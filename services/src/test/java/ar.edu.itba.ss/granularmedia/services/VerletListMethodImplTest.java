@@ -0,0 +1,83 @@
+package ar.edu.itba.ss.granularmedia.services;
+
+import ar.edu.itba.ss.granularmedia.interfaces.NeighboursFinder;
+import ar.edu.itba.ss.granularmedia.models.Particle;
+import ar.edu.itba.ss.granularmedia.services.factories.ParticleFactory;
+import ar.edu.itba.ss.granularmedia.services.neighboursfinders.BruteForceMethodImpl;
+import ar.edu.itba.ss.granularmedia.services.neighboursfinders.CellIndexMethodImpl;
+import ar.edu.itba.ss.granularmedia.services.neighboursfinders.VerletListMethodImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+public class VerletListMethodImplTest {
+  private static final double WIDTH = 20;
+  private static final double LENGTH = 40;
+  private static final double RADIO = 0.5;
+  private static final double MAX_DIAMETER = 2 * RADIO;
+  private static final double RC = 0;
+  private static final double SKIN = 0.2;
+  private static final double STEP_DISPLACEMENT = 0.01;
+  private static final int N_PARTICLES = 1000;
+  private static final int N_STEPS = 50;
+
+  @Test
+  public void sameContactsAsBruteForceTest() {
+    final NeighboursFinder bruteForceMethod = new BruteForceMethodImpl(false, RC);
+    final VerletListMethodImpl verletListMethod = new VerletListMethodImpl(
+            new CellIndexMethodImpl(WIDTH, LENGTH, MAX_DIAMETER, RC + SKIN), RC, SKIN);
+
+    final double[] radios = new double[N_PARTICLES];
+    Arrays.fill(radios, RADIO);
+    Collection<Particle> particles = ParticleFactory.getInstance().randomPoints(
+            Particle.builder(0, 0).id(0).build(), Particle.builder(WIDTH, LENGTH).id(0).build(), radios, 1, true, 0);
+
+    for (int step = 0; step < N_STEPS; step++) {
+      Assert.assertEquals(asSets(bruteForceMethod.run(particles)), asSets(verletListMethod.run(particles)));
+      particles = move(particles);
+    }
+
+    // particles need more than (skin/2) / STEP_DISPLACEMENT steps to move more than skin/2
+    Assert.assertEquals(N_STEPS, verletListMethod.nRuns());
+    Assert.assertTrue(verletListMethod.nRebuilds() > 1);
+    Assert.assertTrue(verletListMethod.nRebuilds() <= N_STEPS * STEP_DISPLACEMENT / (SKIN / 2) + 1);
+  }
+
+  @Test
+  public void rebuildOnNewParticleTest() {
+    final VerletListMethodImpl verletListMethod = new VerletListMethodImpl(
+            new CellIndexMethodImpl(WIDTH, LENGTH, MAX_DIAMETER, RC + SKIN), RC, SKIN);
+
+    final Collection<Particle> particles = new HashSet<>();
+    final Particle p1 = Particle.builder(1, 1).id(1).radio(RADIO).build();
+    particles.add(p1);
+    verletListMethod.run(particles);
+    verletListMethod.run(particles);
+    Assert.assertEquals(1, verletListMethod.nRebuilds());
+
+    final Particle p2 = Particle.builder(1.5, 1).id(2).radio(RADIO).build();
+    particles.add(p2);
+    final Map<Particle, Collection<Particle>> neighbours = verletListMethod.run(particles);
+    Assert.assertEquals(2, verletListMethod.nRebuilds());
+    Assert.assertEquals(Collections.singletonList(p2), neighbours.get(p1));
+    Assert.assertEquals(Collections.singletonList(p1), neighbours.get(p2));
+  }
+
+  private static Collection<Particle> move(final Collection<Particle> particles) {
+    final Collection<Particle> moved = new HashSet<>(particles.size());
+    // half of the particles go to the right and the other half go to the left
+    particles.forEach(particle -> {
+      final double direction = particle.id() % 2 == 0 ? 1 : -1;
+      moved.add(particle.withX(particle.x() + direction * STEP_DISPLACEMENT));
+    });
+    return moved;
+  }
+
+  private static Map<Particle, Set<Particle>> asSets(final Map<Particle, Collection<Particle>> neighbours) {
+    final Map<Particle, Set<Particle>> neighboursAsSets = new HashMap<>();
+    neighbours.forEach((particle, particleNeighbours) ->
+            neighboursAsSets.put(particle, new HashSet<>(particleNeighbours)));
+    return neighboursAsSets;
+  }
+}
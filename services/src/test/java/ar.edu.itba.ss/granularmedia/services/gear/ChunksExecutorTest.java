@@ -0,0 +1,66 @@
+package ar.edu.itba.ss.granularmedia.services.gear;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class ChunksExecutorTest {
+  private static final int N_THREADS = 4;
+  private static final int SIZE = 1000;
+  private static final long SLOW_CHUNK_MILLIS = 200;
+
+  @Test
+  public void failingFirstChunkWaitsForTheOtherOnesTest() {
+    final ChunksExecutor executor = new ChunksExecutor(N_THREADS);
+    final AtomicIntegerArray finished = new AtomicIntegerArray(N_THREADS);
+    final IllegalStateException failure = new IllegalStateException("first chunk");
+    try {
+      executor.run(SIZE, (chunk, from, to) -> {
+        if (chunk == 0) {
+          throw failure;
+        }
+        sleep();
+        finished.set(chunk, 1);
+      });
+      Assert.fail("The first chunk's failure should be thrown");
+    } catch (final IllegalStateException e) {
+      Assert.assertSame(failure, e);
+    } finally {
+      executor.shutdown();
+    }
+    // no chunk is running once the failure has been thrown
+    for (int chunk = 1; chunk < N_THREADS; chunk++) {
+      Assert.assertEquals(1, finished.get(chunk));
+    }
+  }
+
+  @Test
+  public void firstFailureInChunkOrderIsThrownTest() {
+    final ChunksExecutor executor = new ChunksExecutor(N_THREADS);
+    try {
+      executor.run(SIZE, (chunk, from, to) -> {
+        if (chunk == 1) {
+          sleep();
+        }
+        if (chunk > 0) {
+          throw new IllegalArgumentException(String.valueOf(chunk));
+        }
+      });
+      Assert.fail("A chunk's failure should be thrown");
+    } catch (final IllegalArgumentException e) {
+      Assert.assertEquals("1", e.getMessage());
+      Assert.assertEquals(N_THREADS - 2, e.getSuppressed().length);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static void sleep() {
+    try {
+      Thread.sleep(SLOW_CHUNK_MILLIS);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
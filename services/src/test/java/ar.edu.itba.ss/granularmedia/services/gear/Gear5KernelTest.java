@@ -0,0 +1,119 @@
+package ar.edu.itba.ss.granularmedia.services.gear;
+
+import ar.edu.itba.ss.granularmedia.models.Particle;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+public class Gear5KernelTest {
+  private static final int S_VECTORS = Gear5Kernel.ORDER + 1;
+  private static final int N_PARTICLES = 1000;
+  private static final int N_STEPS = 200;
+  private static final double DT = 1e-4;
+  // some bytes may be allocated by the allocation counter itself
+  private static final long MAX_ALLOCATED_BYTES = 1024;
+
+  private static final double[] ALPHA = {3.0/16.0, 251.0/360.0, 1.0, 11.0/18.0, 1.0/6.0, 1.0/60.0};
+
+  private GearStateStore store;
+  private GearCoefficients coefficients;
+
+  @Before
+  public void setEnvironment() {
+    final long[] factorial = new long[S_VECTORS];
+    for (int i = 0; i < S_VECTORS; i++) {
+      factorial[i] = GearSystemData.staticFactorial(i);
+    }
+    coefficients = new GearCoefficients(Gear5Kernel.ORDER, ALPHA, factorial);
+
+    store = new GearStateStore(S_VECTORS, N_PARTICLES);
+    for (int i = 0; i < N_PARTICLES; i++) {
+      final int slot = store.add(Particle.builder(i, 0).id(i + 1).build());
+      store.r(slot, 0, i, 0);
+      store.r(slot, 1, 1, -1);
+      store.r(slot, 2, 0, -9.8);
+    }
+  }
+
+  @Test
+  public void sameResultAsGenericStepsTest() {
+    final GearStateStore genericStore = new GearStateStore(S_VECTORS, N_PARTICLES);
+    for (int slot = 0; slot < N_PARTICLES; slot++) {
+      genericStore.add(store.particle(slot));
+      for (int order = 0; order < S_VECTORS; order++) {
+        genericStore.r(slot, order, store.rX(slot, order), store.rY(slot, order));
+      }
+    }
+
+    for (int step = 0; step < N_STEPS; step++) {
+      steps(coefficients.update(DT));
+      for (int slot = 0; slot < N_PARTICLES; slot++) {
+        genericSteps(genericStore, coefficients, slot);
+      }
+    }
+
+    for (int slot = 0; slot < N_PARTICLES; slot++) {
+      for (int order = 0; order < S_VECTORS; order++) {
+        Assert.assertEquals(genericStore.rX(slot, order), store.rX(slot, order), 1e-12);
+        Assert.assertEquals(genericStore.rY(slot, order), store.rY(slot, order), 1e-12);
+      }
+    }
+  }
+
+  @Test
+  public void noAllocationTest() {
+    final java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    Assume.assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+    final com.sun.management.ThreadMXBean allocationCounter = (com.sun.management.ThreadMXBean) threadMXBean;
+    Assume.assumeTrue(allocationCounter.isThreadAllocatedMemorySupported());
+    allocationCounter.setThreadAllocatedMemoryEnabled(true);
+
+    // warm up, so as the measured steps are not affected by class loading nor compilation
+    for (int step = 0; step < N_STEPS; step++) {
+      steps(coefficients.update(DT));
+    }
+
+    final long threadId = Thread.currentThread().getId();
+    final long before = allocationCounter.getThreadAllocatedBytes(threadId);
+    for (int step = 0; step < N_STEPS; step++) {
+      // alternate dt, so as coefficients are recalculated too
+      steps(coefficients.update(step % 2 == 0 ? DT : DT / 2));
+    }
+    final long allocated = allocationCounter.getThreadAllocatedBytes(threadId) - before;
+
+    Assert.assertTrue("Allocated bytes: " + allocated, allocated < MAX_ALLOCATED_BYTES);
+  }
+
+  private void steps(final GearCoefficients coefficients) {
+    for (int slot = 0; slot < N_PARTICLES; slot++) {
+      Gear5Kernel.predict(store, coefficients, slot);
+    }
+    for (int slot = 0; slot < N_PARTICLES; slot++) {
+      Gear5Kernel.evaluate(store, coefficients, slot, 0, -9.8);
+      Gear5Kernel.fix(store, coefficients, slot);
+    }
+  }
+
+  private static void genericSteps(final GearStateStore store, final GearCoefficients coefficients, final int slot) {
+    for (int order = 0; order < S_VECTORS; order++) {
+      double x = 0;
+      double y = 0;
+      for (int term = 0; order + term < S_VECTORS; term++) {
+        x += store.rX(slot, order + term) * coefficients.predicted(term);
+        y += store.rY(slot, order + term) * coefficients.predicted(term);
+      }
+      store.predictedR(slot, order, x, y);
+    }
+    store.deltaR2(slot,
+            (0 - store.predictedRX(slot, 2)) * coefficients.evaluate(),
+            (-9.8 - store.predictedRY(slot, 2)) * coefficients.evaluate());
+    for (int order = 0; order < S_VECTORS; order++) {
+      store.r(slot, order,
+              store.predictedRX(slot, order) + store.deltaR2X(slot) * coefficients.fix(order),
+              store.predictedRY(slot, order) + store.deltaR2Y(slot) * coefficients.fix(order));
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package ar.edu.itba.ss.granularmedia.services.gear;
+
+import ar.edu.itba.ss.granularmedia.interfaces.NumericIntegrationMethod;
+import ar.edu.itba.ss.granularmedia.models.Particle;
+import ar.edu.itba.ss.granularmedia.models.Vector2D;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+public class GearBallisticTest {
+  private static final double G = 9.80665;
+  private static final double MASS = 1e-2;
+  private static final double K = 1e5;
+  private static final double VX = 0.5;
+  private static final double VY = 0.3;
+  private static final double Y = 0.01;
+  private static final double DT = 1e-5;
+  private static final int N_STEPS = 10000;
+
+  @Test
+  public void ballisticIsClosedFormTest() {
+    final BouncingSystemData systemData = new BouncingSystemData(true, Gear5SystemData.S_VECTORS);
+    final GearPredictorCorrector<BouncingSystemData> gear = new GearPredictorCorrector<>();
+    // it does not reach the floor within these steps
+    final int nSteps = 1000;
+    for (int step = 0; step < nSteps; step++) {
+      gear.evolveSystem(systemData, DT);
+    }
+    Assert.assertEquals(nSteps, systemData.nBallisticSteps);
+
+    final double t = nSteps * DT;
+    Assert.assertEquals(VX * t, systemData.getRX(0, 0), 1e-12);
+    Assert.assertEquals(Y + VY * t - G * t * t / 2, systemData.getRY(0, 0), 1e-12);
+    Assert.assertEquals(VY - G * t, systemData.getRY(0, 1), 1e-12);
+    Assert.assertEquals(- G, systemData.getRY(0, 2), 0);
+    for (int order = 3; order < Gear5SystemData.S_VECTORS; order++) {
+      Assert.assertEquals(0, systemData.getRY(0, order), 0);
+    }
+  }
+
+  @Test
+  public void gearBouncesAsEvaluatedTest() {
+    assertBouncesAsEvaluated(new GearPredictorCorrector<>(), Gear5SystemData.S_VECTORS);
+  }
+
+  @Test
+  public void verletBouncesAsEvaluatedTest() {
+    assertBouncesAsEvaluated(new VelocityVerlet<>(), VelocityVerlet.S_VECTORS);
+  }
+
+  /**
+   * A particle thrown up bounces on a floor; while it does not touch it, it is ballistic, and it should go on as
+   * if its force were evaluated, even after leaving the floor
+   */
+  private static void assertBouncesAsEvaluated(final NumericIntegrationMethod<BouncingSystemData> method,
+                                               final int sVectors) {
+    final BouncingSystemData ballistic = new BouncingSystemData(true, sVectors);
+    final BouncingSystemData evaluated = new BouncingSystemData(false, sVectors);
+    for (int step = 0; step < N_STEPS; step++) {
+      method.evolveSystem(ballistic, DT);
+      method.evolveSystem(evaluated, DT);
+    }
+
+    // it has bounced, and it has been ballistic before and after that
+    Assert.assertTrue(ballistic.nBounceSteps > 0);
+    Assert.assertTrue(ballistic.nBallisticSteps > N_STEPS / 2);
+    Assert.assertTrue(evaluated.getRY(0, 1) > 0);
+    Assert.assertEquals(evaluated.getRX(0, 0), ballistic.getRX(0, 0), 1e-9);
+    Assert.assertEquals(evaluated.getRY(0, 0), ballistic.getRY(0, 0), 1e-7);
+    Assert.assertEquals(evaluated.getRY(0, 1), ballistic.getRY(0, 1), 1e-5);
+  }
+
+  /**
+   * A particle under gravity, over a floor at y = 0 that pushes it back with a spring when it is below it
+   */
+  private static class BouncingSystemData extends Gear5SystemData {
+    private final boolean detectBallistic;
+    private boolean ballistic;
+    private int nBallisticSteps;
+    private int nBounceSteps;
+
+    private BouncingSystemData(final boolean detectBallistic, final int sVectors) {
+      super(Collections.singleton(Particle.builder(0, Y).id(1).mass(MASS).vx(VX).vy(VY).build()), sVectors);
+      this.detectBallistic = detectBallistic;
+      particles().forEach(this::initParticle);
+    }
+
+    @Override
+    protected Map<Integer, Vector2D> setInitialDerivativeValues(final Particle particle) {
+      final Map<Integer, Vector2D> initialDerivativeValues = new HashMap<>(sVectors());
+      for (int order = 0; order < sVectors(); order++) {
+        initialDerivativeValues.put(order, Vector2D.builder(0, 0).build());
+      }
+      initialDerivativeValues.put(0, Vector2D.builder(particle.x(), particle.y()).build());
+      initialDerivativeValues.put(1, Vector2D.builder(particle.vx(), particle.vy()).build());
+      initialDerivativeValues.put(2, Vector2D.builder(0, - G).build());
+      return initialDerivativeValues;
+    }
+
+    @Override
+    protected void preEvaluate() {
+      final boolean touchesFloor = getPredictedRY(0, 0) < 0;
+      ballistic = detectBallistic && !touchesFloor;
+      nBallisticSteps += ballistic ? 1 : 0;
+      nBounceSteps += touchesFloor ? 1 : 0;
+      super.preEvaluate();
+    }
+
+    @Override
+    protected boolean isBallistic(final int slot) {
+      return ballistic;
+    }
+
+    @Override
+    protected double ballisticAccelerationY() {
+      return - G;
+    }
+
+    @Override
+    protected Vector2D getForceWithPredicted(final Particle particle) {
+      final double y = getPredictedRY(slotOf(particle), 0);
+      final double floorForce = y < 0 ? - K * y : 0;
+      return Vector2D.builder(0, floorForce - MASS * G).build();
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package ar.edu.itba.ss.granularmedia.services.gear;
+
+import ar.edu.itba.ss.granularmedia.models.Particle;
+import ar.edu.itba.ss.granularmedia.models.Vector2D;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+public class GearPredictorCorrectorParallelTest {
+  private static final int N_PARTICLES = 2001;
+  private static final int N_THREADS = 4;
+  private static final double MASS = 1;
+  private static final double K = 1000;
+  private static final double GAMMA = 1;
+  private static final double DT = 1e-4;
+  private static final int N_STEPS = 500;
+  private static final double TOLERANCE = 1e-9;
+
+  @Test
+  public void sameResultAsSerialTest() {
+    final ChainSystemData serialData = new ChainSystemData(chain());
+    final ChainSystemData parallelData = new ChainSystemData(chain());
+    final GearPredictorCorrector<ChainSystemData> serial = new GearPredictorCorrector<>();
+    final GearPredictorCorrector<ChainSystemData> parallel = new GearPredictorCorrector<>(N_THREADS);
+
+    for (int step = 0; step < N_STEPS; step++) {
+      serial.evolveSystem(serialData, DT);
+      parallel.evolveSystem(parallelData, DT);
+    }
+    parallel.shutdown();
+
+    Assert.assertEquals(serialData.kineticEnergy, parallelData.kineticEnergy, TOLERANCE);
+    Assert.assertTrue(serialData.kineticEnergy > 0);
+
+    final Map<Long, Particle> serialParticles = byId(serialData.particles());
+    final Map<Long, Particle> parallelParticles = byId(parallelData.particles());
+    Assert.assertEquals(serialParticles.keySet(), parallelParticles.keySet());
+    serialParticles.forEach((id, serialParticle) -> {
+      final Particle parallelParticle = parallelParticles.get(id);
+      Assert.assertEquals(serialParticle.x(), parallelParticle.x(), TOLERANCE);
+      Assert.assertEquals(serialParticle.y(), parallelParticle.y(), TOLERANCE);
+      Assert.assertEquals(serialParticle.vx(), parallelParticle.vx(), TOLERANCE);
+      Assert.assertEquals(serialParticle.vy(), parallelParticle.vy(), TOLERANCE);
+    });
+  }
+
+  private static List<Particle> chain() {
+    final List<Particle> particles = new ArrayList<>(N_PARTICLES);
+    for (int i = 0; i < N_PARTICLES; i++) {
+      // middle particle is displaced, so as a wave goes through the chain
+      final double y = i == N_PARTICLES / 2 ? 0.1 : 0;
+      particles.add(Particle.builder(i, y).id(i).mass(MASS).build());
+    }
+    return particles;
+  }
+
+  private static Map<Long, Particle> byId(final Collection<Particle> particles) {
+    final Map<Long, Particle> particlesById = new HashMap<>();
+    particles.forEach(particle -> particlesById.put(particle.id(), particle));
+    return particlesById;
+  }
+
+  /**
+   * Chain of particles, each one attached with springs to the previous and the next one
+   */
+  private static class ChainSystemData extends Gear5SystemData {
+    private final List<Particle> chain;
+    private double kineticEnergy;
+    private double[] chunksKineticEnergy;
+
+    private ChainSystemData(final List<Particle> chain) {
+      super(chain);
+      this.chain = chain;
+      chain.forEach(this::initParticle);
+    }
+
+    @Override
+    protected Map<Integer, Vector2D> setInitialDerivativeValues(final Particle particle) {
+      final Map<Integer, Vector2D> initialDerivativeValues = new HashMap<>(sVectors());
+      for (int order = 0; order <= order(); order++) {
+        initialDerivativeValues.put(order, Vector2D.builder(0, 0).build());
+      }
+      initialDerivativeValues.put(0, Vector2D.builder(particle.x(), particle.y()).build());
+      return initialDerivativeValues;
+    }
+
+    @Override
+    protected Vector2D getForceWithPredicted(final Particle particle) {
+      final int i = (int) particle.id();
+      final int slot = slotOf(particle);
+      double fy = - GAMMA * getPredictedRY(slot, 1);
+      if (i > 0) {
+        fy -= K * (getPredictedRY(slot, 0) - getPredictedRY(slotOf(chain.get(i - 1)), 0));
+      }
+      if (i < chain.size() - 1) {
+        fy -= K * (getPredictedRY(slot, 0) - getPredictedRY(slotOf(chain.get(i + 1)), 0));
+      }
+      return Vector2D.builder(0, fy).build();
+    }
+
+    @Override
+    protected void prePredict() {
+      chunksKineticEnergy = new double[nChunks()];
+    }
+
+    @Override
+    protected void fixed(final int slot, final int chunk) {
+      chunksKineticEnergy[chunk] += particle(slot).kineticEnergy();
+    }
+
+    @Override
+    protected void postFix() {
+      kineticEnergy = 0;
+      for (final double chunkKineticEnergy : chunksKineticEnergy) {
+        kineticEnergy += chunkKineticEnergy;
+      }
+      super.postFix();
+    }
+  }
+}
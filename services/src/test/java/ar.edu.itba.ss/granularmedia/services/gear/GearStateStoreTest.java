@@ -0,0 +1,67 @@
+package ar.edu.itba.ss.granularmedia.services.gear;
+
+import ar.edu.itba.ss.granularmedia.models.Particle;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class GearStateStoreTest {
+  private static final int S_VECTORS = 6;
+  private static final int N_PARTICLES = 1000;
+
+  @Test
+  public void swapRemoveKeepsEachParticleStateTest() {
+    // small initial capacity, so as the store has to grow
+    final GearStateStore store = new GearStateStore(S_VECTORS, 1);
+    final List<Particle> particles = new ArrayList<>();
+    for (int i = 0; i < N_PARTICLES; i++) {
+      final Particle particle = Particle.builder(i, i).id(i + 1).build();
+      particles.add(particle);
+      final int slot = store.add(particle);
+      for (int order = 0; order < S_VECTORS; order++) {
+        store.r(slot, order, particle.id(), order);
+        store.predictedR(slot, order, order, particle.id());
+      }
+      store.deltaR2(slot, particle.id(), -particle.id());
+    }
+
+    // remove every third particle
+    final List<Particle> remaining = new ArrayList<>();
+    for (int i = 0; i < N_PARTICLES; i++) {
+      if (i % 3 == 0) {
+        Assert.assertTrue(store.remove(particles.get(i)));
+        Assert.assertFalse(store.remove(particles.get(i)));
+      } else {
+        remaining.add(particles.get(i));
+      }
+    }
+
+    Assert.assertEquals(remaining.size(), store.size());
+    for (final Particle particle : remaining) {
+      final int slot = store.slotOf(particle);
+      Assert.assertNotEquals(GearStateStore.NO_SLOT, slot);
+      Assert.assertEquals(particle, store.particle(slot));
+      for (int order = 0; order < S_VECTORS; order++) {
+        Assert.assertEquals(particle.id(), store.rX(slot, order), 0);
+        Assert.assertEquals(order, store.rY(slot, order), 0);
+        Assert.assertEquals(order, store.predictedRX(slot, order), 0);
+        Assert.assertEquals(particle.id(), store.predictedRY(slot, order), 0);
+      }
+      Assert.assertEquals(particle.id(), store.deltaR2X(slot), 0);
+      Assert.assertEquals(-particle.id(), store.deltaR2Y(slot), 0);
+    }
+    for (int i = 0; i < N_PARTICLES; i += 3) {
+      Assert.assertEquals(GearStateStore.NO_SLOT, store.slotOf(particles.get(i)));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void addDuplicatedParticleTest() {
+    final GearStateStore store = new GearStateStore(S_VECTORS, 1);
+    final Particle particle = Particle.builder(0, 0).id(1).build();
+    store.add(particle);
+    store.add(particle);
+  }
+}
@@ -0,0 +1,107 @@
+package ar.edu.itba.ss.granularmedia.services.gear;
+
+import ar.edu.itba.ss.granularmedia.models.Particle;
+import ar.edu.itba.ss.granularmedia.models.Vector2D;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+public class GearSystemDataRestoreTest {
+  private static final int N_PARTICLES = 51;
+  private static final double MASS = 1;
+  private static final double K = 1000;
+  private static final double DT = 1e-4;
+  private static final int N_STEPS = 200;
+
+  @Test
+  public void restoredSystemGoesOnExactlyTest() {
+    final GearPredictorCorrector<ChainSystemData> gear = new GearPredictorCorrector<>();
+    final ChainSystemData original = new ChainSystemData(chain());
+    for (int step = 0; step < N_STEPS; step++) {
+      gear.evolveSystem(original, DT);
+    }
+
+    // save the original's slots, as a checkpoint does, and restore them into a new system
+    final List<Particle> savedParticles = new ArrayList<>(original.particles());
+    final int sVectors = original.sVectors();
+    final double[] savedRXs = new double[savedParticles.size() * sVectors];
+    final double[] savedRYs = new double[savedParticles.size() * sVectors];
+    for (int slot = 0; slot < savedParticles.size(); slot++) {
+      for (int order = 0; order < sVectors; order++) {
+        savedRXs[slot * sVectors + order] = original.getRX(slot, order);
+        savedRYs[slot * sVectors + order] = original.getRY(slot, order);
+      }
+    }
+    final ChainSystemData restored = new ChainSystemData(chain());
+    restored.clearParticles();
+    for (int i = 0; i < savedParticles.size(); i++) {
+      final int slot = restored.restoreParticle(savedParticles.get(i));
+      Assert.assertEquals(i, slot);
+      for (int order = 0; order < sVectors; order++) {
+        restored.setR(slot, order, savedRXs[i * sVectors + order], savedRYs[i * sVectors + order]);
+      }
+    }
+
+    for (int step = 0; step < N_STEPS; step++) {
+      gear.evolveSystem(original, DT);
+      gear.evolveSystem(restored, DT);
+    }
+
+    final Iterator<Particle> restoredParticles = restored.particles().iterator();
+    for (final Particle originalParticle : original.particles()) {
+      final Particle restoredParticle = restoredParticles.next();
+      Assert.assertEquals(originalParticle, restoredParticle);
+      Assert.assertEquals(originalParticle.y(), restoredParticle.y(), 0);
+      Assert.assertEquals(originalParticle.vy(), restoredParticle.vy(), 0);
+    }
+    Assert.assertFalse(restoredParticles.hasNext());
+  }
+
+  private static List<Particle> chain() {
+    final List<Particle> particles = new ArrayList<>(N_PARTICLES);
+    for (int i = 0; i < N_PARTICLES; i++) {
+      // middle particle is displaced, so as a wave goes through the chain
+      final double y = i == N_PARTICLES / 2 ? 0.1 : 0;
+      particles.add(Particle.builder(i, y).id(i).mass(MASS).build());
+    }
+    return particles;
+  }
+
+  /**
+   * Chain of particles, each one attached with springs to the previous and the next one
+   */
+  private static class ChainSystemData extends Gear5SystemData {
+    private final List<Particle> chain;
+
+    private ChainSystemData(final List<Particle> chain) {
+      super(chain);
+      this.chain = chain;
+      chain.forEach(this::initParticle);
+    }
+
+    @Override
+    protected Map<Integer, Vector2D> setInitialDerivativeValues(final Particle particle) {
+      final Map<Integer, Vector2D> initialDerivativeValues = new HashMap<>(sVectors());
+      for (int order = 0; order <= order(); order++) {
+        initialDerivativeValues.put(order, Vector2D.builder(0, 0).build());
+      }
+      initialDerivativeValues.put(0, Vector2D.builder(particle.x(), particle.y()).build());
+      return initialDerivativeValues;
+    }
+
+    @Override
+    protected Vector2D getForceWithPredicted(final Particle particle) {
+      final int i = (int) particle.id();
+      final int slot = slotOf(particle);
+      double fy = 0;
+      if (i > 0) {
+        fy -= K * (getPredictedRY(slot, 0) - getPredictedRY(slotOf(chain.get(i - 1)), 0));
+      }
+      if (i < chain.size() - 1) {
+        fy -= K * (getPredictedRY(slot, 0) - getPredictedRY(slotOf(chain.get(i + 1)), 0));
+      }
+      return Vector2D.builder(0, fy).build();
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package ar.edu.itba.ss.granularmedia.services.gear;
+
+import ar.edu.itba.ss.granularmedia.interfaces.TimeDrivenSimulationSystem;
+import ar.edu.itba.ss.granularmedia.models.Particle;
+import ar.edu.itba.ss.granularmedia.models.Vector2D;
+import ar.edu.itba.ss.granularmedia.services.gear.oscillator.AnalyticOscillatorSystem;
+import ar.edu.itba.ss.granularmedia.services.gear.oscillator.GearOscillatorSystem;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+public class MultiRateGearPredictorCorrectorTest {
+  private static final double MASS = 70;
+  private static final double R = 1;
+  private static final double K = 10000;
+  private static final double GAMMA = 100;
+  private static final double TF = 5;
+  private static final double DT = 0.001;
+  private static final double TOLERANCE = 1e-7;
+  // the coupling force is evaluated with the soft particle predicted from its last fix, up to 8 steps ago
+  private static final double COUPLED_TOLERANCE = 1e-6;
+  private static final int MAX_LEVEL = 4;
+
+  // the soft oscillator is 8 times slower than the stiff one
+  private static final double SOFT_K = K / 64;
+  private static final double SOFT_GAMMA = GAMMA / 8;
+  // each oscillator's max time step is such as the stiff one is integrated with dt, and the soft one, with 8 * dt
+  private static final double MAX_PHASE_STEP = 1.01 * DT * Math.sqrt(K / MASS);
+
+  private static final long STIFF = 1;
+  private static final long SOFT = 2;
+
+  @Test
+  public void levelZeroIsGearTest() {
+    final TimeDrivenSimulationSystem gearOscillator = new GearOscillatorSystem(MASS, R, K, GAMMA);
+    final TimeDrivenSimulationSystem multiRateOscillator = new GearOscillatorSystem(MASS, R, K, GAMMA,
+            new MultiRateGearPredictorCorrector<>(MAX_LEVEL), Gear5SystemData.S_VECTORS);
+    for (double systemTime = 0; systemTime < TF; systemTime += DT) {
+      gearOscillator.evolveSystem(DT);
+      multiRateOscillator.evolveSystem(DT);
+
+      final Particle gParticle = gearOscillator.getSystemData().particles().iterator().next();
+      final Particle mParticle = multiRateOscillator.getSystemData().particles().iterator().next();
+      Assert.assertEquals(gParticle.x(), mParticle.x(), 0);
+      Assert.assertEquals(gParticle.vx(), mParticle.vx(), 0);
+    }
+  }
+
+  @Test
+  public void quietOscillatorIsAccurateTest() {
+    final OscillatorsSystemData systemData = new OscillatorsSystemData(0);
+    final MultiRateGearPredictorCorrector<OscillatorsSystemData> gear =
+            new MultiRateGearPredictorCorrector<>(MAX_LEVEL);
+    final TimeDrivenSimulationSystem stiffOscillator = new AnalyticOscillatorSystem(MASS, R, K, GAMMA);
+    final TimeDrivenSimulationSystem softOscillator = new AnalyticOscillatorSystem(MASS, R, SOFT_K, SOFT_GAMMA);
+    int nSteps = 0;
+    for (double systemTime = 0; systemTime < TF; systemTime += DT) {
+      gear.evolveSystem(systemData, DT);
+      stiffOscillator.evolveSystem(DT);
+      softOscillator.evolveSystem(DT);
+      nSteps++;
+
+      final Particle aStiffParticle = stiffOscillator.getSystemData().particles().iterator().next();
+      final Particle aSoftParticle = softOscillator.getSystemData().particles().iterator().next();
+      Assert.assertEquals(aStiffParticle.x(), systemData.particle(STIFF).x(), TOLERANCE);
+      Assert.assertEquals(aSoftParticle.x(), systemData.particle(SOFT).x(), TOLERANCE);
+    }
+
+    // the stiff one is evaluated at every step, and the soft one, once each 8 steps
+    Assert.assertEquals(nSteps, systemData.nEvaluations.get(STIFF).intValue());
+    Assert.assertEquals(nSteps / 8, systemData.nEvaluations.get(SOFT), 4);
+    Assert.assertEquals(0, systemData.getLevel(systemData.slotOf(systemData.particle(STIFF))));
+    Assert.assertEquals(3, systemData.getLevel(systemData.slotOf(systemData.particle(SOFT))));
+  }
+
+  @Test
+  public void coupledOscillatorsSynchronizeTest() {
+    // the soft oscillator is pulled by the stiff one, so its force changes each step, even between its fixes
+    final double kCoupling = SOFT_K / 10;
+    final OscillatorsSystemData multiRate = new OscillatorsSystemData(kCoupling);
+    final OscillatorsSystemData singleRate = new OscillatorsSystemData(kCoupling);
+    final MultiRateGearPredictorCorrector<OscillatorsSystemData> multiRateGear =
+            new MultiRateGearPredictorCorrector<>(MAX_LEVEL);
+    final GearPredictorCorrector<OscillatorsSystemData> gear = new GearPredictorCorrector<>();
+    for (double systemTime = 0; systemTime < TF; systemTime += DT) {
+      multiRateGear.evolveSystem(multiRate, DT);
+      gear.evolveSystem(singleRate, DT);
+
+      Assert.assertEquals(singleRate.particle(STIFF).x(), multiRate.particle(STIFF).x(), COUPLED_TOLERANCE);
+      Assert.assertEquals(singleRate.particle(SOFT).x(), multiRate.particle(SOFT).x(), COUPLED_TOLERANCE);
+    }
+    Assert.assertTrue(multiRate.nEvaluations.get(SOFT) < singleRate.nEvaluations.get(SOFT) / 4);
+  }
+
+  /**
+   * A stiff and a soft damped oscillators, optionally coupled by a spring, with their max time steps relative to
+   * their periods
+   */
+  private static class OscillatorsSystemData extends Gear5SystemData {
+    private final double kCoupling;
+    private final Map<Long, Integer> nEvaluations;
+
+    private OscillatorsSystemData(final double kCoupling) {
+      super(oscillators(), Gear5SystemData.S_VECTORS);
+      this.kCoupling = kCoupling;
+      this.nEvaluations = new HashMap<>();
+      nEvaluations.put(STIFF, 0);
+      nEvaluations.put(SOFT, 0);
+      particles().forEach(this::initParticle);
+    }
+
+    private static Collection<Particle> oscillators() {
+      return Arrays.asList(
+              Particle.builder(R, 0).id(STIFF).mass(MASS).vx(- GAMMA / (2 * MASS)).build(),
+              Particle.builder(R, 0).id(SOFT).mass(MASS).vx(- SOFT_GAMMA / (2 * MASS)).build());
+    }
+
+    private Particle particle(final long id) {
+      for (final Particle particle : particles()) {
+        if (particle.id() == id) {
+          return particle;
+        }
+      }
+      throw new NoSuchElementException();
+    }
+
+    private static double k(final Particle particle) {
+      return particle.id() == STIFF ? K : SOFT_K;
+    }
+
+    private static double gamma(final Particle particle) {
+      return particle.id() == STIFF ? GAMMA : SOFT_GAMMA;
+    }
+
+    @Override
+    protected Map<Integer, Vector2D> setInitialDerivativeValues(final Particle particle) {
+      // the coupling spring is not stretched at the beginning
+      final double k = k(particle);
+      final double gamma = gamma(particle);
+      final Map<Integer, Vector2D> initialDerivativeValues = new HashMap<>(sVectors());
+      initialDerivativeValues.put(0, Vector2D.builder(particle.x(), particle.y()).build());
+      initialDerivativeValues.put(1, Vector2D.builder(particle.vx(), particle.vy()).build());
+      for (int i = 2; i <= order(); i++) {
+        final Vector2D rPrev2 = initialDerivativeValues.get(i - 2);
+        final Vector2D rPrev1 = initialDerivativeValues.get(i - 1);
+        initialDerivativeValues.put(i, rPrev2.times(-k).sub(rPrev1.times(gamma)).div(particle.mass()));
+      }
+      return initialDerivativeValues;
+    }
+
+    @Override
+    protected Vector2D getForceWithPredicted(final Particle particle) {
+      nEvaluations.merge(particle.id(), 1, Integer::sum);
+      final int slot = slotOf(particle);
+      final int otherSlot = 1 - slot;
+      final double x = getPredictedRX(slot, 0);
+      final double coupling = - kCoupling * (x - getPredictedRX(otherSlot, 0));
+      return Vector2D.builder(- k(particle) * x - gamma(particle) * getPredictedRX(slot, 1) + coupling, 0)
+              .build();
+    }
+
+    @Override
+    protected double maxTimeStep(final int slot) {
+      return MAX_PHASE_STEP / Math.sqrt(k(predictedParticle(slot)) / MASS);
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package ar.edu.itba.ss.granularmedia.services.gear;
+
+import ar.edu.itba.ss.granularmedia.interfaces.TimeDrivenSimulationSystem;
+import ar.edu.itba.ss.granularmedia.models.Particle;
+import ar.edu.itba.ss.granularmedia.services.gear.oscillator.AnalyticOscillatorSystem;
+import ar.edu.itba.ss.granularmedia.services.gear.oscillator.GearOscillatorSystem;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class VelocityVerletTest {
+  private static final double mass = 70;
+  private static final double r = 1;
+  private static final double k = 10000;
+  private static final double gamma = 100;
+  private static final double tf = 5;
+  private static final double dt = 0.001;
+  private static final double TOLERANCE = 1e-4;
+
+  @Test
+  public void evolveSystem() {
+    Assert.assertTrue(maxError(verletOscillator(), dt) < TOLERANCE);
+  }
+
+  @Test
+  public void secondOrderAccurate() {
+    final double error = maxError(verletOscillator(), dt);
+    final double halfDtError = maxError(verletOscillator(), dt / 2);
+    // halving dt should divide the error by 4
+    Assert.assertEquals(4, error / halfDtError, 0.5);
+  }
+
+  @Test
+  public void lessAccurateThanGear() {
+    final double gearError = maxError(new GearOscillatorSystem(mass, r, k, gamma), dt);
+    Assert.assertTrue(gearError < maxError(verletOscillator(), dt));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void gearNeedsAllDerivatives() {
+    new GearOscillatorSystem(mass, r, k, gamma, new GearPredictorCorrector<>(), VelocityVerlet.S_VECTORS)
+            .evolveSystem(dt);
+  }
+
+  private static TimeDrivenSimulationSystem verletOscillator() {
+    return new GearOscillatorSystem(mass, r, k, gamma, new VelocityVerlet<>(), VelocityVerlet.S_VECTORS);
+  }
+
+  private static double maxError(final TimeDrivenSimulationSystem oscillator, final double dt) {
+    final TimeDrivenSimulationSystem analyticOscillator = new AnalyticOscillatorSystem(mass, r, k, gamma);
+    double maxError = 0;
+    for (double systemTime = 0; systemTime < tf; systemTime += dt) {
+      analyticOscillator.evolveSystem(dt);
+      oscillator.evolveSystem(dt);
+
+      final Particle aParticle = analyticOscillator.getSystemData().particles().iterator().next();
+      final Particle particle = oscillator.getSystemData().particles().iterator().next();
+      maxError = Math.max(maxError, Math.abs(aParticle.x() - particle.x()));
+    }
+    return maxError;
+  }
+}
@@ -33,6 +33,7 @@ public class AnalyticOscillatorSystem implements TimeDrivenSimulationSystem {
     final double initialVx = -beta;
 
     this.particle = Particle.builder(r, 0)
+            .id(1)
             .mass(mass)
             .vx(initialVx)
             .build();
@@ -19,6 +19,16 @@ public class GearOscillatorSystem implements TimeDrivenSimulationSystem {
   private final Gear5SystemData systemData;
 
   public GearOscillatorSystem(final double mass, final double r, final double k, final double gamma) {
+    this(mass, r, k, gamma, new GearPredictorCorrector<>(), Gear5SystemData.S_VECTORS);
+  }
+
+  /**
+   * @param numericIntegrationMethod method used to evolve the system
+   * @param sVectors number of derivative values kept for the particle, as needed by the given method
+   */
+  public GearOscillatorSystem(final double mass, final double r, final double k, final double gamma,
+                              final NumericIntegrationMethod<Gear5SystemData> numericIntegrationMethod,
+                              final int sVectors) {
 
     /*
       template steps:
@@ -31,6 +41,7 @@ public class GearOscillatorSystem implements TimeDrivenSimulationSystem {
     final double beta = gamma / (2 * mass);
     final double initialVx = -beta;
     final Particle particle = Particle.builder(r, 0)
+            .id(1)
             .mass(mass)
             .vx(initialVx)
             .build();
@@ -39,9 +50,9 @@ public class GearOscillatorSystem implements TimeDrivenSimulationSystem {
     particles.add(particle);
 
     // Numeric Integration Method initialization
-    this.systemData = new OscillatorGear5SystemData(particles, k, gamma);
+    this.systemData = new OscillatorGear5SystemData(particles, k, gamma, sVectors);
 
-    this.numericIntegrationMethod = new GearPredictorCorrector<>();
+    this.numericIntegrationMethod = numericIntegrationMethod;
   }
 
   @Override
@@ -59,8 +70,8 @@ public class GearOscillatorSystem implements TimeDrivenSimulationSystem {
     private final double gamma;
 
     private OscillatorGear5SystemData(final Collection<Particle> particles,
-                                     final double k, final double gamma) {
-      super(particles);
+                                     final double k, final double gamma, final int sVectors) {
+      super(particles, sVectors);
 
       // Save constant parameters
       this.k = k;